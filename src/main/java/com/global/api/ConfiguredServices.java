@@ -3,6 +3,7 @@ package com.global.api;
 import com.global.api.entities.enums.Secure3dVersion;
 import com.global.api.entities.exceptions.ConfigurationException;
 import com.global.api.gateways.*;
+import com.global.api.gateways.transport.IHttpTransport;
 import com.global.api.terminals.DeviceController;
 import com.global.api.terminals.abstractions.IDeviceInterface;
 import com.global.api.terminals.abstractions.IDisposable;
@@ -20,8 +21,10 @@ public class ConfiguredServices implements IDisposable {
     private TableServiceConnector tableServiceConnector;
     private PayrollConnector payrollConnector;
     private HashMap<Secure3dVersion, ISecure3dProvider> secure3dProviders;
+    @Getter @Setter private ISecure3dVersionCache secure3dVersionCache;
     private IBillingProvider billingProvider;
     @Getter @Setter private IOpenBankingProvider openBankingProvider;
+    private IHttpTransport httpTransport;
 
     IPaymentGateway getGatewayConnector() {
         return gatewayConnector;
@@ -80,11 +83,27 @@ public class ConfiguredServices implements IDisposable {
         this.billingProvider = billingProvider;
     }
 
+    IHttpTransport getHttpTransport() {
+        return httpTransport;
+    }
+    // a transport the configuration built itself, closed by the container once no configuration uses it
+    public void setHttpTransport(IHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
     public ConfiguredServices() {
         secure3dProviders = new HashMap<Secure3dVersion, ISecure3dProvider>();
     }
 
     public void dispose() {
-        deviceController.dispose();
+        if(httpTransport != null) {
+            httpTransport.close();
+        }
+        if(gatewayConnector instanceof IDisposable) {
+            ((IDisposable) gatewayConnector).dispose();
+        }
+        if(deviceController != null) {
+            deviceController.dispose();
+        }
     }
 }
@@ -4,17 +4,22 @@ import com.global.api.entities.enums.Secure3dVersion;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.ConfigurationException;
 import com.global.api.gateways.*;
+import com.global.api.gateways.transport.IHttpTransport;
 import com.global.api.serviceConfigs.Configuration;
 import com.global.api.terminals.DeviceController;
 import com.global.api.terminals.abstractions.IDeviceInterface;
 import com.global.api.terminals.abstractions.IDisposable;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 
 public class ServicesContainer implements IDisposable {
 
     private ConcurrentHashMap<String, ConfiguredServices> configurations;
     private static ServicesContainer instance;
+    private static volatile Executor asyncExecutor;
+
+    // most calls spend their time waiting on the gateway, so the fallback pool is sized well past the core count
+    private static final int DEFAULT_ASYNC_THREADS = 64;
 
     public IDeviceInterface getDeviceInterface(String configName) throws ApiException {
         if(configurations.containsKey(configName))
@@ -51,6 +56,11 @@ public class ServicesContainer implements IDisposable {
         }
         throw new ConfigurationException("Secure 3d is not configured on the connector");
     }
+    public ISecure3dVersionCache getSecure3dVersionCache(String configName) {
+        if(configurations.containsKey(configName))
+            return configurations.get(configName).getSecure3dVersionCache();
+        return null;
+    }
     public TableServiceConnector getTableService(String configName) throws ApiException {
         if(configurations.containsKey(configName))
             return configurations.get(configName).getTableServiceConnector();
@@ -71,6 +81,44 @@ public class ServicesContainer implements IDisposable {
         throw new ConfigurationException("OpenBankingProvider is not configured.");
     }
 
+    // executor behind the builders' executeAsync methods
+    public static Executor getAsyncExecutor() {
+        if(asyncExecutor == null) {
+            synchronized (ServicesContainer.class) {
+                if(asyncExecutor == null) {
+                    asyncExecutor = createDefaultAsyncExecutor();
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    private static Executor createDefaultAsyncExecutor() {
+        // a virtual thread per call where the runtime has them (JDK 21+)
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(Exception exc) {
+            // fall back to a bounded pool of platform threads
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private int count = 0;
+                    public synchronized Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "gp-async-" + (++count));
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static ServicesContainer getInstance() {
         if(instance == null)
             instance = new ServicesContainer();
@@ -117,9 +165,17 @@ public class ServicesContainer implements IDisposable {
         }
 
         ConfiguredServices cs = getInstance().getConfiguration(configName);
+        IHttpTransport previousTransport = cs.getHttpTransport();
+        IPaymentGateway previousGateway = cs.getGatewayConnector();
         config.configureContainer(cs);
 
         getInstance().addConfiguration(configName, cs);
+        if(previousTransport != cs.getHttpTransport()) {
+            getInstance().closeIfUnused(previousTransport);
+        }
+        if(previousGateway != cs.getGatewayConnector()) {
+            release(previousGateway);
+        }
     }
 
     private ServicesContainer() {
@@ -142,9 +198,31 @@ public class ServicesContainer implements IDisposable {
 
     private void removeConfiguration(String configName) throws ConfigurationException {
         System.out.println(String.format("[Remove Configuration] - %s", configName));
-        if(configurations.containsKey(configName)) {
-            configurations.remove(configName);
+        ConfiguredServices cs = configurations.remove(configName);
+        if(cs != null) {
+            closeIfUnused(cs.getHttpTransport());
+            release(cs.getGatewayConnector());
+        }
+    }
+
+    // lets a replaced or removed connector give up what it shares with other connectors, such as GP-API tokens
+    private static void release(IPaymentGateway gateway) {
+        if(gateway instanceof IDisposable) {
+            ((IDisposable) gateway).dispose();
+        }
+    }
+
+    // the same configuration may be registered under several names, sharing one transport
+    private void closeIfUnused(IHttpTransport transport) {
+        if(transport == null) {
+            return;
+        }
+        for(ConfiguredServices cs : configurations.values()) {
+            if(cs.getHttpTransport() == transport) {
+                return;
+            }
         }
+        transport.close();
     }
 
     public void dispose() {
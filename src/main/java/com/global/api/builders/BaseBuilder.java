@@ -1,21 +1,47 @@
 package com.global.api.builders;
 
 import com.global.api.builders.validations.Validations;
+import com.global.api.ServicesContainer;
 import com.global.api.entities.exceptions.ApiException;
+import com.global.api.gateways.CallContext;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class BaseBuilder<TResult> {
+    // setupValidations only declares rules, so they are built and compiled once per builder class and shared
+    private static final ConcurrentHashMap<Class<?>, Validations> VALIDATIONS = new ConcurrentHashMap<Class<?>, Validations>();
+
     protected Validations validations;
+    // true while validations is the instance shared by every builder of this class
+    private boolean sharedValidations;
 
+    // callers may add rules to what they get back, so the shared rules are copied for this builder first
     public Validations getValidations() {
+        if(sharedValidations) {
+            validations = validations.copy();
+            sharedValidations = false;
+        }
         return validations;
     }
     public void setValidations(Validations validations) {
         this.validations = validations;
+        this.sharedValidations = false;
     }
 
     public BaseBuilder() {
-        validations = new Validations();
-        setupValidations();
+        validations = VALIDATIONS.get(getClass());
+        if(validations == null) {
+            validations = new Validations();
+            setupValidations();
+            validations.compile();
+
+            Validations existing = VALIDATIONS.putIfAbsent(getClass(), validations);
+            if(existing != null)
+                validations = existing;
+        }
+        sharedValidations = true;
     }
 
     public TResult execute() throws ApiException {
@@ -26,5 +52,20 @@ public abstract class BaseBuilder<TResult> {
         return null;
     }
 
+    public CompletableFuture<TResult> executeAsync() {
+        return executeAsync("default");
+    }
+    public CompletableFuture<TResult> executeAsync(String configName) {
+        return executeAsync(configName, 0);
+    }
+    // timeout is in milliseconds and caps the gateway timeouts for this call; 0 leaves them as configured
+    public CompletableFuture<TResult> executeAsync(final String configName, int timeout) {
+        return CallContext.submit(ServicesContainer.getAsyncExecutor(), new Callable<TResult>() {
+            public TResult call() throws Exception {
+                return execute(configName);
+            }
+        }, timeout);
+    }
+
     public abstract void setupValidations();
 }
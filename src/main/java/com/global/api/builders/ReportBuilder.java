@@ -23,6 +23,9 @@ public abstract class ReportBuilder<TResult> extends BaseBuilder<TResult> {
     public void setTimeZoneConversion(TimeZoneConversion timeZoneConversion) {
         this.timeZoneConversion = timeZoneConversion;
     }
+    protected Class<TResult> getResultClass() {
+        return clazz;
+    }
 
     public ReportBuilder(ReportType type, Class<TResult> clazz) {
         super();
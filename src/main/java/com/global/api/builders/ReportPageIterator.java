@@ -0,0 +1,114 @@
+package com.global.api.builders;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.gpApi.PagedResult;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Walks the pages of a paged report, starting at the page set on the builder. Once the first page has
+ * told it how many records there are, the following pages are requested in the background while the
+ * current one is being read, with no more than prefetchPages of them waiting at any time. Every page is
+ * requested with the builder's filters and sort order, so leave the builder as it is until the walk is over.
+ * <p>
+ * Call close() when stopping before the last page, to cancel the requests still in flight.
+ */
+public class ReportPageIterator<TResult> implements Closeable {
+    private final TransactionReportBuilder<TResult> builder;
+    private final String configName;
+    private final int prefetchPages;
+    private final int timeout;
+    private final ArrayDeque<CompletableFuture<TResult>> pending = new ArrayDeque<CompletableFuture<TResult>>();
+    private int nextRequest;
+    // page numbers past this are not requested, unknown until the first page is back
+    private int lastPage = Integer.MAX_VALUE;
+    private int totalRecordCount = -1;
+    private boolean finished;
+
+    ReportPageIterator(TransactionReportBuilder<TResult> builder, String configName, int prefetchPages, int timeout) {
+        this.builder = builder;
+        this.configName = configName;
+        this.prefetchPages = Math.max(1, prefetchPages);
+        this.timeout = timeout;
+        this.nextRequest = builder.getPage();
+
+        // only the first page until the size of the report is known
+        request();
+    }
+
+    public boolean hasNext() {
+        return !pending.isEmpty();
+    }
+
+    public TResult next() throws ApiException {
+        CompletableFuture<TResult> future = pending.poll();
+        if (future == null) {
+            throw new NoSuchElementException();
+        }
+
+        TResult result;
+        try {
+            result = await(future);
+        } catch (ApiException exc) {
+            close();
+            throw exc;
+        }
+
+        PagedResult<?> page = (PagedResult<?>) result;
+        if (totalRecordCount < 0) {
+            totalRecordCount = page.getTotalRecordCount();
+            int pageSize = Math.max(1, builder.getPageSize());
+            lastPage = (int) ((totalRecordCount + (long) pageSize - 1) / pageSize);
+        }
+
+        // records removed since the walk started can leave the report shorter than it first said
+        if (page.getResults() == null || page.getResults().isEmpty()) {
+            close();
+        }
+
+        while (!finished && pending.size() < prefetchPages && nextRequest <= lastPage) {
+            request();
+        }
+        return result;
+    }
+
+    // the record count reported with the first page, -1 before it has been read
+    public int getTotalRecordCount() {
+        return totalRecordCount;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        for (CompletableFuture<TResult> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private void request() {
+        pending.add(builder.copyForPage(nextRequest++).executeAsync(configName, timeout));
+    }
+
+    private TResult await(CompletableFuture<TResult> future) throws ApiException {
+        try {
+            return future.get();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("Interrupted while waiting for the report.", exc);
+        } catch (ExecutionException exc) {
+            Throwable cause = exc.getCause();
+            if (cause instanceof ApiException) {
+                throw (ApiException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ApiException(cause.getMessage(), (Exception) cause);
+        }
+    }
+}
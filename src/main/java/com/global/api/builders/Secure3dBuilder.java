@@ -6,7 +6,10 @@ import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.ConfigurationException;
 import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.CallContext;
 import com.global.api.gateways.ISecure3dProvider;
+import com.global.api.gateways.ISecure3dVersionCache;
+import com.global.api.paymentMethods.ICardData;
 import com.global.api.paymentMethods.IPaymentMethod;
 import com.global.api.paymentMethods.ISecure3d;
 import com.global.api.utils.JsonDoc;
@@ -16,6 +19,8 @@ import lombok.Setter;
 import org.joda.time.DateTime;
 
 import java.math.BigDecimal;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 public class Secure3dBuilder extends BaseBuilder<ThreeDSecure> {
     private AgeIndicator accountAgeIndicator;
@@ -737,6 +742,13 @@ public class Secure3dBuilder extends BaseBuilder<ThreeDSecure> {
     public ThreeDSecure execute(Secure3dVersion version) throws ApiException {
         return execute(version, "default");
     }
+    public CompletableFuture<ThreeDSecure> executeAsync(final Secure3dVersion version, final String configName, int timeout) {
+        return CallContext.submit(ServicesContainer.getAsyncExecutor(), new Callable<ThreeDSecure>() {
+            public ThreeDSecure call() throws Exception {
+                return execute(version, configName);
+            }
+        }, timeout);
+    }
     public ThreeDSecure execute(Secure3dVersion version, String configName) throws ApiException {
         validations.validate(this);
 
@@ -764,11 +776,23 @@ public class Secure3dBuilder extends BaseBuilder<ThreeDSecure> {
                 catch(ConfigurationException exc) { /* NOT CONFIGURED */ }
             }
 
+            // card ranges the 3DS2 provider has already turned away go straight to 3DS1
+            ISecure3dVersionCache versionCache = null;
+            String cardNumber = null;
+            if(canDowngrade && transactionType.equals(TransactionType.VerifyEnrolled) && paymentMethod instanceof ICardData) {
+                versionCache = ServicesContainer.getInstance().getSecure3dVersionCache(configName);
+                cardNumber = ((ICardData) paymentMethod).getNumber();
+                if(versionCache != null && Secure3dVersion.ONE.equals(versionCache.get(cardNumber))) {
+                    return execute(Secure3dVersion.ONE, configName);
+                }
+            }
+
             /* process the request, capture any exceptions which might have been thrown */
             Transaction response = null;
             try{
                 response = provider.processSecure3d(this);
                 if(response == null && canDowngrade) {
+                    recordVersion(versionCache, cardNumber, Secure3dVersion.ONE);
                     return execute(Secure3dVersion.ONE, configName);
                 }
             }
@@ -798,12 +822,15 @@ public class Secure3dBuilder extends BaseBuilder<ThreeDSecure> {
                                 rvalue.setCurrency(currency);
                                 rvalue.setOrderId(response.getOrderId());
                                 rvalue.setVersion(provider.getVersion());
+                                recordVersion(versionCache, cardNumber, provider.getVersion());
                             }
                             else if(canDowngrade) {
+                                recordVersion(versionCache, cardNumber, Secure3dVersion.ONE);
                                 return execute(Secure3dVersion.ONE, configName);
                             }
                         }
                         else if(canDowngrade) {
+                            recordVersion(versionCache, cardNumber, Secure3dVersion.ONE);
                             return execute(Secure3dVersion.ONE, configName);
                         }
                     } break;
@@ -818,6 +845,13 @@ public class Secure3dBuilder extends BaseBuilder<ThreeDSecure> {
         return rvalue;
     }
 
+    // a failed request says nothing about the card range, so only answers from the provider are recorded
+    private static void recordVersion(ISecure3dVersionCache versionCache, String cardNumber, Secure3dVersion version) {
+        if(versionCache != null) {
+            versionCache.put(cardNumber, version);
+        }
+    }
+
     public void setupValidations() {
         validations.of(TransactionType.VerifyEnrolled)
                 .check("paymentMethod").isNotNull();
@@ -1,6 +1,8 @@
 package com.global.api.builders;
 
 import com.global.api.entities.enums.*;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.gpApi.PagedResult;
 import com.global.api.entities.reporting.DataServiceCriteria;
 import com.global.api.entities.reporting.SearchCriteria;
 import com.global.api.entities.reporting.SearchCriteriaBuilder;
@@ -164,6 +166,40 @@ public class TransactionReportBuilder<TResult> extends ReportBuilder<TResult> {
         return this;
     }
 
+    public ReportPageIterator<TResult> iterator() throws BuilderException {
+        return iterator("default", 2);
+    }
+    // prefetchPages is how many pages are requested ahead of the one being read, timeout caps each request
+    public ReportPageIterator<TResult> iterator(String configName, int prefetchPages, int timeout) throws BuilderException {
+        if (!PagedResult.class.isAssignableFrom(getResultClass())) {
+            throw new BuilderException(String.format("%s is not a paged report.", getReportType()));
+        }
+        return new ReportPageIterator<TResult>(this, configName, prefetchPages, timeout);
+    }
+    public ReportPageIterator<TResult> iterator(String configName, int prefetchPages) throws BuilderException {
+        return iterator(configName, prefetchPages, 0);
+    }
+
+    // the same report at another page, sharing the search criteria
+    TransactionReportBuilder<TResult> copyForPage(int page) {
+        TransactionReportBuilder<TResult> copy = new TransactionReportBuilder<TResult>(getReportType(), getResultClass());
+        copy.setTimeZoneConversion(getTimeZoneConversion());
+        copy.transactionId = transactionId;
+        copy.page = page;
+        copy.pageSize = pageSize;
+        copy.order = order;
+        copy.transactionOrderBy = transactionOrderBy;
+        copy.depositOrderBy = depositOrderBy;
+        copy.disputeOrderBy = disputeOrderBy;
+        copy.storedPaymentMethodOrderBy = storedPaymentMethodOrderBy;
+        copy.storedPaymentMethodOrder = storedPaymentMethodOrder;
+        copy.actionOrderBy = actionOrderBy;
+        copy.payLinkOrderBy = payLinkOrderBy;
+        copy.payLinkId = payLinkId;
+        copy._searchBuilder = _searchBuilder;
+        return copy;
+    }
+
     public void setupValidations() {
         this.validations.of(ReportType.TransactionDetail)
                 .check("transactionId").isNotNull();
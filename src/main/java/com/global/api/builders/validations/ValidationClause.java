@@ -195,18 +195,6 @@ public class ValidationClause {
     }
 
     private Field getField(Class clazz, String fieldName) throws NoSuchFieldException {
-        try{
-            Field f = clazz.getDeclaredField(fieldName);
-            f.setAccessible(true);
-            return f;
-        }
-        catch(NoSuchFieldException e) {
-            Class superClass = clazz.getSuperclass();
-            if(superClass == null)
-                throw e;
-            else {
-                return getField(superClass, fieldName);
-            }
-        }
+        return Validations.getField(clazz, fieldName);
     }
-}
\ No newline at end of file
+}
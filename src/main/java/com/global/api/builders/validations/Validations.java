@@ -5,10 +5,10 @@ import com.global.api.builders.TransactionBuilder;
 import com.global.api.entities.enums.IFlag;
 import com.global.api.entities.exceptions.BuilderException;
 
-import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Validations {
     class ValidationKey {
@@ -27,29 +27,58 @@ public class Validations {
             this.value = value;
         }
 
-        Set<?> getSet() {
-            try {
-                Method method = type.getMethod("getSet", long.class);
-                return (Set<?>)method.invoke(this.type, this.value);
-            }
-            catch(Exception exc) { return null; }
+        boolean contains(IFlag flag) {
+            long flagValue = flag.getLongValue();
+            return getFlagClass(flag) == type && (flagValue & value) == flagValue;
+        }
+    }
+
+    // the rules for one flag type, e.g. every rule keyed on TransactionType, in the order they were declared
+    private static class CompiledRules {
+        private final Class<?> flagClass;
+        private final ValidationKey[] keys;
+        private final ValidationTarget[][] targets;
+
+        CompiledRules(Class<?> flagClass, List<ValidationKey> keys, List<ValidationTarget[]> targets) {
+            this.flagClass = flagClass;
+            this.keys = keys.toArray(new ValidationKey[0]);
+            this.targets = targets.toArray(new ValidationTarget[0][]);
         }
     }
 
-    private HashMap<ValidationKey, List<ValidationTarget>> rules;
+    // field lookups are shared by every builder, keyed by declaring class then field name. a class without
+    // the field is cached as empty so it isn't searched for again.
+    private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Optional<Field>>> FIELDS = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, Optional<Field>>>();
+
+    private LinkedHashMap<ValidationKey, List<ValidationTarget>> rules;
+    private volatile CompiledRules[] compiledRules;
 
     public Validations() {
-        rules = new HashMap<ValidationKey, List<ValidationTarget>>();
+        rules = new LinkedHashMap<ValidationKey, List<ValidationTarget>>();
+    }
+
+    // starts with the same rules and compiled plan; rules added to either one afterwards don't show up in the other
+    public synchronized Validations copy() {
+        Validations copy = new Validations();
+        for(Map.Entry<ValidationKey, List<ValidationTarget>> entry: rules.entrySet()) {
+            copy.rules.put(entry.getKey(), new ArrayList<ValidationTarget>(entry.getValue()));
+        }
+        copy.compiledRules = compiledRules;
+        return copy;
     }
 
     public <T extends IFlag> ValidationTarget of(Set<T> types) {
-        Class clazz = types.iterator().next().getClass();
+        Class clazz = getFlagClass(types.iterator().next());
         return of(new ValidationKey(clazz, getSetValue(types)));
     }
     public ValidationTarget of(IFlag type) {
-        return of(new ValidationKey(type.getClass(), type.getLongValue()));
+        return of(new ValidationKey(getFlagClass(type), type.getLongValue()));
     }
-    ValidationTarget of(ValidationKey key) {
+    // every rule ends with a call to of, so dropping the compiled rules here means a rule added after the first
+    // validate is picked up by the next one
+    synchronized ValidationTarget of(ValidationKey key) {
+        compiledRules = null;
+
         if(!rules.containsKey(key))
             rules.put(key, new ArrayList<ValidationTarget>());
 
@@ -58,25 +87,71 @@ public class Validations {
         return target;
     }
 
+    public boolean isCompiled() {
+        return compiledRules != null;
+    }
+
+    // groups the rules by the flag type they are keyed on so validate looks each builder property up once,
+    // and drops the empty targets left behind by the fluent interface. adding a rule discards the result.
+    public void compile() {
+        compileRules();
+    }
+    private synchronized CompiledRules[] compileRules() {
+        if(compiledRules != null)
+            return compiledRules;
+
+        LinkedHashMap<Class<?>, List<ValidationKey>> keysByClass = new LinkedHashMap<Class<?>, List<ValidationKey>>();
+        LinkedHashMap<Class<?>, List<ValidationTarget[]>> targetsByClass = new LinkedHashMap<Class<?>, List<ValidationTarget[]>>();
+        for(Map.Entry<ValidationKey, List<ValidationTarget>> entry: rules.entrySet()) {
+            List<ValidationTarget> targets = new ArrayList<ValidationTarget>();
+            for(ValidationTarget target: entry.getValue()) {
+                if(target.getClause() != null)
+                    targets.add(target);
+            }
+            if(targets.isEmpty())
+                continue;
+
+            Class<?> flagClass = entry.getKey().type;
+            if(!keysByClass.containsKey(flagClass)) {
+                keysByClass.put(flagClass, new ArrayList<ValidationKey>());
+                targetsByClass.put(flagClass, new ArrayList<ValidationTarget[]>());
+            }
+            keysByClass.get(flagClass).add(entry.getKey());
+            targetsByClass.get(flagClass).add(targets.toArray(new ValidationTarget[0]));
+        }
+
+        List<CompiledRules> compiled = new ArrayList<CompiledRules>();
+        for(Class<?> flagClass: keysByClass.keySet()) {
+            compiled.add(new CompiledRules(flagClass, keysByClass.get(flagClass), targetsByClass.get(flagClass)));
+        }
+        compiledRules = compiled.toArray(new CompiledRules[0]);
+        return compiledRules;
+    }
+
     public <T> void validate(BaseBuilder<T> builder) throws BuilderException {
-        for(ValidationKey key: rules.keySet()) {
-            IFlag value = getPropertyValue(builder, key.getType());
+        CompiledRules[] groups = compiledRules;
+        if(groups == null)
+            groups = compileRules();
+
+        for(CompiledRules group: groups) {
+            IFlag value = getPropertyValue(builder, group.flagClass);
             if(value == null && builder instanceof TransactionBuilder) {
-                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), key.getType());
-                if(value == null)
-                    continue;
+                value = getPropertyValue(((TransactionBuilder<T>)builder).getPaymentMethod(), group.flagClass);
             }
+            if(value == null)
+                continue;
 
-            Set<?> values = key.getSet();
-            if(values.contains(value)) {
-                for(ValidationTarget validation: rules.get(key)) {
+            for(int i = 0; i < group.keys.length; i++) {
+                if(!group.keys[i].contains(value))
+                    continue;
+
+                for(ValidationTarget validation: group.targets[i]) {
                     ValidationClause clause = validation.getClause();
-                    if(clause == null) continue;
 
                     // modifier
                     IFlag constraint = validation.getConstraint();
                     if(constraint != null) {
-                        IFlag modifier = getPropertyValue(builder, constraint.getClass());
+                        IFlag modifier = getPropertyValue(builder, getFlagClass(constraint));
                         if(!constraint.equals(modifier))
                             continue;
                     }
@@ -106,7 +181,25 @@ public class Validations {
         }
     }
 
-    private Field getField(Class clazz, String name) throws NoSuchFieldException {
+    static Field getField(Class clazz, String name) throws NoSuchFieldException {
+        ConcurrentHashMap<String, Optional<Field>> fields = FIELDS.get(clazz);
+        if(fields == null) {
+            fields = new ConcurrentHashMap<String, Optional<Field>>();
+            ConcurrentHashMap<String, Optional<Field>> existing = FIELDS.putIfAbsent(clazz, fields);
+            if(existing != null)
+                fields = existing;
+        }
+
+        Optional<Field> field = fields.get(name);
+        if(field == null) {
+            field = Optional.ofNullable(findField(clazz, name));
+            fields.put(name, field);
+        }
+        if(!field.isPresent())
+            throw new NoSuchFieldException(name);
+        return field.get();
+    }
+    private static Field findField(Class clazz, String name) {
         try {
             Field field = clazz.getDeclaredField(name);
             field.setAccessible(true);
@@ -115,14 +208,14 @@ public class Validations {
         catch(NoSuchFieldException e) {
             Class superClazz = clazz.getSuperclass();
             if(superClazz != null)
-                return getField(superClazz, name);
-            else throw e;
+                return findField(superClazz, name);
+            else return null;
         }
     }
-    private IFlag getPropertyValue(Object obj, Object comp) {
+    private IFlag getPropertyValue(Object obj, Class<?> comp) {
         if(obj == null) return null;
 
-        String name = ((Class)comp).getSimpleName();
+        String name = comp.getSimpleName();
         name = name.substring(0, 1).toLowerCase() + name.substring(1);
 
         try{
@@ -133,6 +226,10 @@ public class Validations {
             return null;
         }
     }
+    private static Class<?> getFlagClass(IFlag flag) {
+        // enum constants with bodies are subclasses of their enum
+        return (flag instanceof Enum) ? ((Enum)flag).getDeclaringClass() : flag.getClass();
+    }
     private <T extends IFlag> long getSetValue(Set<T> flags) {
         long value = 0;
         for(IFlag type : flags) {
@@ -4,4 +4,7 @@ public class ConfigurationException extends ApiException {
     public ConfigurationException(String message) {
         super(message);
     }
+    public ConfigurationException(String message, Exception innerException) {
+        super(message, innerException);
+    }
 }
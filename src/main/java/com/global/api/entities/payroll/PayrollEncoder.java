@@ -1,5 +1,7 @@
 package com.global.api.entities.payroll;
 
+import com.global.api.entities.enums.ShaHashType;
+import com.global.api.utils.GenerationUtils;
 import com.global.api.utils.IRequestEncoder;
 import com.global.api.utils.ValueConverter;
 import org.apache.commons.codec.binary.Base64;
@@ -9,12 +11,25 @@ import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
-import java.security.spec.AlgorithmParameterSpec;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class PayrollEncoder implements IRequestEncoder {
+    // deriving the key costs a thousand rounds of HMAC, so it is done once per username/api key pair. keyed by a
+    // hash of the credentials so the api key is not kept in the clear, and the least recently used pair is dropped
+    private static final int MAX_CACHED_KEYS = 256;
+    private static final Map<String, KeyMaterial> KEY_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, KeyMaterial>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, KeyMaterial> eldest) {
+                    return size() > MAX_CACHED_KEYS;
+                }
+            });
+
     private String username;
     private String apiKey;
+    private volatile BoundKey boundKey;
 
     public String getUsername() {
         return username;
@@ -63,20 +78,7 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
-            byte[] key = new byte[32];
-            byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, secret, ivSpec);
-            byte[] results = cipher.doFinal(value.toString().getBytes("UTF-8"));
-            return Base64.encodeBase64String(results);
+            return encode(getKeyMaterial(), value);
         }
         catch(Exception exc) {
             return value.toString();
@@ -88,24 +90,150 @@ public class PayrollEncoder implements IRequestEncoder {
             return null;
 
         try {
+            return decode(getKeyMaterial(), value);
+        }
+        catch(Exception exc) {
+            return value.toString();
+        }
+    }
+
+    // encodes every value of a document with a single key lookup; values that fail to encode are passed through as-is
+    public Map<String, String> encode(Map<String, ?> values) {
+        return convert(values, true);
+    }
+
+    public Map<String, String> decode(Map<String, ?> values) {
+        return convert(values, false);
+    }
+
+    private Map<String, String> convert(Map<String, ?> values, boolean encrypt) {
+        if (values == null)
+            return null;
+
+        KeyMaterial keyMaterial;
+        try {
+            keyMaterial = getKeyMaterial();
+        }
+        catch(Exception exc) {
+            keyMaterial = null;
+        }
+
+        Map<String, String> results = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                results.put(entry.getKey(), null);
+                continue;
+            }
+
+            String result;
+            try {
+                if (keyMaterial == null) {
+                    result = value.toString();
+                }
+                else {
+                    result = encrypt ? encode(keyMaterial, value) : decode(keyMaterial, value);
+                }
+            }
+            catch(Exception exc) {
+                result = value.toString();
+            }
+            results.put(entry.getKey(), result);
+        }
+        return results;
+    }
+
+    private String encode(KeyMaterial keyMaterial, Object value) throws Exception {
+        byte[] results = keyMaterial.doFinal(Cipher.ENCRYPT_MODE, value.toString().getBytes("UTF-8"));
+        return Base64.encodeBase64String(results);
+    }
+
+    private String decode(KeyMaterial keyMaterial, Object value) throws Exception {
+        byte[] decode = Base64.decodeBase64(value.toString());
+        byte[] results = keyMaterial.doFinal(Cipher.DECRYPT_MODE, decode);
+        return new String(results, "UTF-8");
+    }
+
+    private KeyMaterial getKeyMaterial() throws Exception {
+        BoundKey bound = boundKey;
+        if (bound != null && bound.matches(username, apiKey)) {
+            return bound.keyMaterial;
+        }
+
+        String cacheKey = GenerationUtils.shaHex(username + "\u0000" + apiKey, ShaHashType.SHA256);
+        KeyMaterial current = KEY_CACHE.get(cacheKey);
+        if (current == null) {
+            // derived outside the lock; two threads racing on a new pair both derive it and the first one in wins
+            current = new KeyMaterial(username, apiKey);
+            KeyMaterial existing = KEY_CACHE.putIfAbsent(cacheKey, current);
+            if (existing != null) {
+                current = existing;
+            }
+        }
+        boundKey = new BoundKey(username, apiKey, current);
+        return current;
+    }
+
+    // the key material this encoder last used, along with the credentials it was looked up for
+    private static class BoundKey {
+        private final String username;
+        private final String apiKey;
+        private final KeyMaterial keyMaterial;
+
+        BoundKey(String username, String apiKey, KeyMaterial keyMaterial) {
+            this.username = username;
+            this.apiKey = apiKey;
+            this.keyMaterial = keyMaterial;
+        }
+
+        boolean matches(String username, String apiKey) {
+            return this.username.equals(username) && this.apiKey.equals(apiKey);
+        }
+    }
+
+    // the PBKDF2 derived key and IV for one username/api key pair along with the ciphers initialized from it
+    private static class KeyMaterial {
+        private final SecretKeySpec secret;
+        private final IvParameterSpec ivSpec;
+        private final ThreadLocal<Cipher> encryptCipher;
+        private final ThreadLocal<Cipher> decryptCipher;
+
+        KeyMaterial(String username, String apiKey) throws Exception {
             SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
             PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
-            Key secretKey = factory.generateSecret(pbeKeySpec);
+            byte[] encoded = factory.generateSecret(pbeKeySpec).getEncoded();
+            pbeKeySpec.clearPassword();
+
             byte[] key = new byte[32];
             byte[] iv = new byte[16];
-            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
-            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
-
-            SecretKeySpec secret = new SecretKeySpec(key, "AES");
-            AlgorithmParameterSpec ivSpec = new IvParameterSpec(iv);
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            cipher.init(Cipher.DECRYPT_MODE, secret, ivSpec);
-            byte[] decode = Base64.decodeBase64(value.toString());
-            byte[] results = cipher.doFinal(decode);
-            return new String(results);
+            System.arraycopy(encoded, 0, key, 0, 32);
+            System.arraycopy(encoded, 32, iv, 0, 16);
+
+            secret = new SecretKeySpec(key, "AES");
+            ivSpec = new IvParameterSpec(iv);
+            encryptCipher = new ThreadLocal<Cipher>();
+            decryptCipher = new ThreadLocal<Cipher>();
         }
-        catch(Exception exc) {
-            return value.toString();
+
+        byte[] doFinal(int mode, byte[] input) throws Exception {
+            ThreadLocal<Cipher> ciphers = (mode == Cipher.ENCRYPT_MODE) ? encryptCipher : decryptCipher;
+
+            Cipher cipher = ciphers.get();
+            if (cipher == null) {
+                cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+                cipher.init(mode, secret, ivSpec);
+                ciphers.set(cipher);
+            }
+
+            try {
+                // doFinal leaves the cipher ready for the next value under the same key and IV
+                return cipher.doFinal(input);
+            }
+            catch(Exception exc) {
+                // don't trust the state of a cipher that failed part way through
+                ciphers.remove();
+                throw exc;
+            }
         }
     }
 }
@@ -1,8 +1,10 @@
 package com.global.api.entities.reporting;
 
+import com.global.api.builders.ReportPageIterator;
 import com.global.api.builders.TransactionReportBuilder;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
 import com.global.api.paymentMethods.IPaymentMethod;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -12,6 +14,7 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 @Getter
 @Setter
@@ -130,6 +133,30 @@ public class SearchCriteriaBuilder<TResult> {
         return _reportBuilder.execute(configName);
     }
 
+    public CompletableFuture<TResult> executeAsync() {
+        return executeAsync("default");
+    }
+
+    public CompletableFuture<TResult> executeAsync(String configName) {
+        return _reportBuilder.executeAsync(configName);
+    }
+
+    public CompletableFuture<TResult> executeAsync(String configName, int timeout) {
+        return _reportBuilder.executeAsync(configName, timeout);
+    }
+
+    public ReportPageIterator<TResult> iterator() throws BuilderException {
+        return _reportBuilder.iterator();
+    }
+
+    public ReportPageIterator<TResult> iterator(String configName, int prefetchPages) throws BuilderException {
+        return _reportBuilder.iterator(configName, prefetchPages);
+    }
+
+    public ReportPageIterator<TResult> iterator(String configName, int prefetchPages, int timeout) throws BuilderException {
+        return _reportBuilder.iterator(configName, prefetchPages, timeout);
+    }
+
     public <T> SearchCriteriaBuilder<TResult> and(SearchCriteria criteria, T value) {
         String criteriaValue = criteria.toString();
         if (criteriaValue != null) {
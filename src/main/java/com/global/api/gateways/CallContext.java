@@ -0,0 +1,163 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Deadline and cancellation state of a call started with executeAsync. Gateways find it on the calling
+ * thread to cap their timeouts by what is left of the deadline, and register an abort handler so that
+ * cancelling the future tears down the request that is on the wire.
+ */
+public class CallContext {
+    private static final ThreadLocal<CallContext> CURRENT = new ThreadLocal<CallContext>();
+    private static final ScheduledThreadPoolExecutor DEADLINES;
+    static {
+        DEADLINES = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "gp-call-deadline");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    // System.nanoTime() the call has to finish by, only meaningful when hasDeadline
+    private final long deadline;
+    private final boolean hasDeadline;
+    private volatile boolean cancelled;
+    private volatile Runnable abortHandler;
+
+    public CallContext(int timeout) {
+        this.hasDeadline = timeout > 0;
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    public static CallContext current() {
+        return CURRENT.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    public void checkActive() throws GatewayTimeoutException {
+        if(cancelled || isExpired()) {
+            throw new GatewayTimeoutException();
+        }
+    }
+
+    // the smaller of the configured timeout and the time left before the deadline, 0 meaning no timeout. the
+    // time left is rounded up, so a wait that runs it out ends with the context expired.
+    public int getTimeout(int timeout) {
+        if(!hasDeadline) {
+            return timeout;
+        }
+
+        long remaining = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime() + 999999L));
+        if(timeout > 0 && timeout < remaining) {
+            return timeout;
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    // handlers have to be safe to run more than once and from any thread
+    public void setAbortHandler(Runnable handler) {
+        abortHandler = handler;
+        if(handler != null && cancelled) {
+            handler.run();
+        }
+    }
+
+    public void clearAbortHandler() {
+        abortHandler = null;
+    }
+
+    public void cancel() {
+        cancelled = true;
+
+        Runnable handler = abortHandler;
+        if(handler != null) {
+            handler.run();
+        }
+    }
+
+    public <T> T call(Callable<T> task) throws Exception {
+        CallContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        }
+        finally {
+            if(previous == null) {
+                CURRENT.remove();
+            }
+            else CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Runs the task on the executor under a new context. Cancelling the returned future, or the timeout
+     * (milliseconds, 0 for none) running out, aborts the request in flight and completes the future.
+     */
+    public static <T> CompletableFuture<T> submit(Executor executor, final Callable<T> task, int timeout) {
+        final CallContext context = new CallContext(timeout);
+        final CompletableFuture<T> future = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if(cancelled) {
+                    context.cancel();
+                }
+                return cancelled;
+            }
+        };
+
+        if(context.hasDeadline) {
+            final ScheduledFuture<?> expiry = DEADLINES.schedule(new Runnable() {
+                public void run() {
+                    if(future.completeExceptionally(new GatewayTimeoutException())) {
+                        context.cancel();
+                    }
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+
+            future.whenComplete(new BiConsumer<T, Throwable>() {
+                public void accept(T result, Throwable exc) {
+                    expiry.cancel(false);
+                }
+            });
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    if(future.isDone()) {
+                        return;
+                    }
+
+                    try {
+                        future.complete(context.call(task));
+                    }
+                    catch(Throwable exc) {
+                        // a read cut short by the deadline surfaces as whatever the transport threw
+                        if(context.isExpired() && !(exc instanceof GatewayTimeoutException) && exc instanceof Exception) {
+                            future.completeExceptionally(new GatewayTimeoutException((Exception) exc));
+                        }
+                        else future.completeExceptionally(exc);
+                    }
+                }
+            });
+        }
+        catch(RejectedExecutionException exc) {
+            future.completeExceptionally(exc);
+        }
+        return future;
+    }
+}
@@ -1,25 +1,23 @@
 package com.global.api.gateways;
 
 import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.transport.HttpTransportRequest;
+import com.global.api.gateways.transport.HttpTransportResponse;
+import com.global.api.gateways.transport.HttpsUrlConnectionTransport;
+import com.global.api.gateways.transport.IHttpTransport;
 import com.global.api.logging.IRequestLogger;
 import com.global.api.utils.IOUtils;
+import com.global.api.utils.JsonDoc;
 import com.global.api.utils.StringUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
-import org.apache.http.entity.mime.MultipartEntity;
+import org.apache.http.HttpEntity;
 
-import javax.net.ssl.HttpsURLConnection;
 import java.io.*;
-import java.lang.reflect.Field;
-import java.net.HttpURLConnection;
 import java.net.Proxy;
-import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
@@ -31,25 +29,80 @@ public abstract class Gateway {
     private String contentType;
     private boolean enableLogging;
     private IRequestLogger requestLogger;
-    private StringBuilder logEntry = new StringBuilder();
     private final String lSChar = System.getProperty("line.separator");
+    // headers sent with every request, populated when the gateway is built and only read afterwards
     protected HashMap<String, String> headers;
     protected HashMap<String, String> dynamicHeaders;
     protected int timeout;
     protected String serviceUrl;
     protected Proxy webProxy;
+    protected volatile IHttpTransport httpTransport;
 
-    // ----------------------------------------------------------------------
-    // TODO: Remove if it is not more useful
-    // ----------------------------------------------------------------------
-    private static JsonParser parser = new JsonParser();
-    private static Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
+    // re-indents a JSON body for the log the way Gson's pretty printer laid it out, without parsing it into a tree first
     public static String toPrettyJson(String jsonString) {
-        JsonObject json = parser.parse(jsonString).getAsJsonObject();
-        return gson.toJson(json);
+        int length = jsonString.length();
+        StringBuilder sb = new StringBuilder(length + (length >> 1));
+        int depth = 0;
+        boolean inString = false;
+        for (int i = 0; i < length; i++) {
+            char c = jsonString.charAt(i);
+            if (inString) {
+                sb.append(c);
+                if (c == '\\' && i + 1 < length) {
+                    sb.append(jsonString.charAt(++i));
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    inString = true;
+                    sb.append(c);
+                    break;
+                case '{':
+                case '[':
+                    sb.append(c);
+                    int next = i + 1;
+                    while (next < length && Character.isWhitespace(jsonString.charAt(next))) {
+                        next++;
+                    }
+                    if (next < length && jsonString.charAt(next) == (c == '{' ? '}' : ']')) {
+                        sb.append(jsonString.charAt(next));
+                        i = next;
+                    } else {
+                        indent(sb, ++depth);
+                    }
+                    break;
+                case '}':
+                case ']':
+                    depth = Math.max(0, depth - 1);
+                    indent(sb, depth);
+                    sb.append(c);
+                    break;
+                case ',':
+                    sb.append(c);
+                    indent(sb, depth);
+                    break;
+                case ':':
+                    sb.append(": ");
+                    break;
+                default:
+                    if (!Character.isWhitespace(c)) {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void indent(StringBuilder sb, int depth) {
+        sb.append('\n');
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
     }
-    // ----------------------------------------------------------------------
 
     public Gateway(String contentType) {
         headers = new HashMap<>();
@@ -64,39 +117,43 @@ public abstract class Gateway {
         return sendRequest(verb, endpoint, data, null);
     }
     protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams) throws GatewayException {
-        HttpsURLConnection conn = null;
+        return sendRequest(verb, endpoint, data, queryStringParams, null);
+    }
+    // requestHeaders apply to this request only, so callers on different threads never see each other's values
+    protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams, Map<String, String> requestHeaders) throws GatewayException {
+        return sendRequest(verb, endpoint, data, queryStringParams, requestHeaders, false);
+    }
+    // With parseJson a successful body is parsed into GatewayResponse.getJsonResponse() straight off the
+    // stream, the raw text is only built when it has to be logged
+    protected GatewayResponse sendRequest(String verb, String endpoint, String data, HashMap<String, String> queryStringParams, Map<String, String> requestHeaders, boolean parseJson) throws GatewayException {
+        StringBuilder logEntry = new StringBuilder();
+        Integer statusCode = null;
+        String errorResponse = null;
         try{
             String queryString = buildQueryString(queryStringParams);
-            if (webProxy != null) {
-                conn = (HttpsURLConnection) new URL((serviceUrl + endpoint + queryString).trim()).openConnection(webProxy);
-            } else {
-                conn = (HttpsURLConnection) new URL((serviceUrl + endpoint + queryString).trim()).openConnection();
-            }
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
-            conn.setConnectTimeout(timeout);
-            conn.setDoInput(true);
-            // ----------------------------------------------------------------------
-            // Fix: Supports PATCH requests in HttpsURLConnection on JAVA & Android
-            // ----------------------------------------------------------------------
-            if ("PATCH".equalsIgnoreCase(verb)) {
-                setRequestMethod(conn, verb);
-            } else {
-                conn.setRequestMethod(verb);
-            }
-            // ----------------------------------------------------------------------
+            HttpTransportRequest request = newTransportRequest()
+                    .setVerb(verb)
+                    .setUrl((serviceUrl + endpoint + queryString).trim())
+                    .setProxy(webProxy);
 
             // If Content-Type is added for some GP-API endpoints we get a 502: Bad gateway error
             if (!contentTypeNotAllowedEndpoints(verb, endpoint)) {
-                conn.addRequestProperty("Content-Type", String.format("%s; charset=UTF-8", contentType));
+                request.addHeader("Content-Type", String.format("%s; charset=UTF-8", contentType));
             }
 
             for (Map.Entry<String, String> header: headers.entrySet()) {
-                conn.addRequestProperty(header.getKey(), header.getValue());
+                request.addHeader(header.getKey(), header.getValue());
             }
 
             if (dynamicHeaders != null) {
                 for (Map.Entry<String, String> dynamicHeader : dynamicHeaders.entrySet()) {
-                    conn.addRequestProperty(dynamicHeader.getKey(), dynamicHeader.getValue());
+                    request.addHeader(dynamicHeader.getKey(), dynamicHeader.getValue());
+                }
+            }
+
+            if (requestHeaders != null) {
+                for (Map.Entry<String, String> requestHeader : requestHeaders.entrySet()) {
+                    request.addHeader(requestHeader.getKey(), requestHeader.getValue());
                 }
             }
 
@@ -104,70 +161,81 @@ public abstract class Gateway {
                 logEntry.append("================================================================================").append(lSChar);
                 logEntry.append("Endpoint:       ").append(endpoint).append(lSChar);
                 logEntry.append("Verb:           ").append(verb).append(lSChar);
-                logEntry.append("Headers:        ").append(conn.getRequestProperties()).append(lSChar);
+                logEntry.append("Headers:        ").append(request.getHeaders()).append(lSChar);
                 logEntry.append("Proxy:          ").append((webProxy != null) ? webProxy.toString() : "none").append(lSChar);
             }
 
             if (!verb.equals("GET")) {
-                byte[] request = data.getBytes();
-
-                conn.setDoOutput(true);
-                conn.addRequestProperty("Content-Length", String.valueOf(request.length));
+                if (data != null) {
+                    request.setBody(data.getBytes());
+                }
 
                 if (this.enableLogging || this.requestLogger != null) {
                     if (acceptJson()) {
                         if (!StringUtils.isNullOrEmpty(data)) {
-                            logEntry.append("Request Body: ").append(lSChar).append(toPrettyJson(data)).append(lSChar).append(lSChar);
+                            logEntry.append("Request Body: ").append(lSChar).append(toPrettyJson(StringUtils.mask(data))).append(lSChar).append(lSChar);
                         }
                     } else {
                         logEntry.append("Request Body: ").append(StringUtils.mask(data)).append(lSChar).append(lSChar);
                     }
 
-                    outputLogging(true);
+                    outputLogging(logEntry, true);
                 }
-
-                DataOutputStream requestStream = new DataOutputStream(conn.getOutputStream());
-                requestStream.write(request);
-                requestStream.flush();
-                requestStream.close();
             }
             else if (this.enableLogging || this.requestLogger != null) {
                 logEntry.append("Request Params: ").append(queryString).append(lSChar);
             }
 
-            InputStream responseStream = conn.getInputStream();
-
             String rawResponse = null;
+            JsonDoc jsonResponse = null;
+            try (HttpTransportResponse transportResponse = getHttpTransport().send(request)) {
+                statusCode = transportResponse.getStatusCode();
+                InputStream responseStream = transportResponse.getContent();
+
+                if (statusCode >= 400) {
+                    if (responseStream != null) {
+                        errorResponse = getRawResponse(responseStream);
+                    }
+                    throw new IOException(String.format("Server returned HTTP response code: %s for URL: %s", statusCode, request.getUrl()));
+                }
 
-            if (responseStream != null) {
-                rawResponse = getRawResponse(responseStream);
-                responseStream.close();
-            }
-
-            if (this.enableLogging || this.requestLogger != null) {
-                if (acceptJson()) {
-                    logEntry.append("--------------------------------------------------------------------------------").append(lSChar);
-                    logEntry.append("Response Code: ").append(conn.getResponseCode()).append(" ").append(conn.getResponseMessage()).append(lSChar);
-                    if (rawResponse != null) {
-                        logEntry.append("Response: ").append(toPrettyJson(rawResponse)).append(lSChar);
+                if (responseStream != null) {
+                    if (parseJson && statusCode == 200 && !this.enableLogging && this.requestLogger == null) {
+                        jsonResponse = JsonDoc.parse(getResponseReader(responseStream));
                     } else {
-                        logEntry.append("Response: null").append(lSChar);
+                        rawResponse = getRawResponse(responseStream);
+                        if (parseJson && statusCode == 200 && !StringUtils.isNullOrEmpty(rawResponse)) {
+                            jsonResponse = JsonDoc.parse(rawResponse);
+                        }
                     }
-                    logEntry.append("================================================================================").append(lSChar);
-                } else {
-                    if (rawResponse != null) {
-                        logEntry.append(rawResponse).append(lSChar);
+                }
+
+                if (this.enableLogging || this.requestLogger != null) {
+                    if (acceptJson()) {
+                        logEntry.append("--------------------------------------------------------------------------------").append(lSChar);
+                        logEntry.append("Response Code: ").append(statusCode).append(" ").append(transportResponse.getStatusMessage()).append(lSChar);
+                        if (rawResponse != null) {
+                            logEntry.append("Response: ").append(toPrettyJson(StringUtils.mask(rawResponse))).append(lSChar);
+                        } else {
+                            logEntry.append("Response: null").append(lSChar);
+                        }
+                        logEntry.append("================================================================================").append(lSChar);
                     } else {
-                        logEntry.append("Response: null").append(lSChar);
+                        if (rawResponse != null) {
+                            logEntry.append(StringUtils.mask(rawResponse)).append(lSChar);
+                        } else {
+                            logEntry.append("Response: null").append(lSChar);
+                        }
                     }
-                }
 
-                outputLogging(false);
+                    outputLogging(logEntry, false);
+                }
             }
 
             GatewayResponse response = new GatewayResponse();
-            response.setStatusCode(conn.getResponseCode());
+            response.setStatusCode(statusCode);
             response.setRawResponse(rawResponse);
+            response.setJsonResponse(jsonResponse);
             return response;
         }
         catch(Exception exc) {
@@ -176,78 +244,110 @@ public abstract class Gateway {
                 logEntry.append(exc.getMessage()).append(lSChar);
                 logEntry.append("================================================================================").append(lSChar);
 
-                outputLogging(false);
+                outputLogging(logEntry, false);
             }
 
-            try {
-                assert conn != null;
-                throw new GatewayException("Error occurred while communicating with gateway.", exc, String.valueOf(conn.getResponseCode()), getRawResponse(conn.getErrorStream()));
-            } catch (IOException e) {   // Legacy GatewayException
-                throw new GatewayException("Error occurred while communicating with gateway.", exc);
+            if (statusCode != null) {
+                throw new GatewayException("Error occurred while communicating with gateway.", exc, String.valueOf(statusCode), errorResponse);
             }
+            // Legacy GatewayException
+            throw new GatewayException("Error occurred while communicating with gateway.", exc);
+        }
+        finally {
+            clearAbortHandler();
         }
     }
 
     public String getRawResponse(InputStream responseStream) throws IOException {
-        String rawResponse;
         if (acceptGzipEncoding()) {
             // Decompress GZIP response
-            GZIPInputStream gzis = new GZIPInputStream(responseStream);
-            InputStreamReader reader = new InputStreamReader(gzis);
-            BufferedReader in = new BufferedReader(reader);
-
-            StringBuilder decompressedResponse = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null) {
-                decompressedResponse.append(line);
-            }
-            rawResponse = decompressedResponse.toString();
-        } else {
-            rawResponse = IOUtils.readFully(responseStream);
+            return IOUtils.readFully(new GZIPInputStream(responseStream));
+        }
+        return IOUtils.readFully(responseStream);
+    }
+
+    private Reader getResponseReader(InputStream responseStream) throws IOException {
+        if (acceptGzipEncoding()) {
+            responseStream = new GZIPInputStream(responseStream);
         }
-        return rawResponse;
+        return new InputStreamReader(responseStream, StandardCharsets.UTF_8);
     }
 
-    protected GatewayResponse sendRequest(String endpoint, MultipartEntity content) throws GatewayException {
-        HttpsURLConnection conn;
+    protected GatewayResponse sendRequest(String endpoint, HttpEntity content) throws GatewayException {
+        StringBuilder logEntry = new StringBuilder();
         try{
-            conn = (HttpsURLConnection)new URL((serviceUrl + endpoint).trim()).openConnection();
-            conn.setSSLSocketFactory(new SSLSocketFactoryEx());
-            conn.setConnectTimeout(timeout);
-            conn.setDoInput(true);
-            conn.setDoOutput(true);
-            conn.setRequestMethod("POST");
-            conn.addRequestProperty("Content-Type", content.getContentType().getValue());
-            conn.addRequestProperty("Content-Length", String.valueOf(content.getContentLength()));
-
-            OutputStream out = conn.getOutputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            content.writeTo(body);
+
+            HttpTransportRequest request = newTransportRequest()
+                    .setVerb("POST")
+                    .setUrl((serviceUrl + endpoint).trim())
+                    .addHeader("Content-Type", content.getContentType().getValue())
+                    .setBody(body.toByteArray());
+
 			if (this.enableLogging || this.requestLogger != null) {
                 logEntry.append("================================================================================").append(lSChar);
                 logEntry.append("Request: ").append(content).append(lSChar);
 
-                outputLogging(true);
+                outputLogging(logEntry, true);
             }
-            content.writeTo(out);
-            out.flush();
-            out.close();
 
-            InputStream responseStream = conn.getInputStream();
-            String rawResponse = IOUtils.readFully(responseStream);
-            responseStream.close();
-            if (this.enableLogging || this.requestLogger != null) {
-                logEntry.append(content).append(lSChar);
+            try (HttpTransportResponse transportResponse = getHttpTransport().send(request)) {
+                if (transportResponse.getStatusCode() >= 400) {
+                    throw new IOException(String.format("Server returned HTTP response code: %s for URL: %s", transportResponse.getStatusCode(), request.getUrl()));
+                }
 
-                outputLogging(false);
-            }
+                String rawResponse = IOUtils.readFully(transportResponse.getContent());
+                if (this.enableLogging || this.requestLogger != null) {
+                    logEntry.append(content).append(lSChar);
 
-            GatewayResponse response = new GatewayResponse();
-            response.setStatusCode(conn.getResponseCode());
-            response.setRawResponse(rawResponse);
-            return response;
+                    outputLogging(logEntry, false);
+                }
+
+                GatewayResponse response = new GatewayResponse();
+                response.setStatusCode(transportResponse.getStatusCode());
+                response.setRawResponse(rawResponse);
+                return response;
+            }
         }
         catch(Exception exc) {
             throw new GatewayException("Error occurred while communicating with gateway.", exc);
         }
+        finally {
+            clearAbortHandler();
+        }
+    }
+
+    // a call made through executeAsync caps both timeouts by its deadline and can abort the request when cancelled
+    private HttpTransportRequest newTransportRequest() throws GatewayException {
+        HttpTransportRequest request = new HttpTransportRequest().setTimeout(timeout);
+
+        CallContext context = CallContext.current();
+        if (context != null) {
+            context.checkActive();
+            request.setTimeout(context.getTimeout(timeout))
+                    .setReadTimeout(context.getTimeout(0))
+                    .setCallContext(context);
+        }
+        return request;
+    }
+
+    private void clearAbortHandler() {
+        CallContext context = CallContext.current();
+        if (context != null) {
+            context.clearAbortHandler();
+        }
+    }
+
+    public IHttpTransport getHttpTransport() {
+        if (httpTransport == null) {
+            synchronized (this) {
+                if (httpTransport == null) {
+                    httpTransport = new HttpsUrlConnectionTransport();
+                }
+            }
+        }
+        return httpTransport;
     }
 
     private String buildQueryString(HashMap<String, String> queryStringParams) throws UnsupportedEncodingException {
@@ -266,32 +366,6 @@ public abstract class Gateway {
         return sb.toString();
     }
 
-    private void setRequestMethod(final HttpURLConnection c, final String value) {
-        try {
-            Object target = c;
-            final Field delegate = getField(c.getClass(), "delegate");
-            if (delegate != null) {
-                delegate.setAccessible(true);
-                target = delegate.get(c);
-            }
-            final Field f = HttpURLConnection.class.getDeclaredField("method");
-            f.setAccessible(true);
-            f.set(target, value);
-        } catch (IllegalAccessException | NoSuchFieldException ex) {
-            throw new AssertionError(ex);
-        }
-    }
-
-    private Field getField(Class<?> clazz, String fieldName) {
-        Field field;
-        try {
-            field = clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException ex) {
-            field = null;
-        }
-        return field;
-    }
-
     private boolean acceptJson() {
         return
                 headers.containsKey("Accept") &&
@@ -323,7 +397,7 @@ public abstract class Gateway {
                         );
     }
 
-    private void outputLogging(boolean isRequest) {
+    private void outputLogging(StringBuilder logEntry, boolean isRequest) {
         if (this.enableLogging) {
             System.out.print(logEntry);
         }
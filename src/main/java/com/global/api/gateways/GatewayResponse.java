@@ -1,8 +1,11 @@
 package com.global.api.gateways;
 
+import com.global.api.utils.JsonDoc;
+
 public class GatewayResponse {
     private int statusCode;
     private String rawResponse;
+    private JsonDoc jsonResponse;
 
     public int getStatusCode() {
         return statusCode;
@@ -16,4 +19,11 @@ public class GatewayResponse {
     public void setRawResponse(String rawResponse) {
         this.rawResponse = rawResponse;
     }
+    // set instead of the raw response when the body was parsed as it was read
+    public JsonDoc getJsonResponse() {
+        return jsonResponse;
+    }
+    public void setJsonResponse(JsonDoc jsonResponse) {
+        this.jsonResponse = jsonResponse;
+    }
 }
@@ -16,11 +16,14 @@ import com.global.api.network.NetworkMessageHeader;
 import com.global.api.paymentMethods.AlternativePaymentMethod;
 import com.global.api.paymentMethods.TransactionReference;
 import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.utils.IsoDateTimeParser;
 import com.global.api.utils.JsonDoc;
 import com.global.api.utils.StringUtils;
+import com.global.api.terminals.abstractions.IDisposable;
 import lombok.Getter;
 import lombok.Setter;
 import org.joda.time.DateTime;
+import org.joda.time.MutableDateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 import org.w3c.dom.Document;
@@ -36,7 +39,7 @@ import java.util.HashMap;
 
 import static com.global.api.utils.StringUtils.isNullOrEmpty;
 
-public class GpApiConnector extends RestGateway implements IPaymentGateway, IReportingService, ISecure3dProvider {
+public class GpApiConnector extends RestGateway implements IPaymentGateway, IReportingService, ISecure3dProvider, IDisposable {
     public static final String DATE_PATTERN = "yyyy-MM-dd";
 
     public static final String DATE_TIME_PATTERN   = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";// Standard expected GP API DateTime format
@@ -49,6 +52,8 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     public static final String DATE_TIME_PATTERN_8 = "yyyy-MM-dd'T'HH:mm:ss+SS:SS";     // Another slightly different GP API DateTime format
 
 
+    // SimpleDateFormat isn't thread-safe, dates are formatted with DATE_TIME_DTF_6 and parsed with IsoDateTimeParser instead
+    @Deprecated
     public static final SimpleDateFormat DATE_SDF = new SimpleDateFormat(DATE_PATTERN);
 
     public static final DateTimeFormatter DATE_TIME_DTF = DateTimeFormat.forPattern(DATE_TIME_PATTERN);
@@ -59,11 +64,15 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     public static final DateTimeFormatter DATE_TIME_DTF_6 = DateTimeFormat.forPattern(DATE_TIME_PATTERN_6);
     public static final DateTimeFormatter DATE_TIME_DTF_7 = DateTimeFormat.forPattern(DATE_TIME_PATTERN_7);
     public static final DateTimeFormatter DATE_TIME_DTF_8 = DateTimeFormat.forPattern(DATE_TIME_PATTERN_8);
+    private static final DateTimeFormatter[] DATE_TIME_DTFS = {
+            DATE_TIME_DTF, DATE_TIME_DTF_2, DATE_TIME_DTF_3, DATE_TIME_DTF_4, DATE_TIME_DTF_5, DATE_TIME_DTF_6, DATE_TIME_DTF_7, DATE_TIME_DTF_8
+    };
 
     private static final String GP_API_VERSION = "2021-03-22";
     private static final String IDEMPOTENCY_HEADER = "x-gp-idempotency";
 
-    private String accessToken;
+    private volatile String accessToken;
+    private volatile GpApiTokenManager tokenManager;
     @Getter GpApiConfig gpApiConfig; // Contains: appId, appKey, secondsToExpire, intervalToExpire, channel and language
 
     public String getMerchantUrl() {
@@ -118,19 +127,25 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
             return;
         }
 
-        GpApiTokenResponse response = getAccessToken();
+        GpApiTokenResponse response = getTokenManager().getToken(new GpApiTokenManager.ITokenSource() {
+            public GpApiTokenResponse requestToken() throws GatewayException {
+                return getAccessToken();
+            }
+        });
 
-        accessToken = response.getToken();
-        headers.put("Authorization", String.format("Bearer %s", accessToken));
+        if (accessToken == null || !accessToken.equals(response.getToken())) {
+            updateAccessTokenInfo(response);
+            accessToken = response.getToken();
+        }
+    }
 
+    // The token itself is left with the token manager, a copy here would outlive its expiry
+    private synchronized void updateAccessTokenInfo(GpApiTokenResponse response) {
+        AccessTokenInfo accessTokenInfo = gpApiConfig.getAccessTokenInfo();
         if (accessTokenInfo == null) {
             accessTokenInfo = new AccessTokenInfo();
         }
 
-        if (isNullOrEmpty(accessTokenInfo.getAccessToken())) {
-            accessTokenInfo.setAccessToken(response.getToken());
-        }
-
         if (isNullOrEmpty(accessTokenInfo.getDataAccountName())) {
             accessTokenInfo.setDataAccountName(response.getDataAccountName());
         }
@@ -150,6 +165,21 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
         gpApiConfig.setAccessTokenInfo(accessTokenInfo);
     }
 
+    private synchronized GpApiTokenManager getTokenManager() {
+        if (tokenManager == null) {
+            tokenManager = GpApiTokenManager.forConfig(gpApiConfig, serviceUrl);
+        }
+        return tokenManager;
+    }
+
+    // called when the configuration is removed from the ServicesContainer
+    public synchronized void dispose() {
+        if (tokenManager != null) {
+            tokenManager.release();
+            tokenManager = null;
+        }
+    }
+
     public GpApiRequest signOut() throws UnsupportedTransactionException {
         return GpApiSessionInfo.signOut();
     }
@@ -168,41 +198,58 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
         return new GpApiTokenResponse(rawResponse);
     }
 
-    private String doTransactionWithIdempotencyKey(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
-        if (!StringUtils.isNullOrEmpty(idempotencyKey)) {
-            headers.put(IDEMPOTENCY_HEADER, idempotencyKey);
+    // The shared headers are never modified once the connector is built, the token and idempotency key
+    // travel with the request so concurrent callers can share one connector
+    private GatewayResponse doTransactionWithIdempotencyKey(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey, String accessToken, boolean parseJson) throws GatewayException {
+        HashMap<String, String> requestHeaders = new HashMap<>();
+        if (!isNullOrEmpty(accessToken)) {
+            requestHeaders.put("Authorization", String.format("Bearer %s", accessToken));
         }
-        try {
-            return super.doTransaction(verb.getValue(), endpoint, data, queryStringParams);
-        } catch (GatewayException ex) {
-            throw ex;
-        } finally {
-            headers.remove(IDEMPOTENCY_HEADER);
+        if (!StringUtils.isNullOrEmpty(idempotencyKey)) {
+            requestHeaders.put(IDEMPOTENCY_HEADER, idempotencyKey);
         }
+        GatewayResponse response = sendRequest(verb.getValue(), endpoint, data, queryStringParams, requestHeaders, parseJson);
+        handleResponse(response);
+        return response;
     }
 
-    public String doTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
-        if (isNullOrEmpty(accessToken)) {
-            signIn();
-        }
+    private GatewayResponse doAuthenticatedTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey, boolean parseJson) throws GatewayException {
+        signIn();
 
+        String token = accessToken;
         try {
-            return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey);
+            return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey, token, parseJson);
         } catch (GatewayException ex) {
             if (
                     "NOT_AUTHENTICATED".equals(ex.getResponseCode())    &&
                     !isNullOrEmpty(gpApiConfig.getAppId())              &&
                     !isNullOrEmpty(gpApiConfig.getAppKey())
             ) {
+                if (tokenManager != null) {
+                    tokenManager.invalidate(token);
+                }
                 signIn();
 
-                return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey);
+                return doTransactionWithIdempotencyKey(verb, endpoint, data, queryStringParams, idempotencyKey, accessToken, parseJson);
             }
             generateGpApiException(ex.getResponseCode(), ex.getResponseText());
             throw ex;
         }
     }
 
+    public String doTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
+        return doAuthenticatedTransaction(verb, endpoint, data, queryStringParams, idempotencyKey, false).getRawResponse();
+    }
+
+    // Parses the response while it is read, used for report pages which can be large
+    public JsonDoc doJsonTransaction(GpApiRequest.HttpMethod verb, String endpoint, String data, HashMap<String, String> queryStringParams, String idempotencyKey) throws GatewayException {
+        GatewayResponse response = doAuthenticatedTransaction(verb, endpoint, data, queryStringParams, idempotencyKey, true);
+        if (response.getJsonResponse() != null || isNullOrEmpty(response.getRawResponse())) {
+            return response.getJsonResponse();
+        }
+        return JsonDoc.parse(response.getRawResponse());
+    }
+
     @Override
     protected String handleResponse(GatewayResponse response) throws GatewayException {
         if (response.getStatusCode() != 200 && response.getStatusCode() != 204) {
@@ -231,9 +278,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
-        if (isNullOrEmpty(accessToken)) {
-            signIn();
-        }
+        signIn();
 
         GpApiRequest request = GpApiAuthorizationRequestBuilder.buildRequest(builder, this);
 
@@ -250,9 +295,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public Transaction manageTransaction(ManagementBuilder builder) throws GatewayException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
+        signIn();
 
         GpApiRequest request = GpApiManagementRequestBuilder.buildRequest(builder, this);
 
@@ -270,14 +313,12 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
 
     @SuppressWarnings("unchecked")
     public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
+        signIn();
 
         GpApiRequest request = GpApiReportRequestBuilder.buildRequest(builder, this);
 
         if (request != null) {
-            String response = doTransaction(request.getVerb(), request.getEndpoint(), request.getRequestBody(), request.getQueryStringParams(), null);
+            JsonDoc response = doJsonTransaction(request.getVerb(), request.getEndpoint(), request.getRequestBody(), request.getQueryStringParams(), null);
 
             return GpApiMapping.mapReportResponse(response, builder.getReportType());
         }
@@ -289,9 +330,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public Transaction processSecure3d(Secure3dBuilder builder) throws ApiException {
-        if (StringUtils.isNullOrEmpty(accessToken)) {
-            signIn();
-        }
+        signIn();
 
         GpApiRequest request = GpApiSecure3DRequestBuilder.buildRequest(builder, this);
 
@@ -332,7 +371,7 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public static String getDateIfNotNull(Date obj) {
-        return (obj != null) ? DATE_SDF.format(obj) : "";
+        return (obj != null) ? DATE_TIME_DTF_6.print(obj.getTime()) : "";
     }
 
     public static String getDateIfNotNull(DateTime obj) {
@@ -344,11 +383,18 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
     }
 
     public static Date parseGpApiDate(String dateValue) throws GatewayException {
+        if (StringUtils.isNullOrEmpty(dateValue)) {
+            return null;
+        }
+
+        Date date = IsoDateTimeParser.parseDate(dateValue);
+        if (date != null) {
+            return date;
+        }
+
+        // out of range values are rolled over by a lenient SimpleDateFormat, which can't be shared between threads
         try {
-            if (StringUtils.isNullOrEmpty(dateValue)) {
-                return null;
-            }
-            return GpApiConnector.DATE_SDF.parse(dateValue);
+            return new SimpleDateFormat(DATE_PATTERN).parse(dateValue);
         } catch (ParseException ex) {
             throw new GatewayException("Date format is not supported.", ex);
         }
@@ -359,43 +405,26 @@ public class GpApiConnector extends RestGateway implements IPaymentGateway, IRep
             return null;
         }
 
-        try {
-            return GpApiConnector.DATE_TIME_DTF.parseDateTime(dateValue);
-        } catch (IllegalArgumentException ex) {
-            // Some Date values are returned with these slightly different formats:
-            // yyyy-MM-dd'T'HH:mm:ss.SSS or yyyy-MM-dd'T'HH:mm:ss
-            // instead of expected: yyyy-MM-dd'T'HH:mm:ss.SSS'Z'
-            // Because the difference is not significant, they are supported too.
+        // Some Date values are returned in slightly different formats, such as yyyy-MM-dd'T'HH:mm:ss.SSS
+        // or yyyy-MM-dd'T'HH:mm:ss instead of the expected yyyy-MM-dd'T'HH:mm:ss.SSS'Z'. Because the
+        // difference is not significant, they are supported too.
+        DateTime dateTime = IsoDateTimeParser.parseDateTime(dateValue);
+        if (dateTime != null) {
+            return dateTime;
+        }
+
+        // the Joda patterns also accept single digit fields and longer years, which the parser doesn't
+        for (DateTimeFormatter formatter : DATE_TIME_DTFS) {
+            MutableDateTime parsed = new MutableDateTime(1970, 1, 1, 0, 0, 0, 0);
             try {
-                return GpApiConnector.DATE_TIME_DTF_2.parseDateTime(dateValue);
-            } catch (IllegalArgumentException ex2) {
-                try {
-                    return GpApiConnector.DATE_TIME_DTF_3.parseDateTime(dateValue);
-                } catch (IllegalArgumentException ex3) {
-                    try {
-                        return GpApiConnector.DATE_TIME_DTF_4.parseDateTime(dateValue);
-                    } catch (IllegalArgumentException ex4) {
-                        try {
-                            return GpApiConnector.DATE_TIME_DTF_5.parseDateTime(dateValue);
-                        } catch (IllegalArgumentException ex5) {
-                            try {
-                                return GpApiConnector.DATE_TIME_DTF_6.parseDateTime(dateValue);
-                            } catch (IllegalArgumentException ex6) {
-                                try {
-                                    return GpApiConnector.DATE_TIME_DTF_7.parseDateTime(dateValue);
-                                } catch (IllegalArgumentException ex7) {
-                                    try {
-                                        return GpApiConnector.DATE_TIME_DTF_8.parseDateTime(dateValue);
-                                    } catch (IllegalArgumentException ex8) {
-                                        throw new GatewayException("DateTime format is not supported.", ex8);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                if (formatter.parseInto(parsed, dateValue, 0) == dateValue.length()) {
+                    return parsed.toDateTime();
                 }
+            } catch (IllegalArgumentException ex) {
+                throw new GatewayException("DateTime format is not supported.", ex);
             }
         }
+        throw new GatewayException("DateTime format is not supported.");
     }
     // --------------------------------------------------------------------------------
 
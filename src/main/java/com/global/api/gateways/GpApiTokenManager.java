@@ -0,0 +1,229 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.IntervalToExpire;
+import com.global.api.entities.enums.ShaHashType;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.gpApi.GpApiTokenResponse;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.utils.GenerationUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.*;
+
+/**
+ * Caches the GP-API access token for one set of credentials.
+ * <p>
+ * Connectors configured with the same service url, appId, appKey and token options share a manager, so
+ * a token is requested once per application rather than once per configuration. Concurrent sign-ins are
+ * coalesced into a single request and a token close to its expiry is renewed in the background while
+ * callers carry on using the current one. A shared manager is dropped once every connector that acquired
+ * it with forConfig has released it.
+ */
+public class GpApiTokenManager {
+    public interface ITokenSource {
+        GpApiTokenResponse requestToken() throws GatewayException;
+    }
+
+    // renew this long before the token expires, capped at half the token's lifetime
+    private static final long REFRESH_AHEAD = 5 * 60 * 1000;
+    // stop handing out a token this long before it expires so it does not lapse in flight
+    private static final long EXPIRY_SKEW = 5000;
+
+    // keyed by a hash of the credentials so the appKey is not kept in the clear
+    private static final HashMap<String, GpApiTokenManager> managers = new HashMap<>();
+    private static final ExecutorService refreshExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "GpApiTokenRefresh");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile CachedToken current;
+    private CompletableFuture<CachedToken> inFlight;
+    private final int configuredSecondsToExpire;
+    private String key;
+    // guarded by managers
+    private int references;
+
+    public GpApiTokenManager(int configuredSecondsToExpire) {
+        this.configuredSecondsToExpire = configuredSecondsToExpire;
+    }
+
+    /**
+     * Returns the manager shared by connectors with the same credentials. Each call has to be matched by a
+     * call to release.
+     */
+    public static GpApiTokenManager forConfig(GpApiConfig config, String serviceUrl) {
+        String key = GenerationUtils.shaHex(String.format("%s|%s|%s|%s|%s|%s",
+                serviceUrl,
+                config.getAppId(),
+                config.getAppKey(),
+                config.getSecondsToExpire(),
+                config.getIntervalToExpire(),
+                Arrays.toString(config.getPermissions())), ShaHashType.SHA256);
+
+        synchronized (managers) {
+            GpApiTokenManager manager = managers.get(key);
+            if (manager == null) {
+                manager = new GpApiTokenManager(getSecondsToExpire(config));
+                manager.key = key;
+                managers.put(key, manager);
+            }
+            manager.references++;
+            return manager;
+        }
+    }
+
+    /**
+     * Gives up a reference taken with forConfig, dropping the manager and its token when it was the last.
+     */
+    public void release() {
+        synchronized (managers) {
+            if (key != null && references > 0 && --references == 0) {
+                managers.remove(key, this);
+            }
+        }
+    }
+
+    /**
+     * Returns a usable token, signing in only when there is none or it has expired.
+     */
+    public GpApiTokenResponse getToken(ITokenSource source) throws GatewayException {
+        CachedToken token = current;
+        long now = System.currentTimeMillis();
+
+        if (token != null && now < token.expiresAt) {
+            if (now >= token.refreshAt) {
+                refreshInBackground(token, source);
+            }
+            return token.response;
+        }
+        return refresh(token, source).response;
+    }
+
+    /**
+     * Drops the cached token if it is still the one the gateway rejected.
+     */
+    public synchronized void invalidate(String token) {
+        if (current != null && token != null && token.equals(current.response.getToken())) {
+            current = null;
+        }
+    }
+
+    private CachedToken refresh(CachedToken stale, ITokenSource source) throws GatewayException {
+        CompletableFuture<CachedToken> future;
+        boolean owner = false;
+        synchronized (this) {
+            // another caller may have replaced the token we found stale
+            if (current != stale && current != null && System.currentTimeMillis() < current.expiresAt) {
+                return current;
+            }
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                owner = true;
+            }
+            future = inFlight;
+        }
+
+        if (owner) {
+            requestToken(future, source);
+        }
+
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new GatewayException("Interrupted while awaiting the access token.", exc);
+        }
+        catch (ExecutionException exc) {
+            if (exc.getCause() instanceof GatewayException) {
+                throw (GatewayException) exc.getCause();
+            }
+            throw new GatewayException("Error occurred while requesting the access token.", (Exception) exc.getCause());
+        }
+    }
+
+    private void refreshInBackground(CachedToken stale, final ITokenSource source) {
+        final CompletableFuture<CachedToken> future;
+        synchronized (this) {
+            if (current != stale || inFlight != null) {
+                return;
+            }
+            inFlight = future = new CompletableFuture<>();
+        }
+
+        refreshExecutor.execute(new Runnable() {
+            public void run() {
+                requestToken(future, source);
+            }
+        });
+    }
+
+    private void requestToken(CompletableFuture<CachedToken> future, ITokenSource source) {
+        try {
+            CachedToken token = new CachedToken(source.requestToken(), configuredSecondsToExpire);
+            synchronized (this) {
+                current = token;
+                inFlight = null;
+            }
+            future.complete(token);
+        }
+        catch (Exception exc) {
+            // a failed background renewal leaves the current token in place until it expires
+            synchronized (this) {
+                inFlight = null;
+            }
+            future.completeExceptionally(exc);
+        }
+    }
+
+    private static int getSecondsToExpire(GpApiConfig config) {
+        if (config.getSecondsToExpire() > 0) {
+            return config.getSecondsToExpire();
+        }
+
+        IntervalToExpire interval = config.getIntervalToExpire();
+        if (interval == null) {
+            return 0;
+        }
+        switch (interval) {
+            case WEEK: return 7 * 24 * 3600;
+            case DAY: return 24 * 3600;
+            case TWELVE_HOURS: return 12 * 3600;
+            case SIX_HOURS: return 6 * 3600;
+            case THREE_HOURS: return 3 * 3600;
+            case ONE_HOUR: return 3600;
+            case THIRTY_MINUTES: return 30 * 60;
+            case TEN_MINUTES: return 10 * 60;
+            case FIVE_MINUTES: return 5 * 60;
+            default: return 0;
+        }
+    }
+
+    private static class CachedToken {
+        private final GpApiTokenResponse response;
+        private final long refreshAt;
+        private final long expiresAt;
+
+        private CachedToken(GpApiTokenResponse response, int configuredSecondsToExpire) {
+            this.response = response;
+
+            // the response carries the lifetime the gateway granted, the config is only a fallback
+            long lifetime = (response.getSecondsToExpire() > 0 ? response.getSecondsToExpire() : configuredSecondsToExpire) * 1000L;
+            if (lifetime <= 0) {
+                // unknown lifetime, keep the token until the gateway rejects it
+                refreshAt = Long.MAX_VALUE;
+                expiresAt = Long.MAX_VALUE;
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            long refreshAhead = Math.min(REFRESH_AHEAD, lifetime / 2);
+            refreshAt = now + lifetime - refreshAhead;
+            expiresAt = now + lifetime - Math.min(EXPIRY_SKEW, refreshAhead / 2);
+        }
+    }
+}
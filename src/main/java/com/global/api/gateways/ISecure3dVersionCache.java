@@ -0,0 +1,15 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Secure3dVersion;
+
+/**
+ * Remembers which 3-D Secure version a card range was enrolled in, so that a Secure3dBuilder executed
+ * with Secure3dVersion.ANY can go straight to the 3DS1 provider for ranges the 3DS2 provider has
+ * already turned away, instead of asking it again first.
+ */
+public interface ISecure3dVersionCache {
+    // the version recorded for the card's range, or null when there isn't one
+    Secure3dVersion get(String cardNumber);
+
+    void put(String cardNumber, Secure3dVersion version);
+}
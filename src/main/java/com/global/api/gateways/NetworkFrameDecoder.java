@@ -0,0 +1,95 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Reads messages framed with a two byte, unsigned, big endian length prefix.
+ * <p>
+ * Reads block on the socket rather than polling, so a response split across several TCP segments is
+ * returned as soon as its last byte arrives. The frame is read straight into an array of the advertised
+ * length, so large responses are never truncated.
+ */
+public class NetworkFrameDecoder {
+    private final boolean lengthIncludesPrefix;
+
+    /**
+     * @param lengthIncludesPrefix true when the advertised length counts the two prefix bytes themselves
+     */
+    public NetworkFrameDecoder(boolean lengthIncludesPrefix) {
+        this.lengthIncludesPrefix = lengthIncludesPrefix;
+    }
+
+    /**
+     * Reads one frame from the socket, failing if it has not fully arrived within the timeout.
+     */
+    public byte[] readFrame(Socket socket, int timeout) throws IOException, GatewayTimeoutException {
+        long deadline = System.currentTimeMillis() + timeout;
+        int originalTimeout = socket.getSoTimeout();
+        InputStream in = socket.getInputStream();
+        try {
+            byte[] lengthBuffer = new byte[2];
+            readFully(socket, in, lengthBuffer, deadline);
+
+            byte[] frame = new byte[getMessageLength(lengthBuffer)];
+            readFully(socket, in, frame, deadline);
+            return frame;
+        }
+        catch(SocketTimeoutException exc) {
+            throw new GatewayTimeoutException(exc);
+        }
+        finally {
+            if(!socket.isClosed()) {
+                socket.setSoTimeout(originalTimeout);
+            }
+        }
+    }
+
+    /**
+     * Reads one frame from the stream, blocking until it has fully arrived.
+     */
+    public byte[] readFrame(InputStream in) throws IOException {
+        byte[] lengthBuffer = new byte[2];
+        readFully(null, in, lengthBuffer, 0L);
+
+        byte[] frame = new byte[getMessageLength(lengthBuffer)];
+        readFully(null, in, frame, 0L);
+        return frame;
+    }
+
+    private int getMessageLength(byte[] lengthBuffer) throws IOException {
+        int messageLength = ((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF);
+        if(lengthIncludesPrefix) {
+            messageLength -= 2;
+        }
+
+        if(messageLength < 0) {
+            throw new IOException(String.format("Invalid message length received: %s", messageLength));
+        }
+        return messageLength;
+    }
+
+    private void readFully(Socket socket, InputStream in, byte[] buffer, long deadline) throws IOException {
+        int position = 0;
+        while(position < buffer.length) {
+            if(socket != null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0) {
+                    throw new SocketTimeoutException("Timed out awaiting the host response.");
+                }
+                socket.setSoTimeout((int) remaining);
+            }
+
+            int bytesRead = in.read(buffer, position, buffer.length - position);
+            if(bytesRead < 0) {
+                throw new EOFException("The connection was closed by the host.");
+            }
+            position += bytesRead;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.global.api.gateways;
 import com.global.api.entities.enums.Host;
 import com.global.api.entities.enums.HostError;
 import com.global.api.entities.enums.Target;
+import com.global.api.entities.exceptions.ApiException;
 import com.global.api.entities.exceptions.GatewayComsException;
 import com.global.api.entities.exceptions.GatewayTimeoutException;
 import com.global.api.gateways.events.*;
@@ -15,16 +16,19 @@ import lombok.Setter;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocket;
-import javax.net.ssl.SSLSocketFactory;
 import java.io.*;
-import java.math.BigInteger;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class NetworkGateway {
-    private SSLSocket client;
+    private Socket client;
     private DataOutputStream out;
     private InputStream in;
     private int connectionFaults = 0;
@@ -39,12 +43,26 @@ public class NetworkGateway {
     private boolean enableLogging = false;
     private HashMap<Host, ArrayList<HostError>> simulatedHostErrors;
     private int timeout;
+    private static final int DEFAULT_RESPONSE_TIMEOUT = 20000;
+    private SocketFactory socketFactory;
 
     private String connectorName = "NetworkGateway";
     private IGatewayEventHandler gatewayEventHandler;
+    private int eventQueueCapacity = 1024;
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DropNewest;
+    private volatile GatewayEventDispatcher eventDispatcher;
     @Getter @Setter
     private Target target;
 
+    // persistent session
+    private boolean persistentConnection = false;
+    private int keepAliveInterval = 0;
+    private volatile NetworkSession session;
+    private final Object sessionLock = new Object();
+    private final ReentrantLock roundTripLock = new ReentrantLock(true);
+    private final AtomicLong correlationSequence = new AtomicLong();
+    private ScheduledExecutorService heartbeatExecutor;
+
     public String getPrimaryEndpoint() {
         return primaryEndpoint;
     }
@@ -87,7 +105,45 @@ public class NetworkGateway {
             NtsUtils.enableLogging();
         }
     }
-    public void setGatewayEventHandler(IGatewayEventHandler eventHandler) { this.gatewayEventHandler = eventHandler; }
+    public SocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+    // null connects over TLS with SSLSocketFactoryEx
+    public void setSocketFactory(SocketFactory socketFactory) {
+        this.socketFactory = socketFactory;
+    }
+    public boolean isPersistentConnection() {
+        return persistentConnection;
+    }
+    public void setPersistentConnection(boolean persistentConnection) {
+        this.persistentConnection = persistentConnection;
+    }
+    public int getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+    // 0, the default, sends no heartbeats. a host that stops answering is then found by a request that times out
+    // without anything arriving on the session while it waited
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+    public void setGatewayEventHandler(IGatewayEventHandler eventHandler) {
+        this.gatewayEventHandler = eventHandler;
+        resetEventDispatcher();
+    }
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+        resetEventDispatcher();
+    }
+    public EventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+    public void setEventOverflowPolicy(EventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+        resetEventDispatcher();
+    }
     public HashMap<Host, ArrayList<HostError>> getSimulatedHostErrors() {
         return simulatedHostErrors;
     }
@@ -102,8 +158,9 @@ public class NetworkGateway {
         return false;
     }
 
-    // establish connection
-    private void connect(String endpoint, Integer port) throws GatewayComsException {
+    // establish connection. each attempt is capped at the time the call has left, and a call that has been
+    // cancelled or run out of time stops instead of trying the other host
+    private void connect(String endpoint, Integer port) throws GatewayComsException, GatewayTimeoutException {
         currentHost = endpoint.equals(primaryEndpoint) ? Host.Primary : Host.Secondary;
 
         // create the connection event
@@ -120,6 +177,11 @@ public class NetworkGateway {
                 disconnect();
             }
 
+            CallContext context = CallContext.current();
+            if(context != null) {
+                context.checkActive();
+            }
+
             try {
                 // connection started
                 connectionEvent.setConnectionStarted(connectionStarted);
@@ -127,10 +189,12 @@ public class NetworkGateway {
                 // check for simulated connection error
                 if(!isForcedError(HostError.Connection)) {
                     try {
-                        SSLSocketFactory factory = new SSLSocketFactoryEx();
-                        client = (SSLSocket) factory.createSocket();
-                        client.connect(new InetSocketAddress(endpoint, port), 5000);
-                        client.startHandshake();
+                        SocketFactory factory = socketFactory != null ? socketFactory : new SSLSocketFactoryEx();
+                        client = factory.createSocket();
+                        client.connect(new InetSocketAddress(endpoint, port), context != null ? context.getTimeout(5000) : 5000);
+                        if(client instanceof SSLSocket) {
+                            ((SSLSocket) client).startHandshake();
+                        }
 
                         raiseGatewayEvent(new SslHandshakeEvent(connectorName, null));
                     }
@@ -168,6 +232,9 @@ public class NetworkGateway {
                     }
                 }
             }
+            catch(GatewayTimeoutException exc) {
+                throw exc;
+            }
             catch(Exception exc) {
                 throw new GatewayComsException(exc);
             }
@@ -202,12 +269,33 @@ public class NetworkGateway {
         5) if connection to secondary host is successful, return to step 2
         6) if no response from the secondary host, GatewayTimeoutException is thrown
          */
+        if(persistentConnection) {
+            return sendOnSession(message);
+        }
+
         boolean timeout = false;
         connect(getPrimaryEndpoint(), getPrimaryPort());
 
         byte[] buffer = message.getSendBuffer();
+        CallContext context = CallContext.current();
         try {
             for(int i = 0; i < 2; i++) {
+                if(context != null) {
+                    // closing the socket is the only way to unblock a pending read
+                    context.checkActive();
+                    final Socket socket = client;
+                    context.setAbortHandler(new Runnable() {
+                        public void run() {
+                            try {
+                                socket.close();
+                            }
+                            catch(IOException exc) {
+                                // eat the close exception
+                            }
+                        }
+                    });
+                }
+
                 raiseGatewayEvent(new RequestSentEvent(connectorName));
                 DateTime requestSent = DateTime.now(DateTimeZone.UTC);
                 try {
@@ -227,6 +315,11 @@ public class NetworkGateway {
                     /* Exception occurred on message send, do not trip timeout */
                 }
 
+                // a cancelled or expired call closed the socket itself, which says nothing about the host
+                if(context != null) {
+                    context.checkActive();
+                }
+
                 // did not get a response, switch endpoints and try again
                 if(!currentHost.equals(Host.Secondary) && !StringUtils.isNullOrEmpty(secondaryEndpoint) && i < 1) {
                     raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.TimeoutFailOver));
@@ -249,6 +342,9 @@ public class NetworkGateway {
             throw exc;
         }
         finally {
+            if(context != null) {
+                context.clearAbortHandler();
+            }
             disconnect();
             raiseGatewayEvent(new DisconnectEvent(connectorName));
 
@@ -259,65 +355,304 @@ public class NetworkGateway {
         }
     }
 
-    private byte[] getGatewayResponse() throws IOException, GatewayTimeoutException {
-        byte[] buffer = new byte[2048];
+    private byte[] sendOnSession(IDeviceMessage message) throws GatewayTimeoutException, GatewayComsException {
+        /*
+        Same fail over rules as send(), but the connection is kept open between messages and only moved to the
+        other host once the link itself has failed (a read or write error, or a missed heartbeat). When requests
+        are correlated, one of them timing out leaves the link up for the others still waiting on it, as long as
+        the host sent something while it waited. A host that stays connected but sends nothing for a whole
+        response timeout is taken to be gone, so a quiet primary is failed over without a heartbeat. Without
+        correlation the link is closed on a timeout, since a late response would go to the next request.
+         */
+        boolean multiplexed = supportsMultiplexing();
+        if(!multiplexed) {
+            roundTripLock.lock();
+        }
 
-        int bytesReceived = awaitResponse(in, buffer);
+        boolean timeout = false;
+        CallContext context = CallContext.current();
+        try {
+            NetworkSession current = getSession();
+            for(int i = 0; i < 2; i++) {
+                if(context != null) {
+                    context.checkActive();
+                }
+
+                byte[] buffer = message.getSendBuffer();
+                long key = 0L;
+                if(multiplexed) {
+                    key = correlationSequence.incrementAndGet();
+                    buffer = tagRequest(buffer.clone(), key);
+                }
+
+                raiseGatewayEvent(new RequestSentEvent(connectorName));
+                DateTime requestSent = DateTime.now(DateTimeZone.UTC);
+                long framesReceived = current.getFramesReceived();
+                try {
+                    final CompletableFuture<byte[]> pendingResponse = current.register(key);
+                    if(context != null) {
+                        // the session may be shared, so cancelling only fails this call's wait for its response
+                        context.setAbortHandler(new Runnable() {
+                            public void run() {
+                                pendingResponse.completeExceptionally(new InterruptedIOException("The call was cancelled."));
+                            }
+                        });
+                    }
+                    if(!isForcedError(HostError.SendFailure)) {
+                        current.write(buffer);
+                    }
+                    else {
+                        current.close();
+                        throw new IOException("Simulated IO Exception on request send.");
+                    }
+
+                    byte[] rvalue = current.await(key, pendingResponse, getResponseTimeout());
+                    if (rvalue != null && !isForcedError(HostError.Timeout)) {
+                        raiseGatewayEvent(new ResponseReceivedEvent(connectorName, requestSent));
+                        return rvalue;
+                    }
+                    timeout = true;
+
+                    // without correlation a late response could be handed to the next request
+                    if(!multiplexed) {
+                        current.close();
+                    }
+                    // nothing at all came back while this request waited, so the host has stopped answering
+                    else if(current.getFramesReceived() == framesReceived && (context == null || !context.isExpired())) {
+                        current.close();
+                    }
+                }
+                catch(IOException exc) {
+                    /* Exception occurred on message send, do not trip timeout */
+                }
+
+                // the caller gave up on this request, which is no reason to drop or move a link others may be using
+                if(context != null && (context.isCancelled() || context.isExpired())) {
+                    // without correlation a late response could be handed to the next request
+                    if(!multiplexed) {
+                        current.close();
+                    }
+                    throw new GatewayTimeoutException();
+                }
+
+                // the link is still up, so only this request went unanswered
+                if(!current.isClosed()) {
+                    break;
+                }
+
+                // the link failed, switch endpoints and try again
+                if(i < 1) {
+                    if(!current.getHost().equals(Host.Secondary) && !StringUtils.isNullOrEmpty(secondaryEndpoint)) {
+                        raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.TimeoutFailOver));
+                        current = replaceSession(current, getSecondaryEndpoint(), getSecondaryPort());
+                    }
+                    else {
+                        current = replaceSession(current, getPrimaryEndpoint(), getPrimaryPort());
+                    }
+                }
+            }
+
+            raiseGatewayEvent(new TimeoutEvent(connectorName, GatewayEventType.Timeout));
+            if(timeout) {
+                throw new GatewayTimeoutException();
+            }
+            else throw new GatewayComsException();
+        }
+        catch(GatewayComsException exc) {
+            if(timeout) {
+                throw new GatewayTimeoutException(exc);
+            }
+            throw exc;
+        }
+        finally {
+            if(context != null) {
+                context.clearAbortHandler();
+            }
+            if(!multiplexed) {
+                roundTripLock.unlock();
+            }
 
-        if(bytesReceived > 0) {
-            byte[] rec_buffer = new byte[bytesReceived];
-            System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
-            return rec_buffer;
+            // remove simulated errors
+            if(simulatedHostErrors != null) {
+                simulatedHostErrors = null;
+            }
         }
+    }
 
-        return null;
+    private NetworkSession getSession() throws GatewayComsException, GatewayTimeoutException {
+        NetworkSession current = session;
+        if(current != null && !current.isClosed()) {
+            return current;
+        }
+        return replaceSession(current, getPrimaryEndpoint(), getPrimaryPort());
     }
 
-    private int awaitResponse(InputStream in, byte[] buffer) throws GatewayTimeoutException, IOException {
-        long t = System.currentTimeMillis();
-
-        int position = 0;
-        Integer messageLength = null;
-        do {
-            if(messageLength == null) {
-                byte[] lengthBuffer = new byte[2];
-                int length = in.read(lengthBuffer, 0, 2);
-                if(length == 2) {
-                    if(target!=null && target.equals(Target.GNAP)) {
-                        messageLength = new BigInteger(lengthBuffer).intValue();
-                    }else{
-                        messageLength = new BigInteger(lengthBuffer).intValue() - 2;
+    private NetworkSession replaceSession(NetworkSession failed, String endpoint, Integer port) throws GatewayComsException, GatewayTimeoutException {
+        synchronized (sessionLock) {
+            // another thread may have already replaced the failed session
+            if(session != null && session != failed && !session.isClosed()) {
+                return session;
+            }
+
+            if(failed != null) {
+                failed.close();
+                raiseGatewayEvent(new DisconnectEvent(connectorName));
+            }
+
+            connect(endpoint, port);
+            NetworkSession.ICorrelator correlator = null;
+            if(supportsMultiplexing()) {
+                correlator = new NetworkSession.ICorrelator() {
+                    public long getCorrelationKey(byte[] response) {
+                        return NetworkGateway.this.getCorrelationKey(response);
                     }
-                }
+                };
+            }
+            session = new NetworkSession(client, out, in, currentHost, getFrameDecoder(), correlator);
+
+            // the session owns the socket from here on
+            client = null;
+            out = null;
+            in = null;
+
+            startHeartbeat();
+            return session;
+        }
+    }
+
+    // closes the persistent session, if any; the next request opens a new one
+    public void closeSession() {
+        synchronized (sessionLock) {
+            if(heartbeatExecutor != null) {
+                heartbeatExecutor.shutdownNow();
+                heartbeatExecutor = null;
             }
 
-            if(messageLength != null) {
-                int currLength = in.read(buffer, position, messageLength);
-                if (currLength == messageLength) {
-                    return messageLength;
+            if(session != null) {
+                session.close();
+                session = null;
+                raiseGatewayEvent(new DisconnectEvent(connectorName));
+            }
+        }
+    }
+
+    private void startHeartbeat() {
+        if(keepAliveInterval <= 0 || heartbeatExecutor != null) {
+            return;
+        }
+
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, connectorName + "-Heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                NetworkSession current = session;
+                if(current == null || current.isClosed()) {
+                    return;
                 }
-                else {
-                    position += currLength;
+
+                // only send a heartbeat when the link has been quiet for a full interval
+                if(System.currentTimeMillis() - current.getLastActivity() < keepAliveInterval) {
+                    return;
                 }
-            }
 
-            try {
-                Thread.sleep(50);
+                try {
+                    sendHeartbeat();
+                }
+                catch(Exception exc) {
+                    synchronized (sessionLock) {
+                        if(session == current) {
+                            current.close();
+                            session = null;
+                            raiseGatewayEvent(new DisconnectEvent(connectorName));
+                        }
+                    }
+                }
             }
-            catch(InterruptedException e) { break; }
+        }, keepAliveInterval, keepAliveInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a keep alive message over the persistent session. Connectors that have a keep alive
+     * message override this; by default no heartbeat is sent.
+     */
+    protected void sendHeartbeat() throws ApiException { }
+
+    /**
+     * Whether responses can be matched to requests so several requests may share the persistent
+     * session at once. When false, round trips on the session are serialised.
+     */
+    protected boolean supportsMultiplexing() {
+        return false;
+    }
+
+    // stamps the correlation key into the outgoing buffer
+    protected byte[] tagRequest(byte[] buffer, long key) {
+        return buffer;
+    }
+
+    // reads the correlation key back out of a response frame
+    protected long getCorrelationKey(byte[] response) {
+        return 0L;
+    }
+
+    // capped by the deadline of an executeAsync call
+    private int getResponseTimeout() {
+        int responseTimeout = timeout > 0 ? timeout : DEFAULT_RESPONSE_TIMEOUT;
+
+        CallContext context = CallContext.current();
+        return context != null ? context.getTimeout(responseTimeout) : responseTimeout;
+    }
+
+    private byte[] getGatewayResponse() throws IOException, GatewayTimeoutException {
+        byte[] buffer = getFrameDecoder().readFrame(client, getResponseTimeout());
+        if(buffer.length > 0) {
+            return buffer;
         }
-        while((System.currentTimeMillis() - t) <= 20000);
+        return null;
+    }
 
-        throw new GatewayTimeoutException();
+    private NetworkFrameDecoder getFrameDecoder() {
+        // GNAP lengths exclude the two byte prefix
+        return new NetworkFrameDecoder(target == null || !target.equals(Target.GNAP));
     }
 
     private void raiseGatewayEvent(final IGatewayEvent event) {
-        if(gatewayEventHandler != null) {
-            new Thread(new Runnable() {
-                public void run() {
-                    gatewayEventHandler.eventRaised(event);
+        GatewayEventDispatcher dispatcher = getEventDispatcher();
+        if(dispatcher != null) {
+            dispatcher.dispatch(event);
+        }
+    }
+
+    // the replaced dispatcher delivers what it already has queued and then stops its thread
+    private synchronized void resetEventDispatcher() {
+        GatewayEventDispatcher dispatcher = eventDispatcher;
+        eventDispatcher = null;
+        if(dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    // null when no event handler is set
+    public GatewayEventDispatcher getEventDispatcher() {
+        if(gatewayEventHandler == null) {
+            return null;
+        }
+
+        GatewayEventDispatcher dispatcher = eventDispatcher;
+        if(dispatcher == null) {
+            synchronized (this) {
+                dispatcher = eventDispatcher;
+                if(dispatcher == null) {
+                    dispatcher = new GatewayEventDispatcher(connectorName, gatewayEventHandler, eventQueueCapacity, eventOverflowPolicy);
+                    eventDispatcher = dispatcher;
                 }
-            }).start();
+            }
         }
+        return dispatcher;
     }
 }
@@ -0,0 +1,168 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Host;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * A long lived connection to one processing host.
+ * <p>
+ * Requests are written under a short write lock and a single reader thread hands each framed response to
+ * the caller waiting on its correlation key, so several threads can have requests in flight on the same
+ * link. When no correlator is supplied every response is delivered to key 0 and the caller is expected to
+ * serialise its round trips.
+ */
+class NetworkSession implements Closeable {
+    interface ICorrelator {
+        long getCorrelationKey(byte[] response);
+    }
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final InputStream in;
+    private final Host host;
+    private final NetworkFrameDecoder decoder;
+    private final ICorrelator correlator;
+    private final ConcurrentHashMap<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile boolean closed = false;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private volatile long framesReceived = 0L;
+
+    NetworkSession(Socket socket, DataOutputStream out, InputStream in, Host host, NetworkFrameDecoder decoder, ICorrelator correlator) {
+        this.socket = socket;
+        this.out = out;
+        this.in = new BufferedInputStream(in);
+        this.host = host;
+        this.decoder = decoder;
+        this.correlator = correlator;
+
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                readLoop();
+            }
+        }, "NetworkSession-" + host);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    Host getHost() {
+        return host;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    // how many frames the host has sent on this session
+    long getFramesReceived() {
+        return framesReceived;
+    }
+
+    CompletableFuture<byte[]> register(long key) throws IOException {
+        if (closed) {
+            throw new IOException("The network session is closed.");
+        }
+
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        if (pending.putIfAbsent(key, response) != null) {
+            throw new IOException(String.format("A request with correlation key %s is already in flight.", key));
+        }
+        return response;
+    }
+
+    void cancel(long key) {
+        pending.remove(key);
+    }
+
+    void write(byte[] buffer) throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IOException("The network session is closed.");
+            }
+            try {
+                out.write(buffer);
+                out.flush();
+            }
+            catch (IOException exc) {
+                // a link that can't be written to is dead for every request on it
+                close();
+                throw exc;
+            }
+        }
+        lastActivity = System.currentTimeMillis();
+    }
+
+    // returns null when no response arrives within the timeout
+    byte[] await(long key, CompletableFuture<byte[]> response, int timeout) throws IOException {
+        try {
+            return response.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException exc) {
+            return null;
+        }
+        catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while awaiting the host response.");
+        }
+        catch (ExecutionException exc) {
+            if (exc.getCause() instanceof IOException) {
+                throw (IOException) exc.getCause();
+            }
+            throw new IOException(exc.getCause());
+        }
+        finally {
+            pending.remove(key, response);
+        }
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            socket.close();
+        }
+        catch (IOException exc) {
+            // eat the close exception
+        }
+        failPending(new IOException("The network session was closed."));
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                byte[] frame = decoder.readFrame(in);
+                lastActivity = System.currentTimeMillis();
+                framesReceived++;
+
+                long key = correlator != null ? correlator.getCorrelationKey(frame) : 0L;
+                CompletableFuture<byte[]> response = pending.remove(key);
+                if (response != null) {
+                    response.complete(frame);
+                }
+            }
+        }
+        catch (IOException exc) {
+            closed = true;
+            failPending(exc);
+        }
+    }
+
+    private void failPending(IOException exc) {
+        for (Map.Entry<Long, CompletableFuture<byte[]>> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().completeExceptionally(exc);
+            }
+        }
+    }
+}
@@ -17,7 +17,9 @@ import lombok.Setter;
 import lombok.experimental.Accessors;
 import lombok.var;
 import org.apache.http.HttpStatus;
-import java.text.SimpleDateFormat;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
 import java.util.HashMap;
 
 @Accessors(chain = true)
@@ -25,7 +27,7 @@ import java.util.HashMap;
 @Setter
 public class OpenBankingProvider extends RestGateway implements IOpenBankingProvider, IReportingService {
     static final String DATE_TIME_PATTERN = "yyyyMMddHHmmss";
-    static final SimpleDateFormat DATE_SDF = new SimpleDateFormat(DATE_TIME_PATTERN);
+    static final DateTimeFormatter DATE_DTF = DateTimeFormat.forPattern(DATE_TIME_PATTERN);
 
     private String merchantId;
     private String accountId;
@@ -140,8 +142,8 @@ public class OpenBankingProvider extends RestGateway implements IOpenBankingProv
 
                     String hash = GenerationUtils.generateHash(sharedSecret, shaHashType, timestamp, merchantId, _accountId,
                             !StringUtils.isNullOrEmpty(searchBuilder.getBankPaymentId()) ? searchBuilder.getBankPaymentId() : "",
-                            searchBuilder.getStartDate() != null ? DATE_SDF.format(searchBuilder.getStartDate()) : "",
-                            searchBuilder.getEndDate() != null ? DATE_SDF.format(searchBuilder.getEndDate()) : "",
+                            searchBuilder.getStartDate() != null ? DATE_DTF.print(searchBuilder.getStartDate().getTime()) : "",
+                            searchBuilder.getEndDate() != null ? DATE_DTF.print(searchBuilder.getEndDate().getTime()) : "",
                             searchBuilder.getReturnPII() != null ? (searchBuilder.getReturnPII().booleanValue() ? "True" : "False") : "");
 
                     setAuthorizationHeader(hash);
@@ -155,11 +157,11 @@ public class OpenBankingProvider extends RestGateway implements IOpenBankingProv
                     if(!StringUtils.isNullOrEmpty(obTransId)) {
                         queryParams.put("obTransId", obTransId);
                     }
-                    var startDate = searchBuilder.getStartDate() != null ? DATE_SDF.format(searchBuilder.getStartDate()) : "";
+                    var startDate = searchBuilder.getStartDate() != null ? DATE_DTF.print(searchBuilder.getStartDate().getTime()) : "";
                     if(!StringUtils.isNullOrEmpty(startDate)) {
                         queryParams.put("startDateTime", startDate);
                     }
-                    var endDate = searchBuilder.getEndDate() != null ? DATE_SDF.format(searchBuilder.getEndDate()) : "";
+                    var endDate = searchBuilder.getEndDate() != null ? DATE_DTF.print(searchBuilder.getEndDate().getTime()) : "";
                     if(!StringUtils.isNullOrEmpty(endDate)) {
                         queryParams.put("endDateTime", endDate);
                     }
@@ -12,8 +12,10 @@ import com.global.api.entities.reporting.CheckData;
 import com.global.api.network.NetworkMessageHeader;
 import com.global.api.paymentMethods.*;
 import com.global.api.utils.Element;
+import com.global.api.utils.ElementReader;
 import com.global.api.utils.ElementTree;
 import com.global.api.utils.EnumUtils;
+import com.global.api.utils.IElementValues;
 import com.global.api.utils.ReverseStringEnumMap;
 import com.global.api.utils.StringUtils;
 import lombok.Getter;
@@ -26,6 +28,7 @@ import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 @Accessors(chain = true)
@@ -827,28 +830,19 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway, IRe
 
     @SuppressWarnings("unchecked")
     private <TResult> TResult mapReportResponse(String rawResponse, ReportType reportType, Class<TResult> clazz) throws ApiException {
-        Element response = ElementTree.parse(rawResponse).get("PosResponse");
-        ArrayList<String> acceptedCodes = new ArrayList<String>();
-        acceptedCodes.add("00");
-        acceptedCodes.add("0");
-
-        // check gateway responses
-        String gatewayRspCode = normalizeResponse(response.getString("GatewayRspCode"));
-        String gatewayRspText = response.getString("GatewayRspMsg");
-
-        if (!acceptedCodes.contains(gatewayRspCode)) {
-            throw new GatewayException(
-                    String.format("Unexpected Gateway Response: %s - %s", gatewayRspCode, gatewayRspText),
-                    gatewayRspCode,
-                    gatewayRspText
-            );
+        boolean transactionReport = reportType.equals(ReportType.FindTransactions) || reportType.equals(ReportType.Activity) || reportType.equals(ReportType.TransactionDetail);
+        if(transactionReport && !ActivityReport.class.isAssignableFrom(clazz)) {
+            return streamReportResponse(rawResponse, reportType, clazz);
         }
 
-        Element doc = ElementTree.parse(rawResponse).get(mapReportType(reportType));
+        ElementTree tree = ElementTree.parse(rawResponse);
+        checkReportResponse(tree.get("PosResponse"));
+
+        Element doc = tree.get(mapReportType(reportType));
 
         try {
             TResult rvalue = clazz.newInstance();
-            if(reportType.equals(ReportType.FindTransactions) || reportType.equals(ReportType.Activity) || reportType.equals(ReportType.TransactionDetail)) {
+            if(transactionReport) {
                 // Activity
                 if (rvalue instanceof ActivityReport){
                     ActivityReport list = new ActivityReport();
@@ -872,6 +866,60 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway, IRe
         }
     }
 
+    // maps the summaries in one pass over the response, without building a DOM of what can be thousands of rows
+    private <TResult> TResult streamReportResponse(String rawResponse, ReportType reportType, Class<TResult> clazz) throws ApiException {
+        final List<TransactionSummary> summaries = new ArrayList<TransactionSummary>();
+        ElementReader.IRecordHandler handler = new ElementReader.IRecordHandler() {
+            public void record(ElementReader record) {
+                summaries.add(hydrateTransactionSummary(record));
+            }
+        };
+
+        TResult rvalue;
+        ElementReader response;
+        try {
+            rvalue = clazz.newInstance();
+            if(rvalue instanceof TransactionSummaryList) {
+                response = ElementReader.read(rawResponse, mapReportType(reportType), "Transactions", handler);
+            }
+            else response = ElementReader.read(rawResponse, null, mapReportType(reportType), handler);
+        }
+        catch(ApiException e) {
+            throw e;
+        }
+        catch(Exception e) {
+            throw new ApiException(e.getMessage(), e);
+        }
+        checkReportResponse(response);
+
+        if(rvalue instanceof TransactionSummaryList) {
+            ((TransactionSummaryList) rvalue).addAll(summaries);
+            return rvalue;
+        }
+        else if(!summaries.isEmpty()) {
+            return (TResult) summaries.get(0);
+        }
+        throw new ApiException(String.format("The response did not contain %s.", mapReportType(reportType)));
+    }
+
+    private void checkReportResponse(IElementValues response) throws GatewayException {
+        ArrayList<String> acceptedCodes = new ArrayList<String>();
+        acceptedCodes.add("00");
+        acceptedCodes.add("0");
+
+        // check gateway responses
+        String gatewayRspCode = normalizeResponse(response.getString("GatewayRspCode"));
+        String gatewayRspText = response.getString("GatewayRspMsg");
+
+        if (!acceptedCodes.contains(gatewayRspCode)) {
+            throw new GatewayException(
+                    String.format("Unexpected Gateway Response: %s - %s", gatewayRspCode, gatewayRspText),
+                    gatewayRspCode,
+                    gatewayRspText
+            );
+        }
+    }
+
     private String normalizeResponse(String input) {
         if(input != null) {
             if (input.equals("0") || input.equals("85"))
@@ -1063,7 +1111,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway, IRe
         return sdf.format(date);
     }
 
-    private TransactionSummary hydrateTransactionSummary(Element root) {
+    private TransactionSummary hydrateTransactionSummary(IElementValues root) {
         TransactionSummary summary = new TransactionSummary();
         summary.setAccountDataSource(root.getString("AcctDataSrc"));
         summary.setAmount(root.getDecimal("Amt"));
@@ -1128,7 +1176,7 @@ public class PorticoConnector extends XmlGateway implements IPaymentGateway, IRe
             LodgingData lodgingData = new LodgingData();
 
             String advancedDepositType = root.getString("AdvancedDepositType");
-            ReverseStringEnumMap<AdvancedDepositType> map = new ReverseStringEnumMap<AdvancedDepositType>(AdvancedDepositType.class);
+            ReverseStringEnumMap<AdvancedDepositType> map = ReverseStringEnumMap.of(AdvancedDepositType.class);
             lodgingData.setAdvancedDepositType(map.get(advancedDepositType));
             lodgingData.setLodgingDataEdit(root.getString("LodgingDataEdit"));
             summary.setLodgingData(lodgingData);
@@ -0,0 +1,27 @@
+package com.global.api.gateways;
+
+import lombok.Getter;
+
+@Getter
+public class Secure3dCacheStats {
+    // Lookups answered from the cache
+    private final long hits;
+    // Lookups for ranges that weren't cached, or whose entry had expired
+    private final long misses;
+    // Entries dropped to stay within the size limit
+    private final long evictions;
+    // Card ranges currently cached
+    private final int size;
+
+    public Secure3dCacheStats(long hits, long misses, long evictions, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[hits: %s; misses: %s; evictions: %s; size: %s]", hits, misses, evictions, size);
+    }
+}
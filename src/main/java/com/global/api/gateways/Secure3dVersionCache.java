@@ -0,0 +1,183 @@
+package com.global.api.gateways;
+
+import com.global.api.entities.enums.Secure3dVersion;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the 3-D Secure version of each card range in memory, keyed on the leading digits of the card
+ * number. Entries expire after a fixed time, so a range that has since enrolled in 3DS2 is tried there
+ * again, and the least recently used range is dropped once the size limit is reached.
+ * <p>
+ * The cache can be saved to a file and loaded again after a restart. Only the range prefixes are
+ * written, never the card numbers.
+ */
+public class Secure3dVersionCache implements ISecure3dVersionCache {
+    public static final int DEFAULT_RANGE_DIGITS = 8;
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(24);
+    private static final String SNAPSHOT_HEADER = "# Secure3dVersionCache range,version,expires";
+
+    private final int rangeDigits;
+    private final int maxEntries;
+    private final long timeToLive;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public Secure3dVersionCache() {
+        this(DEFAULT_RANGE_DIGITS, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+    public Secure3dVersionCache(int rangeDigits, int maxEntries, long timeToLive) {
+        this.rangeDigits = rangeDigits;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+
+        // kept in access order, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > Secure3dVersionCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static class Entry {
+        private final Secure3dVersion version;
+        private final long expires;
+
+        private Entry(Secure3dVersion version, long expires) {
+            this.version = version;
+            this.expires = expires;
+        }
+    }
+
+    public synchronized Secure3dVersion get(String cardNumber) {
+        String range = rangeOf(cardNumber);
+        if (range == null) {
+            return null;
+        }
+
+        Entry entry = entries.get(range);
+        if (entry != null && entry.expires <= currentTimeMillis()) {
+            entries.remove(range);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.version;
+    }
+
+    public synchronized void put(String cardNumber, Secure3dVersion version) {
+        String range = rangeOf(cardNumber);
+        if (range != null && (version == Secure3dVersion.ONE || version == Secure3dVersion.TWO)) {
+            entries.put(range, new Entry(version, currentTimeMillis() + timeToLive));
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized Secure3dCacheStats getStats() {
+        return new Secure3dCacheStats(hits, misses, evictions, entries.size());
+    }
+
+    /**
+     * Writes the unexpired entries to the file, replacing it once they have all been written.
+     */
+    public void save(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(SNAPSHOT_HEADER);
+        synchronized (this) {
+            long now = currentTimeMillis();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().expires > now) {
+                    lines.add(entry.getKey() + "," + entry.getValue().version.name() + "," + entry.getValue().expires);
+                }
+            }
+        }
+
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exc) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Adds the entries saved in the file that haven't expired since. Lines that can't be read are skipped,
+     * and a missing file leaves the cache as it was.
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        synchronized (this) {
+            long now = currentTimeMillis();
+            for (String line : lines) {
+                String[] fields = line.split(",");
+                if (line.startsWith("#") || fields.length != 3 || fields[0].length() != rangeDigits) {
+                    continue;
+                }
+
+                try {
+                    Secure3dVersion version = Secure3dVersion.valueOf(fields[1]);
+                    long expires = Long.parseLong(fields[2]);
+                    if (expires > now && (version == Secure3dVersion.ONE || version == Secure3dVersion.TWO)) {
+                        entries.put(fields[0], new Entry(version, expires));
+                    }
+                } catch (IllegalArgumentException exc) {
+                    // written by something else, leave it out
+                }
+            }
+        }
+    }
+
+    // the clock entries expire by, which tests can replace
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private String rangeOf(String cardNumber) {
+        // anything shorter than a card number, or not made of digits, isn't cached
+        if (cardNumber == null || cardNumber.length() < Math.max(12, rangeDigits)) {
+            return null;
+        }
+        for (int i = 0; i < rangeDigits; i++) {
+            char c = cardNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+        return cardNumber.substring(0, rangeDigits);
+    }
+}
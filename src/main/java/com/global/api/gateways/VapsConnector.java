@@ -36,6 +36,10 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 
 public class VapsConnector extends GatewayConnectorConfig {
+    // EH.14 Origin Correlation 2, with and without the two byte length prefix
+    private static final int ORIGIN_CORRELATION_2_REQUEST_OFFSET = 23;
+    private static final int ORIGIN_CORRELATION_2_RESPONSE_OFFSET = 21;
+
     private AcceptorConfig acceptorConfig;
     private IBatchProvider batchProvider;
     private CharacterSet characterSet = CharacterSet.ASCII;
@@ -1154,6 +1158,38 @@ public class VapsConnector extends GatewayConnectorConfig {
         return new DeviceMessage(buffer.toArray());
     }
     
+    @Override
+    protected void sendHeartbeat() throws ApiException {
+        sendKeepAlive();
+    }
+
+    // the host echoes the origin correlation 2 header field, so it can be used to match responses on a shared session
+    @Override
+    protected boolean supportsMultiplexing() {
+        return true;
+    }
+
+    @Override
+    protected byte[] tagRequest(byte[] buffer, long key) {
+        for(int i = 0; i < 8; i++) {
+            buffer[ORIGIN_CORRELATION_2_REQUEST_OFFSET + i] = (byte)(key >>> (56 - (8 * i)));
+        }
+        return buffer;
+    }
+
+    @Override
+    protected long getCorrelationKey(byte[] response) {
+        if(response.length < ORIGIN_CORRELATION_2_RESPONSE_OFFSET + 8) {
+            return -1L;
+        }
+
+        long key = 0L;
+        for(int i = 0; i < 8; i++) {
+            key = (key << 8) | (response[ORIGIN_CORRELATION_2_RESPONSE_OFFSET + i] & 0xFF);
+        }
+        return key;
+    }
+
     public NetworkMessageHeader sendKeepAlive() throws ApiException {
         IDeviceMessage keepAlive = buildMessage(new byte[0], new byte[2], new byte[8], true);
         byte[] responseBuffer = send(keepAlive);
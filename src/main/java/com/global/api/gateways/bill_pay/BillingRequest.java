@@ -20,6 +20,7 @@ import com.global.api.gateways.bill_pay.responses.PreloadBillsResponse;
 import com.global.api.gateways.bill_pay.responses.SecurePayResponse;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.XmlWriter;
 
 public class BillingRequest extends GatewayRequestBase {
     public BillingRequest(Credentials credentials, String serviceUrl, int timeout) {
@@ -72,9 +73,9 @@ public class BillingRequest extends GatewayRequestBase {
     }
 
     private BillingResponse preloadBills(BillingBuilder builder) throws ApiException {
-        ElementTree et = new ElementTree();
-        Element envelope = createSOAPEnvelope(et, "PreloadBills");
-        String request = new PreloadBillsRequest(et)
+        XmlWriter xml = new XmlWriter();
+        XmlWriter.Node envelope = createSOAPEnvelope(xml, "PreloadBills");
+        String request = new PreloadBillsRequest(xml)
             .build(envelope, builder, credentials);
 
         String response = doTransaction(request);
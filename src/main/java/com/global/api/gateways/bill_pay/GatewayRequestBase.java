@@ -4,8 +4,18 @@ import com.global.api.entities.billing.Credentials;
 import com.global.api.gateways.XmlGateway;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.XmlWriter;
 
 public abstract class GatewayRequestBase extends XmlGateway {
+    private static final String[][] NAMESPACES = {
+        { "soapenv", "http://schemas.xmlsoap.org/soap/envelope/" },
+        { "bil", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BillingDataManagementService" },
+        { "bdms", "http://schemas.datacontract.org/2004/07/BDMS.NewModel" },
+        { "hps", "http://schemas.datacontract.org/2004/07/HPS.BillerDirect.ACHCard.Wrapper" },
+        { "pos", "http://schemas.datacontract.org/2004/07/POSGateway.Wrapper" },
+        { "bdm", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BDMServiceAdmin" }
+    };
+
     protected Credentials credentials;
 
     /// <summary>
@@ -20,6 +30,15 @@ public abstract class GatewayRequestBase extends XmlGateway {
 
         return et.element("soapenv:Envelope");
     }
+    protected XmlWriter.Node createSOAPEnvelope(XmlWriter xml, String soapAction)
+    {
+        setSOAPAction(soapAction);
+        for (String[] namespace : NAMESPACES) {
+            xml.addNamespace(namespace[0], namespace[1]);
+        }
+
+        return xml.element("soapenv:Envelope");
+    }
 
     /// <summary>
     /// Creates and sets the SOAPAction header using the supplied method name
@@ -36,11 +55,8 @@ public abstract class GatewayRequestBase extends XmlGateway {
     /// <param name="et">The element tree for the SOAP request</param>
     protected void addXMLNS(ElementTree et)
     {
-        et.addNamespace("soapenv", "http://schemas.xmlsoap.org/soap/envelope/");
-        et.addNamespace("bil", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BillingDataManagementService");
-        et.addNamespace("bdms", "http://schemas.datacontract.org/2004/07/BDMS.NewModel");
-        et.addNamespace("hps", "http://schemas.datacontract.org/2004/07/HPS.BillerDirect.ACHCard.Wrapper");
-        et.addNamespace("pos", "http://schemas.datacontract.org/2004/07/POSGateway.Wrapper");
-        et.addNamespace("bdm", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BDMServiceAdmin");
+        for (String[] namespace : NAMESPACES) {
+            et.addNamespace(namespace[0], namespace[1]);
+        }
     }
 }
@@ -32,15 +32,23 @@ import com.global.api.paymentMethods.eCheck;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
 import com.global.api.utils.StringUtils;
+import com.global.api.utils.XmlWriter;
 
 public abstract class BillPayRequestBase {
     private int version = 3092;
     private int applicationId = 3;
     protected String browserType = "Java SDK";
     protected final ElementTree et;
+    // requests large enough to matter are streamed instead of built as a DOM
+    protected final XmlWriter xml;
 
     public BillPayRequestBase(ElementTree et) {
         this.et = et;
+        this.xml = null;
+    }
+    public BillPayRequestBase(XmlWriter xml) {
+        this.et = null;
+        this.xml = xml;
     }
 
     /// <summary>
@@ -57,6 +65,15 @@ public abstract class BillPayRequestBase {
         et.subElement(credential, "bdms:UserName", credentials.getUserName());
         et.subElement(credential, "bdms:MerchantName", credentials.getMerchantName());
     }
+    protected void buildCredentials(XmlWriter.Node parent, Credentials credentials) {
+        xml.subElement(parent, "bdms:BollettaVersion", version);
+        XmlWriter.Node credential = xml.subElement(parent, "bdms:Credential");
+        xml.subElement(credential, "bdms:ApiKey", credentials.getApiKey());
+        xml.subElement(credential, "bdms:ApplicationID", applicationId);
+        xml.subElement(credential, "bdms:Password", credentials.getPassword());
+        xml.subElement(credential, "bdms:UserName", credentials.getUserName());
+        xml.subElement(credential, "bdms:MerchantName", credentials.getMerchantName());
+    }
 
     /// <summary>
     /// Builds the ACH Account section of the request
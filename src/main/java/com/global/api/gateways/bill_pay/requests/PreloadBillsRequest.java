@@ -8,12 +8,74 @@ import com.global.api.entities.billing.Credentials;
 import com.global.api.entities.exceptions.ApiException;
 import com.global.api.utils.Element;
 import com.global.api.utils.ElementTree;
+import com.global.api.utils.XmlWriter;
 
 public class PreloadBillsRequest extends BillPayRequestBase {
+    /**
+     * @deprecated the whole request is held as a DOM before it is written. Use {@link #PreloadBillsRequest(XmlWriter)}
+     */
+    @Deprecated
     public PreloadBillsRequest(ElementTree et) {
         super(et);
     }
+    public PreloadBillsRequest(XmlWriter xml) {
+        super(xml);
+    }
+
+    public String build(XmlWriter.Node envelope, BillingBuilder builder, Credentials credentials) throws ApiException {
+        XmlWriter.Node body = xml.subElement(envelope, "soapenv:Body");
+        XmlWriter.Node methodElement = xml.subElement(body, "bil:PreloadBills");
+        XmlWriter.Node requestElement = xml.subElement(methodElement, "bil:PreloadBillsRequest");
+
+        validateBills(builder.getBills());
+        buildCredentials(requestElement, credentials);
+        XmlWriter.Node bills = xml.subElement(requestElement, "bdms:Bills");
+
+        for (Bill bill : builder.getBills()) {
+            XmlWriter.Node billElement = xml.subElement(bills, "bdms:Bill");
+            XmlWriter.Node billIdentifierExtended = xml.subElement(billElement, "bdms:BillIdentifierExtended");
+
+            xml.subElement(billIdentifierExtended, "bdms:BillType", bill.getBillType());
+            xml.subElement(billIdentifierExtended, "bdms:ID1", bill.getIdentifier1());
+            xml.subElement(billIdentifierExtended, "bdms:ID2", bill.getIdentifier2());
+            xml.subElement(billIdentifierExtended, "bdms:ID3", bill.getIdentifier3());
+            xml.subElement(billIdentifierExtended, "bdms:ID4", bill.getIdentifier4());
+
+            xml.subElement(billIdentifierExtended, "bdms:DueDate", getDateFormatted(bill.getDueDate()));
+
+            xml.subElement(billElement, "bdms:BillPresentment", getBillPresentmentType(bill.getBillPresentment()));
+
+
+            if (bill.getCustomer() != null) {
+                Customer customer = bill.getCustomer();
+
+                if (customer.getAddress() != null) {
+                    Address address = customer.getAddress();
+                    XmlWriter.Node customerAddress = xml.subElement(billElement, "bdms:CustomerAddress");
+                    xml.subElement(customerAddress, "bdms:AddressLineOne", address.getStreetAddress1());
+                    xml.subElement(customerAddress, "bdms:City", address.getCity());
+                    xml.subElement(customerAddress, "bdms:Country", address.getCountry());
+                    xml.subElement(customerAddress, "bdms:PostalCode", address.getPostalCode());
+                    xml.subElement(customerAddress, "bdms:State", address.getState());
+                }
+                
+                xml.subElement(billElement, "bdms:MerchantCustomerId", customer.getId());
+                xml.subElement(billElement, "bdms:ObligorEmailAddress", customer.getEmail());
+                xml.subElement(billElement, "bdms:ObligorFirstName", customer.getFirstName());
+                xml.subElement(billElement, "bdms:ObligorLastName", customer.getLastName());
+                xml.subElement(billElement, "bdms:ObligorPhoneNumber", customer.getHomePhone());
+            }
+
+            xml.subElement(billElement, "bdms:RequiredAmount", bill.getAmount());
+        }
+
+        return xml.toString(envelope);
+    }
 
+    /**
+     * @deprecated builds the request as a DOM. Use {@link #PreloadBillsRequest(XmlWriter)}, which streams it
+     */
+    @Deprecated
     public String build(Element envelope, BillingBuilder builder, Credentials credentials) throws ApiException {
         Element body = et.subElement(envelope, "soapenv:Body");
         Element methodElement = et.subElement(body, "bil:PreloadBills");
@@ -0,0 +1,11 @@
+package com.global.api.gateways.events;
+
+// What the event dispatcher does when its queue is full
+public enum EventOverflowPolicy {
+    // discard the event being raised
+    DropNewest,
+    // discard the oldest queued event to make room
+    DropOldest,
+    // make the raising thread wait for room in the queue
+    Block
+}
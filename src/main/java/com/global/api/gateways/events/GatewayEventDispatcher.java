@@ -0,0 +1,159 @@
+package com.global.api.gateways.events;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers gateway events to an {@link IGatewayEventHandler} from a single background thread.
+ * <p>
+ * Events are queued in a bounded buffer and handed to the handler in the order they were raised. The
+ * consumer thread is started on demand and exits after it has been idle for a while, so a dispatcher
+ * that is no longer used does not hold on to a thread. {@link #shutdown()} lets it exit as soon as the
+ * events already queued have been delivered.
+ */
+public class GatewayEventDispatcher {
+    private static final long IDLE_TIMEOUT = 60000;
+
+    // queued on shutdown to wake a consumer waiting for events; never handed to the handler
+    private static final IGatewayEvent WAKE_UP = new IGatewayEvent() {
+        public GatewayEventType getEventType() {
+            return null;
+        }
+        public String getTimestamp() {
+            return null;
+        }
+        public String getEventMessage() {
+            return null;
+        }
+    };
+
+    private final IGatewayEventHandler eventHandler;
+    private final ArrayBlockingQueue<IGatewayEvent> queue;
+    private final EventOverflowPolicy overflowPolicy;
+    private final String name;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+    private volatile boolean shutdown = false;
+
+    public GatewayEventDispatcher(String name, IGatewayEventHandler eventHandler, int capacity, EventOverflowPolicy overflowPolicy) {
+        this.name = name;
+        this.eventHandler = eventHandler;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public IGatewayEventHandler getEventHandler() {
+        return eventHandler;
+    }
+    public EventOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+    public long getDeliveredEventCount() {
+        return deliveredEvents.get();
+    }
+    public int getQueuedEventCount() {
+        return queue.size();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public void dispatch(IGatewayEvent event) {
+        if (shutdown) {
+            droppedEvents.incrementAndGet();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case Block:
+                try {
+                    queue.put(event);
+                }
+                catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+                break;
+            case DropOldest:
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        droppedEvents.incrementAndGet();
+                    }
+                }
+                break;
+            default:
+                if (!queue.offer(event)) {
+                    droppedEvents.incrementAndGet();
+                    return;
+                }
+        }
+        ensureConsumer();
+    }
+
+    /**
+     * Stops accepting events. Events already queued are still delivered, after which the consumer
+     * thread exits instead of waiting out the idle timeout. Events dispatched afterwards are dropped.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+
+        // a full queue means the consumer is busy and will see the flag once it has drained it
+        if (queue.offer(WAKE_UP)) {
+            ensureConsumer();
+        }
+    }
+
+    private void ensureConsumer() {
+        if (running.compareAndSet(false, true)) {
+            Thread consumer = new Thread(new Runnable() {
+                public void run() {
+                    consume();
+                }
+            }, name + "-Events");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+    }
+
+    private void consume() {
+        try {
+            while (true) {
+                IGatewayEvent event = shutdown ? queue.poll() : queue.poll(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    running.set(false);
+
+                    // an event may have been queued between the poll timing out and the flag being cleared
+                    if (queue.isEmpty() || !running.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                if (event == WAKE_UP) {
+                    continue;
+                }
+
+                try {
+                    eventHandler.eventRaised(event);
+                    deliveredEvents.incrementAndGet();
+                }
+                catch (RuntimeException exc) {
+                    // a misbehaving handler must not stop delivery of later events
+                }
+            }
+        }
+        catch (InterruptedException exc) {
+            running.set(false);
+        }
+    }
+}
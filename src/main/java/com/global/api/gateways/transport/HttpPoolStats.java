@@ -0,0 +1,27 @@
+package com.global.api.gateways.transport;
+
+import lombok.Getter;
+
+@Getter
+public class HttpPoolStats {
+    // Connections currently handed out to in-flight requests
+    private final int leased;
+    // Open connections kept alive and waiting to be reused
+    private final int idle;
+    // Requests waiting for a connection to become available
+    private final int pending;
+    // Maximum number of connections the pool may open
+    private final int max;
+
+    public HttpPoolStats(int leased, int idle, int pending, int max) {
+        this.leased = leased;
+        this.idle = idle;
+        this.pending = pending;
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[leased: %s; idle: %s; pending: %s; max: %s]", leased, idle, pending, max);
+    }
+}
@@ -0,0 +1,30 @@
+package com.global.api.gateways.transport;
+
+import com.global.api.gateways.CallContext;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.net.Proxy;
+import java.util.LinkedHashMap;
+
+@Accessors(chain = true)
+@Getter
+@Setter
+public class HttpTransportRequest {
+    private String verb;
+    private String url;
+    private LinkedHashMap<String, String> headers = new LinkedHashMap<>();
+    private byte[] body;
+    private int timeout;
+    // socket read timeout, 0 leaves the transport default
+    private int readTimeout;
+    private Proxy proxy;
+    // set when the request is part of an executeAsync call, transports register how to abort it
+    private CallContext callContext;
+
+    public HttpTransportRequest addHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+}
@@ -0,0 +1,15 @@
+package com.global.api.gateways.transport;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * A response handed back by an {@link IHttpTransport}. The content is the response body for
+ * successful status codes and the error body otherwise. Closing the response releases the
+ * underlying connection back to the transport so it can be reused.
+ */
+public interface HttpTransportResponse extends Closeable {
+    int getStatusCode();
+    String getStatusMessage();
+    InputStream getContent();
+}
@@ -0,0 +1,153 @@
+package com.global.api.gateways.transport;
+
+import com.global.api.gateways.SSLSocketFactoryEx;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+/**
+ * Default transport built on {@link HttpsURLConnection}.
+ * <p>
+ * A single {@link SSLSocketFactoryEx} is created per transport and shared by every request, which lets the
+ * JDK keep-alive cache reuse established TLS connections and lets the SSL context resume sessions.
+ */
+public class HttpsUrlConnectionTransport implements IHttpTransport {
+    private volatile SSLSocketFactory socketFactory;
+
+    public HttpsUrlConnectionTransport() {
+    }
+
+    public HttpsUrlConnectionTransport(SSLSocketFactory socketFactory) {
+        this.socketFactory = socketFactory;
+    }
+
+    public HttpTransportResponse send(HttpTransportRequest request) throws IOException {
+        HttpsURLConnection conn;
+        if (request.getProxy() != null) {
+            conn = (HttpsURLConnection) new URL(request.getUrl()).openConnection(request.getProxy());
+        } else {
+            conn = (HttpsURLConnection) new URL(request.getUrl()).openConnection();
+        }
+        conn.setSSLSocketFactory(getSocketFactory());
+        conn.setConnectTimeout(request.getTimeout());
+        if (request.getReadTimeout() > 0) {
+            conn.setReadTimeout(request.getReadTimeout());
+        }
+        if (request.getCallContext() != null) {
+            final HttpsURLConnection connection = conn;
+            request.getCallContext().setAbortHandler(new Runnable() {
+                public void run() {
+                    connection.disconnect();
+                }
+            });
+        }
+        conn.setDoInput(true);
+        // ----------------------------------------------------------------------
+        // Fix: Supports PATCH requests in HttpsURLConnection on JAVA & Android
+        // ----------------------------------------------------------------------
+        if ("PATCH".equalsIgnoreCase(request.getVerb())) {
+            setRequestMethod(conn, request.getVerb());
+        } else {
+            conn.setRequestMethod(request.getVerb());
+        }
+        // ----------------------------------------------------------------------
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            conn.addRequestProperty(header.getKey(), header.getValue());
+        }
+
+        if (request.getBody() != null) {
+            conn.setDoOutput(true);
+
+            OutputStream requestStream = conn.getOutputStream();
+            requestStream.write(request.getBody());
+            requestStream.flush();
+            requestStream.close();
+        }
+
+        return new UrlConnectionResponse(conn);
+    }
+
+    public void close() {
+        // connections are owned by the JDK keep-alive cache
+    }
+
+    private SSLSocketFactory getSocketFactory() throws IOException {
+        if (socketFactory == null) {
+            synchronized (this) {
+                if (socketFactory == null) {
+                    try {
+                        socketFactory = new SSLSocketFactoryEx();
+                    } catch (GeneralSecurityException exc) {
+                        throw new IOException("Unable to initialize the SSL context.", exc);
+                    }
+                }
+            }
+        }
+        return socketFactory;
+    }
+
+    private void setRequestMethod(final HttpURLConnection c, final String value) {
+        try {
+            Object target = c;
+            final Field delegate = getField(c.getClass(), "delegate");
+            if (delegate != null) {
+                delegate.setAccessible(true);
+                target = delegate.get(c);
+            }
+            final Field f = HttpURLConnection.class.getDeclaredField("method");
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (IllegalAccessException | NoSuchFieldException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private Field getField(Class<?> clazz, String fieldName) {
+        Field field;
+        try {
+            field = clazz.getDeclaredField(fieldName);
+        } catch (NoSuchFieldException ex) {
+            field = null;
+        }
+        return field;
+    }
+
+    private static class UrlConnectionResponse implements HttpTransportResponse {
+        private final int statusCode;
+        private final String statusMessage;
+        private final InputStream content;
+
+        UrlConnectionResponse(HttpURLConnection conn) throws IOException {
+            statusCode = conn.getResponseCode();
+            statusMessage = conn.getResponseMessage();
+            content = statusCode >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getStatusMessage() {
+            return statusMessage;
+        }
+
+        public InputStream getContent() {
+            return content;
+        }
+
+        public void close() throws IOException {
+            if (content != null) {
+                content.close();
+            }
+        }
+    }
+}
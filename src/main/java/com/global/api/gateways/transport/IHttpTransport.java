@@ -0,0 +1,8 @@
+package com.global.api.gateways.transport;
+
+import java.io.IOException;
+
+public interface IHttpTransport {
+    HttpTransportResponse send(HttpTransportRequest request) throws IOException;
+    void close();
+}
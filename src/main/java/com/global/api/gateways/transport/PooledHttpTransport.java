@@ -0,0 +1,180 @@
+package com.global.api.gateways.transport;
+
+import com.global.api.gateways.SSLSocketFactoryEx;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep-alive transport backed by a bounded connection pool.
+ * <p>
+ * All connections share one TLS context, established connections are reused across requests and
+ * connections that stay idle longer than the configured time are evicted in the background.
+ * <p>
+ * HTTP proxies are handled by the client, SOCKS proxies by opening the socket through the proxy. Pooled
+ * connections are only reused by requests with the same proxy. The target host is resolved locally even
+ * when a SOCKS proxy is used.
+ */
+public class PooledHttpTransport implements IHttpTransport {
+    private static final String SOCKS_PROXY = "com.global.api.socks-proxy";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private volatile boolean closed = false;
+
+    public PooledHttpTransport(int maxConnections, int maxConnectionsPerRoute, int idleTimeout) throws GeneralSecurityException {
+        this(new SSLSocketFactoryEx(), maxConnections, maxConnectionsPerRoute, idleTimeout);
+    }
+
+    public PooledHttpTransport(SSLSocketFactory socketFactory, int maxConnections, int maxConnectionsPerRoute, int idleTimeout) {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("https", new SSLConnectionSocketFactory(socketFactory, SSLConnectionSocketFactory.getDefaultHostnameVerifier()) {
+                    @Override
+                    public Socket createSocket(HttpContext context) throws IOException {
+                        // the TLS session is layered over the tunnel once it is connected
+                        Proxy proxy = (Proxy) context.getAttribute(SOCKS_PROXY);
+                        return proxy != null ? new Socket(proxy) : super.createSocket(context);
+                    }
+                })
+                .register("http", new PlainConnectionSocketFactory() {
+                    @Override
+                    public Socket createSocket(HttpContext context) throws IOException {
+                        Proxy proxy = (Proxy) context.getAttribute(SOCKS_PROXY);
+                        return proxy != null ? new Socket(proxy) : super.createSocket(context);
+                    }
+                })
+                .build();
+
+        connectionManager = new PoolingHttpClientConnectionManager(registry);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        // the gateway handles gzip itself so the raw body is passed through untouched
+        client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .disableContentCompression()
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public HttpTransportResponse send(HttpTransportRequest request) throws IOException {
+        RequestConfig.Builder config = RequestConfig.custom()
+                .setConnectTimeout(request.getTimeout())
+                .setConnectionRequestTimeout(request.getTimeout());
+        if (request.getReadTimeout() > 0) {
+            config.setSocketTimeout(request.getReadTimeout());
+        }
+
+        HttpClientContext context = HttpClientContext.create();
+        Proxy proxy = request.getProxy() != null ? request.getProxy() : Proxy.NO_PROXY;
+        if (proxy.type() == Proxy.Type.HTTP) {
+            InetSocketAddress address = (InetSocketAddress) proxy.address();
+            config.setProxy(new HttpHost(address.getHostString(), address.getPort()));
+        } else if (proxy.type() == Proxy.Type.SOCKS) {
+            context.setAttribute(SOCKS_PROXY, proxy);
+        }
+
+        // the pool only hands a connection to requests with the same user token
+        context.setUserToken(proxy);
+
+        RequestBuilder builder = RequestBuilder.create(request.getVerb().toUpperCase())
+                .setUri(request.getUrl())
+                .setConfig(config.build());
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+
+        if (request.getBody() != null) {
+            builder.setEntity(new ByteArrayEntity(request.getBody()));
+        }
+
+        final HttpUriRequest httpRequest = builder.build();
+        if (request.getCallContext() != null) {
+            request.getCallContext().setAbortHandler(new Runnable() {
+                public void run() {
+                    httpRequest.abort();
+                }
+            });
+        }
+        return new PooledResponse(client.execute(httpRequest, context));
+    }
+
+    public HttpPoolStats getPoolStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return new HttpPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            client.close();
+        } catch (IOException e) {
+            // eat the exception
+        }
+    }
+
+    private static class PooledResponse implements HttpTransportResponse {
+        private final CloseableHttpResponse response;
+        private final InputStream content;
+
+        PooledResponse(CloseableHttpResponse response) throws IOException {
+            this.response = response;
+
+            HttpEntity entity = response.getEntity();
+            content = entity != null ? entity.getContent() : null;
+        }
+
+        public int getStatusCode() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        public String getStatusMessage() {
+            return response.getStatusLine().getReasonPhrase();
+        }
+
+        public InputStream getContent() {
+            return content;
+        }
+
+        public void close() throws IOException {
+            // draining the entity hands the connection back to the pool instead of closing it
+            try {
+                EntityUtils.consume(response.getEntity());
+            } finally {
+                response.close();
+            }
+        }
+    }
+}
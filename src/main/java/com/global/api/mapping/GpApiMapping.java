@@ -385,8 +385,10 @@ public class GpApiMapping {
     }
 
     public static <T> T mapReportResponse(String rawResponse, ReportType reportType) throws GatewayException {
-        JsonDoc json = JsonDoc.parse(rawResponse);
+        return mapReportResponse(JsonDoc.parse(rawResponse), reportType);
+    }
 
+    public static <T> T mapReportResponse(JsonDoc json, ReportType reportType) throws GatewayException {
         switch (reportType) {
             case TransactionDetail:
                 return (T) mapTransactionSummary(json);
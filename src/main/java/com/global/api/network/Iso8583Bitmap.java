@@ -1,83 +1,117 @@
 package com.global.api.network;
 
 import com.global.api.network.enums.DataElementId;
-import com.global.api.utils.ReverseIntEnumMap;
-import com.global.api.utils.StringUtils;
-
-import java.math.BigInteger;
 
 public class Iso8583Bitmap {
-    private String binaryValue;
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+    private static final DataElementId[] DATA_ELEMENTS;
+    static {
+        int maxValue = 0;
+        for(DataElementId id: DataElementId.values()) {
+            maxValue = Math.max(maxValue, id.getValue());
+        }
+
+        DATA_ELEMENTS = new DataElementId[maxValue + 1];
+        for(DataElementId id: DataElementId.values()) {
+            DATA_ELEMENTS[id.getValue()] = id;
+        }
+    }
+
+    // bit i of the bitmap, counted from the most significant bit of the first byte, is bit (i % 64) of words[i / 64]
+    private final long[] words;
+    private final int length;
     private int offset;
     private int currIndex = -1;
 
-    private ReverseIntEnumMap<DataElementId> dataElementMap;
-
     public Iso8583Bitmap(byte[] bytes) {
         this(bytes, 0);
     }
     public Iso8583Bitmap(byte[] bytes, int offset) {
         this.offset = offset;
+        this.length = bytes.length * 8;
+        this.words = new long[(length + 63) / 64];
 
-        StringBuilder sb = new StringBuilder();
-        for(byte b: bytes) {
-            sb.append(Integer.toBinaryString((b & 0xFF) + 0x100).substring(1));
+        for(int i = 0; i < bytes.length; i++) {
+            // reversing the bits of each byte lets bit 0 of the word be the first element of the bitmap
+            long reversed = Integer.reverse(bytes[i] & 0xFF) >>> 24;
+            words[i / 8] |= reversed << ((i % 8) * 8);
         }
-
-        binaryValue = sb.toString();
-        dataElementMap = new ReverseIntEnumMap<DataElementId>(DataElementId.class);
     }
 
     public boolean isPresent(DataElementId element) {
-        return binaryValue.charAt(element.getValue() - offset) == '1';
+        int index = getIndex(element);
+        return (words[index >>> 6] & (1L << index)) != 0;
     }
 
     public DataElementId getNextDataElement() {
         // get the next set value
-        char value;
-        do {
-            // return null if end of string
-            if(++currIndex >= binaryValue.length()) {
-                return null;
-            }
-
-            value = binaryValue.charAt(currIndex);
+        int index = nextSetBit(currIndex + 1);
+        if(index < 0) {
+            currIndex = length;
+            return null;
         }
-        while (value == '0');
+        currIndex = index;
 
         // return the enum value
-        return dataElementMap.get(currIndex + offset);
+        int value = currIndex + offset;
+        return value < DATA_ELEMENTS.length ? DATA_ELEMENTS[value] : null;
     }
 
     void setDataElement(DataElementId element) {
-        StringBuilder sb = new StringBuilder(binaryValue);
-        sb.setCharAt(element.getValue() - offset, '1');
-        binaryValue = sb.toString();
+        int index = getIndex(element);
+        words[index >>> 6] |= 1L << index;
     }
 
     public String toBinaryString() {
-        return binaryValue;
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++) {
+            chars[i] = (words[i >>> 6] & (1L << i)) != 0 ? '1' : '0';
+        }
+        return new String(chars);
     }
     public String toHexString() {
-        StringBuilder sb = new StringBuilder();
+        byte[] bytes = toByteArray();
 
-        for(int i = 0; i < binaryValue.length(); i += 8) {
-            int decimal = Integer.parseInt(binaryValue.substring(i, i + 8), 2);
-            String hexValue = Integer.toString(decimal, 16);
-            sb.append(StringUtils.padLeft(hexValue, 2, '0'));
+        char[] chars = new char[bytes.length * 2];
+        for(int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_CHARS[(bytes[i] & 0xF0) >>> 4];
+            chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0x0F];
         }
-
-        return sb.toString();
+        return new String(chars);
     }
     public byte[] toByteArray() {
-        String s = toHexString();
-
-        byte[] b = new byte[s.length() / 2];
-        for (int i = 0; i < b.length; i++) {
-            int index = i * 2;
-            int v = Integer.parseInt(s.substring(index, index + 2), 16);
-            b[i] = (byte) v;
+        byte[] b = new byte[length / 8];
+        for(int i = 0; i < b.length; i++) {
+            int bits = (int) (words[i / 8] >>> ((i % 8) * 8)) & 0xFF;
+            b[i] = (byte) (Integer.reverse(bits) >>> 24);
         }
         return b;
     }
+
+    private int getIndex(DataElementId element) {
+        int index = element.getValue() - offset;
+        if(index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("%s is outside of the bitmap.", element));
+        }
+        return index;
+    }
+
+    private int nextSetBit(int from) {
+        if(from >= length) {
+            return -1;
+        }
+
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while(true) {
+            if(word != 0) {
+                int index = wordIndex * 64 + Long.numberOfTrailingZeros(word);
+                return index < length ? index : -1;
+            }
+            if(++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
 }
@@ -38,11 +38,8 @@ public class Iso8583Element {
             case LVAR:
             case LLVAR:
             case LLLVAR: {
-                String length = StringUtils.padLeft(buffer.length, type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3, '0');
-
-                MessageWriter mw = new MessageWriter();
-                mw.addRange(length.getBytes());
-                mw.addRange(buffer);
+                MessageWriter mw = new MessageWriter(buffer.length + 3);
+                writeSendBuffer(mw);
 
                 return mw.toArray();
             }
@@ -52,6 +49,26 @@ public class Iso8583Element {
         }
     }
 
+    void writeSendBuffer(MessageWriter mw) {
+        if(buffer == null) {
+            return;
+        }
+
+        switch (type) {
+            case LVAR:
+            case LLVAR:
+            case LLLVAR: {
+                String length = StringUtils.padLeft(buffer.length, type.equals(DataElementType.LVAR) ? 1 : type.equals(DataElementType.LLVAR) ? 2 : 3, '0');
+                mw.addRange(length.getBytes());
+                mw.addRange(buffer);
+                break;
+            }
+            default: {
+                mw.addRange(buffer);
+            }
+        }
+    }
+
     private Iso8583Element() {}
 
     static Iso8583Element inflate(DataElementId id, DataElementType type, String description, Integer length, byte[] buffer) {
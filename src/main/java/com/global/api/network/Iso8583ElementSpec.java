@@ -0,0 +1,31 @@
+package com.global.api.network;
+
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.DataElementType;
+
+public final class Iso8583ElementSpec {
+    private final DataElementId id;
+    private final DataElementType type;
+    private final String description;
+    private final int length;
+
+    public DataElementId getId() {
+        return id;
+    }
+    public DataElementType getType() {
+        return type;
+    }
+    public String getDescription() {
+        return description;
+    }
+    public int getLength() {
+        return length;
+    }
+
+    Iso8583ElementSpec(DataElementId id, DataElementType type, String description, int length) {
+        this.id = id;
+        this.type = type;
+        this.description = description;
+        this.length = length;
+    }
+}
@@ -22,7 +22,6 @@ public class NetworkMessage {
     private Iso8583Bitmap bitmap;
     private Iso8583Bitmap secondaryBitmap;
     private Iso8583MessageType messageType;
-    private Iso8583ElementFactory factory;
 
     public boolean isDataCollect(PaymentMethodType paymentMethodType) {
         String functionCode = getString(DataElementId.DE_024);
@@ -56,9 +55,6 @@ public class NetworkMessage {
     private void setBitmap(Iso8583Bitmap bitmap) {
         this.bitmap = bitmap;
     }
-    private void setFactory(Iso8583ElementFactory factory) {
-        this.factory = factory;
-    }
 
     public NetworkMessage() {
         this(Iso8583MessageType.CompleteMessage);
@@ -66,7 +62,6 @@ public class NetworkMessage {
     public NetworkMessage(Iso8583MessageType messageType) {
         this.messageType = messageType;
         elements = new HashMap<DataElementId, Iso8583Element>();
-        factory = Iso8583ElementFactory.getConfiguredFactory(messageType);
     }
 
     public boolean has(DataElementId id) {
@@ -167,7 +162,7 @@ public class NetworkMessage {
         return this;
     }
     public NetworkMessage set(DataElementId id, byte[] buffer) {
-        Iso8583Element element = factory.createElement(id, buffer);
+        Iso8583Element element = Iso8583ElementFactory.createElement(messageType, id, buffer);
         elements.put(id, element);
         return this;
     }
@@ -196,7 +191,7 @@ public class NetworkMessage {
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
             Iso8583Element element = elements.get(currentElement);
-            mw.addRange(element.getSendBuffer());
+            element.writeSendBuffer(mw);
 
             currentElement = bitmap.getNextDataElement();
         }
@@ -207,7 +202,7 @@ public class NetworkMessage {
             currentElement = secondaryBitmap.getNextDataElement();
             while(currentElement != null){
                 Iso8583Element element = elements.get(currentElement);
-                mw.addRange(element.getSendBuffer());
+                element.writeSendBuffer(mw);
 
                 currentElement = secondaryBitmap.getNextDataElement();
             }
@@ -256,13 +251,10 @@ public class NetworkMessage {
         NetworkMessage message = new NetworkMessage(messageType);
         message.setBitmap(bitmap);
 
-        // initialize the factory
-        message.setFactory(Iso8583ElementFactory.getConfiguredFactory(mr, messageType));
-
         // read the primary bitmap
         DataElementId currentElement = bitmap.getNextDataElement();
         do {
-            message.elements.put(currentElement, message.factory.createElement(currentElement));
+            message.elements.put(currentElement, Iso8583ElementFactory.createElement(messageType, currentElement, mr));
             currentElement = bitmap.getNextDataElement();
         }
         while(currentElement != null);
@@ -274,7 +266,7 @@ public class NetworkMessage {
 
             currentElement = secondaryMap.getNextDataElement();
             while(currentElement != null) {
-                message.elements.put(currentElement, message.factory.createElement(currentElement));
+                message.elements.put(currentElement, Iso8583ElementFactory.createElement(messageType, currentElement, mr));
                 currentElement = secondaryMap.getNextDataElement();
             }
         }
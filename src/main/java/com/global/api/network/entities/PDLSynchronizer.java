@@ -0,0 +1,191 @@
+package com.global.api.network.entities;
+
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.network.entities.emvpdl.EMVPDLCardTypesTable;
+import com.global.api.network.entities.emvpdl.EMVPDLTable;
+import com.global.api.network.entities.emvpdl.EMVPDLTable10;
+import com.global.api.network.entities.mpdl.MPDLTable;
+import com.global.api.network.entities.mpdl.MPDLTable10;
+import com.global.api.network.entities.nts.NtsEMVPDLResponse;
+import com.global.api.network.entities.nts.NtsPDLResponse;
+import com.global.api.network.entities.nts.NtsRequestMessageHeader;
+import com.global.api.network.enums.nts.EmvPDLCardType;
+import com.global.api.network.enums.nts.PDLEndOfTableFlag;
+import com.global.api.network.enums.nts.PDLParameterType;
+import com.global.api.network.enums.nts.PDLTableID;
+import com.global.api.services.NetworkService;
+import com.global.api.utils.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Brings a PDLTableCache up to date with the NTS host. Table 10 lists the version of every other table, so
+ * it is always requested; the tables whose version differs from the cached one are then downloaded block
+ * by block, and the download is confirmed to the host once they are all in.
+ * <p>
+ * Only the original EMV PDL layout is handled, not the configurations of EMV PDL parameter version 002.
+ */
+public class PDLSynchronizer {
+    private static final String NO_VERSION = "   ";
+    // BLOCK SEQUENCE NUMBER is two digits
+    private static final int MAX_BLOCKS = 99;
+
+    private final PDLTableCache cache;
+    private final NtsRequestMessageHeader requestMessageHeader;
+    private final String configName;
+    private int requestCount;
+
+    public PDLSynchronizer(PDLTableCache cache, NtsRequestMessageHeader requestMessageHeader) {
+        this(cache, requestMessageHeader, "default");
+    }
+    public PDLSynchronizer(PDLTableCache cache, NtsRequestMessageHeader requestMessageHeader, String configName) {
+        this.cache = cache;
+        this.requestMessageHeader = requestMessageHeader;
+        this.configName = configName;
+    }
+
+    // requests sent to the host by this synchronizer so far
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Downloads the Magnum PDL tables that have changed, returning how many of them there were.
+     */
+    public int syncMagnum() throws ApiException {
+        NtsPDLResponse directory = (NtsPDLResponse) requestBlock(TransactionType.MagnumPDL, PDLParameterType.RequestMagnumPdl,
+                PDLTableID.Table10, null, NO_VERSION, "00");
+        cache.putMagnumTable(PDLTableID.Table10, directory.getParameterVersionOrTableVersion(), directory.getTableDataBlockData());
+
+        MPDLTable10 table10 = ((MPDLTable<MPDLTable10>) directory.getTable()).getTable();
+        Map<PDLTableID, String> versions = new LinkedHashMap<PDLTableID, String>();
+        versions.put(PDLTableID.Table30, table10.getCustomerDiscretionaryTableVersion());
+        versions.put(PDLTableID.Table40, table10.getCardDataTableVersion());
+        versions.put(PDLTableID.Table50, table10.getBinRangeTableVersion());
+        versions.put(PDLTableID.Table60, table10.getProductDataTableVersion());
+        versions.put(PDLTableID.Table70, table10.getMessageTableVersion());
+        versions.put(PDLTableID.Table80, table10.getResponseCodeTableVersion());
+
+        PDLTableID lastTable = PDLTableID.Table10;
+        String lastVersion = NO_VERSION;
+        int downloaded = 0;
+        for (Map.Entry<PDLTableID, String> table : versions.entrySet()) {
+            String version = table.getValue();
+            if (!isVersion(version) || version.equals(cache.getVersion(table.getKey()))) {
+                continue;
+            }
+
+            cache.putMagnumTable(table.getKey(), version, downloadTable(TransactionType.MagnumPDL, PDLParameterType.RequestMagnumPdl, table.getKey(), null, version));
+            lastTable = table.getKey();
+            lastVersion = version;
+            downloaded++;
+        }
+
+        requestBlock(TransactionType.MagnumPDL, PDLParameterType.MagnumPDLConfirm, lastTable, null, lastVersion, "00");
+        return downloaded;
+    }
+
+    /**
+     * Downloads the EMV PDL tables that have changed, for every card type table 10 lists, returning how many
+     * of them there were.
+     */
+    public int syncEmv() throws ApiException {
+        NtsEMVPDLResponse directory = (NtsEMVPDLResponse) requestBlock(TransactionType.EmvPdl, PDLParameterType.RequestEMVPDL,
+                PDLTableID.Table10, EmvPDLCardType.None, NO_VERSION, "00");
+        cache.putEmvTable(PDLTableID.Table10, EmvPDLCardType.None, directory.getEmvPdlParameterVersion(), directory.getEmvPdlTableDataBlockData());
+
+        EMVPDLTable10 table10 = ((EMVPDLTable<EMVPDLTable10>) directory.getTable()).getTable();
+        PDLTableID lastTable = PDLTableID.Table10;
+        EmvPDLCardType lastCardType = EmvPDLCardType.None;
+        String lastVersion = NO_VERSION;
+        int downloaded = 0;
+
+        if (syncEmvTable(PDLTableID.Table30, EmvPDLCardType.None, table10.getEmvPdlTableId30Version())) {
+            lastTable = PDLTableID.Table30;
+            lastVersion = table10.getEmvPdlTableId30Version();
+            downloaded++;
+        }
+
+        if (table10.getEmvPdlCardTypes() != null) {
+            for (EMVPDLCardTypesTable cardType : table10.getEmvPdlCardTypes()) {
+                Map<PDLTableID, String> versions = new LinkedHashMap<PDLTableID, String>();
+                versions.put(PDLTableID.Table40, cardType.getEmvPdlTableId40Version());
+                versions.put(PDLTableID.Table50, cardType.getEmvPdlTableId50Version());
+                versions.put(PDLTableID.Table60, cardType.getEmvPdlTableId60Version());
+
+                for (Map.Entry<PDLTableID, String> table : versions.entrySet()) {
+                    if (syncEmvTable(table.getKey(), cardType.getEmvPdlCardType(), table.getValue())) {
+                        lastTable = table.getKey();
+                        lastCardType = cardType.getEmvPdlCardType();
+                        lastVersion = table.getValue();
+                        downloaded++;
+                    }
+                }
+            }
+        }
+
+        requestBlock(TransactionType.EmvPdl, PDLParameterType.EMVPDLConfirm, lastTable, lastCardType, lastVersion, "00");
+        return downloaded;
+    }
+
+    private boolean syncEmvTable(PDLTableID tableId, EmvPDLCardType cardType, String version) throws ApiException {
+        if (!isVersion(version) || version.equals(cache.getVersion(tableId, cardType))) {
+            return false;
+        }
+
+        cache.putEmvTable(tableId, cardType, version, downloadTable(TransactionType.EmvPdl, PDLParameterType.RequestEMVPDL, tableId, cardType, version));
+        return true;
+    }
+
+    // requests blocks 01, 02 and so on until the host marks the end of the table, returning the data joined up
+    private String downloadTable(TransactionType transactionType, PDLParameterType parameterType, PDLTableID tableId, EmvPDLCardType cardType, String version) throws ApiException {
+        StringBuilder data = new StringBuilder();
+        for (int block = 1; block <= MAX_BLOCKS; block++) {
+            Object response = requestBlock(transactionType, parameterType, tableId, cardType, version, StringUtils.padLeft(String.valueOf(block), 2, '0'));
+
+            PDLEndOfTableFlag endOfTable;
+            if (response instanceof NtsEMVPDLResponse) {
+                endOfTable = ((NtsEMVPDLResponse) response).getEmvPdlEndOfTableFlag();
+                data.append(((NtsEMVPDLResponse) response).getEmvPdlTableDataBlockData());
+            } else {
+                endOfTable = ((NtsPDLResponse) response).getEndOfTableFlag();
+                data.append(((NtsPDLResponse) response).getTableDataBlockData());
+            }
+
+            if (!PDLEndOfTableFlag.NotEndOfTable.equals(endOfTable)) {
+                return data.toString();
+            }
+        }
+        throw new GatewayException(String.format("Table %s was not complete after %s blocks.", tableId.getValue(), MAX_BLOCKS));
+    }
+
+    private Object requestBlock(TransactionType transactionType, PDLParameterType parameterType, PDLTableID tableId, EmvPDLCardType cardType, String version, String blockSequenceNumber) throws ApiException {
+        NtsPDLData pdlData = new NtsPDLData();
+        pdlData.setParameterType(parameterType);
+        pdlData.setTableId(tableId);
+        pdlData.setEmvPDLCardType(cardType);
+        pdlData.setParameterVersion(version);
+        pdlData.setBlockSequenceNumber(blockSequenceNumber);
+
+        requestCount++;
+        Transaction response = NetworkService.fetchPDL(transactionType)
+                .withPDLData(pdlData)
+                .withNtsRequestMessageHeader(requestMessageHeader)
+                .execute(configName);
+
+        if (!"00".equals(response.getResponseCode())) {
+            throw new GatewayException(String.format("Parameter data load of table %s was declined.", tableId.getValue()),
+                    response.getResponseCode(), response.getResponseMessage());
+        }
+        return response.getNtsResponse().getNtsResponseMessage();
+    }
+
+    // a table the host doesn't send has no version
+    private static boolean isVersion(String version) {
+        return version != null && !version.trim().isEmpty();
+    }
+}
@@ -0,0 +1,174 @@
+package com.global.api.network.entities;
+
+import com.global.api.network.entities.emvpdl.EMVPDLTable;
+import com.global.api.network.entities.emvpdl.EMVPDLTable10;
+import com.global.api.network.entities.emvpdl.IEMVPDLTable;
+import com.global.api.network.entities.mpdl.IMPDLTable;
+import com.global.api.network.entities.mpdl.MPDLTable;
+import com.global.api.network.entities.mpdl.MPDLTable10;
+import com.global.api.network.enums.nts.EmvPDLCardType;
+import com.global.api.network.enums.nts.PDLTableID;
+import com.global.api.utils.StringParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Magnum and EMV parameter data load tables of a terminal, each stored with the version it was
+ * downloaded at. PDLSynchronizer fills the cache and only downloads the tables whose version has changed.
+ * Tables are kept as the data the host sent, and parsed into the MPDLTable and EMVPDLTable classes the
+ * first time they are asked for.
+ * <p>
+ * The cache can be saved to a file and loaded again when the lane starts, so the tables are available
+ * before the host has been contacted.
+ */
+public class PDLTableCache {
+    private static final String SNAPSHOT_HEADER = "# PDLTableCache type\ttable\tcard type\tversion\tdata";
+    private static final String MAGNUM = "M";
+    private static final String EMV = "E";
+
+    private final ConcurrentHashMap<String, Entry> tables = new ConcurrentHashMap<String, Entry>();
+
+    private static class Entry {
+        private final String version;
+        private final String data;
+        // parsed on first use, a race only parses the same data twice
+        private volatile Object table;
+
+        private Entry(String version, String data) {
+            this.version = version;
+            this.data = data;
+        }
+    }
+
+    public String getVersion(PDLTableID tableId) {
+        return versionOf(tables.get(key(MAGNUM, tableId, EmvPDLCardType.None)));
+    }
+
+    public String getVersion(PDLTableID tableId, EmvPDLCardType cardType) {
+        return versionOf(tables.get(key(EMV, tableId, cardType)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends IMPDLTable> MPDLTable<T> getMagnumTable(PDLTableID tableId) {
+        Entry entry = tables.get(key(MAGNUM, tableId, EmvPDLCardType.None));
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.table == null) {
+            if (tableId.equals(PDLTableID.Table10)) {
+                entry.table = new MPDLTable10().parseTableData(new StringParser(entry.data));
+            } else {
+                entry.table = IMPDLTable.parseData(entry.data, tableId);
+            }
+        }
+        return (MPDLTable<T>) entry.table;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends IEMVPDLTable> EMVPDLTable<T> getEmvTable(PDLTableID tableId, EmvPDLCardType cardType) {
+        Entry entry = tables.get(key(EMV, tableId, cardType));
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.table == null) {
+            if (tableId.equals(PDLTableID.Table10)) {
+                entry.table = new EMVPDLTable10().parseData(new StringParser(entry.data));
+            } else {
+                entry.table = IEMVPDLTable.parseData(entry.data, tableId);
+            }
+        }
+        return (EMVPDLTable<T>) entry.table;
+    }
+
+    // the tables that aren't for a card type, 10 and 30, are found under EmvPDLCardType.None
+    public <T extends IEMVPDLTable> EMVPDLTable<T> getEmvTable(PDLTableID tableId) {
+        return getEmvTable(tableId, EmvPDLCardType.None);
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    public void clear() {
+        tables.clear();
+    }
+
+    void putMagnumTable(PDLTableID tableId, String version, String data) {
+        tables.put(key(MAGNUM, tableId, EmvPDLCardType.None), new Entry(version, data));
+    }
+
+    void putEmvTable(PDLTableID tableId, EmvPDLCardType cardType, String version, String data) {
+        tables.put(key(EMV, tableId, cardType), new Entry(version, data));
+    }
+
+    /**
+     * Writes every table to the file, replacing it once they have all been written.
+     */
+    public void save(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        lines.add(SNAPSHOT_HEADER);
+        for (Map.Entry<String, Entry> entry : tables.entrySet()) {
+            String[] key = entry.getKey().split(":");
+            lines.add(key[0] + "\t" + key[1] + "\t" + key[2] + "\t" + entry.getValue().version + "\t" + entry.getValue().data);
+        }
+
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exc) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Adds the tables saved in the file, replacing any already held. Lines that can't be read are skipped,
+     * and a missing file leaves the cache as it was.
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            // the data goes last and keeps its trailing spaces
+            String[] fields = line.split("\t", 5);
+            if (line.startsWith("#") || fields.length != 5 || !(MAGNUM.equals(fields[0]) || EMV.equals(fields[0]))) {
+                continue;
+            }
+
+            try {
+                PDLTableID tableId = PDLTableID.valueOf(fields[1]);
+                EmvPDLCardType cardType = EmvPDLCardType.valueOf(fields[2]);
+                tables.put(key(fields[0], tableId, cardType), new Entry(fields[3], fields[4]));
+            } catch (IllegalArgumentException exc) {
+                // written by something else, leave it out
+            }
+        }
+    }
+
+    private static String key(String type, PDLTableID tableId, EmvPDLCardType cardType) {
+        return type + ":" + tableId.name() + ":" + cardType.name();
+    }
+
+    private static String versionOf(Entry entry) {
+        return entry != null ? entry.version : null;
+    }
+}
@@ -74,8 +74,10 @@ public class NtsEMVPDLResponse implements INtsResponseMessage {
                 if (this.isPdlV2) {
                     pdlResponse.setEmvPdlTableDataBlockData(sp.readRemaining());
                 } else {
+                    // kept as received as well, so the table can be stored and parsed again later
+                    pdlResponse.setEmvPdlTableDataBlockData(sp.readRemaining());
                     IEMVPDLTable table10 = new EMVPDLTable10();
-                    pdlResponse.setTable(table10.parseData(sp));
+                    pdlResponse.setTable(table10.parseData(new StringParser(pdlResponse.getEmvPdlTableDataBlockData())));
                 }
             } else {
                 pdlResponse.setEmvPdlTableDataBlockLength(sp.readString(3));
@@ -45,8 +45,10 @@ public class NtsPDLResponse implements INtsResponseMessage {
         pdlResponse.setEndOfTableFlag(sp.readStringConstant(1, PDLEndOfTableFlag.class));
 
         if (pdlResponse.getTableId().equals(PDLTableID.Table10)) {
+            // kept as received as well, so the table can be stored and parsed again later
+            pdlResponse.setTableDataBlockData(sp.readRemaining());
             IMPDLTable table10 = new MPDLTable10();
-            pdlResponse.setTable(table10.parseTableData(sp));
+            pdlResponse.setTable(table10.parseTableData(new StringParser(pdlResponse.getTableDataBlockData())));
         } else {
             pdlResponse.setTableDataBlockLength(sp.readString(3));
             pdlResponse.setTableDataBlockData(sp.readRemaining());
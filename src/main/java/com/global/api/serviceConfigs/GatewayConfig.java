@@ -3,11 +3,18 @@ package com.global.api.serviceConfigs;
 import com.global.api.ConfiguredServices;
 import com.global.api.entities.enums.*;
 import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.gateways.transport.HttpPoolStats;
+import com.global.api.gateways.transport.HttpsUrlConnectionTransport;
+import com.global.api.gateways.transport.IHttpTransport;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
+import java.security.GeneralSecurityException;
+
 @Accessors(chain = true)
 @Getter
 @Setter
@@ -23,11 +30,76 @@ public class GatewayConfig extends Configuration {
     private String dataClientUserId;
     /// The Url of the Global Data Service
     private String dataClientServiceUrl;
+    /// Determines whether HTTP connections are kept alive in a bounded pool and reused across requests
+    private boolean useConnectionPooling = false;
+    /// Maximum number of pooled connections across all hosts
+    private int maxConnections = 20;
+    /// Maximum number of pooled connections to a single host
+    private int maxConnectionsPerRoute = 10;
+    /// Time in milliseconds after which an idle pooled connection is closed
+    private int connectionIdleTimeout = 30000;
+    /// HTTP transport shared by every connector built from this configuration
+    private volatile IHttpTransport httpTransport;
+    // true when the transport was built here rather than supplied, so it is closed with the configuration
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean ownsHttpTransport = false;
 
     public GatewayConfig(GatewayProvider provider) {
         this.gatewayProvider = provider;
     }
 
+    public IHttpTransport getHttpTransport() throws ConfigurationException {
+        IHttpTransport transport = httpTransport;
+        if (transport == null || isClosedPool(transport)) {
+            synchronized (this) {
+                transport = httpTransport;
+                // a pool built here is closed when the configuration is removed, and rebuilt if it is added again
+                if (transport == null || (ownsHttpTransport && isClosedPool(transport))) {
+                    if (useConnectionPooling) {
+                        try {
+                            transport = new PooledHttpTransport(maxConnections, maxConnectionsPerRoute, connectionIdleTimeout);
+                        } catch (GeneralSecurityException exc) {
+                            throw new ConfigurationException("Unable to initialize the SSL context for the connection pool.", exc);
+                        }
+                    } else {
+                        transport = new HttpsUrlConnectionTransport();
+                    }
+                    httpTransport = transport;
+                    ownsHttpTransport = true;
+                }
+            }
+        }
+        return transport;
+    }
+    public synchronized GatewayConfig setHttpTransport(IHttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+        this.ownsHttpTransport = false;
+        return this;
+    }
+
+    private static boolean isClosedPool(IHttpTransport transport) {
+        return transport instanceof PooledHttpTransport && ((PooledHttpTransport) transport).isClosed();
+    }
+
+    // hands a transport built here to the container, which closes it when the configuration is removed or replaced
+    protected IHttpTransport getHttpTransport(ConfiguredServices services) throws ConfigurationException {
+        IHttpTransport transport = getHttpTransport();
+        synchronized (this) {
+            if (ownsHttpTransport && transport == httpTransport) {
+                services.setHttpTransport(transport);
+            }
+        }
+        return transport;
+    }
+
+    // Returns null unless connection pooling is enabled
+    public HttpPoolStats getConnectionPoolStats() {
+        if (httpTransport instanceof PooledHttpTransport) {
+            return ((PooledHttpTransport) httpTransport).getPoolStats();
+        }
+        return null;
+    }
+
     @Override
     public void configureContainer(ConfiguredServices services) throws ConfigurationException {
         throw new NotImplementedException();
@@ -37,5 +109,14 @@ public class GatewayConfig extends Configuration {
     @Override
     public void validate() throws ConfigurationException {
         super.validate();
+
+        if (useConnectionPooling) {
+            if (maxConnections <= 0 || maxConnectionsPerRoute <= 0) {
+                throw new ConfigurationException("maxConnections and maxConnectionsPerRoute must be greater than zero when connection pooling is enabled.");
+            }
+            if (maxConnectionsPerRoute > maxConnections) {
+                throw new ConfigurationException("maxConnectionsPerRoute cannot be greater than maxConnections.");
+            }
+        }
     }
 }
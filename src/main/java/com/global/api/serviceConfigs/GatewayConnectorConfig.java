@@ -4,7 +4,6 @@ import com.global.api.entities.enums.LogicProcessFlag;
 import com.global.api.entities.enums.TerminalType;
 import com.global.api.gateways.IPaymentGateway;
 import com.global.api.gateways.NetworkGateway;
-import com.global.api.gateways.events.IGatewayEventHandler;
 import com.global.api.network.abstractions.IBatchProvider;
 import com.global.api.network.abstractions.IStanProvider;
 import com.global.api.network.enums.*;
@@ -15,7 +14,6 @@ public abstract class GatewayConnectorConfig extends NetworkGateway implements I
 	protected AcceptorConfig acceptorConfig;
 	protected IBatchProvider batchProvider;
 	protected ConnectionType connectionType = ConnectionType.ISDN;
-	protected IGatewayEventHandler gatewayEventHandler;
 	protected String merchantType;
 	protected MessageType messageType = MessageType.Heartland_POS_8583;
 	protected String nodeIdentification;
@@ -71,7 +71,7 @@ public class GpApiConfig extends GatewayConfig {
         super(GatewayProvider.GP_API);
     }
 
-    public void configureContainer(ConfiguredServices services) {
+    public void configureContainer(ConfiguredServices services) throws ConfigurationException {
         if (StringUtils.isNullOrEmpty(serviceUrl)) {
             serviceUrl =
                     environment.equals(Environment.TEST) ?
@@ -83,6 +83,7 @@ public class GpApiConfig extends GatewayConfig {
 
         gpApiConnector.setServiceUrl(serviceUrl);
         gpApiConnector.setEnableLogging(this.isEnableLogging());
+        gpApiConnector.setHttpTransport(getHttpTransport(services));
 
         services.setGatewayConnector(gpApiConnector);
 
@@ -33,6 +33,8 @@ public class GpEcomConfig extends GatewayConfig {
     private String merchantContactUrl;
     private String methodNotificationUrl;
     private Secure3dVersion secure3dVersion;
+    // Remembers which card ranges 3DS2 turned away, so Secure3dVersion.ANY checks for them go straight to 3DS1
+    private ISecure3dVersionCache secure3dVersionCache;
 
     // Open Banking Service
     private ShaHashType shaHashType = ShaHashType.SHA1;
@@ -42,7 +44,7 @@ public class GpEcomConfig extends GatewayConfig {
         super(GatewayProvider.GP_ECOM);
     }
 
-    public void configureContainer(ConfiguredServices services) {
+    public void configureContainer(ConfiguredServices services) throws ConfigurationException {
 
         if (StringUtils.isNullOrEmpty(serviceUrl)) {
             serviceUrl = environment.equals(Environment.PRODUCTION) ?
@@ -66,7 +68,8 @@ public class GpEcomConfig extends GatewayConfig {
                 .setServiceUrl(serviceUrl)
                 .setEnableLogging(enableLogging)
                 .setRequestLogger(requestLogger)
-                .setWebProxy(webProxy);
+                .setWebProxy(webProxy)
+                .setHttpTransport(getHttpTransport(services));
 
         services.setGatewayConnector(gateway);
         services.setRecurringConnector(gateway);
@@ -100,10 +103,12 @@ public class GpEcomConfig extends GatewayConfig {
             secure3d2
                     .setServiceUrl(environment.equals(Environment.PRODUCTION) ? ServiceEndpoints.THREE_DS_AUTH_PRODUCTION.getValue() : ServiceEndpoints.THREE_DS_AUTH_TEST.getValue())
                     .setEnableLogging(enableLogging)
-                    .setWebProxy(webProxy);
+                    .setWebProxy(webProxy)
+                    .setHttpTransport(getHttpTransport(services));
 
             services.setSecure3dProvider(Secure3dVersion.TWO, secure3d2);
         }
+        services.setSecure3dVersionCache(secure3dVersionCache);
 
         if (enableBankPayment) {
             OpenBankingProvider openBankingProvider =
@@ -118,6 +123,7 @@ public class GpEcomConfig extends GatewayConfig {
             openBankingProvider.setEnableLogging(enableLogging);
             openBankingProvider.setRequestLogger(requestLogger);
             openBankingProvider.setWebProxy(webProxy);
+            openBankingProvider.setHttpTransport(getHttpTransport(services));
 
             services.setOpenBankingProvider(openBankingProvider);
         }
@@ -6,6 +6,7 @@ import com.global.api.gateways.GnapConnector;
 import com.global.api.entities.enums.LogicProcessFlag;
 import com.global.api.entities.enums.TerminalType;
 import com.global.api.gateways.NtsConnector;
+import com.global.api.gateways.events.EventOverflowPolicy;
 import com.global.api.gateways.events.IGatewayEventHandler;
 import com.global.api.network.abstractions.IBatchProvider;
 import com.global.api.network.abstractions.IStanProvider;
@@ -21,6 +22,8 @@ public class NetworkGatewayConfig extends Configuration {
     private String companyId;
     private ConnectionType connectionType = ConnectionType.ISDN;
     private IGatewayEventHandler gatewayEventHandler;
+    private int eventQueueCapacity = 1024;
+    private EventOverflowPolicy eventOverflowPolicy = EventOverflowPolicy.DropNewest;
     private String merchantType;
     private MessageType messageType = MessageType.Heartland_POS_8583;
     private String nodeIdentification;
@@ -32,6 +35,7 @@ public class NetworkGatewayConfig extends Configuration {
     private String terminalId;
     private String uniqueDeviceId;
     private Boolean persistentConnection = false;
+    private int keepAliveInterval = 0;
     @Setter
     private Target target;
     @Setter
@@ -88,6 +92,18 @@ public class NetworkGatewayConfig extends Configuration {
     public void setGatewayEventHandler(IGatewayEventHandler gatewayEventHandler) {
         this.gatewayEventHandler = gatewayEventHandler;
     }
+    public int getEventQueueCapacity() {
+        return eventQueueCapacity;
+    }
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+    public EventOverflowPolicy getEventOverflowPolicy() {
+        return eventOverflowPolicy;
+    }
+    public void setEventOverflowPolicy(EventOverflowPolicy eventOverflowPolicy) {
+        this.eventOverflowPolicy = eventOverflowPolicy;
+    }
     public String getMerchantType() {
         return merchantType;
     }
@@ -159,6 +175,12 @@ public class NetworkGatewayConfig extends Configuration {
     public void setPersistentConnection(Boolean persistentConnection) {
         this.persistentConnection = persistentConnection;
     }
+    public int getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+    public void setKeepAliveInterval(int keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
 
     public void configureContainer(ConfiguredServices services) {
         //System.out.println("Target: " + target);
@@ -199,6 +221,8 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setMerchantType(merchantType);
         gateway.setUniqueDeviceId(uniqueDeviceId);
         gateway.setProcessingFlag(persistentConnection ? NetworkProcessingFlag.PersistentConnection : NetworkProcessingFlag.NonPersistentConnection);
+        gateway.setPersistentConnection(persistentConnection);
+        gateway.setKeepAliveInterval(keepAliveInterval);
 
 
         // acceptor config
@@ -214,6 +238,8 @@ public class NetworkGatewayConfig extends Configuration {
         gateway.setBatchProvider(batchProvider);
 
         // event handler
+        gateway.setEventQueueCapacity(eventQueueCapacity);
+        gateway.setEventOverflowPolicy(eventOverflowPolicy);
         gateway.setGatewayEventHandler(gatewayEventHandler);
 
         services.setGatewayConnector(gateway);
@@ -248,6 +274,11 @@ public class NetworkGatewayConfig extends Configuration {
             throw new ConfigurationException("You must provide a terminal id.");
         }
 
+        // event queue
+        if(eventQueueCapacity <= 0) {
+            throw new ConfigurationException("The event queue capacity must be greater than zero.");
+        }
+
         // node identification
         if(!StringUtils.isNullOrEmpty(nodeIdentification) && nodeIdentification.length() != 4) {
             throw new ConfigurationException("Node identification must only be 4 characters in length.");
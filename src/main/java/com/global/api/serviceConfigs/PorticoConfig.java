@@ -59,7 +59,7 @@ public class PorticoConfig extends GatewayConfig {
         super(GatewayProvider.PORTICO);
     }
 
-    public void configureContainer(ConfiguredServices services) {
+    public void configureContainer(ConfiguredServices services) throws ConfigurationException {
 
         if(StringUtils.isNullOrEmpty(serviceUrl)) {
             serviceUrl = environment.equals(Environment.PRODUCTION) ?
@@ -83,7 +83,8 @@ public class PorticoConfig extends GatewayConfig {
                         .setServiceUrl(serviceUrl + "/Hps.Exchange.PosGateway/PosGatewayService.asmx")
                         .setEnableLogging(enableLogging)
                         .setRequestLogger(requestLogger)
-                        .setWebProxy(webProxy);
+                        .setWebProxy(webProxy)
+                        .setHttpTransport(getHttpTransport(services));
 
         services.setGatewayConnector(gateway);
 
@@ -99,6 +100,7 @@ public class PorticoConfig extends GatewayConfig {
         payplan.setEnableLogging(enableLogging);
         payplan.setRequestLogger(requestLogger);
         payplan.setWebProxy(webProxy);
+        payplan.setHttpTransport(getHttpTransport(services));
 
         services.setRecurringConnector(payplan);
         // TODO: Implement ProPayConnector
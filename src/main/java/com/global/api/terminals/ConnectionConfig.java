@@ -24,6 +24,8 @@ public class ConnectionConfig extends Configuration implements ITerminalConfigur
     private int port;
     private DeviceType deviceType;
     private IRequestIdProvider requestIdProvider;
+    // keeps the device connection open between commands instead of reconnecting for each one, UPA only
+    private boolean persistentConnection;
 
     public void setConnectionMode(ConnectionModes connectionModes) {
         this.connectionMode = connectionModes;
@@ -52,6 +54,9 @@ public class ConnectionConfig extends Configuration implements ITerminalConfigur
     public void setRequestIdProvider(IRequestIdProvider requestIdProvider) {
         this.requestIdProvider = requestIdProvider;
     }
+    public void setPersistentConnection(boolean persistentConnection) {
+        this.persistentConnection = persistentConnection;
+    }
 
     public ConnectionConfig(){
         timeout = 30000;
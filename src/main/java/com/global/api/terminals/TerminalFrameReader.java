@@ -0,0 +1,118 @@
+package com.global.api.terminals;
+
+import com.global.api.entities.enums.ControlCodes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Reads terminal messages framed as STX ... ETX followed by an LRC byte, along with the single byte
+ * ACK, NAK and EOT control codes sent between frames.
+ * <p>
+ * Reads block on the socket with a timeout instead of polling, and a frame split across several TCP
+ * segments is only returned once its LRC has arrived. Bytes received past the end of a message are kept
+ * for the next call, and the read buffer is reused between messages.
+ */
+public class TerminalFrameReader {
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private byte[] buffer;
+    // buffer[start, end) holds bytes received but not yet returned
+    private int start;
+    private int end;
+
+    public TerminalFrameReader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+    public TerminalFrameReader(int initialBufferSize) {
+        buffer = new byte[initialBufferSize];
+    }
+
+    /**
+     * Drops anything left over from a previous connection.
+     */
+    public void reset() {
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Reads the next message from the socket: either a one byte control code or a complete frame
+     * including its STX, ETX and LRC. Throws SocketTimeoutException if nothing complete arrives in time.
+     */
+    public byte[] readMessage(Socket socket, int timeout) throws IOException {
+        long deadline = System.currentTimeMillis() + timeout;
+        int originalTimeout = socket.getSoTimeout();
+        InputStream in = socket.getInputStream();
+        try {
+            while(true) {
+                byte[] message = nextMessage();
+                if(message != null) {
+                    return message;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0) {
+                    throw new SocketTimeoutException("Terminal did not respond in the given timeout");
+                }
+                socket.setSoTimeout((int) remaining);
+                fill(in);
+            }
+        }
+        finally {
+            if(!socket.isClosed()) {
+                socket.setSoTimeout(originalTimeout);
+            }
+        }
+    }
+
+    // returns the first complete message in the buffer, discarding noise in front of it
+    private byte[] nextMessage() {
+        while(start < end) {
+            byte b = buffer[start];
+            if(b == ControlCodes.ACK.getByte() || b == ControlCodes.NAK.getByte() || b == ControlCodes.EOT.getByte()) {
+                start++;
+                return new byte[] { b };
+            }
+            if(b == ControlCodes.STX.getByte()) {
+                break;
+            }
+            start++;
+        }
+
+        // wait for the ETX and the LRC that follows it
+        for(int i = start + 1; i < end - 1; i++) {
+            if(buffer[i] == ControlCodes.ETX.getByte()) {
+                int length = i + 2 - start;
+                byte[] frame = new byte[length];
+                System.arraycopy(buffer, start, frame, 0, length);
+                start += length;
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private void fill(InputStream in) throws IOException {
+        if(start > 0) {
+            // move the partial message to the front so the buffer does not have to grow
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if(end == buffer.length) {
+            byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, end);
+            buffer = larger;
+        }
+
+        int bytesRead = in.read(buffer, end, buffer.length - end);
+        if(bytesRead < 0) {
+            throw new EOFException("The connection was closed by the terminal.");
+        }
+        end += bytesRead;
+    }
+}
@@ -4,30 +4,31 @@ import com.global.api.entities.exceptions.MessageException;
 import com.global.api.terminals.abstractions.IDeviceCommInterface;
 import com.global.api.terminals.abstractions.IDeviceMessage;
 import com.global.api.terminals.abstractions.ITerminalConfiguration;
-import com.global.api.terminals.messaging.IMessageReceivedInterface;
 import com.global.api.terminals.messaging.IMessageSentInterface;
-import com.global.api.utils.AutoResetEvent;
-import com.global.api.utils.Element;
-import com.global.api.utils.ElementTree;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class HpaTcpInterface implements IDeviceCommInterface {
+    // unsolicited messages past this are dropped, oldest first
+    private static final int MAX_QUEUED_MESSAGES = 64;
+    private static final byte[] MULTIPLE_MESSAGE_TAG = "<MultipleMessage>".getBytes(StandardCharsets.US_ASCII);
+
     private Socket client;
     private DataOutputStream out;
-    private InputStream in;
-    private AutoResetEvent await;
+    private ReceiveThread receiveThread;
     private ITerminalConfiguration settings;
-    private List<Byte> messageQueue;
+    private final BlockingQueue<byte[]> messageQueue;
     private String lastConnectionError;
 
     private IMessageSentInterface onMessageSent;
-    private IMessageReceivedInterface onMessageReceived;
 
     public void setMessageSentHandler(IMessageSentInterface onMessageSent) {
         this.onMessageSent = onMessageSent;
@@ -35,105 +36,88 @@ public class HpaTcpInterface implements IDeviceCommInterface {
 
     public HpaTcpInterface(ITerminalConfiguration settings) {
         this.settings = settings;
-        this.await = new AutoResetEvent(false);
-
-        onMessageReceived = new IMessageReceivedInterface() {
-            public void messageReceived(byte[] message) {
-                if(messageQueue == null)
-                    messageQueue = new ArrayList<Byte>();
-
-                for(byte b: message)
-                    messageQueue.add(b);
-
-                try {
-                    Element msg = ElementTree.parse(message).get("SIP");
-                    int multiMessage = msg.getInt("MultipleMessage");
-                    if(multiMessage == 0)
-                        await.set();
-                    else messageQueue.add((byte)'\r'); // delimiter
-                }
-                catch(Exception e) {
-                    // this should never cause a failure
-                    messageQueue.add((byte)'\r'); // delimiter
-                }
-            }
-        };
+        this.messageQueue = new LinkedBlockingQueue<byte[]>(MAX_QUEUED_MESSAGES);
     }
 
-    private void beginReceiveThread() {
-        Thread receiveThread = new Thread() {
-            public void run() {
-                while(true) {
-                    try {
-                        if(in.available() > 0) {
-                            do {
-                                int length = getLength();
-                                if (length > 0) {
-                                    byte[] buffer = new byte[8192];
-
-                                    boolean incomplete = true;
-                                    int offset = 0;
-                                    int tempLength = length;
-                                    do {
-                                        int bytesReceived = in.read(buffer, offset, tempLength);
-                                        if (bytesReceived != tempLength) {
-                                            offset += bytesReceived;
-                                            tempLength -= bytesReceived;
-                                            sleep(10);
-                                        } else incomplete = false;
-                                    }
-                                    while (incomplete);
-
-                                    byte[] readBuffer = new byte[length];
-                                    System.arraycopy(buffer, 0, readBuffer, 0, length);
-                                    onMessageReceived.messageReceived(readBuffer);
-                                }
-                                else break;
-                            }
-                            while(true);
-                        }
-                        sleep(300);
-                    } catch (Exception e) {
-                        // This never needs to fail
+    /**
+     * Reads the length prefixed SIP messages of one connection into the message queue. It blocks on the
+     * socket rather than polling and ends when the connection is closed from either side.
+     */
+    private class ReceiveThread extends Thread {
+        private final DataInputStream in;
+
+        ReceiveThread(Socket socket) throws IOException {
+            super("HpaTcpInterface-receive");
+            setDaemon(true);
+            this.in = new DataInputStream(socket.getInputStream());
+        }
+
+        public void run() {
+            try {
+                while(!isInterrupted()) {
+                    int length = in.readUnsignedShort();
+                    if(length == 0) {
+                        continue;
+                    }
+
+                    byte[] message = new byte[length];
+                    in.readFully(message);
+                    while(!messageQueue.offer(message)) {
+                        messageQueue.poll();
                     }
                 }
             }
-        };
-        receiveThread.start();
+            catch(IOException e) {
+                // the connection was closed, nothing left to read
+            }
+        }
     }
 
     public void connect() {
+        if(client != null && (receiveThread == null || !receiveThread.isAlive())) {
+            // the device dropped the connection since the last message, or the last connect didn't finish
+            disconnect();
+        }
+
         if(client == null) {
             try {
                 client = new Socket(settings.getIpAddress(), settings.getPort());
 
                 if(client.isConnected()) {
                     out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
 
-                    beginReceiveThread();
+                    receiveThread = new ReceiveThread(client);
+                    receiveThread.start();
                 }
             }
             catch(IOException e) {
                 lastConnectionError = e.getMessage();
+
+                // don't leave a socket without a receive thread for the next connect to find
+                disconnect();
             }
         }
     }
 
     public void disconnect() {
         try {
-            if (!client.isClosed()) {
-                in.close();
-                out.close();
+            if (client != null && !client.isClosed()) {
+                // closing the socket unblocks the receive thread, which then exits
+                if(out != null) {
+                    out.close();
+                }
                 client.close();
             }
-            messageQueue = null;
+            messageQueue.clear();
         }
         catch(IOException e) {
             // Eating the close exception
         }
         finally {
-            in = null;
+            if(receiveThread != null) {
+                receiveThread.interrupt();
+            }
+            receiveThread = null;
             out = null;
             client = null;
         }
@@ -147,7 +131,7 @@ public class HpaTcpInterface implements IDeviceCommInterface {
         }
 
         String strMessage = message.toString();
-        messageQueue = new ArrayList<Byte>();
+        messageQueue.clear();
         try{
             byte[] buffer = message.getSendBuffer();
 
@@ -156,12 +140,7 @@ public class HpaTcpInterface implements IDeviceCommInterface {
                 out.flush();
 
                 if(message.isAwaitResponse()) {
-                    await.waitOne(settings.getTimeout());
-                    if(messageQueue.size() == 0) {
-                        throw new MessageException("Device did not response within the timeout");
-                    }
-
-                    return convertBytes(messageQueue.toArray(new Byte[messageQueue.size()]));
+                    return awaitResponse();
                 }
                 else return null;
             }
@@ -181,27 +160,56 @@ public class HpaTcpInterface implements IDeviceCommInterface {
         }
     }
 
-    private int getLength() {
-        try {
-            byte[] lengthBuffer = new byte[2];
-            int byteCount = in.read(lengthBuffer, 0, 2);
+    // collects the messages of a response, each fragment of a multiple message response followed by a \r
+    private byte[] awaitResponse() throws MessageException, InterruptedException {
+        long deadline = System.currentTimeMillis() + settings.getTimeout();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
 
-            if(byteCount != 2)
-                return 0;
-            return (short)(((lengthBuffer[0] & 0xFF) << 8) | (lengthBuffer[1] & 0xFF));
-        }
-        catch(IOException e) {
-            return 0;
+        while(true) {
+            byte[] message = messageQueue.poll(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if(message == null) {
+                if(response.size() == 0) {
+                    throw new MessageException("Device did not response within the timeout");
+                }
+                return response.toByteArray();
+            }
+
+            response.write(message, 0, message.length);
+            if(!isMultipleMessage(message)) {
+                return response.toByteArray();
+            }
+            response.write('\r'); // delimiter
         }
     }
 
-    private byte[] convertBytes(Byte[] buffer) {
-        byte[] returnBuffer = new byte[buffer.length];
+    // reads the MultipleMessage flag without parsing the fragment; like the parse it replaced, a fragment
+    // without a readable flag is treated as having more to come
+    static boolean isMultipleMessage(byte[] message) {
+        int index = indexOf(message, MULTIPLE_MESSAGE_TAG);
+        if(index < 0) {
+            return true;
+        }
+
+        int valueStart = index + MULTIPLE_MESSAGE_TAG.length;
+        int valueEnd = valueStart;
+        while(valueEnd < message.length && message[valueEnd] != '<') {
+            valueEnd++;
+        }
 
-        int index = 0;
-        for(Byte b: buffer)
-            returnBuffer[index++] = b;
+        String value = new String(message, valueStart, valueEnd - valueStart, StandardCharsets.US_ASCII).trim();
+        return !value.equals("0");
+    }
 
-        return returnBuffer;
+    private static int indexOf(byte[] buffer, byte[] target) {
+        outer:
+        for(int i = 0; i <= buffer.length - target.length; i++) {
+            for(int j = 0; j < target.length; j++) {
+                if(buffer[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
     }
 }
@@ -2,6 +2,7 @@ package com.global.api.terminals.pax.interfaces;
 
 import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.TerminalFrameReader;
 import com.global.api.terminals.TerminalUtilities;
 import com.global.api.terminals.abstractions.*;
 import com.global.api.terminals.messaging.IMessageSentInterface;
@@ -9,13 +10,12 @@ import com.global.api.utils.EnumUtils;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.Socket;
 
 public class PaxTcpInterface implements IDeviceCommInterface {
     private Socket client;
     private DataOutputStream out;
-    private InputStream in;
+    private final TerminalFrameReader reader = new TerminalFrameReader();
     private ITerminalConfiguration settings;
     private int nakCount = 0;
 
@@ -36,7 +36,7 @@ public class PaxTcpInterface implements IDeviceCommInterface {
                 client = new Socket(settings.getIpAddress(), settings.getPort());
                 if(client.isConnected()) {
                     out = new DataOutputStream(client.getOutputStream());
-                    in = client.getInputStream();
+                    reader.reset();
                     client.setKeepAlive(true);
                 }
                 else throw new IOException("Client failed to connect");
@@ -50,7 +50,6 @@ public class PaxTcpInterface implements IDeviceCommInterface {
     public void disconnect() {
         try {
             if (!client.isClosed()) {
-                in.close();
                 out.close();
                 client.close();
             }
@@ -107,43 +106,22 @@ public class PaxTcpInterface implements IDeviceCommInterface {
 
     private byte[] getTerminalResponse() throws MessageException {
         try {
-            byte[] buffer = new byte[4096];
-            int bytesReceived = awaitResponse(in, buffer);
-
-            if(bytesReceived > 0) {
-                byte[] rec_buffer = new byte[bytesReceived];
-                System.arraycopy(buffer, 0, rec_buffer, 0, bytesReceived);
-
-                ControlCodes code = EnumUtils.parse(ControlCodes.class, rec_buffer[0]); // queue.readCode();
-                if (code.equals(ControlCodes.NAK))
-                    return null;
-                else if (code.equals(ControlCodes.EOT))
-                    throw new MessageException("Terminal returned EOT for the current message");
-                else if (code.equals(ControlCodes.ACK))
-                    return getTerminalResponse();
-                else if (code.equals(ControlCodes.STX)) {
-                    return rec_buffer;
-                } else throw new MessageException(String.format("Unknown message received: %s", code));
-            }
-
-            return null;
+            // blocks until a control code or a whole STX ... ETX LRC frame has arrived
+            byte[] rec_buffer = reader.readMessage(client, settings.getTimeout());
+
+            ControlCodes code = EnumUtils.parse(ControlCodes.class, rec_buffer[0]);
+            if (code.equals(ControlCodes.NAK))
+                return null;
+            else if (code.equals(ControlCodes.EOT))
+                throw new MessageException("Terminal returned EOT for the current message");
+            else if (code.equals(ControlCodes.ACK))
+                return getTerminalResponse();
+            else if (code.equals(ControlCodes.STX)) {
+                return rec_buffer;
+            } else throw new MessageException(String.format("Unknown message received: %s", code));
         }
         catch(IOException exc) {
             return null;
         }
     }
-
-    private int awaitResponse(InputStream in, byte[] buffer) throws IOException {
-        long t = System.currentTimeMillis();
-        do {
-            if(in.available() > 0) {
-                return in.read(buffer);
-            }
-
-            if (System.currentTimeMillis() - t >= settings.getTimeout())
-                break;
-        }
-        while(true);
-        throw new IOException("Terminal did not respond in the given timeout");
-    }
-}
\ No newline at end of file
+}
@@ -1,36 +1,36 @@
 package com.global.api.terminals.upa.interfaces;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import com.global.api.entities.enums.ControlCodes;
 import com.global.api.entities.exceptions.MessageException;
 import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.TerminalFrameReader;
 import com.global.api.terminals.TerminalUtilities;
 import com.global.api.terminals.abstractions.IDeviceCommInterface;
 import com.global.api.terminals.abstractions.IDeviceMessage;
 import com.global.api.terminals.messaging.IMessageSentInterface;
 import com.global.api.terminals.upa.Entities.Constants;
 import com.global.api.utils.JsonDoc;
-import com.global.api.utils.MessageWriter;
 
 public class UpaTcpInterface implements IDeviceCommInterface {
+    // how long the device is given between closing one connection and opening the next
+    private static final long RECONNECT_DELAY = 250;
+
     private Socket client;
     private DataOutputStream out;
-    private DataInputStream in;
+    private final TerminalFrameReader reader;
     private final ConnectionConfig settings;
     private IMessageSentInterface onMessageSent;
-    private MessageWriter data;
     private String responseMessageString;
     private boolean readyReceived;
+    private long lastDisconnect;
 
     public void setMessageSentHandler(IMessageSentInterface onMessageSent) {
         this.onMessageSent = onMessageSent;
@@ -38,38 +38,56 @@ public class UpaTcpInterface implements IDeviceCommInterface {
 
     public UpaTcpInterface(ConnectionConfig settings) {
         this.settings = settings;
+        this.reader = new TerminalFrameReader();
     }
 
     public void connect() {
+        if(client != null && (client.isClosed() || client.isInputShutdown())) {
+            // a persistent connection dropped by the device since the last command
+            disconnect();
+        }
+
         if(client == null) {
             try {
+                long wait = lastDisconnect + RECONNECT_DELAY - System.currentTimeMillis();
+                if(wait > 0) {
+                    Thread.sleep(wait);
+                }
+
                 client = new Socket(settings.getIpAddress(), settings.getPort());
                 if(client.isConnected()) {
                     out = new DataOutputStream(client.getOutputStream());
-                    in = new DataInputStream(client.getInputStream());
                     client.setKeepAlive(true);
+                    client.setTcpNoDelay(true);
                     client.setSoTimeout(settings.getTimeout());
+                    reader.reset();
                 }
                 else throw new IOException("Client failed to connect");
             }
             catch(IOException exc) {
                 // eat connection exception
+                client = null;
+            }
+            catch(InterruptedException exc) {
+                Thread.currentThread().interrupt();
             }
         }
     }
 
     public void disconnect() {
         try {
-            if (!client.isClosed()) {
-                in.close();
+            if (client != null && !client.isClosed()) {
                 out.close();
                 client.close();
             }
-            client = null;
-
         } catch(IOException e) {
             // Eating the close exception
         }
+        finally {
+            client = null;
+            out = null;
+            lastDisconnect = System.currentTimeMillis();
+        }
     }
 
     public byte[] send(IDeviceMessage message) throws MessageException {
@@ -80,7 +98,9 @@ public class UpaTcpInterface implements IDeviceCommInterface {
         }
 
         readyReceived = false;
+        responseMessageString = null;
         byte[] sendBuffer = message.getSendBuffer();
+        boolean failed = true;
 
         try {
             if(onMessageSent != null) {
@@ -98,122 +118,105 @@ public class UpaTcpInterface implements IDeviceCommInterface {
             out.flush();
             long timeOfSend = System.currentTimeMillis();
 
+            // each read blocks until a whole frame has arrived, the device ends every command with READY
             do {
-                getTerminalResponse();
-
-                if (System.currentTimeMillis() > timeOfSend + settings.getTimeout()) {
+                long remaining = timeOfSend + settings.getTimeout() - System.currentTimeMillis();
+                if (remaining <= 0) {
                     throw new TimeoutException("Terminal did not respond in the given timeout.");
                 }
 
-                Thread.sleep(100);
+                try {
+                    getTerminalResponse(reader.readMessage(client, (int) remaining));
+                }
+                catch (SocketTimeoutException exc) {
+                    throw new TimeoutException("Terminal did not respond in the given timeout.");
+                }
             } while (!readyReceived);
 
+            if (responseMessageString == null) {
+                throw new MessageException("Terminal became ready without sending a response.");
+            }
+
+            failed = false;
             return responseMessageString.getBytes();
         }
         catch(Exception exc) {
             throw new MessageException(exc.getMessage(), exc);
         }
         finally {
-            if (client != null) disconnect();
-            try {
-                // a little padding here
-                Thread.sleep(250);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            // a failed command can leave frames in flight, so the next one starts on a new connection
+            if (client != null && (failed || !settings.isPersistentConnection())) {
+                disconnect();
             }
         }
     }
 
-    private void getTerminalResponse() throws Exception {
-        try {
-            validateResponsePacket();
-            byte[] buffer = data.toArray();
+    private void getTerminalResponse(byte[] frame) throws Exception {
+        byte[] buffer = getFrameData(frame);
 
-            if(buffer.length > 0) {
-                JsonDoc responseObj = JsonDoc.parse(
-                    new String(data.toArray(), StandardCharsets.UTF_8)
-                );
+        if(buffer.length > 0) {
+            JsonDoc responseObj = JsonDoc.parse(
+                new String(buffer, StandardCharsets.UTF_8)
+            );
 
-                String message = responseObj.getString("message");
+            String message = responseObj.getString("message");
 
-                if(settings.getRequestLogger() != null) {
-                    String formMsg = new String(buffer, StandardCharsets.UTF_8);
-                    settings.getRequestLogger().ResponseReceived(formMsg);
-                }
+            if(settings.getRequestLogger() != null) {
+                String formMsg = new String(buffer, StandardCharsets.UTF_8);
+                settings.getRequestLogger().ResponseReceived(formMsg);
+            }
 
-                switch (message) {
-                    case Constants.ACK_MESSAGE:
-                    case Constants.NAK_MESSAGE:
-                    case Constants.TIMEOUT_MESSAGE:
-                        break;
-                    case Constants.BUSY_MESSAGE:
-                        throw new Exception("Device is busy");
-                    case Constants.DATA_MESSAGE:
-                        responseMessageString = new String(buffer, StandardCharsets.UTF_8);
-                        String eval = responseObj.get("data").getString("response");
-                        if (eval.equals("Reboot")) {
-                            readyReceived = true; // since reboot doesn't return READY
-                        }
-                        sendAckMessageToDevice();
-                        break;
-                    case Constants.READY_MESSAGE:
-                        readyReceived = true;
-                        break;
-                    default:
-                        throw new Exception("Message field value is unknown in API Response.");
-                }
+            switch (message) {
+                case Constants.ACK_MESSAGE:
+                case Constants.NAK_MESSAGE:
+                case Constants.TIMEOUT_MESSAGE:
+                    break;
+                case Constants.BUSY_MESSAGE:
+                    throw new Exception("Device is busy");
+                case Constants.DATA_MESSAGE:
+                    responseMessageString = new String(buffer, StandardCharsets.UTF_8);
+                    String eval = responseObj.get("data").getString("response");
+                    if (eval.equals("Reboot")) {
+                        readyReceived = true; // since reboot doesn't return READY
+                    }
+                    sendAckMessageToDevice();
+                    break;
+                case Constants.READY_MESSAGE:
+                    readyReceived = true;
+                    break;
+                default:
+                    throw new Exception("Message field value is unknown in API Response.");
             }
         }
-        catch(IOException exc) {
-            throw new IOException(exc.getMessage(), exc);
-        }
     }
 
-    private void validateResponsePacket() throws IOException {
-        try {
-            byte[] buffer;
-            List<Byte> receive = new ArrayList<>();
-            data = new MessageWriter();
-
-            byte stx = ControlCodes.STX.getByte();
-            byte etx = ControlCodes.ETX.getByte();
-            byte lf = ControlCodes.LF.getByte();
-
-            do {
-                receive.add(in.readByte());
-            } while (in.available() > 0);
-
-            buffer = new byte[receive.size()];
-
-            for (int i = 0; i < buffer.length; i++) {
-                buffer[i] = receive.get(i);
-            }
-
-            for (int i = 0; i < buffer.length; i++) {
-                if (i < 2) {
-                    if (buffer[i] != stx && buffer[i + 1] != lf) {
-                        throw new IOException("The bytes of the start response packet are not the expected bytes.");
-                    }
-
-                    i += 1;
-                    continue;
-                }
-
-                if (buffer[i] == etx) {
-                    if ((buffer[i - 1] & buffer[i + 1]) != lf) {
-                        throw new IOException("The bytes of the end response packet are not the expected bytes.");
-                    }
+    // strips the STX LF ... LF ETX LF framing, and any other line feeds, from a frame
+    private byte[] getFrameData(byte[] frame) throws IOException {
+        byte lf = ControlCodes.LF.getByte();
+        if (frame.length == 1) {
+            // a bare control code, UPA devices only send framed JSON
+            return new byte[0];
+        }
+        if (frame.length < 5 || frame[1] != lf || frame[frame.length - 2] != ControlCodes.ETX.getByte()
+                || frame[frame.length - 3] != lf || frame[frame.length - 1] != lf) {
+            throw new IOException("The bytes of the response packet are not the expected bytes.");
+        }
 
-                    break;
-                } else if (buffer[i] != lf) {
-                    data.add(buffer[i]);
-                }
+        byte[] data = new byte[frame.length - 5];
+        int length = 0;
+        for (int i = 2; i < frame.length - 3; i++) {
+            if (frame[i] != lf) {
+                data[length++] = frame[i];
             }
-        } catch (SocketTimeoutException e) {
-            client.setSoTimeout(0);
         }
-    }
+        if (length == data.length) {
+            return data;
+        }
 
+        byte[] trimmed = new byte[length];
+        System.arraycopy(data, 0, trimmed, 0, length);
+        return trimmed;
+    }
     private void sendAckMessageToDevice() throws IOException {
         JsonDoc json = new JsonDoc();
         json.set("data", "", true);
@@ -0,0 +1,271 @@
+package com.global.api.utils;
+
+import com.global.api.logging.IRequestLogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes the same entries as RequestFileLogger, but from a background thread so the request that
+ * produced them isn't held up by the file. Entries are handed over through a bounded queue, masked,
+ * and appended in batches to a single open file, which is rolled over to outputFile.1, outputFile.2
+ * and so on once it reaches the size limit. Callers only wait when the queue is full.
+ * <p>
+ * Call close() when finished with the logger to write whatever is still queued. Entries logged while it
+ * closes are either written or rejected with an IOException, never dropped.
+ */
+public class AsyncRequestFileLogger implements IRequestLogger, Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    public static final long DEFAULT_MAX_FILE_SIZE = 10 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BACKUPS = 5;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final Entry STOP = new Entry(0, false, null);
+
+    private final Path path;
+    private final long maxFileSize;
+    private final int maxBackups;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final AtomicReference<IOException> writeError = new AtomicReference<>();
+    private final Object progress = new Object();
+    // loggers hold the read lock while they check closed and queue their entry, so none land after STOP
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private final AtomicLong queued = new AtomicLong();
+    private long written;
+
+    // only used by the writer thread
+    private FileChannel channel;
+    private long size;
+
+    public AsyncRequestFileLogger(String outputFile) {
+        this(outputFile, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_FILE_SIZE, DEFAULT_MAX_BACKUPS);
+    }
+    public AsyncRequestFileLogger(String outputFile, int queueCapacity, long maxFileSize, int maxBackups) {
+        this.path = new File(outputFile).toPath();
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = maxBackups;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        writer = new Thread(new Runnable() {
+            public void run() {
+                writeEntries();
+            }
+        }, "AsyncRequestFileLogger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static class Entry {
+        private final long time;
+        private final boolean request;
+        private final String text;
+
+        private Entry(long time, boolean request, String text) {
+            this.time = time;
+            this.request = request;
+            this.text = text;
+        }
+    }
+
+    @Override
+    public void RequestSent(String request) throws IOException {
+        enqueue(new Entry(System.currentTimeMillis(), true, request));
+    }
+
+    @Override
+    public void ResponseReceived(String response) throws IOException {
+        enqueue(new Entry(System.currentTimeMillis(), false, response));
+    }
+
+    /**
+     * Waits until everything logged so far has been written to the file.
+     */
+    public void flush() throws IOException {
+        long target = queued.get();
+        synchronized (progress) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    progress.wait(100);
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the log to be written.", exc);
+                }
+            }
+        }
+        throwWriteError();
+    }
+
+    // every caller waits until the entries queued before the close have been written
+    @Override
+    public void close() throws IOException {
+        try {
+            closing.writeLock().lock();
+            try {
+                if (!closed) {
+                    closed = true;
+                    put(STOP);
+                }
+            } finally {
+                closing.writeLock().unlock();
+            }
+            writer.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the log.", exc);
+        }
+        throwWriteError();
+    }
+
+    private void enqueue(Entry entry) throws IOException {
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                throw new IOException("The logger has been closed.");
+            }
+            put(entry);
+            queued.incrementAndGet();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while logging.", exc);
+        } finally {
+            closing.readLock().unlock();
+        }
+
+        // a failed write is reported to the next caller, the entries it held are lost
+        throwWriteError();
+    }
+
+    // waits for room in the queue, but not on a writer that is no longer there to make it
+    private void put(Entry entry) throws IOException, InterruptedException {
+        while (!queue.offer(entry, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                throw new IOException("The log writer has stopped.");
+            }
+        }
+    }
+
+    private void throwWriteError() throws IOException {
+        IOException error = writeError.getAndSet(null);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void writeEntries() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        StringBuilder text = new StringBuilder(16 * 1024);
+        boolean stopping = false;
+
+        // keeps going after STOP until the queue is empty, so nothing accepted is left behind
+        while (!stopping || !queue.isEmpty()) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException exc) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            text.setLength(0);
+            int entries = 0;
+            for (Entry entry : batch) {
+                if (entry == STOP) {
+                    stopping = true;
+                    continue;
+                }
+
+                Timestamp t = new Timestamp(entry.time);
+                if (entry.request) {
+                    text.append(t).append(" Sent:\n").append(StringUtils.mask(entry.text));
+                } else {
+                    text.append(t).append(" Response:\n").append(StringUtils.mask(entry.text)).append('\n');
+                }
+                entries++;
+            }
+
+            try {
+                if (text.length() > 0) {
+                    write(StandardCharsets.UTF_8.encode(CharBuffer.wrap(text)));
+                }
+            } catch (IOException exc) {
+                writeError.set(exc);
+                closeChannel();
+            }
+
+            synchronized (progress) {
+                written += entries;
+                progress.notifyAll();
+            }
+        }
+        closeChannel();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        if (size > 0 && size + bytes.remaining() > maxFileSize) {
+            rollOver();
+        }
+
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    // outputFile becomes outputFile.1, and the oldest backup is dropped
+    private void rollOver() throws IOException {
+        closeChannel();
+        if (maxBackups > 0) {
+            Files.deleteIfExists(backup(maxBackups));
+            for (int i = maxBackups - 1; i >= 1; i--) {
+                if (Files.exists(backup(i))) {
+                    Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(path);
+        }
+        open();
+    }
+
+    private Path backup(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException exc) {
+                // nothing more can be written to it either way
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.global.api.utils;
+
+/**
+ * Masks card data in request and response bodies before they are logged, in a single pass over the
+ * text. Every card number is reduced to its first six and last four digits, including the ones inside
+ * track 1 and track 2 data, and the values of security code fields are replaced with X's in both
+ * XML and JSON bodies. Nothing is allocated unless something is masked.
+ * <p>
+ * Card numbers are recognised by the same brand prefixes and lengths as the pattern this replaces,
+ * with spaces or dashes allowed between the digits.
+ */
+final class CardDataMasker {
+    private static final String[] SECURITY_CODE_FIELDS = { "cvv", "cvv2", "cvc", "cvc2", "cvd", "cvn", "securitycode", "cardsecuritycode" };
+    private static final int MAX_PAN_LENGTH = 19;
+
+    private CardDataMasker() { }
+
+    static String mask(String value) {
+        if(value == null) {
+            return null;
+        }
+
+        StringBuilder sb = null;
+        int length = value.length();
+        int copied = 0;
+        int i = 0;
+        while(i < length) {
+            char c = value.charAt(i);
+            if(isDigit(c) && startsNumber(value, i)) {
+                int end = cardNumberEnd(value, i);
+                if(end > 0) {
+                    sb = append(sb, value, copied, i);
+                    appendMaskedCardNumber(sb, value, i, end);
+                    copied = i = end;
+                }
+                else {
+                    // the rest of this number can't start another one
+                    while(i < length && isWordChar(value.charAt(i))) {
+                        i++;
+                    }
+                }
+                continue;
+            }
+
+            int start = -1;
+            if(c == '<') {
+                start = xmlSecurityCode(value, i);
+            }
+            else if(c == '"') {
+                start = jsonSecurityCode(value, i);
+            }
+
+            if(start > 0) {
+                int end;
+                if(c == '<') {
+                    end = indexOf(value, '<', start);
+                }
+                else if(value.charAt(start) == '"') {
+                    end = indexOf(value, '"', start + 1);
+                }
+                else {
+                    end = start;
+                    while(end < length && isDigit(value.charAt(end))) {
+                        end++;
+                    }
+                }
+
+                sb = append(sb, value, copied, start);
+                for(int j = start; j < end; j++) {
+                    char ch = value.charAt(j);
+                    sb.append(isDigit(ch) ? 'X' : ch);
+                }
+                copied = i = end;
+                continue;
+            }
+            i++;
+        }
+
+        if(sb == null) {
+            return value;
+        }
+        return sb.append(value, copied, length).toString();
+    }
+
+    // a card number starts on a word boundary, or straight after the %B of a track 1 format code
+    private static boolean startsNumber(String value, int index) {
+        if(index == 0 || !isWordChar(value.charAt(index - 1))) {
+            return true;
+        }
+        return index > 1 && value.charAt(index - 1) == 'B' && value.charAt(index - 2) == '%';
+    }
+
+    // returns the end of the longest card number starting at the index, or -1 when there isn't one
+    private static int cardNumberEnd(String value, int start) {
+        int length = value.length();
+        int prefix = 0;
+        int digits = 0;
+        int end = -1;
+
+        int i = start;
+        while(i < length) {
+            char c = value.charAt(i);
+            if(isDigit(c)) {
+                if(++digits > MAX_PAN_LENGTH) {
+                    break;
+                }
+                if(digits <= 4) {
+                    prefix = prefix * 10 + (c - '0');
+                }
+
+                i++;
+                if(digits >= 13 && (i == length || !isWordChar(value.charAt(i))) && isCardNumber(prefix, digits)) {
+                    end = i;
+                }
+            }
+            else if(c == ' ' || c == '-') {
+                i++;
+            }
+            else break;
+        }
+        return end;
+    }
+
+    private static boolean isCardNumber(int prefix, int digits) {
+        int two = prefix / 100;
+        int three = prefix / 10;
+        switch(prefix / 1000) {
+            case 1:
+                return prefix == 1800 && digits == 15;
+            case 2:
+                if(prefix == 2131) {
+                    return digits == 15;
+                }
+                return prefix >= 2221 && prefix <= 2720 && digits == 16;
+            case 3:
+                if(two == 34 || two == 37) {
+                    return digits == 15;
+                }
+                if(two == 35) {
+                    return digits == 16;
+                }
+                return (two == 36 || two == 38 || (three >= 300 && three <= 305)) && digits == 14;
+            case 4:
+                return digits == 13 || digits == 16;
+            case 5:
+                return two >= 51 && two <= 55 && digits == 16;
+            case 6:
+                return (prefix == 6011 || two == 65) && digits == 16;
+            default:
+                return false;
+        }
+    }
+
+    // keeps the first six and last four digits and drops the separators, as the pattern-based mask did
+    private static void appendMaskedCardNumber(StringBuilder sb, String value, int start, int end) {
+        int digits = 0;
+        for(int i = start; i < end; i++) {
+            if(isDigit(value.charAt(i))) {
+                digits++;
+            }
+        }
+
+        int index = 0;
+        for(int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if(isDigit(c)) {
+                sb.append(index < 6 || index >= digits - 4 ? c : 'X');
+                index++;
+            }
+        }
+    }
+
+    // for a security code element, returns where its value starts, otherwise -1
+    private static int xmlSecurityCode(String value, int index) {
+        int length = value.length();
+        int nameStart = index + 1;
+        int nameEnd = nameStart;
+        while(nameEnd < length && isNameChar(value.charAt(nameEnd))) {
+            // compare the local name of prefixed elements
+            if(value.charAt(nameEnd++) == ':') {
+                nameStart = nameEnd;
+            }
+        }
+        if(!isSecurityCodeField(value, nameStart, nameEnd)) {
+            return -1;
+        }
+
+        int close = value.indexOf('>', nameEnd);
+        if(close < 0 || value.charAt(close - 1) == '/') {
+            return -1;
+        }
+
+        // Realex nests the code as <cvn><number>123</number>
+        int start = close + 1;
+        int next = skipWhitespace(value, start);
+        if(value.startsWith("<number>", next)) {
+            return next + 8;
+        }
+        return start;
+    }
+
+    // for the key of a security code field, returns where its value starts, otherwise -1
+    private static int jsonSecurityCode(String value, int index) {
+        int length = value.length();
+        int nameEnd = index + 1;
+        while(nameEnd < length && isNameChar(value.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if(nameEnd == length || value.charAt(nameEnd) != '"' || !isSecurityCodeField(value, index + 1, nameEnd)) {
+            return -1;
+        }
+
+        int colon = skipWhitespace(value, nameEnd + 1);
+        if(colon == length || value.charAt(colon) != ':') {
+            return -1;
+        }
+
+        int start = skipWhitespace(value, colon + 1);
+        if(start == length || (value.charAt(start) != '"' && !isDigit(value.charAt(start)))) {
+            return -1;
+        }
+        return start;
+    }
+
+    private static boolean isSecurityCodeField(String value, int start, int end) {
+        int length = end - start;
+        for(String field : SECURITY_CODE_FIELDS) {
+            if(field.length() == length && value.regionMatches(true, start, field, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static StringBuilder append(StringBuilder sb, String value, int from, int to) {
+        if(sb == null) {
+            sb = new StringBuilder(value.length());
+        }
+        return sb.append(value, from, to);
+    }
+
+    private static int indexOf(String value, char c, int from) {
+        int index = value.indexOf(c, from);
+        return index < 0 ? value.length() : index;
+    }
+
+    private static int skipWhitespace(String value, int index) {
+        while(index < value.length() && Character.isWhitespace(value.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isNameChar(char c) {
+        return c == '_' || c == ':' || c == '-' || c == '.' || Character.isLetterOrDigit(c);
+    }
+}
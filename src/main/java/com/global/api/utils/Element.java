@@ -14,7 +14,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
-public class Element {
+public class Element implements IElementValues {
     private Document doc;
     private org.w3c.dom.Element element;
     private Map<String, String> namespaces;
@@ -0,0 +1,191 @@
+package com.global.api.utils;
+
+import com.global.api.entities.exceptions.ApiException;
+import org.joda.time.DateTime;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Maps XML responses in a single pull-parser pass instead of building a DOM. Each record element is
+ * handed over as soon as it ends, holding the first value of every tag beneath it, so a report with
+ * thousands of rows never has to be held in memory as a tree.
+ * <p>
+ * Lookups follow Element: a tag missing from a record falls back to the first value seen for it in
+ * the document so far, which is how per-row lookups pick up header values such as GatewayRspCode.
+ */
+public class ElementReader implements IElementValues {
+    private static final XMLInputFactory INPUT_FACTORY;
+    static {
+        INPUT_FACTORY = XMLInputFactory.newInstance();
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public interface IRecordHandler {
+        void record(ElementReader record) throws ApiException;
+    }
+
+    // leaf element text by tag name, first occurrence wins
+    private final Map<String, String> values = new HashMap<String, String>();
+    // every tag name seen, containers included
+    private final Set<String> elements = new HashSet<String>();
+    private final ElementReader document;
+
+    private ElementReader(ElementReader document) {
+        this.document = document;
+    }
+
+    /**
+     * Reads the document, calling the handler for every recordTag element found inside a containerTag
+     * element, or anywhere when containerTag is null. Returns the values of the whole document.
+     */
+    public static ElementReader read(String xml, String containerTag, String recordTag, IRecordHandler handler) throws ApiException {
+        ElementReader document = new ElementReader(null);
+        ElementReader record = null;
+        int recordDepth = -1;
+        int containerDepth = containerTag == null ? 0 : -1;
+
+        List<String> names = new ArrayList<String>();
+        // whether the element at each depth has child elements, only leaves carry values
+        BitSet hasChildren = new BitSet();
+        StringBuilder text = new StringBuilder();
+
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+            while(reader.hasNext()) {
+                switch(reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        String name = reader.getLocalName();
+                        int depth = names.size();
+                        if(depth > 0) {
+                            hasChildren.set(depth - 1);
+                        }
+                        hasChildren.clear(depth);
+                        names.add(name);
+                        text.setLength(0);
+
+                        if(record != null) {
+                            record.elements.add(name);
+                        }
+                        else if(containerDepth >= 0 && name.equals(recordTag)) {
+                            record = new ElementReader(document);
+                            recordDepth = depth;
+                        }
+                        else if(containerDepth < 0 && name.equals(containerTag)) {
+                            containerDepth = depth;
+                        }
+                        document.elements.add(name);
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(reader.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT: {
+                        int depth = names.size() - 1;
+                        String name = names.remove(depth);
+
+                        if(depth == recordDepth) {
+                            handler.record(record);
+                            record = null;
+                            recordDepth = -1;
+                        }
+                        else if(!hasChildren.get(depth)) {
+                            String value = text.toString();
+                            if(record != null && !record.values.containsKey(name)) {
+                                record.values.put(name, value);
+                            }
+                            if(!document.values.containsKey(name)) {
+                                document.values.put(name, value);
+                            }
+                        }
+
+                        if(containerTag != null && depth == containerDepth) {
+                            containerDepth = -1;
+                        }
+                        text.setLength(0);
+                        break;
+                    }
+                    default:
+                        break;
+                }
+            }
+            return document;
+        }
+        catch(XMLStreamException e) {
+            throw new ApiException(e.getMessage(), e);
+        }
+        finally {
+            if(reader != null) {
+                try {
+                    reader.close();
+                }
+                catch(XMLStreamException e) {
+                    // nothing left to release
+                }
+            }
+        }
+    }
+
+    public boolean has(String tagName) {
+        return elements.contains(tagName);
+    }
+
+    public String getString(String... tagNames) {
+        for(String tagName: tagNames) {
+            if(values.containsKey(tagName)) {
+                return values.get(tagName);
+            }
+            if(document != null && document.values.containsKey(tagName)) {
+                return document.values.get(tagName);
+            }
+        }
+        return null;
+    }
+
+    public Integer getInt(String tagName) {
+        String value = getString(tagName);
+        if(StringUtils.isNullOrEmpty(value)) {
+            return null;
+        }
+        return Integer.parseInt(value);
+    }
+
+    public BigDecimal getDecimal(String tagName) {
+        String value = getString(tagName);
+        if(value != null) {
+            return new BigDecimal(value);
+        } return null;
+    }
+
+    public Date getDate(String... tagNames) {
+        String value = getString(tagNames);
+        if(value != null) {
+            try {
+                return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSS").parse(value);
+            }
+            catch (ParseException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public DateTime getDateTime(String... tagNames) {
+        String value = getString(tagNames);
+        if(!StringUtils.isNullOrEmpty(value)) {
+            return DateTime.parse(value);
+        }
+        return null;
+    }
+}
@@ -9,20 +9,19 @@ import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.util.HashMap;
 
 public class ElementTree {
+    private static final DocumentBuilderFactory FACTORY = DocumentBuilderFactory.newInstance();
+    // builders are not thread safe but can be reused, so each thread keeps one
+    private static final ThreadLocal<DocumentBuilder> BUILDER = new ThreadLocal<DocumentBuilder>();
+
     private Document doc;
     private HashMap<String, String> namespaces;
 
@@ -113,22 +112,8 @@ public class ElementTree {
     }
 
     public String toString(Element root) {
-        doc.appendChild(root.getElement());
-
-        try {
-            TransformerFactory tFact = TransformerFactory.newInstance();
-            Transformer trans = tFact.newTransformer();
-
-            StringWriter writer = new StringWriter();
-            StreamResult result = new StreamResult(writer);
-            DOMSource source = new DOMSource(doc);
-            trans.transform(source, result);
-            return writer.toString();
-        } catch (TransformerException e) {
-            return e.getMessage();
-        } finally {
-            doc.removeChild(root.getElement());
-        }
+        XmlWriter writer = new XmlWriter(namespaces);
+        return writer.toString(writer.copy(null, root.getElement()));
     }
 
     public Element get(String tagName) {
@@ -149,11 +134,11 @@ public class ElementTree {
     }
 
     public static ElementTree parse(byte[] buffer) throws ApiException {
-        String xmlString = "";
-        for(byte b: buffer) {
-            xmlString += (char)b;
+        char[] chars = new char[buffer.length];
+        for(int i = 0; i < buffer.length; i++) {
+            chars[i] = (char)buffer[i];
         }
-        return parse(xmlString);
+        return parse(new String(chars));
     }
 
     public static ElementTree parse(String xml) throws ApiException {
@@ -165,7 +150,7 @@ public class ElementTree {
             InputSource is = new InputSource(new StringReader(xml));
 
             ElementTree rvalue = new ElementTree(namespaces);
-            rvalue.setDocument(DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is));
+            rvalue.setDocument(getBuilder().parse(is));
             return rvalue;
         } catch(ParserConfigurationException e) {
             throw new ApiException(e.getMessage());
@@ -179,10 +164,22 @@ public class ElementTree {
     private void init(HashMap<String, String> namespaces) {
         try {
             this.namespaces = namespaces;
-            this.doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            this.doc = getBuilder().newDocument();
 
         } catch (ParserConfigurationException e) {
             System.out.println(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static DocumentBuilder getBuilder() throws ParserConfigurationException {
+        DocumentBuilder builder = BUILDER.get();
+        if(builder == null) {
+            synchronized (FACTORY) {
+                builder = FACTORY.newDocumentBuilder();
+            }
+            BUILDER.set(builder);
+        }
+        else builder.reset();
+        return builder;
+    }
+}
@@ -0,0 +1,314 @@
+package com.global.api.utils;
+
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.BatchFullException;
+import com.global.api.network.abstractions.IBatchProvider;
+import com.global.api.network.entities.PriorMessageInformation;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the batch number, sequence numbers, totals and data-collect requests of one terminal in memory,
+ * with every change appended to a journal file that is replayed when the provider is created again. A
+ * change is on disk before the call that made it returns, but callers on other threads share the same
+ * fsync, so the disk is waited on once for however many of them are writing. The journal starts over
+ * when the batch is closed.
+ * <p>
+ * Totals are kept in cents. The prior message data is not journaled.
+ */
+public class FileBatchProvider implements IBatchProvider, Closeable {
+    public static final int DEFAULT_MAX_SEQUENCE_NUMBER = 999;
+    public static final int MAX_BATCH_NUMBER = 99;
+
+    private final Path path;
+    private final int maxSequenceNumber;
+    private final AtomicInteger batchNumber = new AtomicInteger(1);
+    private final AtomicInteger sequenceNumber = new AtomicInteger();
+    private final LongAdder transactionCount = new LongAdder();
+    private final LongAdder totalCredits = new LongAdder();
+    private final LongAdder totalDebits = new LongAdder();
+    private final ConcurrentLinkedQueue<String> encodedRequests = new ConcurrentLinkedQueue<String>();
+    // changes share the read lock, closing the batch takes the write lock
+    private final ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final AtomicLong appended = new AtomicLong();
+    private final Object syncLock = new Object();
+    private long synced;
+    private volatile FileChannel channel;
+    private IRequestEncoder requestEncoder;
+    private volatile PriorMessageInformation priorMessageInformation;
+
+    public FileBatchProvider(File file) throws IOException {
+        this(file, DEFAULT_MAX_SEQUENCE_NUMBER);
+    }
+    public FileBatchProvider(File file, int maxSequenceNumber) throws IOException {
+        this.path = file.toPath();
+        this.maxSequenceNumber = maxSequenceNumber;
+
+        replay();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public static FileBatchProvider forTerminal(File directory, String terminalId) throws IOException {
+        return new FileBatchProvider(new File(directory, "batch-" + terminalId + ".dat"));
+    }
+
+    public int getBatchNumber() {
+        return batchNumber.get();
+    }
+    public int getSequenceNumber() throws BatchFullException {
+        batchLock.readLock().lock();
+        try {
+            int current;
+            do {
+                current = sequenceNumber.get();
+                if (current >= maxSequenceNumber) {
+                    throw new BatchFullException();
+                }
+            } while (!sequenceNumber.compareAndSet(current, current + 1));
+            int next = current + 1;
+
+            append("S|" + next);
+            return next;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+    public int getTransactionCount() {
+        return transactionCount.intValue();
+    }
+    public BigDecimal getTotalCredits() {
+        return BigDecimal.valueOf(totalCredits.sum(), 2);
+    }
+    public BigDecimal getTotalDebits() {
+        return BigDecimal.valueOf(totalDebits.sum(), 2);
+    }
+    public IRequestEncoder getRequestEncoder() {
+        return requestEncoder;
+    }
+    public void setRequestEncoder(IRequestEncoder requestEncoder) {
+        this.requestEncoder = requestEncoder;
+    }
+    public LinkedList<String> getEncodedRequests() {
+        return new LinkedList<String>(encodedRequests);
+    }
+    public PriorMessageInformation getPriorMessageData() {
+        return priorMessageInformation;
+    }
+    public void setPriorMessageData(PriorMessageInformation priorMessageInformation) {
+        this.priorMessageInformation = priorMessageInformation;
+    }
+
+    public void reportDataCollect(TransactionType transactionType, PaymentMethodType paymentMethodType, BigDecimal amount, String encodedRequest) {
+        long cents = amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+        long debits = 0L;
+        long credits = 0L;
+        switch (transactionType) {
+            case Capture:
+            case Sale: {
+                debits = cents;
+            } break;
+            case Refund: {
+                credits = cents;
+            } break;
+            case Reversal: {
+                debits = -cents;
+            } break;
+        }
+
+        // a request can hold any byte, a newline included, so it is journaled as Base64 to keep it on one line
+        String journaled = encodedRequest != null ? Base64.encodeBase64String(encodedRequest.getBytes(StandardCharsets.UTF_8)) : "";
+
+        batchLock.readLock().lock();
+        try {
+            append("D|" + debits + "|" + credits + "|" + journaled);
+            apply(debits, credits, encodedRequest);
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    // the new batch is on disk once this returns: the replacement journal is forced before it is moved into
+    // place, and the directory after, so the rename itself survives a crash
+    public void closeBatch(boolean inBalance) {
+        batchLock.writeLock().lock();
+        try {
+            int next = batchNumber.get() == MAX_BATCH_NUMBER ? 1 : batchNumber.get() + 1;
+
+            // the new journal only needs to say which batch is open
+            Path directory = path.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel fresh = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    fresh.write(StandardCharsets.UTF_8.encode(record("B|" + next)));
+                    fresh.force(true);
+                }
+                channel.close();
+                try {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException exc) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                forceDirectory(directory);
+            } finally {
+                Files.deleteIfExists(temp);
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+
+            reset(next);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException exc) {
+            // not every platform can open a directory to force it, Windows among them
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        batchLock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+    }
+
+    private void apply(long debits, long credits, String encodedRequest) {
+        transactionCount.increment();
+        totalDebits.add(debits);
+        totalCredits.add(credits);
+        if (!StringUtils.isNullOrEmpty(encodedRequest)) {
+            encodedRequests.add(encodedRequest);
+        }
+    }
+
+    private void reset(int batch) {
+        batchNumber.set(batch);
+        sequenceNumber.set(0);
+        transactionCount.reset();
+        totalDebits.reset();
+        totalCredits.reset();
+        encodedRequests.clear();
+    }
+
+    // the IBatchProvider methods can't throw an IOException, and carrying on would lose the change
+    private void append(String entry) {
+        try {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(record(entry));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            long ticket = appended.incrementAndGet();
+
+            synchronized (syncLock) {
+                // one force covers every record written before it started
+                if (synced < ticket) {
+                    long target = appended.get();
+                    channel.force(false);
+                    synced = target;
+                }
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private static String record(String entry) {
+        CRC32 crc = new CRC32();
+        crc.update(entry.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue()) + "|" + entry + "\n";
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        byte[] content = Files.readAllBytes(path);
+        int start = 0;
+        int valid = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+
+            String line = new String(content, start, i - start, StandardCharsets.UTF_8);
+            start = i + 1;
+            if (!replayRecord(line)) {
+                break;
+            }
+            valid = start;
+        }
+
+        // a record cut short by a crash was never acknowledged, so it is dropped
+        if (valid < content.length) {
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(valid);
+                truncate.force(true);
+            }
+        }
+    }
+
+    private boolean replayRecord(String line) {
+        int separator = line.indexOf('|');
+        if (separator < 0) {
+            return false;
+        }
+
+        String entry = line.substring(separator + 1);
+        CRC32 crc = new CRC32();
+        crc.update(entry.getBytes(StandardCharsets.UTF_8));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(0, separator))) {
+            return false;
+        }
+
+        String[] fields = entry.split("\\|", 4);
+        try {
+            switch (fields[0]) {
+                case "B":
+                    reset(Integer.parseInt(fields[1]));
+                    return true;
+                case "S":
+                    sequenceNumber.set(Math.max(sequenceNumber.get(), Integer.parseInt(fields[1])));
+                    return true;
+                case "D":
+                    apply(Long.parseLong(fields[1]), Long.parseLong(fields[2]), new String(Base64.decodeBase64(fields[3]), StandardCharsets.UTF_8));
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (RuntimeException exc) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.global.api.utils;
+
+import com.global.api.network.abstractions.IStanProvider;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out STANs from an in-memory counter, and keeps the STANs of one terminal from being reused
+ * after a restart or a crash. Instead of saving every STAN, it reserves them a block at a time in a small
+ * memory-mapped file, so only one STAN in reserveSize waits for the disk. After a crash the STANs left
+ * in the reserved block are skipped.
+ * <p>
+ * Each terminal needs its own file; use forTerminal to keep them together in one directory.
+ */
+public class FileStanProvider implements IStanProvider, Closeable {
+    public static final int DEFAULT_MAX_STAN = 999999;
+    public static final int DEFAULT_RESERVE_SIZE = 1000;
+    // two copies of the high-water mark, each with a check value, so a torn write leaves the other one
+    private static final int SLOT_SIZE = 16;
+    private static final long CHECK = 0x5354414E4A524E4CL;
+
+    private final int maxStan;
+    private final int reserveSize;
+    private final FileChannel channel;
+    private final MappedByteBuffer slots;
+    private final AtomicLong issued;
+    private volatile long reserved;
+    private int nextSlot;
+
+    public FileStanProvider(File file) throws IOException {
+        this(file, DEFAULT_MAX_STAN, DEFAULT_RESERVE_SIZE);
+    }
+    public FileStanProvider(File file, int maxStan, int reserveSize) throws IOException {
+        this.maxStan = maxStan;
+        this.reserveSize = Math.max(1, reserveSize);
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, SLOT_SIZE * 2);
+
+        // anything up to the high-water mark may have been handed out before the last stop
+        long first = readSlot(0);
+        long second = readSlot(1);
+        reserved = Math.max(first, second);
+        nextSlot = first > second ? 1 : 0;
+        issued = new AtomicLong(reserved);
+    }
+
+    public static FileStanProvider forTerminal(File directory, String terminalId) throws IOException {
+        return new FileStanProvider(new File(directory, "stan-" + terminalId + ".dat"));
+    }
+
+    public int generateStan() {
+        long count = issued.incrementAndGet();
+        if (count > reserved) {
+            reserve(count);
+        }
+        return (int) ((count - 1) % maxStan) + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        slots.force();
+        channel.close();
+    }
+
+    private synchronized void reserve(long count) {
+        // another thread may have reserved past this count while we waited
+        if (count <= reserved) {
+            return;
+        }
+
+        long highWater = reserved;
+        while (highWater < count) {
+            highWater += reserveSize;
+        }
+
+        int offset = nextSlot * SLOT_SIZE;
+        slots.putLong(offset, highWater);
+        slots.putLong(offset + 8, highWater ^ CHECK);
+        slots.force();
+        nextSlot = 1 - nextSlot;
+
+        // only handed out once it is on disk
+        reserved = highWater;
+    }
+
+    private long readSlot(int slot) {
+        long value = slots.getLong(slot * SLOT_SIZE);
+        long check = slots.getLong(slot * SLOT_SIZE + 8);
+        return value > 0 && (value ^ CHECK) == check ? value : 0L;
+    }
+}
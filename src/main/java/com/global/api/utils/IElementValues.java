@@ -0,0 +1,19 @@
+package com.global.api.utils;
+
+import org.joda.time.DateTime;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * The lookups response mapping does against an element: the first descendant with a tag name,
+ * whether it is an Element over a DOM or values pulled off a stream by ElementReader.
+ */
+public interface IElementValues {
+    boolean has(String tagName);
+    String getString(String... tagNames);
+    Integer getInt(String tagName);
+    BigDecimal getDecimal(String tagName);
+    Date getDate(String... tagNames);
+    DateTime getDateTime(String... tagNames);
+}
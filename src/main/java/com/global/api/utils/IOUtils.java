@@ -6,10 +6,11 @@ import java.nio.charset.Charset;
 public class IOUtils {
     public static String readFully(InputStream stream) throws IOException {
         StringBuilder sb = new StringBuilder();
-        Reader reader = new BufferedReader(new InputStreamReader(stream, Charset.forName("UTF-8")));
-        int c;
-        while((c = reader.read()) != -1)
-            sb.append((char)c);
+        Reader reader = new InputStreamReader(stream, Charset.forName("UTF-8"));
+        char[] buffer = new char[8192];
+        int length;
+        while((length = reader.read(buffer)) != -1)
+            sb.append(buffer, 0, length);
         return sb.toString();
     }
 }
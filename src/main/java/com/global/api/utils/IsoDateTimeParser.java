@@ -0,0 +1,160 @@
+package com.global.api.utils;
+
+import org.joda.time.DateTime;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * Reads the ISO-8601 timestamps GP-API returns in one pass, choosing the layout from the length and
+ * separators instead of trying each DATE_TIME_PATTERN in turn. The accepted layouts are
+ * <pre>
+ *   yyyy-MM-dd
+ *   yyyy-MM-dd'T'HH:mm
+ *   yyyy-MM-dd'T'HH:mm:ss, optionally followed by a fraction of 1 to 9 digits and/or a 'Z'
+ *   yyyy-MM-dd'T'HH:mm:ss+hh:mm
+ * </pre>
+ * As with the Joda patterns, the 'Z' and the offset are not applied: the fields are read as a local
+ * time in the default zone. Anything else, including out of range fields, returns null rather than
+ * throwing. The methods keep no state, so they are safe to call from any thread.
+ */
+public final class IsoDateTimeParser {
+    private IsoDateTimeParser() { }
+
+    public static DateTime parseDateTime(String value) {
+        if(value == null || !isDate(value)) {
+            return null;
+        }
+
+        int length = value.length();
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        if(length > 10) {
+            if(length < 16 || value.charAt(10) != 'T' || value.charAt(13) != ':' || !isDigits(value, 11, 2) || !isDigits(value, 14, 2)) {
+                return null;
+            }
+            hour = number(value, 11, 2);
+            minute = number(value, 14, 2);
+
+            if(length > 16) {
+                if(length < 19 || value.charAt(16) != ':' || !isDigits(value, 17, 2)) {
+                    return null;
+                }
+                second = number(value, 17, 2);
+
+                int index = 19;
+                if(index < length && value.charAt(index) == '.') {
+                    int start = ++index;
+                    while(index < length && index - start < 9 && isDigit(value.charAt(index))) {
+                        // anything past milliseconds is dropped, as Joda does
+                        if(index - start < 3) {
+                            millis = millis * 10 + (value.charAt(index) - '0');
+                        }
+                        index++;
+                    }
+                    if(index == start) {
+                        return null;
+                    }
+                    for(int digits = index - start; digits < 3; digits++) {
+                        millis *= 10;
+                    }
+                }
+
+                if(index < length && value.charAt(index) == 'Z') {
+                    index++;
+                }
+                else if(index == 19 && length == 25 && value.charAt(19) == '+' && isDigits(value, 20, 2) && value.charAt(22) == ':' && isDigits(value, 23, 2)) {
+                    index = length;
+                }
+
+                if(index != length) {
+                    return null;
+                }
+            }
+        }
+
+        int year = number(value, 0, 4);
+        int month = number(value, 5, 2);
+        int day = number(value, 8, 2);
+        if(!isValid(year, month, day) || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+
+        try {
+            return new DateTime(year, month, day, hour, minute, second, millis);
+        }
+        catch(IllegalArgumentException exc) {
+            // the time falls in a daylight saving gap of the default zone
+            return null;
+        }
+    }
+
+    /**
+     * Reads the yyyy-MM-dd at the start of the value as a date in the default zone, ignoring whatever
+     * follows it, the way SimpleDateFormat.parse did.
+     */
+    public static Date parseDate(String value) {
+        if(value == null || !isDate(value) || (value.length() > 10 && isDigit(value.charAt(10)))) {
+            return null;
+        }
+
+        int year = number(value, 0, 4);
+        int month = number(value, 5, 2);
+        int day = number(value, 8, 2);
+        if(!isValid(year, month, day)) {
+            return null;
+        }
+        return new GregorianCalendar(year, month - 1, day).getTime();
+    }
+
+    private static boolean isDate(String value) {
+        return value.length() >= 10
+                && isDigits(value, 0, 4)
+                && value.charAt(4) == '-'
+                && isDigits(value, 5, 2)
+                && value.charAt(7) == '-'
+                && isDigits(value, 8, 2);
+    }
+
+    private static boolean isValid(int year, int month, int day) {
+        if(year == 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+
+        switch(month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return day <= (leap ? 29 : 28);
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return day <= 30;
+            default:
+                return day <= 31;
+        }
+    }
+
+    private static boolean isDigits(String value, int start, int count) {
+        for(int i = start; i < start + count; i++) {
+            if(!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(String value, int start, int count) {
+        int result = 0;
+        for(int i = start; i < start + count; i++) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
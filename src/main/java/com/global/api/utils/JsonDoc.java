@@ -3,8 +3,13 @@ package com.global.api.utils;
 import com.global.api.entities.enums.IStringConstant;
 import com.global.api.entities.exceptions.GatewayException;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.joda.time.DateTime;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -272,6 +277,24 @@ public class JsonDoc {
         return null;
     }
 
+    // Builds the document straight from the reader without holding the raw text or an intermediate tree
+    public static JsonDoc parse(Reader json) throws IOException {
+        return parse(json, null);
+    }
+    public static JsonDoc parse(Reader json, IRequestEncoder encoder) throws IOException {
+        JsonReader reader = new JsonReader(json);
+        reader.setLenient(true);
+        try {
+            if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+        }
+        catch(EOFException exc) {
+            return null;
+        }
+        return readObject(reader, encoder);
+    }
+
     public static String parseSingleValue(String json, String name) {
         return parseSingleValue(json, name, null);
     }
@@ -321,4 +344,57 @@ public class JsonDoc {
         }
         return responses;
     }
+
+    private static JsonDoc readObject(JsonReader reader, IRequestEncoder encoder) throws IOException {
+        HashMap<String, Object> values = new HashMap<String, Object>();
+        reader.beginObject();
+        while(reader.hasNext()) {
+            String name = reader.nextName();
+            switch(reader.peek()) {
+                case BEGIN_ARRAY:
+                    values.put(name, readArray(reader, encoder));
+                    break;
+                case BEGIN_OBJECT:
+                    values.put(name, readObject(reader, encoder));
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    break;
+                case BOOLEAN:
+                    values.put(name, String.valueOf(reader.nextBoolean()));
+                    break;
+                default:
+                    values.put(name, reader.nextString());
+            }
+        }
+        reader.endObject();
+        return new JsonDoc(values, encoder);
+    }
+
+    // same shape as parseObject: a list of documents when the first element is an object, otherwise strings
+    private static Object readArray(JsonReader reader, IRequestEncoder encoder) throws IOException {
+        reader.beginArray();
+        if(reader.peek() == JsonToken.BEGIN_OBJECT) {
+            List<JsonDoc> responses = new ArrayList<JsonDoc>();
+            while(reader.hasNext()) {
+                if(reader.peek() == JsonToken.BEGIN_OBJECT)
+                    responses.add(readObject(reader, encoder));
+                else reader.skipValue();
+            }
+            reader.endArray();
+            return responses;
+        }
+
+        ArrayList<String> response = new ArrayList<String>();
+        while(reader.hasNext()) {
+            JsonToken token = reader.peek();
+            if(token == JsonToken.BOOLEAN)
+                response.add(String.valueOf(reader.nextBoolean()));
+            else if(token == JsonToken.STRING || token == JsonToken.NUMBER)
+                response.add(reader.nextString());
+            else reader.skipValue();
+        }
+        reader.endArray();
+        return response;
+    }
 }
@@ -1,24 +1,28 @@
 package com.global.api.utils;
 
 import com.global.api.entities.exceptions.ApiException;
+import org.apache.http.Consts;
 import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.HttpMultipartMode;
-import org.apache.http.entity.mime.MultipartEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.StringBody;
 
-import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 public class MultipartForm {
-    protected MultipartEntity content;
+    // plain text parts, as StringBody(String) used to create them
+    private static final ContentType TEXT_PLAIN = ContentType.create("text/plain", Consts.ASCII);
 
-    public MultipartEntity getContent() {
-        return content;
+    protected MultipartEntityBuilder content;
+
+    public HttpEntity getContent() {
+        return content.build();
     }
 
     public MultipartForm() throws ApiException {
-        content = new MultipartEntity(HttpMultipartMode.STRICT);
+        content = MultipartEntityBuilder.create().setMode(HttpMultipartMode.STRICT);
         add("json", "1");
     }
 
@@ -51,12 +55,7 @@ public class MultipartForm {
         return this;
     }
 
-    private void add(String key, String value) throws ApiException {
-        try {
-            content.addPart(key, new StringBody(value));
-        }
-        catch(UnsupportedEncodingException exc) {
-            throw new ApiException(exc.getMessage(), exc);
-        }
+    private void add(String key, String value) {
+        content.addPart(key, new StringBody(value, TEXT_PLAIN));
     }
 }
@@ -2,24 +2,38 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.IByteConstant;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.reflect.Array;
 
 public class ReverseByteEnumMap<V extends Enum<V> & IByteConstant> {
-    private Map<Byte, V> map = new HashMap<Byte, V>();
+    // one map per enum, built the first time the enum is looked up
+    private static final ClassValue<ReverseByteEnumMap<?>> MAPS = new ClassValue<ReverseByteEnumMap<?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseByteEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseByteEnumMap(type);
+        }
+    };
+
+    private final V[] values;
 
+    @SuppressWarnings("unchecked")
     ReverseByteEnumMap(Class<V> valueType) {
+        values = (V[])Array.newInstance(valueType, 256);
         for(V v: valueType.getEnumConstants()) {
-            map.put(v.getByte(), v);
+            values[v.getByte() & 0xFF] = v;
         }
     }
 
     public V get(byte value) {
-        return map.get(value);
+        return values[value & 0xFF];
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & IByteConstant> ReverseByteEnumMap<V> of(Class<V> valueType) {
+        return (ReverseByteEnumMap<V>)MAPS.get(valueType);
     }
 
     public static <TResult extends Enum<TResult> & IByteConstant> TResult parse(byte value, Class<TResult> clazz) {
-        ReverseByteEnumMap<TResult> mapper = new ReverseByteEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return of(clazz).get(value);
     }
-}
\ No newline at end of file
+}
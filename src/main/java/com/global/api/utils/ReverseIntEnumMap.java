@@ -2,19 +2,63 @@ package com.global.api.utils;
 
 import com.global.api.entities.enums.INumericConstant;
 
-import java.util.HashMap;
+import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class ReverseIntEnumMap<V extends Enum<V> & INumericConstant> {
-    private Map<Integer, V> map = new HashMap<Integer, V>();
+    // values up to this are looked up by index, larger or negative ones by binary search
+    private static final int MAX_DIRECT_VALUE = 1024;
 
+    private static final ClassValue<ReverseIntEnumMap<?>> MAPS = new ClassValue<ReverseIntEnumMap<?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseIntEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseIntEnumMap(type);
+        }
+    };
+
+    private final int[] keys;
+    private final V[] values;
+
+    @SuppressWarnings("unchecked")
     public ReverseIntEnumMap(Class<V> valueType) {
+        TreeMap<Integer, V> map = new TreeMap<Integer, V>();
         for(V v: valueType.getEnumConstants()) {
             map.put(v.getValue(), v);
         }
+
+        if(map.isEmpty() || (map.firstKey() >= 0 && map.lastKey() < MAX_DIRECT_VALUE)) {
+            keys = null;
+            values = (V[])Array.newInstance(valueType, map.isEmpty() ? 0 : map.lastKey() + 1);
+            for(Map.Entry<Integer, V> entry: map.entrySet()) {
+                values[entry.getKey()] = entry.getValue();
+            }
+        }
+        else {
+            keys = new int[map.size()];
+            values = (V[])Array.newInstance(valueType, map.size());
+
+            int index = 0;
+            for(Map.Entry<Integer, V> entry: map.entrySet()) {
+                keys[index] = entry.getKey();
+                values[index++] = entry.getValue();
+            }
+        }
     }
 
     public V get(int value) {
-        return map.get(value);
+        if(keys == null) {
+            return (value >= 0 && value < values.length) ? values[value] : null;
+        }
+
+        int index = Arrays.binarySearch(keys, value);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & INumericConstant> ReverseIntEnumMap<V> of(Class<V> valueType) {
+        return (ReverseIntEnumMap<V>)MAPS.get(valueType);
     }
-}
\ No newline at end of file
+}
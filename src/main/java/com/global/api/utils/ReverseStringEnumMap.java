@@ -6,7 +6,15 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class ReverseStringEnumMap<V extends Enum<V> & IStringConstant> {
-    private Map<String, V> map = new HashMap<String, V>();
+    private static final ClassValue<ReverseStringEnumMap<?>> MAPS = new ClassValue<ReverseStringEnumMap<?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected ReverseStringEnumMap<?> computeValue(Class<?> type) {
+            return new ReverseStringEnumMap(type);
+        }
+    };
+
+    private final Map<String, V> map = new HashMap<String, V>();
 
     public ReverseStringEnumMap(Class<V> valueType) {
         for(V v: valueType.getEnumConstants()) {
@@ -18,8 +26,12 @@ public class ReverseStringEnumMap<V extends Enum<V> & IStringConstant> {
         return map.get(value);
     }
 
+    @SuppressWarnings("unchecked")
+    public static <V extends Enum<V> & IStringConstant> ReverseStringEnumMap<V> of(Class<V> valueType) {
+        return (ReverseStringEnumMap<V>)MAPS.get(valueType);
+    }
+
     public static <TResult extends Enum<TResult> & IStringConstant> TResult parse(String value, Class<TResult> clazz) {
-        ReverseStringEnumMap<TResult> mapper = new ReverseStringEnumMap<TResult>(clazz);
-        return mapper.get(value);
+        return of(clazz).get(value);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,329 @@
+package com.global.api.utils;
+
+import com.global.api.entities.enums.IFlag;
+import com.global.api.entities.enums.IMappedConstant;
+import com.global.api.entities.enums.IStringConstant;
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes XML as it is built, with the same subElement/set/text/cData calls as ElementTree but without
+ * a DOM in between. Elements have to be written in document order: starting a child of an element
+ * closes whatever was still open beneath it, and a closed element cannot be written to again.
+ * <p>
+ * Namespace prefixes registered with addNamespace are declared on the first element that uses them,
+ * which is where the DOM serializer put them, and empty elements are written as {@code <tag/>}.
+ */
+public class XmlWriter {
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final Map<String, String> namespaces;
+    private final Writer target;
+    private final StringWriter buffer;
+    private XMLStreamWriter writer;
+
+    private final List<Node> open = new ArrayList<Node>();
+    // the element whose start tag is held back until we know if it has content
+    private Node pending;
+
+    public XmlWriter() {
+        this(new HashMap<String, String>());
+    }
+    public XmlWriter(Map<String, String> namespaces) {
+        this.namespaces = namespaces;
+        this.buffer = new StringWriter(1024);
+        this.target = buffer;
+    }
+    public XmlWriter(OutputStream out) {
+        this(out, new HashMap<String, String>());
+    }
+    public XmlWriter(OutputStream out, Map<String, String> namespaces) {
+        this.namespaces = namespaces;
+        this.buffer = null;
+        this.target = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public class Node {
+        private final String tagName;
+        private final String prefix;
+        private final String localName;
+        private final String namespaceUri;
+        private final List<String[]> attributes = new ArrayList<String[]>(2);
+        private String declaredPrefix;
+        private boolean closed;
+
+        private Node(String tagName, String namespaceUri) {
+            this.tagName = tagName;
+            int colon = tagName.indexOf(':');
+            this.prefix = colon < 0 ? null : tagName.substring(0, colon);
+            this.localName = colon < 0 ? tagName : tagName.substring(colon + 1);
+            this.namespaceUri = namespaceUri;
+        }
+
+        public Node set(String name, String value) {
+            if(pending != this) {
+                throw new IllegalStateException(String.format("The attributes of %s have already been written.", tagName));
+            }
+            attributes.add(new String[] { name, value });
+            return this;
+        }
+        public Node set(String name, IStringConstant value) {
+            return set(name, value.getValue());
+        }
+
+        public Node text(String text) {
+            if(text == null)
+                text = "";
+            try {
+                beginContent(this);
+                writer.writeCharacters(text);
+            }
+            catch(XMLStreamException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return this;
+        }
+        public Node text(IStringConstant text) {
+            return text(text.getValue());
+        }
+        public Node cData(String text) {
+            if(text == null)
+                text = "";
+            try {
+                beginContent(this);
+                writer.writeCData(text);
+            }
+            catch(XMLStreamException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return this;
+        }
+
+        public String tag() {
+            return tagName;
+        }
+    }
+
+    public void addNamespace(String prefix, String uri) {
+        this.namespaces.put(prefix, uri);
+    }
+
+    public Node element(String tagName) {
+        return startDocument(tagName, namespaceOf(tagName));
+    }
+
+    public Node subElement(Node parent, String tagName) {
+        return open(parent, tagName, namespaceOf(tagName));
+    }
+    public Node subElement(Node parent, String tagName, String value) {
+        if(value == null || value.equals(""))
+            return null;
+        return subElement(parent, tagName).text(value);
+    }
+    public Node subElementCdata(Node parent, String tagName, String value) {
+        if(value == null || value.equals(""))
+            return null;
+        return subElement(parent, tagName).cData(value);
+    }
+    public Node subElement(Node parent, String tagName, int value) {
+        if(value == 0)
+            return null;
+        return subElement(parent, tagName).text(value + "");
+    }
+    public Node subElement(Node parent, String tagName, Integer value) {
+        if(value == null)
+            return null;
+        return subElement(parent, tagName).text(value + "");
+    }
+    public Node subElement(Node parent, String tagName, BigDecimal value) {
+        if(value == null)
+            return null;
+        return subElement(parent, tagName, value.toString());
+    }
+    public Node subElement(Node parent, String tagName, IStringConstant value) {
+        if(value == null)
+            return null;
+        return subElement(parent, tagName, value.getValue());
+    }
+    public Node subElement(Node parent, String tagName, IMappedConstant value) {
+        if(value == null) {
+            return null;
+        }
+        return subElement(parent, tagName, value.getValue(null));
+    }
+    public Node subElement(Node parent, String tagName, IFlag value) {
+        if(value == null)
+            return null;
+        return subElement(parent, tagName, value.toString());
+    }
+
+    /**
+     * Closes every open element and flushes the output. When writing to the internal buffer the
+     * document is returned, otherwise null.
+     */
+    public String toString(Node root) {
+        finish();
+        return buffer == null ? null : buffer.toString();
+    }
+
+    public void finish() {
+        try {
+            closeTo(null);
+            if(writer != null) {
+                writer.flush();
+            }
+            target.flush();
+        }
+        catch(IOException | XMLStreamException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    // writes a DOM element and everything beneath it, which is how ElementTree serializes its documents
+    Node copy(Node parent, org.w3c.dom.Element element) {
+        Node node = parent == null
+                ? startDocument(element.getTagName(), element.getNamespaceURI())
+                : open(parent, element.getTagName(), element.getNamespaceURI());
+
+        NamedNodeMap attributes = element.getAttributes();
+        for(int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            node.set(attribute.getName(), attribute.getValue());
+        }
+
+        for(org.w3c.dom.Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch(child.getNodeType()) {
+                case org.w3c.dom.Node.ELEMENT_NODE:
+                    copy(node, (org.w3c.dom.Element) child);
+                    break;
+                case org.w3c.dom.Node.CDATA_SECTION_NODE:
+                    node.cData(child.getNodeValue());
+                    break;
+                case org.w3c.dom.Node.TEXT_NODE:
+                    node.text(child.getNodeValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return node;
+    }
+
+    private Node startDocument(String tagName, String namespaceUri) {
+        if(writer != null) {
+            throw new IllegalStateException("The document already has a root element.");
+        }
+
+        try {
+            target.write(DECLARATION);
+            writer = OUTPUT_FACTORY.createXMLStreamWriter(target);
+        }
+        catch(IOException | XMLStreamException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return open(null, tagName, namespaceUri);
+    }
+
+    private String namespaceOf(String tagName) {
+        int colon = tagName.indexOf(':');
+        return colon < 0 ? null : namespaces.get(tagName.substring(0, colon));
+    }
+
+    private Node open(Node parent, String tagName, String namespaceUri) {
+        try {
+            if(parent != null) {
+                beginContent(parent);
+            }
+
+            Node node = new Node(tagName, namespaceUri);
+            open.add(node);
+            pending = node;
+            return node;
+        }
+        catch(XMLStreamException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    // makes the element the innermost open one and writes its start tag, ready for content
+    private void beginContent(Node node) throws XMLStreamException {
+        if(node.closed) {
+            throw new IllegalStateException(String.format("%s has already been written.", node.tagName));
+        }
+        closeTo(node);
+        if(pending == node) {
+            writeStart(node, false);
+            pending = null;
+        }
+    }
+
+    // ends the elements opened after the given one, or all of them when it is null
+    private void closeTo(Node node) throws XMLStreamException {
+        for(int i = open.size() - 1; i >= 0; i--) {
+            Node current = open.get(i);
+            if(current == node) {
+                return;
+            }
+
+            if(pending == current) {
+                writeStart(current, true);
+                pending = null;
+            }
+            else writer.writeEndElement();
+
+            current.closed = true;
+            open.remove(i);
+        }
+    }
+
+    private void writeStart(Node node, boolean empty) throws XMLStreamException {
+        boolean declare = node.prefix != null && node.namespaceUri != null && !isDeclared(node.prefix);
+        if(node.prefix != null && node.namespaceUri != null) {
+            if(empty) {
+                writer.writeEmptyElement(node.prefix, node.localName, node.namespaceUri);
+            }
+            else writer.writeStartElement(node.prefix, node.localName, node.namespaceUri);
+        }
+        else if(empty) {
+            writer.writeEmptyElement(node.tagName);
+        }
+        else writer.writeStartElement(node.tagName);
+
+        if(declare) {
+            writer.writeNamespace(node.prefix, node.namespaceUri);
+            node.declaredPrefix = node.prefix;
+        }
+
+        for(String[] attribute : node.attributes) {
+            String name = attribute[0];
+            if(name.equals("xmlns")) {
+                writer.writeDefaultNamespace(attribute[1]);
+            }
+            else if(name.startsWith("xmlns:")) {
+                writer.writeNamespace(name.substring(6), attribute[1]);
+            }
+            else writer.writeAttribute(name, attribute[1]);
+        }
+    }
+
+    private boolean isDeclared(String prefix) {
+        for(Node node : open) {
+            if(prefix.equals(node.declaredPrefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -73,4 +73,31 @@ public class CardMaskTests {
 		assertNotNull(result);
 		assertEquals(expected, result);
 	}
+
+	@Test
+	public void MaskEveryCardNumber() {
+		String request = "{\"card\":{\"number\":\"4111111111111111\"},\"payer\":{\"card\":{\"number\":\"5425 2300 0000 4415\"}},\"reference\":\"4111111111111111\"}";
+		String result = StringUtils.mask(request);
+		assertEquals("{\"card\":{\"number\":\"411111XXXXXX1111\"},\"payer\":{\"card\":{\"number\":\"542523XXXXXX4415\"}},\"reference\":\"411111XXXXXX1111\"}", result);
+	}
+
+	@Test
+	public void MaskTrackOneWithoutTrackTwo() {
+		String result = StringUtils.mask("<TrackData method=\"swipe\">%B5473500000000014^MC TEST CARD^251210199998888?</TrackData>");
+		assertEquals("<TrackData method=\"swipe\">%B547350XXXXXX0014^MC TEST CARD^251210199998888?</TrackData>", result);
+	}
+
+	@Test
+	public void MaskSecurityCodes() {
+		assertEquals("<ManualEntry><CVV2>XXX</CVV2></ManualEntry>", StringUtils.mask("<ManualEntry><CVV2>123</CVV2></ManualEntry>"));
+		assertEquals("<cvn><number>XXX</number><presind>1</presind></cvn>", StringUtils.mask("<cvn><number>123</number><presind>1</presind></cvn>"));
+		assertEquals("{\"cvv\": \"XXXX\",\"cvv_indicator\":\"PRESENT\"}", StringUtils.mask("{\"cvv\": \"1234\",\"cvv_indicator\":\"PRESENT\"}"));
+		assertEquals("{\"cvv\":XXX}", StringUtils.mask("{\"cvv\":123}"));
+	}
+
+	@Test
+	public void UnmaskedValueIsReturnedAsIs() {
+		String value = "<request timestamp=\"20180523030836\"><orderid>7C-8YKN9QYSIK</orderid><amount>1500</amount><CVVRsltCode>M</CVVRsltCode></request>";
+		assertTrue(value == StringUtils.mask(value));
+	}
 }
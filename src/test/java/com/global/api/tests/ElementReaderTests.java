@@ -0,0 +1,182 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.TransactionSummaryList;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.serviceConfigs.PorticoConfig;
+import com.global.api.services.ReportingService;
+import com.global.api.utils.Element;
+import com.global.api.utils.ElementReader;
+import com.global.api.utils.ElementTree;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ElementReaderTests {
+    // the lookups PorticoConnector makes for each transaction summary
+    private static final String[] SUMMARY_TAGS = {
+            "AcctDataSrc", "Amt", "AuthCode", "AuthAmt", "BatchCloseDT", "BatchSeqNbr", "CaptureAmtInfo", "CardSwiped",
+            "CardType", "CAVVResultCode", "ClerkID", "ClientTxnId", "Company", "ConvenienceAmtInfo", "CustomerFirstname",
+            "CustomerID", "CustomerLastname", "DebtRepaymentIndicator", "Description", "EMVChipCondition", "EMVIssuerResp",
+            "FraudInfoRule", "FullyCapturedInd", "GatewayRspCode", "GatewayRspMsg", "GiftCurrency", "GratuityAmtInfo",
+            "HasEMVTag", "HasEComPaymentData", "InvoiceNbr", "IssuerRspCode", "RspCode", "IssuerRspText", "RspText",
+            "IssTxnId", "GiftMaskedAlias", "MaskedCardNbr", "OneTime", "OriginalGatewayTxnId", "PaymentMethodKey",
+            "PaymentType", "CardHolderPONbr", "RecurringDataCode", "RefNbr", "RspDT", "ScheduleID", "ServiceName",
+            "SettlementAmt", "ShippingAmtInfo", "Status", "TxnStatus", "SurchargeAmtInfo", "TaxType", "TokenPANLast4",
+            "TxnUtcDT", "ReqUtcDT", "TxnDescriptor", "GatewayTxnId", "UniqueDeviceId", "UserName", "CardHolderFirstName",
+            "CardHolderLastName", "CardHolderAddr", "CardHolderCity", "CardHolderState", "CardHolderZip"
+    };
+
+    private HttpServer server;
+    private PooledHttpTransport transport;
+    private volatile String response;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/xml; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        transport = new PooledHttpTransport(new SSLSocketFactoryEx(), 2, 2, 30000);
+
+        PorticoConfig config = new PorticoConfig();
+        config.setSecretApiKey("skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w");
+        config.setServiceUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setHttpTransport(transport);
+        ServicesContainer.configureService(config, "reports");
+    }
+
+    @After
+    public void stopServer() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void recordsMatchDomLookups() throws Exception {
+        String xml = findTransactionsResponse(4, "00", "Success");
+        List<Element> rows = new ArrayList<>();
+        for (Element row : ElementTree.parse(xml).get("FindTransactions").getAll("Transactions")) {
+            rows.add(row);
+        }
+        final List<ElementReader> records = new ArrayList<>();
+        ElementReader.read(xml, "FindTransactions", "Transactions", new ElementReader.IRecordHandler() {
+            public void record(ElementReader record) {
+                records.add(record);
+            }
+        });
+
+        assertEquals(rows.size(), records.size());
+        for (int i = 0; i < rows.size(); i++) {
+            for (String tag : SUMMARY_TAGS) {
+                assertEquals(tag + " of row " + i, rows.get(i).getString(tag), records.get(i).getString(tag));
+            }
+            assertEquals(rows.get(i).has("CardHolderData"), records.get(i).has("CardHolderData"));
+            assertEquals(rows.get(i).getDateTime("TxnUtcDT", "ReqUtcDT"), records.get(i).getDateTime("TxnUtcDT", "ReqUtcDT"));
+            assertEquals(rows.get(i).getDecimal("Amt"), records.get(i).getDecimal("Amt"));
+        }
+    }
+
+    @Test
+    public void findTransactionsIsMapped() throws Exception {
+        response = findTransactionsResponse(3, "0", "Success");
+
+        TransactionSummaryList summaries = ReportingService.findTransactions().execute("reports");
+        assertEquals(3, summaries.size());
+
+        TransactionSummary second = summaries.get(1);
+        assertEquals("1000001", second.getTransactionId());
+        assertEquals(new BigDecimal("11.00"), second.getAmount());
+        assertEquals("CreditSale", second.getServiceName());
+        assertEquals("John", second.getCardHolderFirstName());
+        assertEquals("75024", second.getBillingAddress().getPostalCode());
+        // header values still reach every row
+        assertEquals("00", second.getGatewayResponseCode());
+        // a tag missing from this row falls back to the one seen first, as with the DOM
+        assertEquals("APPROVAL", summaries.get(1).getIssuerResponseMessage());
+    }
+
+    @Test
+    public void transactionDetailIsMapped() throws Exception {
+        response = envelope("00", "Success", "<ReportTxnDetail><GatewayTxnId>1234</GatewayTxnId><ServiceName>CreditSale</ServiceName>"
+                + "<Data><Amt>15.00</Amt><TxnStatus>A</TxnStatus></Data></ReportTxnDetail>");
+
+        TransactionSummary summary = ReportingService.transactionDetail("1234").execute("reports");
+        assertEquals("1234", summary.getTransactionId());
+        assertEquals(new BigDecimal("15.00"), summary.getAmount());
+        assertEquals("A", summary.getTransactionStatus());
+    }
+
+    @Test
+    public void gatewayErrorIsThrown() throws Exception {
+        response = envelope("-2", "Authentication Error", "");
+        try {
+            ReportingService.findTransactions().execute("reports");
+            fail("Expected a GatewayException");
+        }
+        catch (GatewayException exc) {
+            assertEquals("-2", exc.getResponseCode());
+        }
+    }
+
+    private static String findTransactionsResponse(int rows, String code, String message) {
+        StringBuilder sb = new StringBuilder("<FindTransactions>");
+        for (int i = 0; i < rows; i++) {
+            sb.append("<Transactions>")
+                    .append("<GatewayTxnId>").append(1000000 + i).append("</GatewayTxnId>")
+                    .append("<OriginalGatewayTxnId>0</OriginalGatewayTxnId>")
+                    .append("<ServiceName>CreditSale</ServiceName>")
+                    .append("<TxnStatus>A</TxnStatus>")
+                    .append("<Amt>").append(10 + i % 90).append(".00</Amt>")
+                    .append("<AuthAmt>").append(10 + i % 90).append(".00</AuthAmt>")
+                    .append("<CardType>Visa</CardType>")
+                    .append("<MaskedCardNbr>411111******1111</MaskedCardNbr>")
+                    .append("<AuthCode>12345A</AuthCode>")
+                    .append("<RspCode>00</RspCode>");
+            if (i % 2 == 0) {
+                sb.append("<RspText>APPROVAL</RspText>");
+            }
+            sb.append("<TxnUtcDT>2021-10-14T15:15:00.123Z</TxnUtcDT>")
+                    .append("<UserName>admin</UserName>")
+                    .append("<CardHolderData><CardHolderFirstName>John</CardHolderFirstName><CardHolderLastName>Doe</CardHolderLastName>")
+                    .append("<CardHolderAddr>6860 Dallas Pkwy</CardHolderAddr><CardHolderZip>75024</CardHolderZip></CardHolderData>")
+                    .append("</Transactions>");
+        }
+        return envelope(code, message, sb.append("</FindTransactions>").toString());
+    }
+
+    private static String envelope(String code, String message, String transaction) {
+        return "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+                + "<PosResponse rootUrl=\"https://cert.api2.heartlandportico.com/Hps.Exchange.PosGateway\" xmlns=\"http://Hps.Exchange.PosGateway\">"
+                + "<Ver1.0><Header><LicenseId>12345</LicenseId><SiteId>12345</SiteId><DeviceId>1234567</DeviceId>"
+                + "<GatewayTxnId>999</GatewayTxnId><GatewayRspCode>" + code + "</GatewayRspCode><GatewayRspMsg>" + message + "</GatewayRspMsg>"
+                + "<RspDT>2021-10-14T10:15:00.123</RspDT></Header>"
+                + "<Transaction>" + transaction + "</Transaction></Ver1.0></PosResponse></soap:Body></soap:Envelope>";
+    }
+}
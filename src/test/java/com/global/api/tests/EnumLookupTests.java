@@ -0,0 +1,101 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.entities.enums.IByteConstant;
+import com.global.api.entities.enums.INumericConstant;
+import com.global.api.entities.enums.PaxMsgId;
+import com.global.api.network.enums.DE48_CardType;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.terminals.pax.responses.BatchCloseResponse;
+import com.global.api.utils.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EnumLookupTests {
+    private enum WideNumericConstant implements INumericConstant {
+        Negative(-5),
+        Small(3),
+        Large(250000),
+        Duplicate(3);
+
+        private final int value;
+        WideNumericConstant(int value) { this.value = value; }
+        public int getValue() { return value; }
+    }
+
+    @Test
+    public void byteLookupsMatchHashMap() {
+        for (int b = Byte.MIN_VALUE; b <= Byte.MAX_VALUE; b++) {
+            assertEquals(legacyParse(ControlCodes.class, (byte) b), EnumUtils.parse(ControlCodes.class, (byte) b));
+        }
+        assertSame(ReverseByteEnumMap.of(ControlCodes.class), ReverseByteEnumMap.of(ControlCodes.class));
+    }
+
+    @Test
+    public void intLookupsMatchHashMap() {
+        for (int i = -10; i < 300; i++) {
+            assertEquals(legacyParse(DataElementId.class, i), EnumUtils.parse(DataElementId.class, i));
+        }
+
+        int[] values = { -6, -5, 0, 3, 4, 250000, 250001, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for (int value : values) {
+            assertEquals(legacyParse(WideNumericConstant.class, value), EnumUtils.parse(WideNumericConstant.class, value));
+        }
+        // like the HashMap it replaced, the last constant with a value wins
+        assertEquals(WideNumericConstant.Duplicate, EnumUtils.parse(WideNumericConstant.class, 3));
+    }
+
+    @Test
+    public void stringLookupsMatchHashMap() {
+        for (DE48_CardType type : DE48_CardType.values()) {
+            assertSame(type, ReverseStringEnumMap.parse(type.getValue(), DE48_CardType.class));
+        }
+        assertNull(ReverseStringEnumMap.parse("??", DE48_CardType.class));
+        assertNull(ReverseStringEnumMap.parse(null, DE48_CardType.class));
+        assertEquals(PaxMsgId.B01_RSP_BATCH_CLOSE, EnumUtils.parse(PaxMsgId.class, "B01"));
+    }
+
+    @Test
+    public void paxBatchCloseParses() throws Exception {
+        BatchCloseResponse response = new BatchCloseResponse(batchCloseFrame());
+        assertEquals("OK", response.getDeviceResponseText());
+        assertEquals("000123", response.getBatchNumber());
+        assertEquals("3=12", response.getTotalCount());
+        assertEquals("MID1234", response.getMid());
+    }
+
+    private byte[] batchCloseFrame() {
+        String body = "0\u001CB01\u001C1.45\u001C000000\u001COK\u001C"
+                + "000000\u001FOK\u001F\u001FREF123\u001F000456\u001F000123\u001C"
+                + "3=12\u001C3=2500\u001C20211014101500\u001CTID01\u001CMID1234";
+
+        MessageWriter mw = new MessageWriter();
+        mw.add(ControlCodes.STX);
+        mw.addRange(body.getBytes());
+        mw.add(ControlCodes.ETX);
+        mw.add(TerminalUtilities.calculateLRC(mw.toArray()));
+        return mw.toArray();
+    }
+
+    // what EnumUtils.parse did before the lookup tables were shared
+    private <V extends Enum<V> & IByteConstant> V legacyParse(Class<V> valueType, byte value) {
+        Map<Byte, V> map = new HashMap<>();
+        for (V v : valueType.getEnumConstants()) {
+            map.put(v.getByte(), v);
+        }
+        return map.get(value);
+    }
+
+    private <V extends Enum<V> & INumericConstant> V legacyParse(Class<V> valueType, int value) {
+        Map<Integer, V> map = new HashMap<>();
+        for (V v : valueType.getEnumConstants()) {
+            map.put(v.getValue(), v);
+        }
+        return map.get(value);
+    }
+}
@@ -0,0 +1,151 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.entities.gpApi.entities.AccessTokenInfo;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.services.ReportingService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ExecuteAsyncTests {
+    private static final String REPORT = "{\"transactions\":[{\"id\":\"TRN_1\",\"amount\":\"1000\",\"currency\":\"USD\"}]," +
+            "\"total_record_count\":1,\"current_page_size\":1,\"paging\":{\"page_size\":10,\"page\":1}}";
+
+    private HttpServer server;
+    private PooledHttpTransport transport;
+    private ExecutorService executor;
+    private volatile CountDownLatch taskFinished;
+    private volatile long delay;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+
+                // GP-API responses are always gzipped
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = new GZIPOutputStream(exchange.getResponseBody());
+                out.write(REPORT.getBytes(StandardCharsets.UTF_8));
+                out.close();
+            }
+        });
+        server.start();
+
+        transport = new PooledHttpTransport(new SSLSocketFactoryEx(), 4, 4, 30000);
+
+        GpApiConfig config = new GpApiConfig();
+        config.setServiceUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setAccessTokenInfo(new AccessTokenInfo().setAccessToken("token"));
+        config.setHttpTransport(transport);
+        ServicesContainer.configureService(config, "async");
+
+        // records when each call really finished on its worker thread, not just when its future completed
+        taskFinished = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newCachedThreadPool();
+        executor = pool;
+        ServicesContainer.setAsyncExecutor(new Executor() {
+            public void execute(final Runnable command) {
+                pool.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            command.run();
+                        }
+                        finally {
+                            taskFinished.countDown();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @After
+    public void stopServer() {
+        ServicesContainer.setAsyncExecutor(null);
+        executor.shutdownNow();
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void executeAsyncReturnsResult() throws Exception {
+        CompletableFuture<TransactionSummaryPaged> future = ReportingService.findTransactionsPaged(1, 10).executeAsync("async");
+
+        TransactionSummaryPaged result = future.get(10, TimeUnit.SECONDS);
+        assertEquals(1, result.getResults().size());
+        assertEquals("TRN_1", result.getResults().get(0).getTransactionId());
+    }
+
+    @Test
+    public void validationFailureCompletesExceptionally() throws Exception {
+        CreditCardData card = new CreditCardData();
+        card.setNumber("4111111111111111");
+
+        try {
+            card.charge().executeAsync("async").get(10, TimeUnit.SECONDS);
+            fail("Expected a BuilderException");
+        }
+        catch (ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof BuilderException);
+        }
+    }
+
+    @Test
+    public void deadlineAbortsSlowGatewayCall() throws Exception {
+        delay = 5000;
+
+        long start = System.nanoTime();
+        CompletableFuture<TransactionSummaryPaged> future = ReportingService.findTransactionsPaged(1, 10).executeAsync("async", 300);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected a GatewayTimeoutException");
+        }
+        catch (ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof GatewayTimeoutException);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+
+        // the socket read was cut short rather than left waiting on the host
+        assertTrue(taskFinished.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelAbortsGatewayCall() throws Exception {
+        delay = 5000;
+
+        CompletableFuture<TransactionSummaryPaged> future = ReportingService.findTransactionsPaged(1, 10).executeAsync("async");
+        Thread.sleep(300);
+        assertTrue(future.cancel(true));
+
+        assertTrue(future.isCancelled());
+        assertTrue(taskFinished.await(2, TimeUnit.SECONDS));
+    }
+}
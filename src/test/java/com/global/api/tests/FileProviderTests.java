@@ -0,0 +1,270 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.PaymentMethodType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.BatchFullException;
+import com.global.api.utils.FileBatchProvider;
+import com.global.api.utils.FileStanProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class FileProviderTests {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("providers").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void stansWrapAndSkipTheReservedBlockOnRestart() throws IOException {
+        File file = new File(directory, "stan.dat");
+        FileStanProvider provider = new FileStanProvider(file, 10, 4);
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, provider.generateStan());
+        }
+        assertEquals(1, provider.generateStan());
+        // 11 of the 12 reserved were handed out
+        provider.close();
+
+        FileStanProvider restarted = new FileStanProvider(file, 10, 4);
+        assertEquals(3, restarted.generateStan());
+        restarted.close();
+    }
+
+    @Test
+    public void terminalsHaveTheirOwnStans() throws IOException {
+        FileStanProvider first = FileStanProvider.forTerminal(directory, "0001");
+        FileStanProvider second = FileStanProvider.forTerminal(directory, "0002");
+        assertEquals(1, first.generateStan());
+        assertEquals(2, first.generateStan());
+        assertEquals(1, second.generateStan());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void concurrentStansAreUnique() throws Exception {
+        final FileStanProvider provider = new FileStanProvider(new File(directory, "stan.dat"), FileStanProvider.DEFAULT_MAX_STAN, 100);
+        final Set<Integer> stans = ConcurrentHashMap.newKeySet();
+        runThreads(8, new Callable<Void>() {
+            public Void call() {
+                for (int i = 0; i < 5000; i++) {
+                    stans.add(provider.generateStan());
+                }
+                return null;
+            }
+        });
+        assertEquals(40000, stans.size());
+        assertEquals(40001, provider.generateStan());
+        provider.close();
+    }
+
+    @Test
+    public void batchTotalsSurviveRestart() throws Exception {
+        File file = new File(directory, "batch.dat");
+        FileBatchProvider provider = new FileBatchProvider(file);
+        assertEquals(1, provider.getSequenceNumber());
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), "request|1");
+        assertEquals(2, provider.getSequenceNumber());
+        provider.reportDataCollect(TransactionType.Refund, PaymentMethodType.Credit, new BigDecimal("2.50"), "request|2");
+        provider.reportDataCollect(TransactionType.Reversal, PaymentMethodType.Credit, new BigDecimal("1"), null);
+        provider.close();
+
+        FileBatchProvider restarted = new FileBatchProvider(file);
+        assertEquals(1, restarted.getBatchNumber());
+        assertEquals(3, restarted.getTransactionCount());
+        assertEquals(new BigDecimal("9.00"), restarted.getTotalDebits());
+        assertEquals(new BigDecimal("2.50"), restarted.getTotalCredits());
+        assertEquals(Arrays.asList("request|1", "request|2"), restarted.getEncodedRequests());
+        assertEquals(3, restarted.getSequenceNumber());
+
+        restarted.closeBatch(true);
+        assertEquals(2, restarted.getBatchNumber());
+        assertEquals(0, restarted.getTransactionCount());
+        assertEquals(1, restarted.getSequenceNumber());
+        restarted.close();
+
+        FileBatchProvider afterClose = new FileBatchProvider(file);
+        assertEquals(2, afterClose.getBatchNumber());
+        assertEquals(0, afterClose.getTransactionCount());
+        assertEquals(new BigDecimal("0.00"), afterClose.getTotalDebits());
+        assertTrue(afterClose.getEncodedRequests().isEmpty());
+        assertEquals(2, afterClose.getSequenceNumber());
+        afterClose.close();
+    }
+
+    @Test
+    public void fullBatchIsReported() throws Exception {
+        FileBatchProvider provider = new FileBatchProvider(new File(directory, "batch.dat"), 3);
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, provider.getSequenceNumber());
+        }
+        try {
+            provider.getSequenceNumber();
+            fail("Expected the batch to be full");
+        }
+        catch (BatchFullException exc) {
+            // expected
+        }
+
+        provider.closeBatch(true);
+        assertEquals(1, provider.getSequenceNumber());
+        provider.close();
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws Exception {
+        File file = new File(directory, "batch.dat");
+        FileBatchProvider provider = new FileBatchProvider(file);
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Debit, new BigDecimal("5.00"), "request");
+        provider.close();
+        long length = file.length();
+
+        // a crash part way through the next record
+        Files.write(file.toPath(), "1f2e3d4c|D|700|0|requ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileBatchProvider restarted = new FileBatchProvider(file);
+        assertEquals(1, restarted.getTransactionCount());
+        assertEquals(new BigDecimal("5.00"), restarted.getTotalDebits());
+        assertEquals(length, file.length());
+
+        restarted.reportDataCollect(TransactionType.Sale, PaymentMethodType.Debit, new BigDecimal("1.25"), "next");
+        restarted.close();
+        assertEquals(new BigDecimal("6.25"), new FileBatchProvider(file).getTotalDebits());
+    }
+
+    @Test
+    public void requestsWithLineBreaksAreReplayed() throws Exception {
+        File file = new File(directory, "batch.dat");
+        // a VAPS request ends with its LRC, which can be 0x0A
+        String lrcNewline = "\u00021200|SALE|4111111111111111\u0003\n";
+        String embedded = "line one\r\nline two|\u00e9";
+
+        FileBatchProvider provider = new FileBatchProvider(file);
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("10.00"), lrcNewline);
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("5.00"), embedded);
+        provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.00"), "last");
+        provider.close();
+        long length = file.length();
+
+        FileBatchProvider restarted = new FileBatchProvider(file);
+        assertEquals(3, restarted.getTransactionCount());
+        assertEquals(new BigDecimal("16.00"), restarted.getTotalDebits());
+        assertEquals(Arrays.asList(lrcNewline, embedded, "last"), restarted.getEncodedRequests());
+        assertEquals(length, file.length());
+        restarted.close();
+    }
+
+    @Test
+    public void concurrentDataCollectsAddUp() throws Exception {
+        final FileBatchProvider provider = new FileBatchProvider(new File(directory, "batch.dat"), 100000);
+        final Set<Integer> sequenceNumbers = ConcurrentHashMap.newKeySet();
+        runThreads(8, new Callable<Void>() {
+            public Void call() throws Exception {
+                for (int i = 0; i < 250; i++) {
+                    sequenceNumbers.add(provider.getSequenceNumber());
+                    provider.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.01"), "request");
+                }
+                return null;
+            }
+        });
+        assertEquals(2000, sequenceNumbers.size());
+        assertEquals(2000, provider.getTransactionCount());
+        assertEquals(new BigDecimal("2020.00"), provider.getTotalDebits());
+        provider.close();
+    }
+
+    @Test
+    public void recoversFromAKilledProcess() throws Exception {
+        File stanFile = new File(directory, "stan.dat");
+        File batchFile = new File(directory, "batch.dat");
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"), CrashingTerminal.class.getName(), stanFile.getPath(), batchFile.getPath())
+                .redirectErrorStream(true)
+                .start();
+
+        // each line is written once the STAN and the data collect have both returned
+        int lastStan = 0;
+        int lastCount = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                lastStan = Integer.parseInt(fields[0]);
+                lastCount = Integer.parseInt(fields[1]);
+                if (lastCount >= 300) {
+                    break;
+                }
+            }
+        }
+        finally {
+            process.destroyForcibly();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+        assertTrue("The terminal process didn't get going", lastCount >= 300);
+
+        FileStanProvider stans = new FileStanProvider(stanFile);
+        assertTrue(stans.generateStan() > lastStan);
+        stans.close();
+
+        FileBatchProvider batch = new FileBatchProvider(batchFile);
+        assertTrue(batch.getTransactionCount() >= lastCount);
+        assertEquals(BigDecimal.valueOf(batch.getTransactionCount() * 199L, 2), batch.getTotalDebits());
+        assertEquals(batch.getTransactionCount(), batch.getEncodedRequests().size());
+        batch.close();
+    }
+
+    private static void runThreads(int threads, Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(task));
+            }
+            for (Future<Void> result : results) {
+                result.get(120, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // run in a separate JVM by recoversFromAKilledProcess, processing until it is killed
+    public static class CrashingTerminal {
+        public static void main(String[] args) throws Exception {
+            FileStanProvider stans = new FileStanProvider(new File(args[0]), FileStanProvider.DEFAULT_MAX_STAN, 50);
+            FileBatchProvider batch = new FileBatchProvider(new File(args[1]), 1000000);
+            PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+            for (int count = 1; ; count++) {
+                int stan = stans.generateStan();
+                batch.reportDataCollect(TransactionType.Sale, PaymentMethodType.Credit, new BigDecimal("1.99"), "request-" + stan);
+                out.println(stan + "," + count);
+            }
+        }
+    }
+}
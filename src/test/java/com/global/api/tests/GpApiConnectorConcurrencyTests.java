@@ -0,0 +1,109 @@
+package com.global.api.tests;
+
+import com.global.api.entities.gpApi.GpApiRequest;
+import com.global.api.entities.gpApi.entities.AccessTokenInfo;
+import com.global.api.gateways.GpApiConnector;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.utils.JsonDoc;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class GpApiConnectorConcurrencyTests {
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 50;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private PooledHttpTransport transport;
+    private GpApiConnector connector;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            // echo the per-request headers so the caller can check it received its own
+            String body = String.format("{\"idempotency\":\"%s\",\"authorization\":\"%s\"}",
+                    exchange.getRequestHeaders().getFirst("x-gp-idempotency"),
+                    exchange.getRequestHeaders().getFirst("Authorization"));
+
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = new GZIPOutputStream(exchange.getResponseBody());
+            out.write(body.getBytes());
+            out.close();
+        });
+        server.start();
+
+        GpApiConfig config = new GpApiConfig();
+        config.setAccessTokenInfo(new AccessTokenInfo().setAccessToken("token"));
+
+        transport = new PooledHttpTransport(new SSLSocketFactoryEx(), THREADS, THREADS, 30000);
+        connector = new GpApiConnector(config);
+        connector.setServiceUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        connector.setTimeout(5000);
+        connector.setHttpTransport(transport);
+    }
+
+    @After
+    public void tearDown() {
+        transport.close();
+        server.stop(0);
+        serverExecutor.shutdown();
+    }
+
+    @Test
+    public void sharedConnectorKeepsRequestHeadersApart() throws Exception {
+        final AtomicInteger mismatches = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                        String key = thread + "-" + i;
+                        String rawResponse = connector.doTransaction(GpApiRequest.HttpMethod.Post, "/transactions", "{}", null, key);
+
+                        JsonDoc response = JsonDoc.parse(rawResponse);
+                        if (!key.equals(response.getString("idempotency")) || !"Bearer token".equals(response.getString("authorization"))) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void requestWithoutIdempotencyKeyDoesNotInheritOne() throws Exception {
+        connector.doTransaction(GpApiRequest.HttpMethod.Post, "/transactions", "{}", null, "first");
+        String rawResponse = connector.doTransaction(GpApiRequest.HttpMethod.Post, "/transactions", "{}", null, null);
+
+        assertEquals("null", JsonDoc.parse(rawResponse).getString("idempotency"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ReportType;
+import com.global.api.entities.gpApi.entities.AccessTokenInfo;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.gateways.GpApiConnector;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.mapping.GpApiMapping;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.services.ReportingService;
+import com.global.api.utils.JsonDoc;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class GpApiReportStreamingTests {
+    private static final int ROWS = 10000;
+
+    @Test
+    public void parseReaderMatchesParseString() throws Exception {
+        String json = "{\"id\":\"TRN_1\",\"amount\":1000,\"rate\":1.50,\"approved\":true,\"missing\":null," +
+                "\"card\":{\"brand\":\"VISA\",\"tags\":[]},\"methods\":[\"CARD\",\"APM\"]," +
+                "\"actions\":[{\"id\":\"ACT_1\"},{\"id\":\"ACT_2\",\"nested\":{\"flags\":[1,2]}}]}";
+
+        JsonDoc fromString = JsonDoc.parse(json);
+        JsonDoc fromReader = JsonDoc.parse(new StringReader(json));
+
+        assertEquals(fromString.toString(), fromReader.toString());
+        assertEquals("1.50", fromReader.getString("rate"));
+        assertEquals("true", fromReader.getString("approved"));
+        assertFalse(fromReader.has("missing"));
+        assertEquals(2, fromReader.getEnumerator("actions").size());
+        assertEquals(2, fromReader.getStringArrayList("methods").size());
+    }
+
+    @Test
+    public void parseReaderReturnsNullForEmptyBody() throws Exception {
+        assertNull(JsonDoc.parse(new StringReader("")));
+    }
+
+    @Test
+    public void streamingMapsTheSameReportAsStringParsing() throws Exception {
+        byte[] compressed = gzip(buildReport(ROWS));
+
+        TransactionSummaryPaged legacy = mapLegacy(compressed);
+        TransactionSummaryPaged streamed = mapStreaming(compressed);
+
+        assertEquals(ROWS, streamed.getResults().size());
+        assertEquals(legacy.getTotalRecordCount(), streamed.getTotalRecordCount());
+        for (int i = 0; i < ROWS; i += 997) {
+            assertEquals(legacy.getResults().get(i).getTransactionId(), streamed.getResults().get(i).getTransactionId());
+            assertEquals(legacy.getResults().get(i).getReferenceNumber(), streamed.getResults().get(i).getReferenceNumber());
+            assertEquals(legacy.getResults().get(i).getMaskedCardNumber(), streamed.getResults().get(i).getMaskedCardNumber());
+        }
+    }
+
+    @Test
+    public void processReportStreamsLargePage() throws Exception {
+        final byte[] compressed = gzip(buildReport(ROWS));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(compressed);
+            out.close();
+        });
+        server.start();
+
+        PooledHttpTransport transport = new PooledHttpTransport(new SSLSocketFactoryEx(), 2, 2, 30000);
+        try {
+            GpApiConfig config = new GpApiConfig();
+            config.setAccessTokenInfo(new AccessTokenInfo().setAccessToken("token"));
+
+            GpApiConnector connector = new GpApiConnector(config);
+            connector.setServiceUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            connector.setTimeout(30000);
+            connector.setHttpTransport(transport);
+
+            TransactionSummaryPaged result = connector.processReport(ReportingService.findTransactionsPaged(1, ROWS), TransactionSummaryPaged.class);
+
+            assertEquals(ROWS, result.getResults().size());
+            assertEquals(ROWS, result.getTotalRecordCount());
+            assertEquals("TRN_9999", result.getResults().get(ROWS - 1).getTransactionId());
+            assertEquals("411111XXXXXX1111", result.getResults().get(0).getMaskedCardNumber());
+        }
+        finally {
+            transport.close();
+            server.stop(0);
+        }
+    }
+
+    // what Gateway.getRawResponse and GpApiMapping did before the streaming path
+    private TransactionSummaryPaged mapLegacy(byte[] compressed) throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        StringBuilder decompressedResponse = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            decompressedResponse.append(line);
+        }
+        return GpApiMapping.mapReportResponse(decompressedResponse.toString(), ReportType.FindTransactionsPaged);
+    }
+
+    private TransactionSummaryPaged mapStreaming(byte[] compressed) throws Exception {
+        Reader in = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8);
+        return GpApiMapping.mapReportResponse(JsonDoc.parse(in), ReportType.FindTransactionsPaged);
+    }
+
+    private String buildReport(int rows) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"transactions\": [\n");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            sb.append("    {\"id\":\"TRN_").append(i).append("\",\"time_created\":\"2021-04-01T10:00:00.000Z\",")
+                    .append("\"type\":\"SALE\",\"status\":\"CAPTURED\",\"channel\":\"CNP\",\"amount\":\"1000\",")
+                    .append("\"currency\":\"USD\",\"reference\":\"ref-").append(i).append("\",\"country\":\"US\",\"batch_id\":\"BAT_1\",")
+                    .append("\"payment_method\":{\"message\":\"SUCCESS\",\"entry_mode\":\"ECOM\",\"name\":\"James Mason\",")
+                    .append("\"card\":{\"brand\":\"VISA\",\"authcode\":\"12345\",\"masked_number_first6last4\":\"411111XXXXXX1111\"}},")
+                    .append("\"system\":{\"mid\":\"101023947262\",\"name\":\"Sandbox Merchant\"}}");
+        }
+        sb.append("\n  ],\n  \"total_record_count\": ").append(rows)
+                .append(",\n  \"current_page_size\": ").append(rows)
+                .append(",\n  \"paging\": {\"page_size\": ").append(rows).append(", \"page\": 1, \"order\": \"DESC\", \"order_by\": \"TIME_CREATED\"}\n}");
+        return sb.toString();
+    }
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,167 @@
+package com.global.api.tests;
+
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.gpApi.GpApiTokenResponse;
+import com.global.api.gateways.GpApiTokenManager;
+import com.global.api.serviceConfigs.GpApiConfig;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GpApiTokenManagerTests {
+    private static class CountingSource implements GpApiTokenManager.ITokenSource {
+        private final AtomicInteger requests = new AtomicInteger();
+        private final int secondsToExpire;
+        private final long delay;
+
+        CountingSource(int secondsToExpire, long delay) {
+            this.secondsToExpire = secondsToExpire;
+            this.delay = delay;
+        }
+
+        public GpApiTokenResponse requestToken() throws GatewayException {
+            int request = requests.incrementAndGet();
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException exc) {
+                throw new GatewayException("Interrupted", exc);
+            }
+            return new GpApiTokenResponse(String.format("{\"token\":\"token%s\",\"seconds_to_expire\":%s}", request, secondsToExpire));
+        }
+    }
+
+    @Test
+    public void concurrentSignInsShareOneRequest() throws Exception {
+        final GpApiTokenManager manager = new GpApiTokenManager(0);
+        final CountingSource source = new CountingSource(600, 200);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            tokens.add(executor.submit(new Callable<String>() {
+                public String call() throws Exception {
+                    return manager.getToken(source).getToken();
+                }
+            }));
+        }
+
+        for (Future<String> token : tokens) {
+            assertEquals("token1", token.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, source.requests.get());
+    }
+
+    @Test
+    public void tokenNearExpiryIsRenewedInBackground() throws Exception {
+        GpApiTokenManager manager = new GpApiTokenManager(0);
+        CountingSource source = new CountingSource(4, 0);
+
+        assertEquals("token1", manager.getToken(source).getToken());
+
+        // past the refresh point, which is half way through a short lived token, but not yet expired
+        Thread.sleep(2300);
+        assertEquals("token1", manager.getToken(source).getToken());
+
+        while (source.requests.get() < 2) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        assertEquals("token2", manager.getToken(source).getToken());
+        assertEquals(2, source.requests.get());
+    }
+
+    @Test
+    public void expiredTokenIsReplacedBeforeUse() throws Exception {
+        GpApiTokenManager manager = new GpApiTokenManager(0);
+        CountingSource source = new CountingSource(1, 0);
+
+        assertEquals("token1", manager.getToken(source).getToken());
+        Thread.sleep(800);
+        assertEquals("token2", manager.getToken(source).getToken());
+    }
+
+    @Test
+    public void configuredLifetimeIsUsedWhenResponseHasNone() throws Exception {
+        GpApiTokenManager manager = new GpApiTokenManager(1);
+        CountingSource source = new CountingSource(0, 0);
+
+        assertEquals("token1", manager.getToken(source).getToken());
+        Thread.sleep(800);
+        assertEquals("token2", manager.getToken(source).getToken());
+    }
+
+    @Test
+    public void invalidateOnlyDropsTheRejectedToken() throws Exception {
+        GpApiTokenManager manager = new GpApiTokenManager(0);
+        CountingSource source = new CountingSource(600, 0);
+
+        assertEquals("token1", manager.getToken(source).getToken());
+
+        manager.invalidate("someOtherToken");
+        assertEquals("token1", manager.getToken(source).getToken());
+
+        manager.invalidate("token1");
+        assertEquals("token2", manager.getToken(source).getToken());
+    }
+
+    @Test
+    public void configsWithSameCredentialsShareManager() {
+        GpApiConfig first = new GpApiConfig();
+        first.setAppId("appId");
+        first.setAppKey("appKey");
+
+        GpApiConfig second = new GpApiConfig();
+        second.setAppId("appId");
+        second.setAppKey("appKey");
+
+        GpApiConfig other = new GpApiConfig();
+        other.setAppId("appId");
+        other.setAppKey("otherKey");
+
+        GpApiTokenManager manager = GpApiTokenManager.forConfig(first, "https://test");
+        GpApiTokenManager shared = GpApiTokenManager.forConfig(second, "https://test");
+        GpApiTokenManager otherKey = GpApiTokenManager.forConfig(other, "https://test");
+        GpApiTokenManager otherUrl = GpApiTokenManager.forConfig(first, "https://production");
+        try {
+            assertSame(manager, shared);
+            assertNotSame(manager, otherKey);
+            assertNotSame(manager, otherUrl);
+        } finally {
+            manager.release();
+            shared.release();
+            otherKey.release();
+            otherUrl.release();
+        }
+    }
+
+    @Test
+    public void managerIsDroppedWhenLastConnectorReleasesIt() {
+        GpApiConfig config = new GpApiConfig();
+        config.setAppId("appId");
+        config.setAppKey("released");
+
+        GpApiTokenManager first = GpApiTokenManager.forConfig(config, "https://test");
+        GpApiTokenManager second = GpApiTokenManager.forConfig(config, "https://test");
+        first.release();
+
+        // still held by the second connector
+        GpApiTokenManager third = GpApiTokenManager.forConfig(config, "https://test");
+        assertSame(first, third);
+        second.release();
+        third.release();
+
+        GpApiTokenManager fresh = GpApiTokenManager.forConfig(config, "https://test");
+        try {
+            assertNotSame(first, fresh);
+        } finally {
+            fresh.release();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.gpApi.entities.AccessTokenInfo;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.HttpPoolStats;
+import com.global.api.gateways.transport.HttpTransportRequest;
+import com.global.api.gateways.transport.HttpTransportResponse;
+import com.global.api.gateways.transport.IHttpTransport;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.serviceConfigs.GpApiConfig;
+import com.global.api.utils.IOUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HttpTransportTests {
+    private HttpServer server;
+    private Set<Integer> remotePorts;
+    private PooledHttpTransport transport;
+
+    @Before
+    public void setUp() throws Exception {
+        remotePorts = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            remotePorts.add(exchange.getRemoteAddress().getPort());
+
+            int status = exchange.getRequestURI().getPath().equals("/error") ? 400 : 200;
+            byte[] body = ("{\"verb\":\"" + exchange.getRequestMethod() + "\"}").getBytes();
+            exchange.sendResponseHeaders(status, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        });
+        server.start();
+
+        transport = new PooledHttpTransport(new SSLSocketFactoryEx(), 4, 2, 30000);
+    }
+
+    @After
+    public void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void pooledTransportReusesConnection() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            try (HttpTransportResponse response = transport.send(request("POST", "/transactions"))) {
+                assertEquals(200, response.getStatusCode());
+                assertEquals("{\"verb\":\"POST\"}", IOUtils.readFully(response.getContent()));
+            }
+        }
+
+        assertEquals(1, remotePorts.size());
+
+        HttpPoolStats stats = transport.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getIdle());
+        assertEquals(0, stats.getPending());
+        assertEquals(4, stats.getMax());
+    }
+
+    @Test
+    public void pooledTransportReturnsErrorBody() throws Exception {
+        try (HttpTransportResponse response = transport.send(request("PATCH", "/error"))) {
+            assertEquals(400, response.getStatusCode());
+            assertEquals("{\"verb\":\"PATCH\"}", IOUtils.readFully(response.getContent()));
+        }
+
+        assertEquals(0, transport.getPoolStats().getLeased());
+    }
+
+    @Test
+    public void pooledTransportConnectsThroughSocksProxy() throws Exception {
+        final AtomicInteger tunnels = new AtomicInteger();
+        final ServerSocket proxyServer = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread proxyThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        Socket socket = proxyServer.accept();
+                        tunnels.incrementAndGet();
+                        tunnel(socket);
+                    }
+                } catch (IOException exc) {
+                    // the proxy was closed
+                }
+            }
+        });
+        proxyThread.setDaemon(true);
+        proxyThread.start();
+
+        try {
+            Proxy proxy = new Proxy(Proxy.Type.SOCKS, proxyServer.getLocalSocketAddress());
+            for (int i = 0; i < 3; i++) {
+                try (HttpTransportResponse response = transport.send(request("POST", "/transactions").setProxy(proxy))) {
+                    assertEquals(200, response.getStatusCode());
+                }
+            }
+            assertEquals(1, tunnels.get());
+
+            // a direct request doesn't reuse the tunnelled connection
+            try (HttpTransportResponse response = transport.send(request("POST", "/transactions"))) {
+                assertEquals(200, response.getStatusCode());
+            }
+            assertEquals(1, tunnels.get());
+            assertEquals(2, remotePorts.size());
+        } finally {
+            proxyServer.close();
+        }
+    }
+
+    // answers a SOCKS 5 connect without authentication, then relays both ways
+    private static void tunnel(final Socket client) throws IOException {
+        DataInputStream in = new DataInputStream(client.getInputStream());
+        OutputStream out = client.getOutputStream();
+
+        // version, then the authentication methods offered
+        in.readUnsignedByte();
+        in.readFully(new byte[in.readUnsignedByte()]);
+        out.write(new byte[] { 5, 0 });
+
+        byte[] header = new byte[4];
+        in.readFully(header);
+        byte[] address = new byte[header[3] == 1 ? 4 : header[3] == 4 ? 16 : in.readUnsignedByte()];
+        in.readFully(address);
+        int port = in.readUnsignedShort();
+        InetAddress host = header[3] == 3 ? InetAddress.getByName(new String(address)) : InetAddress.getByAddress(address);
+
+        final Socket target = new Socket(host, port);
+        out.write(new byte[] { 5, 0, 0, 1, 0, 0, 0, 0, 0, 0 });
+        out.flush();
+
+        relay(target.getInputStream(), out);
+        relay(in, target.getOutputStream());
+    }
+
+    private static void relay(final InputStream from, final OutputStream to) {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                byte[] buffer = new byte[4096];
+                try {
+                    int count;
+                    while ((count = from.read(buffer)) != -1) {
+                        to.write(buffer, 0, count);
+                        to.flush();
+                    }
+                } catch (IOException exc) {
+                    // either side closed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Test
+    public void configurationBuildsOnePoolAndClosesIt() throws Exception {
+        final GpApiConfig config = new GpApiConfig();
+        config.setAccessTokenInfo(new AccessTokenInfo().setAccessToken("token"));
+        config.setUseConnectionPooling(true);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<IHttpTransport>> results = new ArrayList<Future<IHttpTransport>>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<IHttpTransport>() {
+                    public IHttpTransport call() throws Exception {
+                        start.await();
+                        return config.getHttpTransport();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<IHttpTransport> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        PooledHttpTransport pool = (PooledHttpTransport) config.getHttpTransport();
+        ServicesContainer.configureService(config, "pooled");
+        ServicesContainer.configureService(config, "pooled-copy");
+        ServicesContainer.configureService(null, "pooled");
+        assertFalse(pool.isClosed());
+        ServicesContainer.configureService(null, "pooled-copy");
+        assertTrue(pool.isClosed());
+
+        // added again, the configuration builds a new pool
+        ServicesContainer.configureService(config, "pooled");
+        try {
+            assertNotSame(pool, config.getHttpTransport());
+            assertFalse(((PooledHttpTransport) config.getHttpTransport()).isClosed());
+        } finally {
+            ServicesContainer.configureService(null, "pooled");
+        }
+    }
+
+    @Test
+    public void suppliedTransportIsLeftOpen() throws Exception {
+        GpApiConfig config = new GpApiConfig();
+        config.setAccessTokenInfo(new AccessTokenInfo().setAccessToken("token"));
+        config.setHttpTransport(transport);
+
+        ServicesContainer.configureService(config, "supplied");
+        ServicesContainer.configureService(null, "supplied");
+        assertFalse(transport.isClosed());
+    }
+
+    private HttpTransportRequest request(String verb, String path) {
+        return new HttpTransportRequest()
+                .setVerb(verb)
+                .setUrl("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .setTimeout(5000)
+                .addHeader("Content-Type", "application/json; charset=UTF-8")
+                .setBody("{}".getBytes());
+    }
+}
@@ -0,0 +1,154 @@
+package com.global.api.tests;
+
+import com.global.api.entities.enums.ReportType;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.mapping.GpApiMapping;
+import com.global.api.utils.IsoDateTimeParser;
+import com.global.api.utils.JsonDoc;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static com.global.api.gateways.GpApiConnector.*;
+import static org.junit.Assert.*;
+
+public class IsoDateTimeParserTests {
+    // one value for each of the DATE_TIME_PATTERN_* layouts
+    private static final String[] VALUES = {
+            "2021-10-14T15:15:00.123Z",
+            "2021-10-14T15:15:00.123",
+            "2021-10-14T15:15:00Z",
+            "2021-10-14T15:15:00",
+            "2021-10-14T15:15",
+            "2021-10-14",
+            "2021-10-14T15:15:00.123456789Z",
+            "2021-10-14T15:15:00.1Z",
+            "2021-10-14T15:15:00.12",
+            "2020-02-29T23:59:59.999Z"
+    };
+
+    @Test
+    public void everyLayoutMatchesTheJodaPatterns() throws Exception {
+        for (String value : VALUES) {
+            assertEquals(value, legacyParseDateTime(value), parseGpApiDateTime(value));
+            assertEquals(value, legacyParseDateTime(value), IsoDateTimeParser.parseDateTime(value));
+        }
+    }
+
+    @Test
+    public void offsetIsNotApplied() throws Exception {
+        DateTime dateTime = parseGpApiDateTime("2021-03-16T14:03:44+05:30");
+        assertEquals(new DateTime(2021, 3, 16, 14, 3, 44, 0), dateTime);
+    }
+
+    @Test
+    public void unusualValuesFallBackToJoda() throws Exception {
+        // Joda's patterns accept single digit fields, which the parser leaves to them
+        String value = "2021-3-5T4:03:44.5Z";
+        assertNull(IsoDateTimeParser.parseDateTime(value));
+        assertEquals(legacyParseDateTime(value), parseGpApiDateTime(value));
+    }
+
+    @Test
+    public void unsupportedValuesAreRejected() {
+        for (String value : new String[] { "2021-10-14T15:15:00-05:00", "14/10/2021", "2021-10-14T15", "2021-13-14T15:15:00Z", "2021-10-14T15:15:00.Z" }) {
+            assertNull(value, IsoDateTimeParser.parseDateTime(value));
+            try {
+                parseGpApiDateTime(value);
+                fail("Expected a GatewayException for " + value);
+            }
+            catch (GatewayException exc) {
+                assertEquals("DateTime format is not supported.", exc.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void datesMatchSimpleDateFormat() throws Exception {
+        for (String value : new String[] { "2021-03-20", "2021-03-20T10:15:00.000Z", "2021-02-30", "2020-02-29" }) {
+            assertEquals(value, new SimpleDateFormat(DATE_PATTERN).parse(value), parseGpApiDate(value));
+        }
+        assertNull(IsoDateTimeParser.parseDate("2021-02-30"));
+        assertEquals("2021-03-20", getDateIfNotNull(parseGpApiDate("2021-03-20")));
+    }
+
+    @Test
+    public void datesAreSafeToShare() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int day = t + 1;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        String value = String.format("2021-03-%02d", day);
+                        for (int i = 0; i < 5000; i++) {
+                            Date date = parseGpApiDate(value);
+                            if (!value.equals(getDateIfNotNull(date))) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(60, TimeUnit.SECONDS));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reportRowsMatchJodaCascade() throws Exception {
+        // GP-API mostly sends the canonical layout, but some resources leave off the Z or the fraction
+        String[] layouts = { "2021-10-14T15:15:%02d.123Z", "2021-10-14T15:15:%02d", "2021-10-14T15:15:%02d.123" };
+        int rows = 600;
+        String[] values = new String[rows];
+        StringBuilder json = new StringBuilder("{\"transactions\":[");
+        for (int i = 0; i < rows; i++) {
+            values[i] = String.format(layouts[i % layouts.length], i % 60);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"TRN_").append(i).append("\",\"time_created\":\"").append(values[i])
+                    .append("\",\"type\":\"SALE\",\"status\":\"CAPTURED\",\"amount\":\"1999\",\"currency\":\"USD\",\"batch_id\":\"BAT_983471\"")
+                    .append(",\"payment_method\":{\"result\":\"00\",\"card\":{\"brand\":\"VISA\",\"masked_number_last4\":\"XXXXXXXXXXXX5262\"}}}");
+        }
+        json.append("],\"total_record_count\":").append(rows).append(",\"current_page_size\":").append(rows)
+                .append(",\"paging\":{\"page_size\":").append(rows).append(",\"page\":1}}");
+        JsonDoc doc = JsonDoc.parse(json.toString());
+
+        TransactionSummaryPaged report = GpApiMapping.mapReportResponse(doc, ReportType.FindTransactionsPaged);
+        assertEquals(rows, report.getResults().size());
+        for (int i = 0; i < rows; i++) {
+            assertEquals(values[i], legacyParseDateTime(values[i]), report.getResults().get(i).getTransactionDate());
+        }
+    }
+
+    // GpApiConnector.parseGpApiDateTime as it was, trying each pattern in turn
+    private static DateTime legacyParseDateTime(String value) throws GatewayException {
+        DateTimeFormatter[] formatters = {
+                DATE_TIME_DTF, DATE_TIME_DTF_2, DATE_TIME_DTF_3, DATE_TIME_DTF_4, DATE_TIME_DTF_5, DATE_TIME_DTF_6, DATE_TIME_DTF_7, DATE_TIME_DTF_8
+        };
+        IllegalArgumentException last = null;
+        for (DateTimeFormatter formatter : formatters) {
+            try {
+                return formatter.parseDateTime(value);
+            }
+            catch (IllegalArgumentException exc) {
+                last = exc;
+            }
+        }
+        throw new GatewayException("DateTime format is not supported.", last);
+    }
+}
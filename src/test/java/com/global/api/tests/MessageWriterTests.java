@@ -0,0 +1,163 @@
+package com.global.api.tests;
+
+import com.global.api.utils.MessageWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MessageWriterTests {
+    @Test
+    public void integersMatchLegacyFormatting() {
+        int[] values = { 0, 1, 127, 255, 256, 4660, 65535, 0x12345, 0x7FFFFF };
+        int[] lengths = { 1, 2, 3, 4, 6, 8 };
+
+        for (int value : values) {
+            for (int length : lengths) {
+                Writer mw = new Writer();
+                mw.add(value, length);
+
+                LegacyMessageWriter legacy = new LegacyMessageWriter();
+                legacy.add(value, length);
+
+                assertArrayEquals(String.format("%s/%s", value, length), legacy.toArray(), mw.toArray());
+            }
+        }
+    }
+
+    @Test
+    public void buildsSameMessageAsLegacyWriter() throws Exception {
+        Writer mw = new Writer(4);
+        LegacyMessageWriter legacy = new LegacyMessageWriter();
+        buildMessage(mw);
+        buildMessage(legacy);
+
+        assertArrayEquals(legacy.toArray(), mw.toArray());
+        assertEquals(legacy.toString(), mw.toString());
+        assertEquals(legacy.buffer.size(), mw.length());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mw.writeTo(out);
+        assertArrayEquals(mw.toArray(), out.toByteArray());
+
+        mw.pop();
+        assertEquals(legacy.buffer.size() - 1, mw.length());
+    }
+
+    @Test
+    public void resetReusesWriter() {
+        Writer mw = new Writer();
+        mw.addRange("first message".getBytes());
+        mw.reset();
+        mw.addRange("second".getBytes());
+
+        assertEquals("second", new String(mw.toArray()));
+    }
+
+    // roughly the shape of a VAPS authorization: MTI, bitmap, a dozen fields and a few binary lengths
+    private static final byte[] BITMAP = { (byte) 0xF2, 0x3C, 0x44, (byte) 0x81, 0x28, (byte) 0xE0, (byte) 0x81, 0x00 };
+    private static final byte[] TRACK = "4012002000060016=25121011803939600000".getBytes();
+    private static final byte[] FIELD = "000000001000".getBytes();
+
+    private <T extends IWriter> T buildMessage(T mw) {
+        mw.add(0x02);
+        mw.add(1200, 2);
+        mw.addRange("1100".getBytes());
+        mw.addRange(BITMAP);
+        for (int i = 0; i < 12; i++) {
+            mw.addRange(FIELD);
+            mw.add((byte) 0x1C);
+        }
+        mw.add(TRACK.length, 2);
+        mw.addRange(TRACK);
+        mw.add(0x03);
+        return mw;
+    }
+
+    private interface IWriter {
+        void add(Integer value);
+        void add(Integer value, Integer length);
+        void add(byte value);
+        void addRange(byte[] bytes);
+        byte[] toArray();
+    }
+
+    private static class Writer extends MessageWriter implements IWriter {
+        Writer() {
+            super();
+        }
+        Writer(int initialCapacity) {
+            super(initialCapacity);
+        }
+    }
+
+    // the List<Byte> implementation MessageWriter replaced
+    private static class LegacyMessageWriter implements IWriter {
+        private final List<Byte> buffer = new ArrayList<>();
+
+        public void add(byte value) {
+            buffer.add(value);
+        }
+
+        public void add(Integer value) {
+            addRange(formatInteger(value.longValue(), 1));
+        }
+
+        public void add(Integer value, Integer length) {
+            addRange(formatInteger(value.longValue(), length));
+        }
+
+        public void addRange(byte[] bytes) {
+            for (byte b : bytes)
+                buffer.add(b);
+        }
+
+        public byte[] toArray() {
+            byte[] b = new byte[buffer.size()];
+
+            Object[] b2 = buffer.toArray();
+            for (int i = 0; i < buffer.size(); i++)
+                b[i] = (Byte) b2[i];
+
+            return b;
+        }
+
+        public String toString() {
+            char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+            char[] chars = new char[2 * buffer.size()];
+            for (int i = 0; i < buffer.size(); ++i) {
+                chars[2 * i] = HEX_CHARS[(buffer.get(i) & 0xF0) >>> 4];
+                chars[2 * i + 1] = HEX_CHARS[buffer.get(i) & 0x0F];
+            }
+            return new String(chars);
+        }
+
+        private byte[] formatInteger(Long value, Integer length) {
+            int[] offsets = { 0, 8, 16, 32, 64, 128, 256, 512, 1024, 2048 };
+
+            if (length == 1) {
+                return new byte[] { (byte) (value & 0xFF) };
+            }
+            else {
+                int byteCount = Math.abs(Long.bitCount(value) / 8) + 1;
+                int baseLength = byteCount * 2;
+                if (baseLength > length) { baseLength = length; }
+
+                LegacyMessageWriter inputBuffer = new LegacyMessageWriter();
+                for (int i = 0; i < baseLength; i++) {
+                    int offset = offsets[baseLength - 1 - i];
+                    inputBuffer.add((byte) (value >>> offset));
+                }
+                byte[] input = inputBuffer.toArray();
+
+                byte[] output = new byte[length];
+                System.arraycopy(input, 0, output, length - baseLength, baseLength);
+
+                return output;
+            }
+        }
+    }
+}
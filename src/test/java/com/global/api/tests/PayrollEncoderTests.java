@@ -0,0 +1,167 @@
+package com.global.api.tests;
+
+import com.global.api.entities.payroll.PayrollEncoder;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class PayrollEncoderTests {
+    private static final String USERNAME = "1234567";
+    private static final String API_KEY = "00111";
+
+    @Test
+    public void matchesLegacyEncoding() {
+        PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+        LegacyPayrollEncoder legacy = new LegacyPayrollEncoder(USERNAME, API_KEY);
+
+        String[] values = { "", "John", "4012002000060016", "AgEAAAAAAAAAAAAAAAAA+/==", "ünïcödé" };
+        for (String value : values) {
+            String encoded = encoder.encode(value);
+            assertEquals(legacy.encode(value), encoded);
+            assertEquals(value, encoder.decode(encoded));
+        }
+        assertEquals(legacy.decode(legacy.encode("John")), encoder.decode(encoder.encode("John")));
+        assertNull(encoder.encode(null));
+        assertNull(encoder.decode(null));
+    }
+
+    @Test
+    public void changedCredentialsUseNewKey() {
+        PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+        String encoded = encoder.encode("value");
+
+        encoder.setApiKey("00222");
+        assertEquals(new LegacyPayrollEncoder(USERNAME, "00222").encode("value"), encoder.encode("value"));
+        assertNotEquals(encoded, encoder.encode("value"));
+    }
+
+    @Test
+    public void evictedKeysAreDerivedAgain() {
+        PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+        String encoded = encoder.encode("value");
+
+        // more pairs than the cache holds pushes the first one out
+        for (int i = 0; i < 300; i++) {
+            new PayrollEncoder(USERNAME, String.format("%05d", i)).encode("value");
+        }
+
+        assertEquals(encoded, new PayrollEncoder(USERNAME, API_KEY).encode("value"));
+        assertEquals("value", new PayrollEncoder(USERNAME, API_KEY).decode(encoded));
+    }
+
+    @Test
+    public void failuresPassValueThrough() {
+        PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+        assertEquals("not base64 ciphertext", encoder.decode("not base64 ciphertext"));
+
+        // a failed value does not poison the cipher for the next one
+        assertEquals("value", encoder.decode(encoder.encode("value")));
+
+        assertEquals("value", new PayrollEncoder().encode("value"));
+    }
+
+    @Test
+    public void bulkEncodeMatchesSingleValues() {
+        PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("FirstName", "John");
+        document.put("LastName", "Doe");
+        document.put("Ssn", 123456789);
+        document.put("MiddleName", null);
+
+        Map<String, String> encoded = encoder.encode(document);
+        assertEquals(new ArrayList<>(document.keySet()), new ArrayList<>(encoded.keySet()));
+        assertEquals(encoder.encode("John"), encoded.get("FirstName"));
+        assertNull(encoded.get("MiddleName"));
+
+        Map<String, String> decoded = encoder.decode(encoded);
+        assertEquals("Doe", decoded.get("LastName"));
+        assertEquals("123456789", decoded.get("Ssn"));
+    }
+
+    @Test
+    public void concurrentEncodingIsConsistent() throws Exception {
+        final PayrollEncoder encoder = new PayrollEncoder(USERNAME, API_KEY);
+        final String expected = new LegacyPayrollEncoder(USERNAME, API_KEY).encode("4012002000060016");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(new Callable<Boolean>() {
+                public Boolean call() {
+                    for (int j = 0; j < 1000; j++) {
+                        String encoded = encoder.encode("4012002000060016");
+                        if (!expected.equals(encoded) || !"4012002000060016".equals(encoder.decode(encoded))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }));
+        }
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    // the implementation PayrollEncoder replaced, deriving the key and building a cipher for every value
+    private static class LegacyPayrollEncoder {
+        private final String username;
+        private final String apiKey;
+
+        LegacyPayrollEncoder(String username, String apiKey) {
+            this.username = username;
+            this.apiKey = apiKey;
+        }
+
+        String encode(Object value) {
+            try {
+                Cipher cipher = createCipher(Cipher.ENCRYPT_MODE);
+                return Base64.encodeBase64String(cipher.doFinal(value.toString().getBytes("UTF-8")));
+            }
+            catch (Exception exc) {
+                return value.toString();
+            }
+        }
+
+        String decode(Object value) {
+            try {
+                Cipher cipher = createCipher(Cipher.DECRYPT_MODE);
+                return new String(cipher.doFinal(Base64.decodeBase64(value.toString())));
+            }
+            catch (Exception exc) {
+                return value.toString();
+            }
+        }
+
+        private Cipher createCipher(int mode) throws Exception {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+            PBEKeySpec pbeKeySpec = new PBEKeySpec(apiKey.toCharArray(), username.getBytes("UTF-8"), 1000, 384);
+            Key secretKey = factory.generateSecret(pbeKeySpec);
+            byte[] key = new byte[32];
+            byte[] iv = new byte[16];
+            System.arraycopy(secretKey.getEncoded(), 0, key, 0, 32);
+            System.arraycopy(secretKey.getEncoded(), 32, iv, 0, 16);
+
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(mode, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+            return cipher;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.global.api.tests;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.builders.ReportBuilder;
+import com.global.api.builders.ReportPageIterator;
+import com.global.api.builders.TransactionReportBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.TransactionSummary;
+import com.global.api.entities.enums.SortDirection;
+import com.global.api.entities.enums.TransactionSortProperty;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.entities.reporting.SearchCriteria;
+import com.global.api.entities.reporting.TransactionSummaryPaged;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.gateways.IReportingService;
+import com.global.api.network.NetworkMessageHeader;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.services.ReportingService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReportPageIteratorTests {
+    private static final String CONFIG_NAME = "reportPageIterator";
+
+    @After
+    public void tearDown() throws ConfigurationException {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void walksEveryPageWithTheCriteria() throws ApiException {
+        FakeReportingGateway gateway = configure(23, 0);
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(1, 5)
+                .orderBy(TransactionSortProperty.TimeCreated, SortDirection.Descending)
+                .where(SearchCriteria.CardNumberLastFour, "5262")
+                .iterator(CONFIG_NAME, 2);
+
+        List<String> ids = new ArrayList<>();
+        while (pages.hasNext()) {
+            for (TransactionSummary summary : pages.next().getResults()) {
+                ids.add(summary.getTransactionId());
+            }
+        }
+
+        assertEquals(23, pages.getTotalRecordCount());
+        assertEquals(23, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals("TRN_" + i, ids.get(i));
+        }
+        assertEquals("[1, 2, 3, 4, 5]", gateway.sortedPages().toString());
+        assertEquals(5, gateway.requestsWithCriteria.get());
+    }
+
+    @Test
+    public void startsFromTheBuilderPage() throws ApiException {
+        FakeReportingGateway gateway = configure(23, 0);
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(4, 5).iterator(CONFIG_NAME, 3);
+        assertEquals("TRN_15", pages.next().getResults().get(0).getTransactionId());
+        assertEquals("TRN_20", pages.next().getResults().get(0).getTransactionId());
+        assertFalse(pages.hasNext());
+        assertEquals("[4, 5]", gateway.sortedPages().toString());
+    }
+
+    @Test
+    public void emptyReportHasOnePage() throws ApiException {
+        FakeReportingGateway gateway = configure(0, 0);
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(1, 10).iterator(CONFIG_NAME, 4);
+        assertTrue(pages.next().getResults().isEmpty());
+        assertFalse(pages.hasNext());
+        assertEquals(1, gateway.pages.size());
+    }
+
+    @Test
+    public void prefetchingIsBounded() throws Exception {
+        FakeReportingGateway gateway = configure(100, 20);
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(1, 5).iterator(CONFIG_NAME, 3);
+        int read = 0;
+        while (pages.hasNext()) {
+            pages.next();
+            read++;
+
+            // a slow reader lets every prefetched page arrive, but no more are asked for
+            Thread.sleep(60);
+            assertTrue(gateway.pages.size() <= read + 3);
+        }
+        assertEquals(20, read);
+        assertTrue(gateway.maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void closeCancelsTheRest() throws Exception {
+        FakeReportingGateway gateway = configure(100, 50);
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(1, 5).iterator(CONFIG_NAME, 2);
+        pages.next();
+        pages.close();
+        assertFalse(pages.hasNext());
+
+        Thread.sleep(150);
+        assertTrue(gateway.pages.size() <= 3);
+    }
+
+    @Test
+    public void failedPageEndsTheWalk() throws ApiException {
+        FakeReportingGateway gateway = configure(23, 0);
+        gateway.failingPage = 3;
+
+        ReportPageIterator<TransactionSummaryPaged> pages = ReportingService.findTransactionsPaged(1, 5).iterator(CONFIG_NAME, 2);
+        pages.next();
+        pages.next();
+        try {
+            pages.next();
+            fail("Expected page 3 to fail");
+        }
+        catch (GatewayException exc) {
+            assertEquals("Unexpected Gateway Response: 500", exc.getMessage());
+        }
+        assertFalse(pages.hasNext());
+    }
+
+    @Test(expected = BuilderException.class)
+    public void onlyPagedReports() throws ApiException {
+        ReportingService.findTransactions().iterator(CONFIG_NAME, 2);
+    }
+
+    private FakeReportingGateway configure(int records, int latency) throws ConfigurationException {
+        final FakeReportingGateway gateway = new FakeReportingGateway(records, latency);
+        ServicesContainer.configureService(new Configuration() {
+            @Override
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(gateway);
+            }
+        }, CONFIG_NAME);
+        return gateway;
+    }
+
+    // serves TRN_0 to TRN_<records - 1> from memory, taking latency milliseconds a page
+    private static class FakeReportingGateway implements IPaymentGateway, IReportingService {
+        private final int records;
+        private final int latency;
+        private final List<Integer> pages = Collections.synchronizedList(new ArrayList<Integer>());
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger requestsWithCriteria = new AtomicInteger();
+        private volatile int failingPage;
+
+        private FakeReportingGateway(int records, int latency) {
+            this.records = records;
+            this.latency = latency;
+        }
+
+        private List<Integer> sortedPages() {
+            List<Integer> sorted = new ArrayList<>(pages);
+            Collections.sort(sorted);
+            return sorted;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T processReport(ReportBuilder<T> builder, Class<T> clazz) throws ApiException {
+            TransactionReportBuilder<T> trb = (TransactionReportBuilder<T>) builder;
+            pages.add(trb.getPage());
+            if (trb.getTransactionOrderBy() == TransactionSortProperty.TimeCreated && "5262".equals(trb.getSearchBuilder().getCardNumberLastFour())) {
+                requestsWithCriteria.incrementAndGet();
+            }
+
+            int current = inFlight.incrementAndGet();
+            try {
+                while (true) {
+                    int max = maxInFlight.get();
+                    if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                if (latency > 0) {
+                    Thread.sleep(latency);
+                }
+            }
+            catch (InterruptedException exc) {
+                throw new ApiException("Interrupted", exc);
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+
+            if (trb.getPage() == failingPage) {
+                throw new GatewayException("Unexpected Gateway Response: 500");
+            }
+
+            TransactionSummaryPaged result = new TransactionSummaryPaged();
+            result.setTotalRecordCount(records);
+            result.setPage(trb.getPage());
+            result.setPageSize(trb.getPageSize());
+            for (int i = (trb.getPage() - 1) * trb.getPageSize(); i < Math.min(records, trb.getPage() * trb.getPageSize()); i++) {
+                TransactionSummary summary = new TransactionSummary();
+                summary.setTransactionId("TRN_" + i);
+                result.add(summary);
+            }
+            return (T) result;
+        }
+
+        public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Transaction manageTransaction(ManagementBuilder builder) throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public String serializeRequest(AuthorizationBuilder builder) throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public NetworkMessageHeader sendKeepAlive() throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean supportsHostedPayments() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.global.api.tests;
+
+import com.global.api.ServicesContainer;
+import com.global.api.entities.Transaction;
+import com.global.api.gateways.SSLSocketFactoryEx;
+import com.global.api.gateways.transport.PooledHttpTransport;
+import com.global.api.logging.IRequestLogger;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.PorticoConfig;
+import com.global.api.utils.AsyncRequestFileLogger;
+import com.global.api.utils.RequestFileLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RequestLoggerTests {
+    private static final String REQUEST = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><PosRequest xmlns=\"http://Hps.Exchange.PosGateway\"><Ver1.0><Header><SecretAPIKey>skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w</SecretAPIKey><PosReqDT>2018-05-23T03:27:24.526-04:00</PosReqDT></Header><Transaction><CreditSale><Block1><AllowDup>Y</AllowDup><AllowPartialAuth>N</AllowPartialAuth><Amt>15</Amt><CardData><ManualEntry><CardNbr>4111111111111111</CardNbr><ExpMonth>12</ExpMonth><ExpYear>2025</ExpYear><CVV2>123</CVV2><ReaderPresent>N</ReaderPresent><DE22_CardPresence>N</DE22_CardPresence></ManualEntry><TokenRequest>N</TokenRequest></CardData></Block1></CreditSale></Transaction></Ver1.0></PosRequest></soap:Body></soap:Envelope>";
+    private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"utf-8\"?><soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+            + "<PosResponse rootUrl=\"https://cert.api2.heartlandportico.com/Hps.Exchange.PosGateway\" xmlns=\"http://Hps.Exchange.PosGateway\"><Ver1.0><Header>"
+            + "<LicenseId>12345</LicenseId><SiteId>12345</SiteId><DeviceId>1234567</DeviceId><GatewayTxnId>1234567890</GatewayTxnId>"
+            + "<GatewayRspCode>0</GatewayRspCode><GatewayRspMsg>Success</GatewayRspMsg><RspDT>2021-10-14T10:15:00.123</RspDT></Header>"
+            + "<Transaction><CreditSale><RspCode>00</RspCode><RspText>APPROVAL</RspText><AuthCode>12345A</AuthCode><AVSRsltCode>0</AVSRsltCode>"
+            + "<CVVRsltCode>M</CVVRsltCode><RefNbr>123456789012</RefNbr><CardType>Visa</CardType><AVSRsltText>AVS Not Requested.</AVSRsltText>"
+            + "<CVVRsltText>Match.</CVVRsltText></CreditSale></Transaction></Ver1.0></PosResponse></soap:Body></soap:Envelope>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ServerSocket server;
+    private ExecutorService executor;
+    private PooledHttpTransport transport;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new ServerSocket(0, 5, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        executor.submit(new Runnable() {
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        final Socket socket = server.accept();
+                        executor.submit(new Runnable() {
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    }
+                    catch (IOException exc) {
+                        return;
+                    }
+                }
+            }
+        });
+        transport = new PooledHttpTransport(new SSLSocketFactoryEx(), 2, 2, 30000);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        transport.close();
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void entriesAreWrittenInOrder() throws Exception {
+        File file = folder.newFile("requests.log");
+        AsyncRequestFileLogger logger = new AsyncRequestFileLogger(file.getPath());
+        for (int i = 0; i < 1000; i++) {
+            logger.RequestSent("request " + i + "\n");
+            logger.ResponseReceived("response " + i);
+        }
+        logger.flush();
+
+        String log = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        logger.close();
+
+        String[] lines = log.split("\n");
+        assertEquals(4000, lines.length);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(lines[i * 4].endsWith(" Sent:"));
+            assertEquals("request " + i, lines[i * 4 + 1]);
+            assertTrue(lines[i * 4 + 2].endsWith(" Response:"));
+            assertEquals("response " + i, lines[i * 4 + 3]);
+        }
+    }
+
+    @Test
+    public void entriesAreMasked() throws Exception {
+        File file = folder.newFile("masked.log");
+        AsyncRequestFileLogger logger = new AsyncRequestFileLogger(file.getPath());
+        logger.RequestSent(REQUEST);
+        logger.close();
+
+        String log = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(log.contains("<CardNbr>411111XXXXXX1111</CardNbr>"));
+        assertTrue(log.contains("<CVV2>XXX</CVV2>"));
+        assertFalse(log.contains("4111111111111111"));
+    }
+
+    @Test
+    public void fileIsRolledOver() throws Exception {
+        File file = new File(folder.getRoot(), "rolled.log");
+        AsyncRequestFileLogger logger = new AsyncRequestFileLogger(file.getPath(), 16, 4096, 2);
+        for (int i = 0; i < 500; i++) {
+            logger.RequestSent(String.format("request %04d%n", i));
+        }
+        logger.close();
+
+        File first = new File(folder.getRoot(), "rolled.log.1");
+        File second = new File(folder.getRoot(), "rolled.log.2");
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertFalse(new File(folder.getRoot(), "rolled.log.3").exists());
+
+        // only the newest entries are kept, the last of them in the current file
+        String current = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(current.contains("request 0499"));
+        assertTrue(file.length() <= 4096);
+        assertFalse(new String(Files.readAllBytes(second.toPath()), StandardCharsets.UTF_8).contains("request 0000"));
+    }
+
+    @Test
+    public void closedLoggerRejectsEntries() throws Exception {
+        AsyncRequestFileLogger logger = new AsyncRequestFileLogger(new File(folder.getRoot(), "closed.log").getPath());
+        logger.close();
+        try {
+            logger.RequestSent("request");
+            fail("Expected an IOException");
+        }
+        catch (IOException exc) {
+            assertEquals("The logger has been closed.", exc.getMessage());
+        }
+    }
+
+    @Test
+    public void closeWhileLoggingKeepsEveryAcceptedEntry() throws Exception {
+        // the race only shows when a close lands while loggers wait on the full queue, so give it a few goes
+        for (int i = 0; i < 10; i++) {
+            closeWhileLogging(folder.newFile("closing" + i + ".log"));
+        }
+    }
+
+    @Test
+    public void creditSalesAreLogged() throws Exception {
+        File syncFile = folder.newFile("sale-sync.log");
+        File asyncFile = folder.newFile("sale-async.log");
+        configure("no-logging", null);
+        configure("file-logging", new RequestFileLogger(syncFile.getPath()));
+        AsyncRequestFileLogger async = new AsyncRequestFileLogger(asyncFile.getPath());
+        configure("async-logging", async);
+
+        try {
+            String[] names = { "no-logging", "file-logging", "async-logging" };
+            for (String name : names) {
+                runSales(name, 5);
+            }
+        }
+        finally {
+            async.close();
+        }
+
+        String sync = new String(Files.readAllBytes(syncFile.toPath()), StandardCharsets.UTF_8);
+        String queued = new String(Files.readAllBytes(asyncFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals(5, count(sync, "<RspText>APPROVAL</RspText>"));
+        assertEquals(5, count(queued, "<RspText>APPROVAL</RspText>"));
+        assertEquals(5, count(queued, "<CardNbr>411111XXXXXX1111</CardNbr>"));
+        assertFalse(queued.contains("4111111111111111"));
+    }
+
+    private void configure(String name, IRequestLogger logger) throws Exception {
+        PorticoConfig config = new PorticoConfig();
+        config.setSecretApiKey("skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w");
+        config.setServiceUrl("http://127.0.0.1:" + server.getLocalPort());
+        config.setHttpTransport(transport);
+        config.setRequestLogger(logger);
+        ServicesContainer.configureService(config, name);
+    }
+
+    private static void runSales(String name, int count) throws Exception {
+        CreditCardData card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+        card.setCvn("123");
+
+        for (int i = 0; i < count; i++) {
+            Transaction response = card.charge(new BigDecimal("15")).withCurrency("USD").execute(name);
+            assertEquals("00", response.getResponseCode());
+        }
+    }
+
+    private static void closeWhileLogging(File file) throws Exception {
+        final AsyncRequestFileLogger logger = new AsyncRequestFileLogger(file.getPath(), 1, Long.MAX_VALUE, 0);
+
+        ExecutorService loggers = Executors.newFixedThreadPool(5);
+        List<Future<Integer>> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accepted.add(loggers.submit(new Callable<Integer>() {
+                public Integer call() {
+                    int count = 0;
+                    try {
+                        while (true) {
+                            logger.RequestSent("entry");
+                            count++;
+                        }
+                    }
+                    catch (IOException exc) {
+                        // the logger was closed
+                    }
+                    return count;
+                }
+            }));
+        }
+
+        // two callers close it at once while the others are still logging
+        Thread.sleep(20);
+        Future<?> closed = loggers.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                logger.close();
+                return null;
+            }
+        });
+        logger.close();
+        closed.get(10, TimeUnit.SECONDS);
+
+        int total = 0;
+        for (Future<Integer> count : accepted) {
+            total += count.get(10, TimeUnit.SECONDS);
+        }
+        loggers.shutdown();
+
+        String log = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(total > 0);
+        assertEquals(total, count(log, " Sent:"));
+    }
+
+    private static int count(String log, String value) {
+        int count = 0;
+        for (int index = log.indexOf(value); index >= 0; index = log.indexOf(value, index + value.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    // answers every request on the connection with the CreditSale response, headers and body in one write
+    private static void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            byte[] header = ("HTTP/1.1 200 OK\r\nContent-Type: text/xml; charset=utf-8\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            byte[] response = new byte[header.length + body.length];
+            System.arraycopy(header, 0, response, 0, header.length);
+            System.arraycopy(body, 0, response, header.length, body.length);
+
+            while (true) {
+                int contentLength = 0;
+                String line;
+                while (!(line = readLine(in)).isEmpty()) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                in.readFully(new byte[contentLength]);
+
+                out.write(response);
+                out.flush();
+            }
+        }
+        catch (IOException exc) {
+            // the client closed the connection
+        }
+        finally {
+            try {
+                socket.close();
+            }
+            catch (IOException exc) {
+                // ignore
+            }
+        }
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                sb.append((char) b);
+            }
+        }
+        return sb.toString();
+    }
+}
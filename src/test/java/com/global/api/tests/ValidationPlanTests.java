@@ -0,0 +1,104 @@
+package com.global.api.tests;
+
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.validations.Validations;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.BuilderException;
+import com.global.api.paymentMethods.CreditCardData;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class ValidationPlanTests {
+    private final CreditCardData card;
+
+    public ValidationPlanTests() {
+        card = new CreditCardData();
+        card.setNumber("4111111111111111");
+        card.setExpMonth(12);
+        card.setExpYear(2025);
+        card.setCvn("123");
+    }
+
+    @Test
+    public void buildersOfSameClassStartFromCompiledRules() {
+        AuthorizationBuilder first = card.charge(new BigDecimal(10));
+        AuthorizationBuilder second = card.authorize(new BigDecimal(10));
+
+        // each builder gets its own copy, which comes with the rules already compiled
+        assertNotSame(first.getValidations(), second.getValidations());
+        assertSame(first.getValidations(), first.getValidations());
+        assertTrue(first.getValidations().isCompiled());
+        assertTrue(second.getValidations().isCompiled());
+        assertNotSame(first.getValidations(), Transaction.fromId("1234567890").capture().getValidations());
+    }
+
+    @Test
+    public void rulesAddedToOneBuilderStayWithIt() throws Exception {
+        AuthorizationBuilder first = card.charge(new BigDecimal(10)).withCurrency("USD");
+        AuthorizationBuilder second = card.charge(new BigDecimal(10)).withCurrency("USD");
+        first.getValidations().of(TransactionType.Sale).check("description").isNotNull();
+
+        try {
+            first.getValidations().validate(first);
+            fail("Expected a BuilderException");
+        }
+        catch(BuilderException exc) {
+            assertEquals("description cannot be null for this transaction type.", exc.getMessage());
+        }
+
+        // neither a builder that already existed nor one created afterwards picks the rule up
+        second.getValidations().validate(second);
+        AuthorizationBuilder third = card.charge(new BigDecimal(10)).withCurrency("USD");
+        third.getValidations().validate(third);
+    }
+
+    @Test
+    public void rulesAddedAfterValidatingAreApplied() throws Exception {
+        Validations validations = new Validations();
+        validations.of(TransactionType.Sale).check("amount").isNotNull();
+
+        AuthorizationBuilder builder = card.charge(new BigDecimal(10));
+        builder.setValidations(validations);
+        validations.validate(builder);
+        assertTrue(validations.isCompiled());
+
+        validations.of(TransactionType.Sale).check("currency").isNotNull();
+        assertFalse(validations.isCompiled());
+        try {
+            validations.validate(builder);
+            fail("Expected a BuilderException");
+        }
+        catch(BuilderException exc) {
+            assertEquals("currency cannot be null for this transaction type.", exc.getMessage());
+        }
+    }
+
+    @Test
+    public void sharedRulesStillValidateEachBuilder() throws Exception {
+        AuthorizationBuilder valid = card.charge(new BigDecimal(10)).withCurrency("USD");
+        valid.getValidations().validate(valid);
+
+        AuthorizationBuilder noCurrency = card.charge(new BigDecimal(10));
+        try {
+            noCurrency.getValidations().validate(noCurrency);
+            fail("Expected a BuilderException");
+        }
+        catch(BuilderException exc) {
+            assertEquals("currency cannot be null for this transaction type.", exc.getMessage());
+        }
+
+        // rules with a modifier constraint only apply to builders carrying that modifier
+        AuthorizationBuilder offline = card.authorize(new BigDecimal(10)).withCurrency("USD").withOfflineAuthCode(null);
+        try {
+            offline.getValidations().validate(offline);
+            fail("Expected a BuilderException");
+        }
+        catch(BuilderException exc) {
+            assertEquals("offlineAuthCode cannot be null for this transaction type.", exc.getMessage());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.global.api.tests;
+
+import com.global.api.builders.BillingBuilder;
+import com.global.api.entities.Address;
+import com.global.api.entities.Customer;
+import com.global.api.entities.billing.Bill;
+import com.global.api.entities.billing.Credentials;
+import com.global.api.entities.enums.BillPresentment;
+import com.global.api.entities.enums.BillingLoadType;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.gateways.bill_pay.requests.BillPayRequestBase;
+import com.global.api.gateways.bill_pay.requests.PreloadBillsRequest;
+import com.global.api.utils.Element;
+import com.global.api.utils.ElementTree;
+import com.global.api.utils.XmlWriter;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class XmlWriterTests {
+    private static final String[][] BILL_PAY_NAMESPACES = {
+        { "soapenv", "http://schemas.xmlsoap.org/soap/envelope/" },
+        { "bil", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BillingDataManagementService" },
+        { "bdms", "http://schemas.datacontract.org/2004/07/BDMS.NewModel" },
+        { "hps", "http://schemas.datacontract.org/2004/07/HPS.BillerDirect.ACHCard.Wrapper" },
+        { "pos", "http://schemas.datacontract.org/2004/07/POSGateway.Wrapper" },
+        { "bdm", "https://test.heartlandpaymentservices.net/BillingDataManagement/v3/BDMServiceAdmin" }
+    };
+
+    @Test
+    public void elementsAreClosedInDocumentOrder() {
+        XmlWriter xml = new XmlWriter();
+        XmlWriter.Node root = xml.element("Root").set("version", "1");
+        XmlWriter.Node first = xml.subElement(root, "First");
+        xml.subElement(first, "Value", "a < b & c");
+        xml.subElement(root, "Empty");
+        xml.subElementCdata(root, "Data", "<raw/>");
+        assertNull(xml.subElement(root, "Skipped", ""));
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+                + "<Root version=\"1\"><First><Value>a &lt; b &amp; c</Value></First><Empty/><Data><![CDATA[<raw/>]]></Data></Root>",
+                xml.toString(root));
+
+        try {
+            xml.subElement(first, "Late");
+            fail("Expected an IllegalStateException");
+        }
+        catch (IllegalStateException exc) {
+            assertEquals("First has already been written.", exc.getMessage());
+        }
+    }
+
+    @Test
+    public void streamsToOutputStream() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XmlWriter xml = new XmlWriter(out);
+        xml.addNamespace("s", "urn:test");
+        XmlWriter.Node root = xml.element("s:Envelope");
+        xml.subElement(xml.subElement(root, "s:Body"), "Name", "café");
+        assertNull(xml.toString(root));
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+                + "<s:Envelope xmlns:s=\"urn:test\"><s:Body><Name>café</Name></s:Body></s:Envelope>",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void porticoCreditSaleMatchesTransformer() {
+        assertEquals(legacyToString(buildCreditSale()), creditSaleToString());
+    }
+
+    @Test
+    public void preloadBillsMatchesTransformer() throws Exception {
+        BillingBuilder builder = preloadBills(3);
+        assertEquals(new LegacyPreloadBillsRequest(new ElementTree()).build(builder, credentials()), streamPreloadBills(builder));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void preloadBillsFromElementTreeMatchesStream() throws Exception {
+        BillingBuilder builder = preloadBills(3);
+        ElementTree et = new ElementTree();
+        for (String[] namespace : BILL_PAY_NAMESPACES) {
+            et.addNamespace(namespace[0], namespace[1]);
+        }
+        assertEquals(streamPreloadBills(builder), new PreloadBillsRequest(et).build(et.element("soapenv:Envelope"), builder, credentials()));
+    }
+
+    private String creditSaleToString() {
+        ElementTree et = new ElementTree();
+        return et.toString(buildCreditSale(et));
+    }
+
+    private Element buildCreditSale() {
+        return buildCreditSale(new ElementTree());
+    }
+
+    // the envelope PorticoConnector.buildEnvelope wraps around a manually entered CreditSale
+    private Element buildCreditSale(ElementTree et) {
+        Element transaction = et.element("CreditSale");
+        Element block1 = et.subElement(transaction, "Block1");
+        et.subElement(block1, "AllowDup", "Y");
+        et.subElement(block1, "Amt", "15.00");
+        Element cardData = et.subElement(block1, "CardData");
+        Element manualEntry = et.subElement(cardData, "ManualEntry");
+        et.subElement(manualEntry, "CardNbr", "4111111111111111");
+        et.subElement(manualEntry, "ExpMonth", "12");
+        et.subElement(manualEntry, "ExpYear", "2025");
+        et.subElement(manualEntry, "CVV2", "123");
+        et.subElement(manualEntry, "CardPresent", "N");
+        et.subElement(manualEntry, "ReaderPresent", "N");
+        et.subElement(cardData, "TokenRequest", "N");
+        Element holder = et.subElement(block1, "CardHolderData");
+        et.subElement(holder, "CardHolderAddr", "6860 Dallas Pkwy");
+        et.subElement(holder, "CardHolderZip", "75024");
+
+        et.addNamespace("soap", "http://schemas.xmlsoap.org/soap/envelope/");
+        et.addNamespace("xsi", "http://www.w3.org/2001/XMLSchema-instance");
+        et.addNamespace("xsd", "http://www.w3.org/2001/XMLSchema");
+
+        Element envelope = et.element("soap:Envelope");
+        Element body = et.subElement(envelope, "soap:Body");
+        Element request = et.subElement(body, "PosRequest").set("xmlns", "http://Hps.Exchange.PosGateway");
+        Element version1 = et.subElement(request, "Ver1.0");
+
+        Element header = et.subElement(version1, "Header");
+        et.subElement(header, "SecretAPIKey", "skapi_cert_MTeSAQAfG1UA9qQDrzl-kz4toXvARyieptFwSKP24w");
+        et.subElement(header, "DeveloperID", "002914");
+        et.subElement(header, "VersionNbr", "3026");
+        et.subElement(header, "PosReqDT", "2021-10-14T10:15:00.000-05:00");
+
+        Element trans = et.subElement(version1, "Transaction");
+        trans.append(transaction);
+        return envelope;
+    }
+
+    private String streamPreloadBills(BillingBuilder builder) throws ApiException {
+        XmlWriter xml = new XmlWriter();
+        for (String[] namespace : BILL_PAY_NAMESPACES) {
+            xml.addNamespace(namespace[0], namespace[1]);
+        }
+        return new PreloadBillsRequest(xml).build(xml.element("soapenv:Envelope"), builder, credentials());
+    }
+
+    private BillingBuilder preloadBills(int count) {
+        List<Bill> bills = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Address address = new Address();
+            address.setStreetAddress1("1234 Main St");
+            address.setCity("Dallas");
+            address.setState("TX");
+            address.setPostalCode("75024");
+            address.setCountry("US");
+
+            Customer customer = new Customer();
+            customer.setId("CUST" + i);
+            customer.setFirstName("Test");
+            customer.setLastName("Customer");
+            customer.setEmail("test@example.com");
+            customer.setAddress(address);
+
+            Bill bill = new Bill();
+            bill.setBillType("Tax Payments");
+            bill.setIdentifier1("12345");
+            bill.setIdentifier2(String.valueOf(i));
+            bill.setAmount(new BigDecimal("10.00"));
+            bill.setDueDate(new Date(1634224500000L));
+            bill.setBillPresentment(BillPresentment.FULL);
+            bill.setCustomer(customer);
+            bills.add(bill);
+        }
+
+        return new BillingBuilder(TransactionType.Create)
+                .withBillingLoadType(BillingLoadType.BILLS)
+                .withBills(bills);
+    }
+
+    private Credentials credentials() {
+        Credentials credentials = new Credentials();
+        credentials.setApiKey("apikey");
+        credentials.setMerchantName("Dev_Exp_Team_Merchant");
+        credentials.setUserName("username");
+        credentials.setPassword("password");
+        return credentials;
+    }
+
+    // what ElementTree.toString did before it streamed the DOM through XmlWriter
+    private static String legacyToString(Element root) {
+        Document doc = root.getElement().getOwnerDocument();
+        doc.appendChild(root.getElement());
+        try {
+            Transformer trans = TransformerFactory.newInstance().newTransformer();
+            StringWriter writer = new StringWriter();
+            trans.transform(new DOMSource(doc), new StreamResult(writer));
+            return writer.toString();
+        }
+        catch (Exception exc) {
+            return exc.getMessage();
+        }
+        finally {
+            doc.removeChild(root.getElement());
+        }
+    }
+
+    // PreloadBillsRequest as it was built before it streamed
+    private static class LegacyPreloadBillsRequest extends BillPayRequestBase {
+        LegacyPreloadBillsRequest(ElementTree et) {
+            super(et);
+        }
+
+        String build(BillingBuilder builder, Credentials credentials) throws ApiException {
+            for (String[] namespace : BILL_PAY_NAMESPACES) {
+                et.addNamespace(namespace[0], namespace[1]);
+            }
+            Element envelope = et.element("soapenv:Envelope");
+            Element body = et.subElement(envelope, "soapenv:Body");
+            Element methodElement = et.subElement(body, "bil:PreloadBills");
+            Element requestElement = et.subElement(methodElement, "bil:PreloadBillsRequest");
+
+            validateBills(builder.getBills());
+            buildCredentials(requestElement, credentials);
+            Element bills = et.subElement(requestElement, "bdms:Bills");
+
+            for (Bill bill : builder.getBills()) {
+                Element billElement = et.subElement(bills, "bdms:Bill");
+                Element billIdentifierExtended = et.subElement(billElement, "bdms:BillIdentifierExtended");
+
+                et.subElement(billIdentifierExtended, "bdms:BillType", bill.getBillType());
+                et.subElement(billIdentifierExtended, "bdms:ID1", bill.getIdentifier1());
+                et.subElement(billIdentifierExtended, "bdms:ID2", bill.getIdentifier2());
+                et.subElement(billIdentifierExtended, "bdms:ID3", bill.getIdentifier3());
+                et.subElement(billIdentifierExtended, "bdms:ID4", bill.getIdentifier4());
+                et.subElement(billIdentifierExtended, "bdms:DueDate", getDateFormatted(bill.getDueDate()));
+                et.subElement(billElement, "bdms:BillPresentment", getBillPresentmentType(bill.getBillPresentment()));
+
+                if (bill.getCustomer() != null) {
+                    Customer customer = bill.getCustomer();
+                    if (customer.getAddress() != null) {
+                        Address address = customer.getAddress();
+                        Element customerAddress = et.subElement(billElement, "bdms:CustomerAddress");
+                        et.subElement(customerAddress, "bdms:AddressLineOne", address.getStreetAddress1());
+                        et.subElement(customerAddress, "bdms:City", address.getCity());
+                        et.subElement(customerAddress, "bdms:Country", address.getCountry());
+                        et.subElement(customerAddress, "bdms:PostalCode", address.getPostalCode());
+                        et.subElement(customerAddress, "bdms:State", address.getState());
+                    }
+
+                    et.subElement(billElement, "bdms:MerchantCustomerId", customer.getId());
+                    et.subElement(billElement, "bdms:ObligorEmailAddress", customer.getEmail());
+                    et.subElement(billElement, "bdms:ObligorFirstName", customer.getFirstName());
+                    et.subElement(billElement, "bdms:ObligorLastName", customer.getLastName());
+                    et.subElement(billElement, "bdms:ObligorPhoneNumber", customer.getHomePhone());
+                }
+
+                et.subElement(billElement, "bdms:RequiredAmount", bill.getAmount());
+            }
+            return legacyToString(envelope);
+        }
+    }
+}
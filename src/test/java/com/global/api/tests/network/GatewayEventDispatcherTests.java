@@ -0,0 +1,122 @@
+package com.global.api.tests.network;
+
+import com.global.api.gateways.events.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GatewayEventDispatcherTests {
+    @Test
+    public void eventsAreDeliveredInOrder() throws Exception {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(100);
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher("Test", new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                received.add(((GatewayEvent) event).getConnectorName());
+                latch.countDown();
+            }
+        }, 128, EventOverflowPolicy.Block);
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(new RequestSentEvent(String.valueOf(i)));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(String.valueOf(i), received.get(i));
+        }
+        assertEquals(0, dispatcher.getDroppedEventCount());
+    }
+
+    @Test
+    public void fullQueueDropsAndCountsEvents() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(3);
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher("Test", new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.countDown();
+            }
+        }, 2, EventOverflowPolicy.DropNewest);
+
+        // the first event is taken by the consumer, which then blocks in the handler
+        dispatcher.dispatch(new RequestSentEvent("Test"));
+        while (dispatcher.getQueuedEventCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(new RequestSentEvent("Test"));
+        }
+        assertEquals(3, dispatcher.getDroppedEventCount());
+
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        while (dispatcher.getDeliveredEventCount() < 3) {
+            Thread.sleep(1);
+        }
+        assertEquals(3, dispatcher.getDeliveredEventCount());
+    }
+
+    @Test
+    public void shutdownDeliversQueuedEventsAndStopsTheThread() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(3);
+
+        GatewayEventDispatcher dispatcher = new GatewayEventDispatcher("Shutdown", new IGatewayEventHandler() {
+            public void eventRaised(IGatewayEvent event) {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.countDown();
+            }
+        }, 8, EventOverflowPolicy.Block);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(new RequestSentEvent("Test"));
+        }
+        dispatcher.shutdown();
+
+        // raised after the shutdown, so it is dropped
+        dispatcher.dispatch(new RequestSentEvent("Test"));
+        assertEquals(1, dispatcher.getDroppedEventCount());
+
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        // the consumer exits once the queue is drained rather than waiting out the idle timeout
+        long deadline = System.currentTimeMillis() + 5000;
+        while (consumerRunning("Shutdown-Events") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(consumerRunning("Shutdown-Events"));
+        assertEquals(3, dispatcher.getDeliveredEventCount());
+    }
+
+    private boolean consumerRunning(String name) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals(name) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
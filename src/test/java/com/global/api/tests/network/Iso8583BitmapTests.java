@@ -0,0 +1,153 @@
+package com.global.api.tests.network;
+
+import com.global.api.network.Iso8583Bitmap;
+import com.global.api.network.Iso8583ElementFactory;
+import com.global.api.network.Iso8583ElementSpec;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.Iso8583MessageType;
+import com.global.api.utils.ReverseIntEnumMap;
+import com.global.api.utils.StringUtils;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Iso8583BitmapTests {
+    // elements carried by typical authorization (1200), data collect (1220) and reversal (1420) messages
+    private static final DataElementId[] AUTHORIZATION = {
+            DataElementId.DE_002, DataElementId.DE_003, DataElementId.DE_004, DataElementId.DE_007, DataElementId.DE_011,
+            DataElementId.DE_012, DataElementId.DE_018, DataElementId.DE_022, DataElementId.DE_024, DataElementId.DE_025,
+            DataElementId.DE_035, DataElementId.DE_041, DataElementId.DE_042, DataElementId.DE_043, DataElementId.DE_048,
+            DataElementId.DE_049, DataElementId.DE_062, DataElementId.DE_063, DataElementId.DE_127 };
+    private static final DataElementId[] DATA_COLLECT = {
+            DataElementId.DE_002, DataElementId.DE_003, DataElementId.DE_004, DataElementId.DE_011, DataElementId.DE_012,
+            DataElementId.DE_014, DataElementId.DE_022, DataElementId.DE_024, DataElementId.DE_025, DataElementId.DE_038,
+            DataElementId.DE_041, DataElementId.DE_042, DataElementId.DE_048, DataElementId.DE_049, DataElementId.DE_056,
+            DataElementId.DE_062, DataElementId.DE_123 };
+    private static final DataElementId[] REVERSAL = {
+            DataElementId.DE_002, DataElementId.DE_003, DataElementId.DE_004, DataElementId.DE_011, DataElementId.DE_012,
+            DataElementId.DE_024, DataElementId.DE_025, DataElementId.DE_041, DataElementId.DE_042, DataElementId.DE_048,
+            DataElementId.DE_049, DataElementId.DE_056, DataElementId.DE_062 };
+
+    @Test
+    public void matchesStringBitmapForRandomBytes() {
+        Random random = new Random(1200);
+        for (int i = 0; i < 500; i++) {
+            byte[] bytes = new byte[8];
+            random.nextBytes(bytes);
+            int offset = i % 2 == 0 ? 0 : 64;
+
+            Iso8583Bitmap bitmap = new Iso8583Bitmap(bytes, offset);
+            LegacyBitmap legacy = new LegacyBitmap(bytes, offset);
+
+            assertEquals(legacy.toBinaryString(), bitmap.toBinaryString());
+            assertEquals(legacy.toHexString(), bitmap.toHexString());
+            assertArrayEquals(legacy.toByteArray(), bitmap.toByteArray());
+
+            for (DataElementId id : DataElementId.values()) {
+                int index = id.getValue() - offset;
+                if (index >= 0 && index < 64) {
+                    assertEquals(legacy.isPresent(id), bitmap.isPresent(id));
+                }
+            }
+
+            DataElementId expected;
+            do {
+                expected = legacy.getNextDataElement();
+                assertEquals(expected, bitmap.getNextDataElement());
+            }
+            while (expected != null);
+            assertNull(bitmap.getNextDataElement());
+        }
+    }
+
+    @Test
+    public void builtMessagesParseBack() {
+        DataElementId[][] messages = { AUTHORIZATION, DATA_COLLECT, REVERSAL };
+        for (DataElementId[] elements : messages) {
+            NetworkMessage parsed = NetworkMessage.parse(buildMessage(elements), Iso8583MessageType.CompleteMessage);
+            for (DataElementId id : elements) {
+                assertTrue(id.toString(), parsed.has(id));
+                assertEquals(id.toString(), "0", parsed.getString(id).substring(0, 1));
+            }
+        }
+    }
+
+    private byte[] buildMessage(DataElementId[] elements) {
+        NetworkMessage message = new NetworkMessage();
+        for (DataElementId id : elements) {
+            Iso8583ElementSpec spec = Iso8583ElementFactory.getElementSpec(Iso8583MessageType.CompleteMessage, id);
+            switch (spec.getType()) {
+                case LVAR:
+                case LLVAR:
+                case LLLVAR:
+                    message.set(id, "0123456");
+                    break;
+                default:
+                    message.set(id, StringUtils.padLeft("", spec.getLength(), '0'));
+            }
+        }
+        return message.buildMessage();
+    }
+
+    // the binary string implementation Iso8583Bitmap replaced
+    private static class LegacyBitmap {
+        private final String binaryValue;
+        private final int offset;
+        private int currIndex = -1;
+        private final ReverseIntEnumMap<DataElementId> dataElementMap;
+
+        LegacyBitmap(byte[] bytes, int offset) {
+            this.offset = offset;
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(Integer.toBinaryString((b & 0xFF) + 0x100).substring(1));
+            }
+
+            binaryValue = sb.toString();
+            dataElementMap = new ReverseIntEnumMap<DataElementId>(DataElementId.class);
+        }
+
+        boolean isPresent(DataElementId element) {
+            return binaryValue.charAt(element.getValue() - offset) == '1';
+        }
+
+        DataElementId getNextDataElement() {
+            char value;
+            do {
+                if (++currIndex >= binaryValue.length()) {
+                    return null;
+                }
+                value = binaryValue.charAt(currIndex);
+            }
+            while (value == '0');
+
+            return dataElementMap.get(currIndex + offset);
+        }
+
+        String toBinaryString() {
+            return binaryValue;
+        }
+
+        String toHexString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < binaryValue.length(); i += 8) {
+                int decimal = Integer.parseInt(binaryValue.substring(i, i + 8), 2);
+                sb.append(StringUtils.padLeft(Integer.toString(decimal, 16), 2, '0'));
+            }
+            return sb.toString();
+        }
+
+        byte[] toByteArray() {
+            String s = toHexString();
+            byte[] b = new byte[s.length() / 2];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+            }
+            return b;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.global.api.tests.network;
+
+import com.global.api.network.Iso8583ElementFactory;
+import com.global.api.network.Iso8583ElementSpec;
+import com.global.api.network.NetworkMessage;
+import com.global.api.network.enums.DataElementId;
+import com.global.api.network.enums.DataElementType;
+import com.global.api.network.enums.Iso8583MessageType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Iso8583ElementFactoryTests {
+    @Test
+    public void specsAreDefinedPerMessageType() {
+        Iso8583ElementSpec pan = Iso8583ElementFactory.getElementSpec(Iso8583MessageType.CompleteMessage, DataElementId.DE_002);
+        assertEquals(DataElementType.LLVAR, pan.getType());
+        assertEquals(19, pan.getLength());
+
+        Iso8583ElementSpec hardware = Iso8583ElementFactory.getElementSpec(Iso8583MessageType.SubElement_DE_048, DataElementId.DE_002);
+        assertEquals(DataElementType.ALPHA_NUMERIC_SPECIAL, hardware.getType());
+        assertEquals("Hardware & Software Configuration", hardware.getDescription());
+
+        assertNull(Iso8583ElementFactory.getElementSpec(Iso8583MessageType.SubElement_DE_048, DataElementId.DE_127));
+    }
+
+    @Test
+    public void registeredPrivateUseElementRoundTrips() {
+        Iso8583ElementFactory.registerElement(Iso8583MessageType.CompleteMessage, DataElementId.DE_061, DataElementType.LLLVAR, "Private Use", 999);
+
+        NetworkMessage request = new NetworkMessage();
+        request.set(DataElementId.DE_003, "000000");
+        request.set(DataElementId.DE_061, "PRIVATE DATA");
+        byte[] message = request.buildMessage();
+
+        NetworkMessage response = NetworkMessage.parse(message, Iso8583MessageType.CompleteMessage);
+        assertEquals("000000", response.getString(DataElementId.DE_003));
+        assertEquals("PRIVATE DATA", response.getString(DataElementId.DE_061));
+
+        // the standard definitions are untouched
+        assertNull(Iso8583ElementFactory.getElementSpec(Iso8583MessageType.SubElement_DE_048, DataElementId.DE_061));
+        assertEquals(DataElementType.NUMERIC, Iso8583ElementFactory.getElementSpec(Iso8583MessageType.CompleteMessage, DataElementId.DE_003).getType());
+    }
+}
@@ -0,0 +1,110 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.NetworkFrameDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+public class NetworkFrameDecoderTests {
+    private static final int SEGMENT_DELAY = 10;
+
+    private ServerSocket server;
+    private Socket client;
+    private Socket host;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        client.setTcpNoDelay(true);
+        host = server.accept();
+        host.setTcpNoDelay(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        host.close();
+        server.close();
+    }
+
+    @Test
+    public void readFrame_SplitAcrossSegments() throws Exception {
+        byte[] message = buildMessage(600);
+        sendInSegments(message, SEGMENT_DELAY);
+
+        byte[] frame = new NetworkFrameDecoder(true).readFrame(client, 5000);
+        assertEquals(598, frame.length);
+        assertEquals(message[2], frame[0]);
+        assertEquals(message[599], frame[597]);
+    }
+
+    @Test
+    public void readFrame_LargerThanLegacyBuffer() throws Exception {
+        byte[] message = buildMessage(9000);
+        sendInSegments(message, 0);
+
+        byte[] frame = new NetworkFrameDecoder(true).readFrame(client, 5000);
+        assertEquals(8998, frame.length);
+        assertEquals(message[8999], frame[8997]);
+    }
+
+    @Test
+    public void readFrame_LengthExcludesPrefix() throws Exception {
+        byte[] message = buildMessage(100);
+        message[0] = 0;
+        message[1] = 98;
+        sendInSegments(message, 0);
+
+        byte[] frame = new NetworkFrameDecoder(false).readFrame(client, 5000);
+        assertEquals(98, frame.length);
+    }
+
+    @Test(expected = GatewayTimeoutException.class)
+    public void readFrame_HonoursTimeout() throws Exception {
+        byte[] message = buildMessage(100);
+        OutputStream out = host.getOutputStream();
+        out.write(message, 0, 50);
+        out.flush();
+
+        new NetworkFrameDecoder(true).readFrame(client, 200);
+    }
+
+    private byte[] buildMessage(int length) {
+        byte[] message = new byte[length];
+        message[0] = (byte)(length >>> 8);
+        message[1] = (byte)length;
+        for (int i = 2; i < length; i++) {
+            message[i] = (byte)i;
+        }
+        return message;
+    }
+
+    // writes the message as two TCP segments with a pause in between
+    private void sendInSegments(final byte[] message, final int delay) {
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    OutputStream out = host.getOutputStream();
+                    int split = message.length / 2;
+                    out.write(message, 0, split);
+                    out.flush();
+                    Thread.sleep(delay);
+                    out.write(message, split, message.length - split);
+                    out.flush();
+                }
+                catch (Exception exc) {
+                    // the test assertions report the failure
+                }
+            }
+        }).start();
+    }
+}
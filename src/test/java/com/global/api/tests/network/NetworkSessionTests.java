@@ -0,0 +1,481 @@
+package com.global.api.tests.network;
+
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.GatewayTimeoutException;
+import com.global.api.gateways.CallContext;
+import com.global.api.gateways.NetworkFrameDecoder;
+import com.global.api.gateways.NetworkGateway;
+import com.global.api.terminals.DeviceMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NetworkSessionTests {
+    private LoopbackHost primary;
+    private LoopbackHost secondary;
+    private NetworkGateway gateway;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        primary = new LoopbackHost("primary");
+        secondary = new LoopbackHost("secondary");
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        if (gateway != null) {
+            gateway.closeSession();
+        }
+        executor.shutdownNow();
+        primary.close();
+        secondary.close();
+    }
+
+    @Test
+    public void correlatedResponsesReachTheirCallersOutOfOrder() throws Exception {
+        gateway = gateway(true, 5000);
+
+        Future<String> slow = executor.submit(send("delay:400"));
+        primary.awaitRequests(1);
+        Future<String> fast = executor.submit(send("delay:0"));
+
+        assertEquals("primary:delay:0", fast.get(5, TimeUnit.SECONDS));
+        assertFalse(slow.isDone());
+        assertEquals("primary:delay:400", slow.get(5, TimeUnit.SECONDS));
+        assertEquals(1, primary.connections.get());
+    }
+
+    @Test
+    public void timeoutOnOneKeyLeavesTheSessionUp() throws Exception {
+        gateway = gateway(true, 5000);
+
+        Future<String> pending = executor.submit(send("delay:800"));
+        primary.awaitRequests(1);
+        Thread.sleep(50);
+        gateway.setTimeout(300);
+        // the host keeps answering other requests while this one waits
+        Future<String> answered = executor.submit(send("delay:150"));
+        try {
+            send("drop").call();
+            fail("Expected the unanswered request to time out");
+        } catch (GatewayTimeoutException exc) {
+            // expected
+        }
+
+        // the other requests on the link still get their responses, and nothing moved to the secondary
+        gateway.setTimeout(5000);
+        assertEquals("primary:delay:150", answered.get(5, TimeUnit.SECONDS));
+        assertEquals("primary:delay:800", pending.get(5, TimeUnit.SECONDS));
+        assertEquals("primary:next", send("next").call());
+        assertEquals(1, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void uncorrelatedTimeoutReplacesTheLink() throws Exception {
+        gateway = gateway(false, 300);
+
+        try {
+            send("drop").call();
+            fail("Expected the unanswered request to time out");
+        } catch (GatewayTimeoutException exc) {
+            // expected
+        }
+
+        // a late response on the old link can't be handed to this request
+        assertEquals("primary:next", send("next").call());
+        assertTrue(primary.connections.get() >= 2);
+    }
+
+    @Test
+    public void closingTheSessionStopsTheReader() throws Exception {
+        gateway = gateway(true, 5000);
+        assertEquals("primary:hello", send("hello").call());
+        assertNotNull(findReader());
+
+        gateway.closeSession();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (findReader() != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(findReader());
+    }
+
+    @Test
+    public void heartbeatKeepsAQuietSessionAlive() throws Exception {
+        gateway = gateway(true, 5000);
+        gateway.setKeepAliveInterval(100);
+        assertEquals("primary:hello", send("hello").call());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (primary.heartbeats.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(primary.heartbeats.get() >= 2);
+        assertEquals(1, primary.connections.get());
+    }
+
+    @Test
+    public void failedHeartbeatDropsTheSession() throws Exception {
+        gateway = gateway(true, 200);
+        gateway.setKeepAliveInterval(100);
+        assertEquals("primary:hello", send("hello").call());
+
+        // the host stops answering heartbeats, so it is taken to be gone and the session moves to the secondary
+        primary.dropHeartbeats = true;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (primary.heartbeats.get() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(400);
+
+        primary.dropHeartbeats = false;
+        assertEquals("secondary:next", send("next").call());
+        assertEquals(1, primary.connections.get());
+        assertEquals(1, secondary.connections.get());
+    }
+
+    @Test
+    public void deadLinkFailsOverToSecondary() throws Exception {
+        gateway = gateway(true, 5000);
+        assertEquals("primary:hello", send("hello").call());
+
+        // the primary drops the link instead of answering
+        primary.dropConnections = true;
+        assertEquals("secondary:next", send("next").call());
+        assertEquals(1, secondary.connections.get());
+
+        // and the session stays on the secondary
+        assertEquals("secondary:again", send("again").call());
+        assertEquals(1, secondary.connections.get());
+    }
+
+    @Test
+    public void silentHostFailsOverWithoutAHeartbeat() throws Exception {
+        gateway = gateway(true, 300);
+        assertEquals("primary:hello", send("hello").call());
+
+        // the primary keeps the link open but stops answering
+        primary.dropRequests = true;
+        assertEquals("secondary:next", send("next").call());
+        assertEquals(1, primary.connections.get());
+        assertEquals(1, secondary.connections.get());
+    }
+
+    @Test
+    public void cancelOnASharedSessionLeavesOtherRequestsAlone() throws Exception {
+        gateway = gateway(true, 5000);
+
+        Future<String> pending = executor.submit(send("delay:800"));
+        primary.awaitRequests(1);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        Future<String> cancelled = CallContext.submit(worker, send("drop"), 0);
+        primary.awaitRequests(1);
+        assertTrue(cancelled.cancel(true));
+        finish(worker);
+
+        assertEquals("primary:delay:800", pending.get(5, TimeUnit.SECONDS));
+        assertEquals("primary:next", send("next").call());
+        assertEquals(1, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void deadlineOnASharedSessionLeavesOtherRequestsAlone() throws Exception {
+        gateway = gateway(true, 5000);
+
+        Future<String> pending = executor.submit(send("delay:800"));
+        primary.awaitRequests(1);
+        assertTimesOut(CallContext.submit(executor, send("drop"), 300));
+
+        assertEquals("primary:delay:800", pending.get(5, TimeUnit.SECONDS));
+        assertEquals(1, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void cancelOnAnUnsharedSessionClosesIt() throws Exception {
+        gateway = gateway(false, 5000);
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        Future<String> cancelled = CallContext.submit(worker, send("delay:200"), 0);
+        primary.awaitRequests(1);
+        assertTrue(cancelled.cancel(true));
+        finish(worker);
+
+        // the late response went with the old link instead of to this request
+        assertEquals("primary:delay:600", send("delay:600").call());
+        assertEquals(2, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void deadlineOnAnUnsharedSessionDoesNotFailOver() throws Exception {
+        gateway = gateway(false, 5000);
+
+        assertTimesOut(CallContext.submit(executor, send("drop"), 300));
+
+        assertEquals("primary:next", send("next").call());
+        assertEquals(2, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void cancelWithoutASessionDoesNotFailOver() throws Exception {
+        gateway = gateway(false, 5000);
+        gateway.setPersistentConnection(false);
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        Future<String> cancelled = CallContext.submit(worker, send("drop"), 0);
+        primary.awaitRequests(1);
+        assertTrue(cancelled.cancel(true));
+        finish(worker);
+
+        assertEquals(1, primary.connections.get());
+        assertEquals(0, secondary.connections.get());
+    }
+
+    @Test
+    public void connectStopsAtTheDeadline() throws Exception {
+        // a listener that never accepts, with its backlog full, so new connections hang instead of being refused
+        ServerSocket stalled = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        List<Socket> backlog = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                Socket socket = new Socket();
+                backlog.add(socket);
+                try {
+                    socket.connect(new InetSocketAddress(stalled.getInetAddress(), stalled.getLocalPort()), 200);
+                } catch (SocketTimeoutException exc) {
+                    break;
+                }
+            }
+
+            gateway = gateway(false, 5000);
+            gateway.setPrimaryPort(stalled.getLocalPort());
+            gateway.setSecondaryEndpoint("127.0.0.1");
+            gateway.setSecondaryPort(stalled.getLocalPort());
+
+            // the call gives up at the deadline either way, but without the cap the worker carries on
+            // connecting, giving each host the full connect timeout
+            long started = System.currentTimeMillis();
+            ExecutorService worker = Executors.newSingleThreadExecutor();
+            assertTimesOut(CallContext.submit(worker, send("hello"), 300));
+            finish(worker);
+            assertTrue(System.currentTimeMillis() - started < 2000);
+        } finally {
+            for (Socket socket : backlog) {
+                socket.close();
+            }
+            stalled.close();
+        }
+    }
+
+    private NetworkGateway gateway(final boolean multiplexed, int timeout) {
+        NetworkGateway gateway = new NetworkGateway() {
+            @Override
+            protected boolean supportsMultiplexing() {
+                return multiplexed;
+            }
+
+            @Override
+            protected byte[] tagRequest(byte[] buffer, long key) {
+                ByteBuffer.wrap(buffer).putLong(2, key);
+                return buffer;
+            }
+
+            @Override
+            protected long getCorrelationKey(byte[] response) {
+                return ByteBuffer.wrap(response).getLong(0);
+            }
+
+            @Override
+            protected void sendHeartbeat() throws ApiException {
+                send(message("heartbeat"));
+            }
+        };
+        gateway.setSocketFactory(SocketFactory.getDefault());
+        gateway.setPersistentConnection(true);
+        gateway.setPrimaryEndpoint("127.0.0.1");
+        gateway.setPrimaryPort(primary.getPort());
+        gateway.setSecondaryEndpoint("localhost");
+        gateway.setSecondaryPort(secondary.getPort());
+        gateway.setTimeout(timeout);
+        return gateway;
+    }
+
+    private Callable<String> send(final String payload) {
+        return new Callable<String>() {
+            public String call() throws Exception {
+                byte[] response = gateway.send(message(payload));
+                return new String(response, 8, response.length - 8, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static void assertTimesOut(Future<String> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the call to time out");
+        } catch (ExecutionException exc) {
+            assertTrue(exc.getCause() instanceof GatewayTimeoutException);
+        }
+    }
+
+    // waits for the cancelled call to unwind, so anything it did to the connection has happened
+    private static void finish(ExecutorService worker) throws InterruptedException {
+        worker.shutdown();
+        assertTrue(worker.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    // length prefix, room for the correlation key, then the payload
+    private static DeviceMessage message(String payload) {
+        byte[] text = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(10 + text.length);
+        buffer.putShort((short) (10 + text.length));
+        buffer.putLong(0L);
+        buffer.put(text);
+        return new DeviceMessage(buffer.array());
+    }
+
+    private static Thread findReader() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("NetworkSession-") && thread.isAlive()) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    // answers each framed request with its key and "<name>:<payload>"
+    private static class LoopbackHost {
+        private final String name;
+        private final ServerSocket server;
+        private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2);
+        private final List<Socket> sockets = new CopyOnWriteArrayList<Socket>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger heartbeats = new AtomicInteger();
+        private final Semaphore requests = new Semaphore(0);
+        private volatile boolean dropConnections = false;
+        private volatile boolean dropHeartbeats = false;
+        private volatile boolean dropRequests = false;
+
+        LoopbackHost(String name) throws IOException {
+            this.name = name;
+            server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+
+            Thread acceptor = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (true) {
+                            final Socket socket = server.accept();
+                            connections.incrementAndGet();
+                            sockets.add(socket);
+
+                            Thread reader = new Thread(new Runnable() {
+                                public void run() {
+                                    serve(socket);
+                                }
+                            });
+                            reader.setDaemon(true);
+                            reader.start();
+                        }
+                    } catch (IOException exc) {
+                        // the host was closed
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return server.getLocalPort();
+        }
+
+        void awaitRequests(int count) throws InterruptedException {
+            assertTrue(requests.tryAcquire(count, 5, TimeUnit.SECONDS));
+        }
+
+        private void serve(final Socket socket) {
+            NetworkFrameDecoder decoder = new NetworkFrameDecoder(true);
+            try {
+                InputStream in = socket.getInputStream();
+                final OutputStream out = socket.getOutputStream();
+                while (true) {
+                    byte[] frame = decoder.readFrame(in);
+                    if (dropConnections) {
+                        socket.close();
+                        return;
+                    }
+
+                    String payload = new String(frame, 8, frame.length - 8, StandardCharsets.UTF_8);
+                    if (payload.equals("heartbeat")) {
+                        heartbeats.incrementAndGet();
+                        if (dropHeartbeats) {
+                            continue;
+                        }
+                    }
+                    requests.release();
+                    if (payload.startsWith("drop") || dropRequests) {
+                        continue;
+                    }
+
+                    byte[] text = (name + ":" + payload).getBytes(StandardCharsets.UTF_8);
+                    final ByteBuffer response = ByteBuffer.allocate(10 + text.length);
+                    response.putShort((short) (10 + text.length));
+                    response.put(frame, 0, 8);
+                    response.put(text);
+
+                    long delay = payload.startsWith("delay:") ? Long.parseLong(payload.substring(6)) : 0L;
+                    responder.schedule(new Runnable() {
+                        public void run() {
+                            try {
+                                synchronized (out) {
+                                    out.write(response.array());
+                                    out.flush();
+                                }
+                            } catch (IOException exc) {
+                                // the link was closed
+                            }
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException exc) {
+                // the link was closed
+            }
+        }
+
+        void close() {
+            responder.shutdownNow();
+            try {
+                server.close();
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            } catch (IOException exc) {
+                // eat the close exception
+            }
+        }
+    }
+}
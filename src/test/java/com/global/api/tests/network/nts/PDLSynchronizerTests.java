@@ -0,0 +1,360 @@
+package com.global.api.tests.network.nts;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.AuthorizationBuilder;
+import com.global.api.builders.ManagementBuilder;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.TransactionType;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.entities.exceptions.GatewayException;
+import com.global.api.gateways.IPaymentGateway;
+import com.global.api.network.NetworkMessageHeader;
+import com.global.api.network.entities.NtsPDLData;
+import com.global.api.network.entities.PDLSynchronizer;
+import com.global.api.network.entities.PDLTableCache;
+import com.global.api.network.entities.emvpdl.EMVPDLTable;
+import com.global.api.network.entities.emvpdl.EMVPDLTable10;
+import com.global.api.network.entities.emvpdl.EMVPDLTable40;
+import com.global.api.network.entities.mpdl.MPDLTable;
+import com.global.api.network.entities.mpdl.MPDLTable10;
+import com.global.api.network.entities.mpdl.MPDLTable30;
+import com.global.api.network.entities.mpdl.MPDLTable50;
+import com.global.api.network.entities.nts.NtsEMVPDLResponse;
+import com.global.api.network.entities.nts.NtsPDLResponse;
+import com.global.api.network.entities.nts.NtsRequestMessageHeader;
+import com.global.api.network.entities.nts.NtsResponse;
+import com.global.api.network.enums.nts.EmvPDLCardType;
+import com.global.api.network.enums.nts.PDLParameterType;
+import com.global.api.network.enums.nts.PDLTableID;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.utils.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PDLSynchronizerTests {
+    private static final String CONFIG_NAME = "pdlSynchronizer";
+    private static final int BLOCK_SIZE = 200;
+
+    private FakeNtsHost host;
+    private final NtsRequestMessageHeader header = new NtsRequestMessageHeader();
+
+    @Before
+    public void setUp() throws ConfigurationException {
+        host = new FakeNtsHost();
+        configure(host);
+    }
+
+    @After
+    public void tearDown() throws ConfigurationException {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void firstSyncDownloadsEveryMagnumTable() throws ApiException {
+        PDLTableCache cache = new PDLTableCache();
+        PDLSynchronizer synchronizer = new PDLSynchronizer(cache, header, CONFIG_NAME);
+
+        assertEquals(6, synchronizer.syncMagnum());
+        assertEquals(7, cache.size());
+        assertEquals(2 + host.blockCount("M50") + 5, synchronizer.getRequestCount());
+
+        MPDLTable<MPDLTable10> table10 = cache.getMagnumTable(PDLTableID.Table10);
+        assertEquals("MY STORE            ", table10.getTable().getUnitOrLocationName());
+        assertEquals("003", table10.getTable().getBinRangeTableVersion());
+
+        MPDLTable<MPDLTable30> table30 = cache.getMagnumTable(PDLTableID.Table30);
+        assertEquals(Integer.valueOf(25), table30.getTable().getBatchSize());
+
+        MPDLTable<MPDLTable50> table50 = cache.getMagnumTable(PDLTableID.Table50);
+        assertEquals(Integer.valueOf(300), table50.getTable().getCards().get(0).getBinRangeCount());
+        assertSame(table50, cache.getMagnumTable(PDLTableID.Table50));
+        assertEquals("003", cache.getVersion(PDLTableID.Table50));
+
+        // the download finishes with a confirmation of the last table
+        assertEquals("05:80:006:00", host.requests.get(host.requests.size() - 1));
+    }
+
+    @Test
+    public void onlyChangedTablesAreDownloaded() throws ApiException {
+        PDLTableCache cache = new PDLTableCache();
+        new PDLSynchronizer(cache, header, CONFIG_NAME).syncMagnum();
+
+        PDLSynchronizer unchanged = new PDLSynchronizer(cache, header, CONFIG_NAME);
+        assertEquals(0, unchanged.syncMagnum());
+        assertEquals(2, unchanged.getRequestCount());
+
+        host.magnumVersions.put(PDLTableID.Table30, "008");
+        PDLSynchronizer changed = new PDLSynchronizer(cache, header, CONFIG_NAME);
+        assertEquals(1, changed.syncMagnum());
+        assertEquals(3, changed.getRequestCount());
+        assertEquals("008", cache.getVersion(PDLTableID.Table30));
+        assertEquals("05:30:008:00", host.requests.get(host.requests.size() - 1));
+    }
+
+    @Test
+    public void emvTablesAreKeptForEachCardType() throws ApiException {
+        PDLTableCache cache = new PDLTableCache();
+        PDLSynchronizer synchronizer = new PDLSynchronizer(cache, header, CONFIG_NAME);
+
+        // table 30, then 40, 50 and 60 for Visa and Mastercard
+        assertEquals(7, synchronizer.syncEmv());
+        assertEquals("012", cache.getVersion(PDLTableID.Table40, EmvPDLCardType.Visa));
+        assertEquals("022", cache.getVersion(PDLTableID.Table40, EmvPDLCardType.Mastercard));
+        assertNull(cache.getVersion(PDLTableID.Table40, EmvPDLCardType.Discover));
+        assertNull(cache.getVersion(PDLTableID.Table40));
+
+        EMVPDLTable<EMVPDLTable10> table10 = cache.getEmvTable(PDLTableID.Table10);
+        assertEquals(Integer.valueOf(2), table10.getTable().getEmvPdlNoOfCardTypes());
+
+        EMVPDLTable<EMVPDLTable40> visa = cache.getEmvTable(PDLTableID.Table40, EmvPDLCardType.Visa);
+        assertEquals("A0000000031010", visa.getTable().getEmvPdlAid().get(0).getEmvPdlApplicationIdentifier().trim());
+        EMVPDLTable<EMVPDLTable40> mastercard = cache.getEmvTable(PDLTableID.Table40, EmvPDLCardType.Mastercard);
+        assertEquals("A0000000041010", mastercard.getTable().getEmvPdlAid().get(0).getEmvPdlApplicationIdentifier().trim());
+
+        assertEquals("07:60:02:023:00", host.requests.get(host.requests.size() - 1));
+
+        host.emvVersions.put("5001", "099");
+        PDLSynchronizer changed = new PDLSynchronizer(cache, header, CONFIG_NAME);
+        assertEquals(1, changed.syncEmv());
+        assertEquals("099", cache.getVersion(PDLTableID.Table50, EmvPDLCardType.Visa));
+    }
+
+    @Test
+    public void declinedBlockLeavesTheTableAsItWas() throws ApiException {
+        PDLTableCache cache = new PDLTableCache();
+        new PDLSynchronizer(cache, header, CONFIG_NAME).syncMagnum();
+
+        host.magnumVersions.put(PDLTableID.Table50, "004");
+        host.declinedBlock = "M50:02";
+        try {
+            new PDLSynchronizer(cache, header, CONFIG_NAME).syncMagnum();
+            fail("Expected the declined block to stop the download");
+        }
+        catch (GatewayException exc) {
+            assertEquals("Parameter data load of table 50 was declined.", exc.getMessage());
+        }
+        assertEquals("003", cache.getVersion(PDLTableID.Table50));
+    }
+
+    @Test
+    public void snapshotIsReadBack() throws Exception {
+        File file = File.createTempFile("pdl", ".cache");
+        try {
+            PDLTableCache cache = new PDLTableCache();
+            PDLSynchronizer synchronizer = new PDLSynchronizer(cache, header, CONFIG_NAME);
+            synchronizer.syncMagnum();
+            synchronizer.syncEmv();
+            cache.save(file);
+
+            PDLTableCache restarted = new PDLTableCache();
+            restarted.load(file);
+            assertEquals(cache.size(), restarted.size());
+            MPDLTable<MPDLTable10> table10 = restarted.getMagnumTable(PDLTableID.Table10);
+            assertEquals("MY STORE            ", table10.getTable().getUnitOrLocationName());
+            MPDLTable<MPDLTable50> table50 = restarted.getMagnumTable(PDLTableID.Table50);
+            assertEquals("4000000000000299   ", table50.getTable().getCards().get(0).getBinRanges().get(299).getBinStart());
+            assertEquals("022", restarted.getVersion(PDLTableID.Table40, EmvPDLCardType.Mastercard));
+
+            PDLSynchronizer afterRestart = new PDLSynchronizer(restarted, header, CONFIG_NAME);
+            assertEquals(0, afterRestart.syncMagnum());
+            assertEquals(0, afterRestart.syncEmv());
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void laneRestartOnlyChecksForChanges() throws Exception {
+        File file = File.createTempFile("pdl", ".cache");
+        try {
+            PDLTableCache cache = new PDLTableCache();
+            PDLSynchronizer full = new PDLSynchronizer(cache, header, CONFIG_NAME);
+            full.syncMagnum();
+            full.syncEmv();
+            cache.save(file);
+            assertEquals(15, cache.size());
+            assertEquals(79, full.getRequestCount());
+
+            // what a lane does on start-up now: load the tables, then ask the host what has changed
+            PDLTableCache restarted = new PDLTableCache();
+            restarted.load(file);
+            PDLSynchronizer incremental = new PDLSynchronizer(restarted, header, CONFIG_NAME);
+            incremental.syncMagnum();
+            incremental.syncEmv();
+            assertNotNull(restarted.getMagnumTable(PDLTableID.Table50));
+            assertEquals(4, incremental.getRequestCount());
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private void configure(final FakeNtsHost host) throws ConfigurationException {
+        ServicesContainer.configureService(new Configuration() {
+            @Override
+            public void configureContainer(ConfiguredServices services) {
+                services.setGatewayConnector(host);
+            }
+        }, CONFIG_NAME);
+    }
+
+    // answers parameter data loads from tables held in memory, in blocks of BLOCK_SIZE characters
+    private static class FakeNtsHost implements IPaymentGateway {
+        private final Map<PDLTableID, String> magnumVersions = new HashMap<>();
+        // table id followed by the card type
+        private final Map<String, String> emvVersions = new HashMap<>();
+        private final Map<String, String> tables = new HashMap<>();
+        private final List<String> requests = new ArrayList<>();
+        private String declinedBlock;
+
+        private FakeNtsHost() {
+            magnumVersions.put(PDLTableID.Table30, "001");
+            magnumVersions.put(PDLTableID.Table40, "002");
+            magnumVersions.put(PDLTableID.Table50, "003");
+            magnumVersions.put(PDLTableID.Table60, "004");
+            magnumVersions.put(PDLTableID.Table70, "005");
+            magnumVersions.put(PDLTableID.Table80, "006");
+            tables.put("M30", "25" + "012" + "11" + "234" + "02" + "15" + "Y" + "00010" + "0024" + "10" + "05" + "YYN" + "001" + "999" + "000" + "N");
+            StringBuilder bins = new StringBuilder("010103300");
+            for (int i = 0; i < 300; i++) {
+                bins.append(StringUtils.padRight(String.valueOf(4000000000000000L + i), 19, ' ')).append('N')
+                        .append(StringUtils.padRight(String.valueOf(4000000000000000L + i), 19, ' '));
+            }
+            tables.put("M50", bins.toString());
+            for (String table : new String[] { "M40", "M60", "M70", "M80" }) {
+                tables.put(table, StringUtils.padRight(table, 150, 'X'));
+            }
+
+            emvVersions.put("30  ", "031");
+            emvVersions.put("4001", "012");
+            emvVersions.put("5001", "013");
+            emvVersions.put("6001", "014");
+            emvVersions.put("4002", "022");
+            emvVersions.put("5002", "023");
+            emvVersions.put("6002", "023");
+            tables.put("E30", StringUtils.padRight("E30", 120, 'X'));
+            tables.put("E4001", "01" + aid("A0000000031010"));
+            tables.put("E4002", "01" + aid("A0000000041010"));
+            for (String table : new String[] { "E5001", "E6001", "E5002", "E6002" }) {
+                tables.put(table, StringUtils.padRight(table, 320, 'X'));
+            }
+        }
+
+        private int blockCount(String table) {
+            return (tables.get(table).length() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+
+        public Transaction processAuthorization(AuthorizationBuilder builder) throws ApiException {
+            NtsPDLData pdlData = builder.getNtsPDLData();
+            boolean emv = builder.getTransactionType().equals(TransactionType.EmvPdl);
+            String tableId = pdlData.getTableId().getValue();
+            String cardType = emv ? pdlData.getEmvPDLCardType().getValue() : "";
+            String block = pdlData.getBlockSequenceNumber();
+            requests.add(pdlData.getParameterType().getValue() + ":" + tableId + ":" + (emv ? cardType + ":" : "") + pdlData.getParameterVersion() + ":" + block);
+
+            Transaction response = new Transaction();
+            String key = (emv ? "E" : "M") + tableId + cardType.trim();
+            if ((key + ":" + block).equals(declinedBlock)) {
+                response.setResponseCode("01");
+                return response;
+            }
+
+            String endOfTable;
+            String data;
+            boolean confirm = pdlData.getParameterType().equals(PDLParameterType.MagnumPDLConfirm) || pdlData.getParameterType().equals(PDLParameterType.EMVPDLConfirm);
+            if (confirm) {
+                endOfTable = "C";
+                data = "";
+            }
+            else if (tableId.equals("10")) {
+                endOfTable = "Y";
+                data = emv ? emvTable10() : magnumTable10();
+            }
+            else {
+                String table = tables.get(key);
+                int index = Integer.parseInt(block) - 1;
+                String part = table.substring(index * BLOCK_SIZE, Math.min(table.length(), (index + 1) * BLOCK_SIZE));
+                endOfTable = (index + 1) * BLOCK_SIZE >= table.length() ? "Y" : "N";
+                data = StringUtils.padLeft(String.valueOf(part.length()), 3, '0') + part;
+            }
+
+            NtsResponse ntsResponse = new NtsResponse();
+            if (emv) {
+                String message = "00" + "00" + pdlData.getParameterVersion() + block + tableId + cardType + endOfTable + (confirm ? "" : data);
+                ntsResponse.setNtsResponseMessage(new NtsEMVPDLResponse(false).setNtsResponseMessage(message.getBytes(), false));
+            }
+            else {
+                String message = pdlData.getParameterVersion() + block + tableId + endOfTable + data;
+                ntsResponse.setNtsResponseMessage(new NtsPDLResponse().setNtsResponseMessage(message.getBytes(), false));
+            }
+            response.setNtsResponse(ntsResponse);
+            response.setResponseCode("00");
+            return response;
+        }
+
+        private String magnumTable10() {
+            StringBuilder table = new StringBuilder("01")
+                    .append(StringUtils.padRight("10.0.0.1", 28, ' '))
+                    .append(StringUtils.padRight("10.0.0.2", 28, ' '))
+                    .append(StringUtils.padRight("10.0.0.3", 28, ' '))
+                    .append("00")
+                    .append("MY STORE            ")
+                    .append("1 MY STREET       ")
+                    .append("JEFFERSONVILLE  ")
+                    .append("KY");
+            for (PDLTableID tableId : new PDLTableID[] { PDLTableID.Table30, PDLTableID.Table40, PDLTableID.Table50, PDLTableID.Table60, PDLTableID.Table70, PDLTableID.Table80 }) {
+                table.append(magnumVersions.get(tableId)).append('Y');
+            }
+            return table.append("006").append("90210").append("S").toString();
+        }
+
+        private String emvTable10() {
+            StringBuilder table = new StringBuilder("Y").append(emvVersions.get("30  ")).append("Y").append("02");
+            for (String cardType : new String[] { "01", "02" }) {
+                table.append(cardType);
+                for (String tableId : new String[] { "40", "50", "60" }) {
+                    table.append(emvVersions.get(tableId + cardType)).append('Y');
+                }
+            }
+            return table.toString();
+        }
+
+        private static String aid(String applicationIdentifier) {
+            return StringUtils.padRight(applicationIdentifier, 32, ' ')
+                    + "1" + "0096" + "840" + "0000" + "E0F8C8"
+                    + "000000000000" + "000000000000" + "00" + "00"
+                    + "0010000000" + "DC4004F800" + "DC4000A800"
+                    + StringUtils.padRight("", 16, '0')
+                    + StringUtils.padRight("9F0206", 32, ' ')
+                    + StringUtils.padRight("9F3704", 32, ' ');
+        }
+
+        public Transaction manageTransaction(ManagementBuilder builder) throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public String serializeRequest(AuthorizationBuilder builder) throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public NetworkMessageHeader sendKeepAlive() throws ApiException {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean supportsHostedPayments() {
+            return false;
+        }
+    }
+}
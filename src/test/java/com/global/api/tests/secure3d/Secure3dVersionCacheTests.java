@@ -0,0 +1,278 @@
+package com.global.api.tests.secure3d;
+
+import com.global.api.ConfiguredServices;
+import com.global.api.ServicesContainer;
+import com.global.api.builders.Secure3dBuilder;
+import com.global.api.entities.ThreeDSecure;
+import com.global.api.entities.Transaction;
+import com.global.api.entities.enums.Secure3dVersion;
+import com.global.api.entities.exceptions.ApiException;
+import com.global.api.entities.exceptions.ConfigurationException;
+import com.global.api.gateways.ISecure3dProvider;
+import com.global.api.gateways.Secure3dCacheStats;
+import com.global.api.gateways.Secure3dVersionCache;
+import com.global.api.paymentMethods.CreditCardData;
+import com.global.api.serviceConfigs.Configuration;
+import com.global.api.services.Secure3dService;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class Secure3dVersionCacheTests {
+    private static final String CONFIG_NAME = "secure3dVersionCache";
+    // the 3DS2 provider below only knows about this range
+    private static final String TWO_CARD = "4263970000005262";
+    private static final String ONE_CARD = "4012001037141112";
+
+    private final AtomicInteger oneRequests = new AtomicInteger();
+    private final AtomicInteger twoRequests = new AtomicInteger();
+    private long now = 1000000L;
+
+    @After
+    public void tearDown() throws ConfigurationException {
+        ServicesContainer.configureService(null, CONFIG_NAME);
+    }
+
+    @Test
+    public void rangesAreSharedByCards() {
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        cache.put("4012001037141112", Secure3dVersion.ONE);
+
+        assertEquals(Secure3dVersion.ONE, cache.get("4012001037149999"));
+        assertNull(cache.get("4012001137141112"));
+        assertNull(cache.get(null));
+        assertNull(cache.get("40120010"));
+
+        Secure3dCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void onlyVersionsOneAndTwoAreKept() {
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        cache.put(ONE_CARD, Secure3dVersion.ANY);
+        cache.put(ONE_CARD, null);
+        cache.put("4012abcd37141112", Secure3dVersion.ONE);
+        assertEquals(0, cache.getStats().getSize());
+
+        cache.put(ONE_CARD, Secure3dVersion.TWO);
+        assertEquals(Secure3dVersion.TWO, cache.get(ONE_CARD));
+    }
+
+    @Test
+    public void entriesExpire() {
+        Secure3dVersionCache cache = clockedCache(8, 100, 1000);
+        cache.put(ONE_CARD, Secure3dVersion.ONE);
+
+        now += 999;
+        assertEquals(Secure3dVersion.ONE, cache.get(ONE_CARD));
+        now += 1;
+        assertNull(cache.get(ONE_CARD));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedRangeIsEvicted() {
+        Secure3dVersionCache cache = clockedCache(8, 2, 1000);
+        cache.put("4000000100000000", Secure3dVersion.ONE);
+        cache.put("4000000200000000", Secure3dVersion.ONE);
+
+        // reading the first range makes the second the eldest
+        cache.get("4000000100000000");
+        cache.put("4000000300000000", Secure3dVersion.TWO);
+
+        assertEquals(Secure3dVersion.ONE, cache.get("4000000100000000"));
+        assertNull(cache.get("4000000200000000"));
+        assertEquals(Secure3dVersion.TWO, cache.get("4000000300000000"));
+
+        Secure3dCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+    }
+
+    @Test
+    public void snapshotSurvivesRestart() throws Exception {
+        File file = File.createTempFile("secure3d", ".cache");
+        try {
+            Secure3dVersionCache cache = clockedCache(8, 100, 1000);
+            cache.put(ONE_CARD, Secure3dVersion.ONE);
+            cache.put("4000000000001091", Secure3dVersion.TWO);
+            cache.put("5425230000004415", Secure3dVersion.ONE);
+            now += 500;
+            cache.put("4263970000005262", Secure3dVersion.TWO);
+            cache.save(file);
+
+            String snapshot = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertFalse(snapshot.contains(ONE_CARD));
+            assertFalse(snapshot.contains("5425230000004415"));
+            assertTrue(snapshot.contains("54252300,ONE,"));
+
+            // the first three have expired by the time it is loaded again
+            now += 600;
+            Secure3dVersionCache restarted = clockedCache(8, 100, 1000);
+            Files.write(file.toPath(), "not,a,line\n12345678,THREE,9999999999\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            restarted.load(file);
+
+            assertEquals(1, restarted.getStats().getSize());
+            assertEquals(Secure3dVersion.TWO, restarted.get("4263970000001111"));
+
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertEquals("# Secure3dVersionCache range,version,expires", lines.get(0));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void missingSnapshotIsIgnored() throws Exception {
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        cache.load(new File("does-not-exist.cache"));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void knownVersionOneRangesSkipTheTwoProvider() throws ApiException {
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        configure(cache);
+
+        ThreeDSecure first = Secure3dService.checkEnrollment(card(ONE_CARD)).execute(CONFIG_NAME);
+        assertEquals(Secure3dVersion.ONE, first.getVersion());
+        assertEquals(1, twoRequests.get());
+        assertEquals(1, oneRequests.get());
+
+        // another card from the same range doesn't go to the 3DS2 provider
+        ThreeDSecure second = Secure3dService.checkEnrollment(card("4012001037140000")).execute(CONFIG_NAME);
+        assertEquals(Secure3dVersion.ONE, second.getVersion());
+        assertTrue(second.isEnrolled());
+        assertEquals(1, twoRequests.get());
+        assertEquals(2, oneRequests.get());
+
+        // 3DS2 cards are still checked with the 3DS2 provider every time
+        for (int i = 0; i < 2; i++) {
+            ThreeDSecure two = Secure3dService.checkEnrollment(card(TWO_CARD)).execute(CONFIG_NAME);
+            assertEquals(Secure3dVersion.TWO, two.getVersion());
+        }
+        assertEquals(3, twoRequests.get());
+        assertEquals(2, oneRequests.get());
+
+        // asking for a version leaves the cache out of it
+        Secure3dService.checkEnrollment(card(ONE_CARD)).execute(Secure3dVersion.TWO, CONFIG_NAME);
+        assertEquals(4, twoRequests.get());
+    }
+
+    @Test
+    public void failuresAreNotCached() throws ApiException {
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        configure(cache);
+
+        try {
+            Secure3dService.checkEnrollment(card("4999999900000000")).execute(CONFIG_NAME);
+            fail("Expected the 3DS2 provider to fail");
+        }
+        catch (ApiException exc) {
+            assertEquals("Simulated outage", exc.getMessage());
+        }
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void cacheSavesRoundTripsForVersionOneTraffic() throws ApiException {
+        // mostly 3DS1 ranges, as with an older card portfolio
+        String[] cards = new String[200];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (i % 10 == 0 ? "42639700" : "4012001" + (i % 4)) + String.format("%08d", i);
+        }
+
+        configure(null);
+        for (String number : cards) {
+            Secure3dService.checkEnrollment(card(number)).execute(CONFIG_NAME);
+        }
+        int uncachedRequests = oneRequests.get() + twoRequests.get();
+
+        oneRequests.set(0);
+        twoRequests.set(0);
+        Secure3dVersionCache cache = new Secure3dVersionCache();
+        configure(cache);
+        for (String number : cards) {
+            Secure3dService.checkEnrollment(card(number)).execute(CONFIG_NAME);
+        }
+        int cachedRequests = oneRequests.get() + twoRequests.get();
+
+        // without the cache every card asks 3DS2 first and the 3DS1 cards then ask 3DS1. with it, only the first
+        // card of each 3DS1 range asks 3DS2
+        assertEquals(380, uncachedRequests);
+        assertEquals(204, cachedRequests);
+        assertEquals(5, cache.getStats().getMisses());
+    }
+
+    private Secure3dVersionCache clockedCache(int rangeDigits, int maxEntries, long timeToLive) {
+        return new Secure3dVersionCache(rangeDigits, maxEntries, timeToLive) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    private static CreditCardData card(String number) {
+        CreditCardData card = new CreditCardData();
+        card.setNumber(number);
+        card.setExpMonth(12);
+        card.setExpYear(2030);
+        card.setCardHolderName("John Smith");
+        return card;
+    }
+
+    private void configure(final Secure3dVersionCache cache) throws ConfigurationException {
+        Configuration config = new Configuration() {
+            @Override
+            public void configureContainer(ConfiguredServices services) {
+                services.setSecure3dProvider(Secure3dVersion.ONE, new FakeProvider(Secure3dVersion.ONE, oneRequests));
+                services.setSecure3dProvider(Secure3dVersion.TWO, new FakeProvider(Secure3dVersion.TWO, twoRequests));
+                services.setSecure3dVersionCache(cache);
+            }
+        };
+        ServicesContainer.configureService(config, CONFIG_NAME);
+    }
+
+    // stands in for the ACS directory servers: 3DS2 only enrolls cards starting with 42639700
+    private static class FakeProvider implements ISecure3dProvider {
+        private final Secure3dVersion version;
+        private final AtomicInteger requests;
+
+        private FakeProvider(Secure3dVersion version, AtomicInteger requests) {
+            this.version = version;
+            this.requests = requests;
+        }
+
+        public Secure3dVersion getVersion() {
+            return version;
+        }
+
+        public Transaction processSecure3d(Secure3dBuilder builder) throws ApiException {
+            requests.incrementAndGet();
+
+            String number = ((CreditCardData) builder.getPaymentMethod()).getNumber();
+            if (version == Secure3dVersion.TWO && number.startsWith("49999999")) {
+                throw new ApiException("Simulated outage");
+            }
+
+            ThreeDSecure secureEcom = new ThreeDSecure();
+            secureEcom.setEnrolled(version == Secure3dVersion.ONE || number.startsWith("42639700"));
+            Transaction response = new Transaction();
+            response.setThreeDsecure(secureEcom);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.global.api.tests.terminals;
+
+import com.global.api.entities.enums.MessageFormat;
+import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.terminals.hpa.interfaces.HpaTcpInterface;
+import com.global.api.terminals.messaging.IMessageSentInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class HpaTcpInterfaceTests {
+    private static final String FRAGMENT_ONE = "<SIP><Version>1.0</Version><Response>GetBatchReport</Response><MultipleMessage>1</MultipleMessage><Result>0</Result></SIP>";
+    private static final String FRAGMENT_TWO = "<SIP><Version>1.0</Version><Response>GetBatchReport</Response><MultipleMessage>0</MultipleMessage><Result>0</Result></SIP>";
+
+    private ServerSocket device;
+    private ExecutorService executor;
+    private HpaTcpInterface hpa;
+
+    @Before
+    public void setUp() throws Exception {
+        device = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        executor = Executors.newSingleThreadExecutor();
+
+        ConnectionConfig settings = new ConnectionConfig();
+        settings.setIpAddress("127.0.0.1");
+        settings.setPort(device.getLocalPort());
+        settings.setTimeout(2000);
+
+        hpa = new HpaTcpInterface(settings);
+        hpa.setMessageSentHandler(new IMessageSentInterface() {
+            public void messageSent(String message) { }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        hpa.disconnect();
+        executor.shutdownNow();
+        device.close();
+    }
+
+    @Test
+    public void multipleMessageResponseIsAssembled() throws Exception {
+        respondWith(new byte[][] { frame(FRAGMENT_ONE), frame(FRAGMENT_TWO) });
+
+        byte[] response = hpa.send(request("<SIP><Version>1.0</Version><Request>GetBatchReport</Request></SIP>"));
+        assertEquals(FRAGMENT_ONE + "\r" + FRAGMENT_TWO, new String(response));
+    }
+
+    @Test
+    public void silentDeviceTimesOut() throws Exception {
+        respondWith(new byte[0][]);
+
+        long start = System.currentTimeMillis();
+        try {
+            hpa.send(request("<SIP><Version>1.0</Version><Request>Reset</Request></SIP>"));
+            fail("Expected a MessageException");
+        }
+        catch (MessageException exc) {
+            assertTrue(System.currentTimeMillis() - start >= 2000);
+        }
+    }
+
+    @Test
+    public void disconnectStopsReceiveThread() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            respondWith(new byte[][] { frame(FRAGMENT_TWO) });
+            hpa.send(request("<SIP><Version>1.0</Version><Request>GetBatchReport</Request></SIP>"));
+            hpa.disconnect();
+        }
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (countReceiveThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, countReceiveThreads());
+    }
+
+    // accepts one connection, reads the request and writes each response a few bytes at a time
+    private void respondWith(final byte[][] responses) {
+        executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                Socket socket = device.accept();
+                socket.setTcpNoDelay(true);
+
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                in.readFully(new byte[in.readUnsignedShort()]);
+
+                OutputStream out = socket.getOutputStream();
+                for (byte[] response : responses) {
+                    for (int i = 0; i < response.length; i += 16) {
+                        out.write(Arrays.copyOfRange(response, i, Math.min(response.length, i + 16)));
+                        out.flush();
+                        Thread.sleep(1);
+                    }
+                }
+
+                // hold the connection open until the client closes it
+                while (in.read() >= 0) { }
+                socket.close();
+                return null;
+            }
+        });
+    }
+
+    private static DeviceMessage request(String message) {
+        DeviceMessage request = TerminalUtilities.buildRequest(message, MessageFormat.HPA);
+        request.setAwaitResponse(true);
+        return request;
+    }
+
+    private static byte[] frame(String message) {
+        byte[] body = message.getBytes();
+        byte[] frame = new byte[body.length + 2];
+        frame[0] = (byte) (body.length >>> 8);
+        frame[1] = (byte) body.length;
+        System.arraycopy(body, 0, frame, 2, body.length);
+        return frame;
+    }
+
+    private static int countReceiveThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("HpaTcpInterface-receive") && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,135 @@
+package com.global.api.tests.terminals;
+
+import com.global.api.entities.enums.ControlCodes;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.terminals.TerminalFrameReader;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.terminals.pax.interfaces.PaxTcpInterface;
+import com.global.api.utils.MessageWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class TerminalFrameReaderTests {
+    private ServerSocket server;
+    private Socket client;
+    private Socket terminal;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        client.setTcpNoDelay(true);
+        terminal = server.accept();
+        terminal.setTcpNoDelay(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        terminal.close();
+        server.close();
+    }
+
+    @Test
+    public void frameSplitAcrossSegmentsIsReturnedWhole() throws Exception {
+        byte[] frame = buildFrame("0\u001CT01\u001C1.45\u001C000000\u001COK");
+        sendInSegments(terminal, frame, 7);
+
+        byte[] received = new TerminalFrameReader(16).readMessage(client, 5000);
+        assertArrayEquals(frame, received);
+    }
+
+    @Test
+    public void controlCodesAndFramesInOneSegmentAreSplit() throws Exception {
+        byte[] frame = buildFrame("0\u001CA01\u001C1.45");
+
+        MessageWriter mw = new MessageWriter();
+        mw.add((byte) 0x20);
+        mw.add(ControlCodes.ACK);
+        mw.addRange(frame);
+        mw.add(ControlCodes.EOT);
+        terminal.getOutputStream().write(mw.toArray());
+
+        TerminalFrameReader reader = new TerminalFrameReader();
+        assertArrayEquals(new byte[] { ControlCodes.ACK.getByte() }, reader.readMessage(client, 5000));
+        assertArrayEquals(frame, reader.readMessage(client, 5000));
+        assertArrayEquals(new byte[] { ControlCodes.EOT.getByte() }, reader.readMessage(client, 5000));
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void silentTerminalTimesOut() throws Exception {
+        new TerminalFrameReader().readMessage(client, 1000);
+    }
+
+    @Test
+    public void paxInterfaceAcknowledgesSplitResponse() throws Exception {
+        final byte[] response = buildFrame("0\u001CA01\u001C1.45\u001C000000\u001COK");
+        final ServerSocket device = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<byte[]> terminalReceived = executor.submit(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                try (Socket socket = device.accept()) {
+                    socket.setTcpNoDelay(true);
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+
+                    // the request, then an ACK and a response that arrives a few bytes at a time
+                    new TerminalFrameReader().readMessage(socket, 5000);
+                    out.write(ControlCodes.ACK.getByte());
+                    sendInSegments(socket, response, 5);
+
+                    byte[] reply = new byte[1];
+                    assertEquals(1, in.read(reply));
+                    return reply;
+                }
+            }
+        });
+
+        ConnectionConfig settings = new ConnectionConfig();
+        settings.setIpAddress("127.0.0.1");
+        settings.setPort(device.getLocalPort());
+        settings.setTimeout(5000);
+
+        try {
+            byte[] rvalue = new PaxTcpInterface(settings).send(new DeviceMessage(buildFrame("A00\u001C1.45")));
+            assertArrayEquals(response, rvalue);
+            assertArrayEquals(new byte[] { ControlCodes.ACK.getByte() }, terminalReceived.get(5, TimeUnit.SECONDS));
+        }
+        finally {
+            executor.shutdownNow();
+            device.close();
+        }
+    }
+
+    private static byte[] buildFrame(String body) {
+        MessageWriter mw = new MessageWriter();
+        mw.add(ControlCodes.STX);
+        mw.addRange(body.getBytes());
+        mw.add(ControlCodes.ETX);
+        mw.add(TerminalUtilities.calculateLRC(mw.toArray()));
+        return mw.toArray();
+    }
+
+    private static void sendInSegments(Socket socket, byte[] message, int segmentSize) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        for (int i = 0; i < message.length; i += segmentSize) {
+            out.write(Arrays.copyOfRange(message, i, Math.min(message.length, i + segmentSize)));
+            out.flush();
+            Thread.sleep(10);
+        }
+    }
+}
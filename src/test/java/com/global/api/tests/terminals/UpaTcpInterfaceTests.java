@@ -0,0 +1,176 @@
+package com.global.api.tests.terminals;
+
+import com.global.api.entities.exceptions.MessageException;
+import com.global.api.terminals.ConnectionConfig;
+import com.global.api.terminals.DeviceMessage;
+import com.global.api.terminals.TerminalFrameReader;
+import com.global.api.terminals.TerminalUtilities;
+import com.global.api.terminals.upa.Entities.Enums.UpaMessageId;
+import com.global.api.terminals.upa.interfaces.UpaTcpInterface;
+import com.global.api.utils.JsonDoc;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class UpaTcpInterfaceTests {
+    private ServerSocket device;
+    private ExecutorService executor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean busy;
+
+    @Before
+    public void startDevice() throws Exception {
+        device = new ServerSocket(0, 5, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool();
+        executor.submit(new Runnable() {
+            public void run() {
+                while (!device.isClosed()) {
+                    try {
+                        final Socket socket = device.accept();
+                        connections.incrementAndGet();
+                        executor.submit(new Runnable() {
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    }
+                    catch (Exception exc) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    @After
+    public void stopDevice() throws Exception {
+        device.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void persistentConnectionIsReused() throws Exception {
+        UpaTcpInterface upa = new UpaTcpInterface(settings(true));
+        try {
+            for (int i = 0; i < 3; i++) {
+                JsonDoc response = JsonDoc.parse(new String(upa.send(request(UpaMessageId.Sale, i)), StandardCharsets.UTF_8));
+                assertEquals("Sale", response.get("data").getString("response"));
+                assertEquals(String.valueOf(i), response.get("data").getString("requestId"));
+            }
+            assertEquals(1, connections.get());
+        }
+        finally {
+            upa.disconnect();
+        }
+    }
+
+    @Test
+    public void failedCommandStartsANewConnection() throws Exception {
+        UpaTcpInterface upa = new UpaTcpInterface(settings(true));
+        try {
+            busy = true;
+            try {
+                upa.send(request(UpaMessageId.Sale, 1));
+                fail("Expected a MessageException");
+            }
+            catch (MessageException exc) {
+                assertEquals("Device is busy", exc.getMessage());
+            }
+
+            busy = false;
+            JsonDoc response = JsonDoc.parse(new String(upa.send(request(UpaMessageId.Sale, 2)), StandardCharsets.UTF_8));
+            assertEquals("2", response.get("data").getString("requestId"));
+            assertEquals(2, connections.get());
+        }
+        finally {
+            upa.disconnect();
+        }
+    }
+
+    private ConnectionConfig settings(boolean persistent) {
+        ConnectionConfig settings = new ConnectionConfig();
+        settings.setIpAddress("127.0.0.1");
+        settings.setPort(device.getLocalPort());
+        settings.setTimeout(5000);
+        settings.setPersistentConnection(persistent);
+        return settings;
+    }
+
+    private static DeviceMessage request(UpaMessageId command, int requestId) {
+        JsonDoc params = new JsonDoc();
+        params.set("lineItemLeft", "Widget");
+
+        JsonDoc body = new JsonDoc();
+        body.set("params", params);
+        return TerminalUtilities.buildMessage(command, String.valueOf(requestId), body);
+    }
+
+    // answers each command with ACK, then the response, and READY once the host has acknowledged the response
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            TerminalFrameReader reader = new TerminalFrameReader();
+
+            while (true) {
+                byte[] frame = reader.readMessage(socket, 10000);
+                JsonDoc request = JsonDoc.parse(new String(frame, 2, frame.length - 5, StandardCharsets.UTF_8));
+
+                if (request.getString("message").equals("ACK")) {
+                    out.write(message("READY", null));
+                    continue;
+                }
+
+                if (busy) {
+                    out.write(message("BUSY", null));
+                    continue;
+                }
+
+                JsonDoc data = new JsonDoc();
+                data.set("response", request.get("data").getString("command"));
+                data.set("requestId", request.get("data").getString("requestId"));
+                data.set("cmdResult", new JsonDoc().set("result", "Success"));
+
+                // the device takes a moment to act on the command after acknowledging it
+                out.write(message("ACK", null));
+                Thread.sleep(5);
+                out.write(message("MSG", data));
+            }
+        }
+        catch (EOFException exc) {
+            // the host closed the connection
+        }
+        catch (Exception exc) {
+            // the test has finished
+        }
+        finally {
+            try {
+                socket.close();
+            }
+            catch (Exception exc) {
+                // ignore
+            }
+        }
+    }
+
+    private static byte[] message(String message, JsonDoc data) {
+        JsonDoc json = new JsonDoc();
+        json.set("message", message);
+        if (data != null) {
+            json.set("data", data);
+        }
+        return TerminalUtilities.compileMessage(json.toString()).getSendBuffer();
+    }
+}